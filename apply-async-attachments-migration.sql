@@ -0,0 +1,23 @@
+-- ================================================
+-- DATABASE MIGRATION - Add Pending Attachments (Async Uploads)
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- ready | pending (accepted, still being sent to remote storage) | failed
+ALTER TABLE attachments ADD COLUMN IF NOT EXISTS status VARCHAR(20) NOT NULL DEFAULT 'ready';
+
+-- Local copy of a pending file (removed once it is in remote storage)
+ALTER TABLE attachments ADD COLUMN IF NOT EXISTS spool_path TEXT;
+
+-- A pending attachment has no storage URL yet
+ALTER TABLE attachments ALTER COLUMN storage_url DROP NOT NULL;
+
+-- Sweep of pending attachments (few rows, so a partial index)
+CREATE INDEX IF NOT EXISTS idx_attachments_pending ON attachments(created_at) WHERE status = 'pending';
+
+-- Verify
+SELECT 'Async attachments migration completed!' AS status;
+SELECT status, COUNT(*) FROM attachments GROUP BY status;
@@ -0,0 +1,27 @@
+-- ================================================
+-- DATABASE MIGRATION - Content-Addressed Attachment Blobs
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- One stored file per distinct content (SHA-256), shared by every attachment with that content
+CREATE TABLE IF NOT EXISTS attachment_blobs (
+    sha256 VARCHAR(64) PRIMARY KEY,
+    storage_url TEXT,
+    storage_provider VARCHAR(50) NOT NULL,
+    file_size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 1,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- NULL until the object is uploaded: the row is reserved before the upload
+ALTER TABLE attachment_blobs ALTER COLUMN storage_url DROP NOT NULL;
+
+-- Blob an attachment shares (existing attachments keep their own object: NULL)
+ALTER TABLE attachments ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+-- Verify
+SELECT 'Attachment blobs migration completed!' AS status;
+SELECT COUNT(*) AS blobs, COALESCE(SUM(ref_count), 0) AS total_refs FROM attachment_blobs;
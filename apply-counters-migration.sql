@@ -0,0 +1,64 @@
+-- ================================================
+-- DATABASE MIGRATION - Maintained Counters on Topics, Questions and Replies
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- Requires apply-reply-path-migration.sql (root_question_id and path must be filled in)
+
+-- Counters are kept up to date by the application in the same transaction
+-- as every create/delete, so list views never aggregate at read time.
+ALTER TABLE debate_topics ADD COLUMN IF NOT EXISTS question_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE debate_topics ADD COLUMN IF NOT EXISTS reply_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE debate_topics ADD COLUMN IF NOT EXISTS last_activity_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
+
+ALTER TABLE questions ADD COLUMN IF NOT EXISTS reply_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE questions ADD COLUMN IF NOT EXISTS descendant_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE questions ADD COLUMN IF NOT EXISTS attachment_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE questions ADD COLUMN IF NOT EXISTS evidence_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE questions ADD COLUMN IF NOT EXISTS last_activity_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
+
+ALTER TABLE replies ADD COLUMN IF NOT EXISTS reply_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE replies ADD COLUMN IF NOT EXISTS descendant_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE replies ADD COLUMN IF NOT EXISTS attachment_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE replies ADD COLUMN IF NOT EXISTS evidence_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE replies ADD COLUMN IF NOT EXISTS last_activity_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
+
+-- Backfill (safe to re-run: every counter is recomputed from scratch)
+
+-- Replies: direct children, everything beneath (path range), own attachments and evidence
+UPDATE replies r SET
+    reply_count = (SELECT COUNT(*) FROM replies c WHERE c.parent_reply_id = r.id),
+    descendant_count = (SELECT COUNT(*) FROM replies d
+                        WHERE d.path > r.path || '/' AND d.path < r.path || '0'),
+    attachment_count = (SELECT COUNT(*) FROM attachments a WHERE a.reply_id = r.id),
+    evidence_count = (SELECT COUNT(*) FROM evidence_urls e WHERE e.reply_id = r.id),
+    last_activity_at = GREATEST(r.created_at,
+        (SELECT MAX(d.created_at) FROM replies d
+         WHERE d.path > r.path || '/' AND d.path < r.path || '0'));
+
+-- Questions: direct replies, whole thread, own attachments and evidence
+UPDATE questions q SET
+    reply_count = (SELECT COUNT(*) FROM replies r WHERE r.question_id = q.id),
+    descendant_count = (SELECT COUNT(*) FROM replies r WHERE r.root_question_id = q.id),
+    attachment_count = (SELECT COUNT(*) FROM attachments a WHERE a.question_id = q.id),
+    evidence_count = (SELECT COUNT(*) FROM evidence_urls e WHERE e.question_id = q.id),
+    last_activity_at = GREATEST(q.created_at,
+        (SELECT MAX(r.created_at) FROM replies r WHERE r.root_question_id = q.id));
+
+-- Topics: questions, replies across all questions
+UPDATE debate_topics t SET
+    question_count = (SELECT COUNT(*) FROM questions q WHERE q.debate_topic_id = t.id),
+    reply_count = (SELECT COALESCE(SUM(q.descendant_count), 0) FROM questions q WHERE q.debate_topic_id = t.id),
+    last_activity_at = GREATEST(t.created_at,
+        (SELECT MAX(q.last_activity_at) FROM questions q WHERE q.debate_topic_id = t.id));
+
+-- Keyset pagination "most-replied": range scan per topic on the maintained count
+CREATE INDEX IF NOT EXISTS idx_questions_topic_descendants_id
+    ON questions(debate_topic_id, descendant_count DESC, id DESC);
+
+-- Verify
+SELECT 'Counters migration completed!' AS status;
+SELECT t.topic, t.question_count, t.reply_count FROM debate_topics t ORDER BY t.created_at;
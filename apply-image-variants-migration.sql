@@ -0,0 +1,19 @@
+-- ================================================
+-- DATABASE MIGRATION - Image Variants (Thumbnails and Smaller Widths)
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- Size of the original image
+ALTER TABLE attachments ADD COLUMN IF NOT EXISTS image_width INTEGER;
+ALTER TABLE attachments ADD COLUMN IF NOT EXISTS image_height INTEGER;
+
+-- Widths of the stored variants, smallest (the thumbnail) first, e.g. '160,320,640'
+-- Existing images have none; clients keep using the original
+ALTER TABLE attachments ADD COLUMN IF NOT EXISTS variant_widths VARCHAR(100);
+
+-- Verify
+SELECT 'Image variants migration completed!' AS status;
+SELECT COUNT(*) AS images_with_variants FROM attachments WHERE variant_widths IS NOT NULL;
@@ -0,0 +1,22 @@
+-- ================================================
+-- DATABASE MIGRATION - Indexes for Paginated Question Listing
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- Keyset pagination "newest": range scan per topic on (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_questions_topic_created_id
+    ON questions(debate_topic_id, created_at DESC, id DESC);
+
+-- Keyset pagination "top": range scan per topic on net votes
+CREATE INDEX IF NOT EXISTS idx_questions_topic_net_votes_id
+    ON questions(debate_topic_id, (COALESCE(votes_up, 0) - COALESCE(votes_down, 0)) DESC, id DESC);
+
+-- Reply preview: first direct replies of each question
+CREATE INDEX IF NOT EXISTS idx_replies_question_created_id
+    ON replies(question_id, created_at, id);
+
+-- Verify
+SELECT 'Question pagination migration completed!' AS status;
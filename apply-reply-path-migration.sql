@@ -0,0 +1,46 @@
+-- ================================================
+-- DATABASE MIGRATION - Materialized Path for Nested Replies
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- Root question of every reply (also set for nested replies, whose question_id is NULL)
+ALTER TABLE replies ADD COLUMN IF NOT EXISTS root_question_id UUID REFERENCES questions(id) ON DELETE CASCADE;
+
+-- Materialized path: <question id hex>/<segment>/<segment>...
+-- Segment = 12 hex digits of created_at epoch millis + 8 hex tie-breaker digits.
+-- COLLATE "C" keeps byte order so descendant ranges [path || '/', path || '0') use the index.
+ALTER TABLE replies ADD COLUMN IF NOT EXISTS path VARCHAR(2000) COLLATE "C";
+
+-- Backfill existing replies top-down (the application also does this on startup)
+WITH RECURSIVE thread AS (
+    SELECT r.id, r.question_id AS root_id, 0 AS lvl,
+           CAST(COALESCE(r.path, replace(CAST(r.question_id AS TEXT), '-', '') || '/'
+                || lpad(to_hex(CAST(floor(extract(epoch FROM r.created_at) * 1000) AS BIGINT)), 12, '0')
+                || substr(replace(CAST(r.id AS TEXT), '-', ''), 1, 8)) AS VARCHAR(2000)) AS p
+    FROM replies r
+    WHERE r.question_id IS NOT NULL
+    UNION ALL
+    SELECT c.id, t.root_id, t.lvl + 1,
+           CAST(COALESCE(c.path, t.p || '/'
+                || lpad(to_hex(CAST(floor(extract(epoch FROM c.created_at) * 1000) AS BIGINT)), 12, '0')
+                || substr(replace(CAST(c.id AS TEXT), '-', ''), 1, 8)) AS VARCHAR(2000))
+    FROM replies c
+    JOIN thread t ON c.parent_reply_id = t.id
+)
+UPDATE replies r
+SET path = t.p, root_question_id = t.root_id, depth = t.lvl
+FROM thread t
+WHERE r.id = t.id AND r.path IS NULL;
+
+-- Subtree range scans and ordered thread rendering
+CREATE INDEX IF NOT EXISTS idx_replies_path ON replies(path);
+
+-- Whole-topic loads and reply counts per question, in thread order
+CREATE INDEX IF NOT EXISTS idx_replies_root_question_path ON replies(root_question_id, path);
+
+-- Verify
+SELECT 'Reply path migration completed!' AS status;
+SELECT COUNT(*) AS replies_without_path FROM replies WHERE path IS NULL;
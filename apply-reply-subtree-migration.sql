@@ -0,0 +1,17 @@
+-- ================================================
+-- DATABASE MIGRATION - Index for On-Demand Reply Expansion
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- Sibling pages under one parent reply: range scan on (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_replies_parent_created
+    ON replies(parent_reply_id, created_at, id);
+
+-- Superseded by idx_replies_parent_created (same leading column)
+DROP INDEX IF EXISTS idx_replies_parent;
+
+-- Verify
+SELECT 'Reply subtree migration completed!' AS status;
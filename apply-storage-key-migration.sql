@@ -0,0 +1,37 @@
+-- ================================================
+-- DATABASE MIGRATION - Indexed Storage Keys for Downloads
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- Key of the stored object (attachments/uuid.png), looked up by GET /files/key/**
+ALTER TABLE attachments ADD COLUMN IF NOT EXISTS storage_key VARCHAR(512);
+
+-- Backfill: local URLs are bare keys; full URLs keep the last folder/name of their path
+-- (same rule as Attachment.storageKeyOf)
+UPDATE attachments SET storage_key = CASE
+        WHEN storage_url ~ '^[a-zA-Z][a-zA-Z0-9+.-]*://'
+            THEN substring(
+                    split_part(split_part(regexp_replace(storage_url, '^[a-zA-Z][a-zA-Z0-9+.-]*://[^/]*', ''), '?', 1), '#', 1)
+                    from '([^/]+/[^/]+|[^/]+)$')
+        ELSE storage_url
+    END
+WHERE storage_url IS NOT NULL AND storage_key IS NULL;
+UPDATE attachments SET storage_key = NULL WHERE length(storage_key) > 512;
+
+-- Lookups by key; attachments with the same content (content_hash set) share theirs
+CREATE INDEX IF NOT EXISTS idx_attachments_storage_key ON attachments(storage_key);
+
+-- Every other object belongs to one attachment. If this fails, find the duplicates with:
+-- SELECT storage_key, COUNT(*) FROM attachments WHERE content_hash IS NULL GROUP BY storage_key HAVING COUNT(*) > 1;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_attachments_storage_key_own
+    ON attachments(storage_key) WHERE content_hash IS NULL;
+
+-- Lookups by original file name (GET /files/{filename})
+CREATE INDEX IF NOT EXISTS idx_attachments_file_name ON attachments(file_name);
+
+-- Verify
+SELECT 'Storage key migration completed!' AS status;
+SELECT COUNT(*) AS stored, COUNT(storage_key) AS with_key FROM attachments WHERE storage_url IS NOT NULL;
@@ -0,0 +1,31 @@
+-- ================================================
+-- DATABASE MIGRATION - Add Topic Change Log (Delta Sync)
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- Version of each topic, bumped by every change (GET /questions/topic/{id}/changes?since=N)
+ALTER TABLE debate_topics ADD COLUMN IF NOT EXISTS change_version BIGINT NOT NULL DEFAULT 0;
+
+-- One row per change: the question or reply it affected, numbered by the topic's version
+CREATE TABLE IF NOT EXISTS topic_changes (
+    topic_id UUID NOT NULL REFERENCES debate_topics(id) ON DELETE CASCADE,
+    version BIGINT NOT NULL,
+    node_type VARCHAR(10) NOT NULL CHECK (node_type IN ('question', 'reply')),
+    node_id UUID NOT NULL,
+    deleted BOOLEAN NOT NULL DEFAULT false,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (topic_id, version)
+);
+
+-- Retention (rows older than changes.retention-days are deleted)
+CREATE INDEX IF NOT EXISTS idx_topic_changes_changed_at ON topic_changes(changed_at);
+
+-- Add comment
+COMMENT ON TABLE topic_changes IS 'Numbered changes per debate topic (delta sync), pruned after a few days';
+
+-- Verify
+SELECT 'Topic change log migration completed!' AS status;
+SELECT id, topic, change_version FROM debate_topics;
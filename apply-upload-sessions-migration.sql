@@ -0,0 +1,46 @@
+-- ================================================
+-- DATABASE MIGRATION - Add Resumable Upload Sessions
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- One row per upload in parts (POST /files/uploads), deleted when it completes or is aborted
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    storage_provider VARCHAR(50) NOT NULL,
+    storage_key VARCHAR(500) NOT NULL,
+    provider_upload_id TEXT NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    file_size BIGINT NOT NULL,
+    file_type VARCHAR(100) NOT NULL,
+    part_size BIGINT NOT NULL,
+    part_count INTEGER NOT NULL,
+    question_id UUID,
+    reply_id UUID,
+    uploaded_by VARCHAR(100) DEFAULT 'Anonymous',
+    status VARCHAR(20) NOT NULL DEFAULT 'uploading' CHECK (status IN ('uploading', 'completing')),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Parts the storage provider accepted, with the ETag needed to complete the upload
+CREATE TABLE IF NOT EXISTS upload_session_parts (
+    session_id UUID NOT NULL REFERENCES upload_sessions(id) ON DELETE CASCADE,
+    part_number INTEGER NOT NULL,
+    size BIGINT NOT NULL,
+    etag VARCHAR(255) NOT NULL,
+    uploaded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (session_id, part_number)
+);
+
+-- Cleanup of idle sessions (file.multipart.session-ttl-ms)
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_created_at ON upload_sessions(created_at);
+
+-- Add comments
+COMMENT ON TABLE upload_sessions IS 'Resumable uploads in progress (S3/R2 multipart uploads, local part files)';
+COMMENT ON TABLE upload_session_parts IS 'Parts received per upload session';
+
+-- Verify
+SELECT 'Upload sessions migration completed!' AS status;
+SELECT COUNT(*) AS upload_sessions FROM upload_sessions;
@@ -0,0 +1,29 @@
+-- ================================================
+-- DATABASE MIGRATION - Add Vote Ledger Table
+-- Database: debate_db
+-- ================================================
+
+-- Connect to debate_db first!
+-- \c debate_db
+
+-- One row per (user, question/reply): enforces one vote per user per post
+CREATE TABLE IF NOT EXISTS vote_ledger (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    user_id UUID NOT NULL,
+    target_id UUID NOT NULL,
+    target_type VARCHAR(10) NOT NULL CHECK (target_type IN ('question', 'reply')),
+    vote_type VARCHAR(10) NOT NULL CHECK (vote_type IN ('up', 'down')),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_vote_ledger_user_target UNIQUE (user_id, target_id)
+);
+
+-- Lookups by target (e.g. recounting a post)
+CREATE INDEX IF NOT EXISTS idx_vote_ledger_target ON vote_ledger(target_id);
+
+-- Add comment
+COMMENT ON TABLE vote_ledger IS 'Per-user votes on questions and replies (one vote per user per post)';
+
+-- Verify
+SELECT 'Vote ledger migration completed!' AS status;
+SELECT COUNT(*) AS vote_count FROM vote_ledger;
@@ -0,0 +1,70 @@
+package com.debatearena.config;
+
+import com.debatearena.controller.LiveTopicSocket;
+import com.debatearena.service.LiveSocketHub;
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.DeploymentException;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.ServletContextAware;
+
+/**
+ * Live WebSocket Configuration
+ *
+ * Registers LiveTopicSocket at live.ws.path (default /ws/topics/{topicId},
+ * under the /api/v1 context path) with the servlet container's standard
+ * WebSocket support (Tomcat's jakarta.websocket implementation, which comes
+ * with spring-boot-starter-web), so no extra dependency is needed.
+ *
+ * Skipped when there is no WebSocket container (e.g. MockMvc tests) or
+ * when live.ws.enabled is false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "live.ws.enabled", havingValue = "true", matchIfMissing = true)
+public class LiveSocketConfig implements ServletContextAware, SmartInitializingSingleton {
+
+    private final LiveSocketHub liveSocketHub;
+    private final String path;
+    private ServletContext servletContext;
+
+    public LiveSocketConfig(LiveSocketHub liveSocketHub,
+                            @Value("${live.ws.path:/ws/topics/{topicId}}") String path) {
+        this.liveSocketHub = liveSocketHub;
+        this.path = path;
+    }
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ServerContainer container = servletContext != null
+                ? (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName())
+                : null;
+        if (container == null) {
+            System.out.println("⚠️ No WebSocket container: live socket endpoint not registered");
+            return;
+        }
+
+        ServerEndpointConfig config = ServerEndpointConfig.Builder.create(LiveTopicSocket.class, path)
+                .configurator(new ServerEndpointConfig.Configurator() {
+                    @Override
+                    public <T> T getEndpointInstance(Class<T> endpointClass) {
+                        return endpointClass.cast(new LiveTopicSocket(liveSocketHub));
+                    }
+                })
+                .build();
+        try {
+            container.addEndpoint(config);
+            System.out.println("✅ Live socket endpoint registered at " + path);
+        } catch (DeploymentException e) {
+            throw new IllegalStateException("Failed to register live socket endpoint " + path, e);
+        }
+    }
+}
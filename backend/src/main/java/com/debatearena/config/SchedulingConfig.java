@@ -0,0 +1,15 @@
+package com.debatearena.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduling Configuration
+ *
+ * Enables @Scheduled background jobs (e.g. the periodic flush of
+ * buffered vote counters in VoteWriteBehindBuffer).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
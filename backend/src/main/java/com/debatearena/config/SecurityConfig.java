@@ -51,12 +51,16 @@ public class SecurityConfig {
                         .requestMatchers("OPTIONS", "/**").permitAll()
                         // Public endpoints - no authentication required
                         .requestMatchers("/api/v1/files/upload").permitAll()
+                        .requestMatchers("/api/v1/files/uploads/**").permitAll()
+                        .requestMatchers("/api/v1/files/presign/**").permitAll()
                         .requestMatchers("/api/v1/admin/login").permitAll()
                         .requestMatchers("GET", "/api/v1/topics/**").permitAll()
                         .requestMatchers("GET", "/api/v1/debates/**").permitAll()
                         .requestMatchers("GET", "/api/v1/questions/**").permitAll()
                         .requestMatchers("GET", "/api/v1/replies/**").permitAll()
                         .requestMatchers("GET", "/api/v1/files/**").permitAll()
+                        // Live debate feed (WebSocket handshake is a GET)
+                        .requestMatchers("GET", "/api/v1/ws/**").permitAll()
                         // All other requests require authentication
                         .anyRequest().authenticated()
                 );
@@ -100,7 +104,7 @@ public class SecurityConfig {
         configuration.setMaxAge(3600L);
 
         // Expose authorization header
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "X-Change-Version"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
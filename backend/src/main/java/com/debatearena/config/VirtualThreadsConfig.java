@@ -0,0 +1,41 @@
+package com.debatearena.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Virtual Threads Configuration
+ *
+ * The virtual-threads profile (application-virtual-threads.yml) sets
+ * spring.threads.virtual.enabled, which runs Tomcat request handling,
+ * @Async and @Scheduled work on virtual threads. Spring Boot only honours
+ * it on Java 21+, and the default build targets Java 17 (build with
+ * -Pjava21 for the profile), so this logs which mode is actually in use.
+ *
+ * Blocking work stays bounded with virtual threads: JDBC by the Hikari
+ * pool, remote storage calls by StorageCallLimiter.
+ */
+@Configuration
+public class VirtualThreadsConfig {
+
+    private final boolean virtualThreadsRequested;
+
+    public VirtualThreadsConfig(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsRequested) {
+        this.virtualThreadsRequested = virtualThreadsRequested;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreadingMode() {
+        int javaVersion = Runtime.version().feature();
+        if (!virtualThreadsRequested) {
+            System.out.println("🧵 Request threads: platform (Tomcat pool)");
+        } else if (javaVersion >= 21) {
+            System.out.println("🧵 Request threads: virtual (Java " + javaVersion + ")");
+        } else {
+            System.out.println("⚠️ spring.threads.virtual.enabled is set but Java " + javaVersion
+                    + " has no virtual threads: using platform threads (run on Java 21, build with -Pjava21)");
+        }
+    }
+}
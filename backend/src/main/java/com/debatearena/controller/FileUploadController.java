@@ -2,6 +2,8 @@ package com.debatearena.controller;
 
 import com.debatearena.dto.AttachmentDTO;
 import com.debatearena.dto.EvidenceUrlDTO;
+import com.debatearena.dto.PresignedUrlDTO;
+import com.debatearena.dto.UploadSessionDTO;
 import com.debatearena.model.Attachment;
 import com.debatearena.model.EvidenceUrl;
 import com.debatearena.model.Question;
@@ -10,14 +12,23 @@ import com.debatearena.repository.AttachmentRepository;
 import com.debatearena.repository.EvidenceUrlRepository;
 import com.debatearena.repository.QuestionRepository;
 import com.debatearena.repository.ReplyRepository;
+import com.debatearena.service.AsyncUploadService;
+import com.debatearena.service.AttachmentBlobService;
+import com.debatearena.service.DebateCounterService;
+import com.debatearena.service.DownloadMetadataCache;
 import com.debatearena.service.FileStorageService;
+import com.debatearena.service.ImageVariantService;
+import com.debatearena.service.LocalDownloadService;
+import com.debatearena.service.PresignedUploadService;
+import com.debatearena.service.RemoteFileCache;
 import com.debatearena.service.S3FileStorageService;
+import com.debatearena.service.StorageCallLimiter;
+import com.debatearena.service.UploadSessionService;
 import com.debatearena.util.FileUrlUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -25,14 +36,17 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -43,7 +57,15 @@ import java.util.stream.Collectors;
  * Handles file uploads and downloads for question and reply attachments.
  *
  * ENDPOINTS:
- * POST   /files/upload           - Upload a file
+ * POST   /files/upload           - Upload a file (202 + pending attachment in async mode)
+ * POST   /files/uploads          - Start a resumable upload (in parts)
+ * GET    /files/uploads/{id}     - Parts received so far
+ * PUT    /files/uploads/{id}/parts/{n} - Upload one part
+ * POST   /files/uploads/{id}/complete  - Join the parts, create the attachment
+ * DELETE /files/uploads/{id}     - Abort a resumable upload
+ * POST   /files/presign/upload   - Presigned PUT URL (direct to the bucket)
+ * POST   /files/presign/complete - Create the attachment for a presigned upload
+ * GET    /files/presign/download/{id} - Presigned GET URL for an attachment
  * GET    /files/{filename}       - Download/view a file
  * DELETE /files/{id}             - Delete an attachment
  * POST   /files/evidence-url     - Add an evidence URL
@@ -65,6 +87,9 @@ public class FileUploadController {
 
     private static final Logger logger = LoggerFactory.getLogger(FileUploadController.class);
 
+    // Local image variant keys (no dots besides the extension, so no path traversal)
+    private static final Pattern VARIANT_KEY = Pattern.compile("[a-zA-Z0-9/_-]+_w\\d+\\.(jpg|png)");
+
     @Autowired
     private FileStorageService fileStorageService;
 
@@ -86,6 +111,33 @@ public class FileUploadController {
     @Autowired
     private ReplyRepository replyRepository;
 
+    @Autowired
+    private DebateCounterService debateCounterService;
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Autowired
+    private AsyncUploadService asyncUploadService;
+
+    @Autowired
+    private AttachmentBlobService attachmentBlobService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private PresignedUploadService presignedUploadService;
+
+    @Autowired
+    private LocalDownloadService localDownloadService;
+
+    @Autowired
+    private DownloadMetadataCache downloadMetadataCache;
+
+    @Autowired
+    private RemoteFileCache remoteFileCache;
+
     @Value("${file.upload-dir:./uploads}")
     private String uploadDir;
 
@@ -102,7 +154,8 @@ public class FileUploadController {
      * @param questionId ID of the question (optional)
      * @param replyId ID of the reply (optional)
      * @param uploadedBy Name of uploader (optional)
-     * @return AttachmentDTO with storage URL
+     * @return AttachmentDTO with storage URL; with file.async.enabled, 202 and a
+     *         pending attachment whose URL is set once it reaches storage
      */
     @PostMapping(
             value = "/upload",
@@ -156,19 +209,11 @@ public class FileUploadController {
                 return ResponseEntity.badRequest().body("Cannot attach to both question and reply");
             }
 
-            // Upload file to storage (local or S3). The concrete implementation
-            // of FileStorageService is selected by Spring via `file.provider`.
-            logger.info("📤 Uploading file using provider: {}", fileProvider);
-            String storageUrl = fileStorageService.uploadFile(file, "attachments");
-            String provider = fileStorageService.getProviderName();
-
             // Create attachment record
             Attachment attachment = new Attachment();
             attachment.setFileName(file.getOriginalFilename());
             attachment.setFileSize(file.getSize());
             attachment.setFileType(file.getContentType());
-            attachment.setStorageUrl(storageUrl);
-            attachment.setStorageProvider(provider);
             attachment.setUploadedBy(uploadedBy != null ? uploadedBy : "Anonymous");
 
             // Set parent (question or reply)
@@ -186,21 +231,48 @@ public class FileUploadController {
                 attachment.setReply(reply);
             }
 
-             // Save to database
-             Attachment saved = attachmentRepository.save(attachment);
+            // Async mode: answer now (pending), the file goes to remote storage in the background
+            if (asyncUploadService.isEnabled()) {
+                Attachment pending = asyncUploadService.accept(file, attachment);
+                logger.info("File accepted for upload: {} ({})", file.getOriginalFilename(), pending.getId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(toDto(pending));
+            }
+
+            // Upload file to storage (local or S3). The concrete implementation
+            // of FileStorageService is selected by Spring via `file.provider`.
+            // Content stored before is not uploaded again (see AttachmentBlobService).
+            logger.info("📤 Uploading file using provider: {}", fileProvider);
+            // Images: a copy for the thumbnail and smaller variants, made after the response
+            Path imageCopy = imageVariantService.copyIfImage(file);
+            Attachment saved;
+            try {
+                AttachmentBlobService.StoredContent stored = attachmentBlobService.store(
+                        file, file.getSize(), file.getOriginalFilename(), file.getContentType(), "attachments");
+                attachment.setStorageUrl(stored.storageUrl());
+                attachment.setContentHash(stored.contentHash());
+                attachment.setStorageProvider(fileStorageService.getProviderName());
+
+                // Save to database (and count it on the question or reply)
+                try {
+                    saved = debateCounterService.createAttachment(attachment);
+                } catch (RuntimeException e) {
+                    attachmentBlobService.release(stored);
+                    throw e;
+                }
+            } catch (IOException | RuntimeException e) {
+                imageVariantService.discard(imageCopy);
+                throw e;
+            }
+            imageVariantService.submit(saved.getId(), saved.getFileType(), imageCopy);
 
-             logger.info("File uploaded successfully: {} ({})", file.getOriginalFilename(), saved.getId());
+            logger.info("File uploaded successfully: {} ({})", file.getOriginalFilename(), saved.getId());
 
-             // Create response DTO, ensuring local file URLs include the port
-             AttachmentDTO dto = AttachmentDTO.fromEntity(saved);
-             if ("local".equalsIgnoreCase(provider)) {
-                 // Override the URL for local files to ensure it includes port
-                 String properUrl = fileUrlUtil.constructFileUrl(storageUrl);
-                 dto.setStorageUrl(properUrl);
-             }
-             
-             return ResponseEntity.ok(dto);
+            // Create response DTO, ensuring local file URLs include the port
+            return ResponseEntity.ok(toDto(saved));
 
+        } catch (StorageCallLimiter.BusyException e) {
+            logger.warn("File upload rejected: {}", e.getMessage());
+            return busy(e);
         } catch (IOException e) {
             logger.error("File upload failed", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -212,12 +284,243 @@ public class FileUploadController {
         }
     }
 
+    /**
+     * Start a resumable upload (files too large for POST /upload, or on flaky
+     * connections). Then PUT each part to /uploads/{id}/parts/{n} (several at
+     * once is fine), and POST /uploads/{id}/complete.
+     *
+     * @param fileName Name of the file
+     * @param fileSize Exact size in bytes (up to file.multipart.max-size)
+     * @param contentType MIME type (optional)
+     * @param questionId ID of the question (optional)
+     * @param replyId ID of the reply (optional)
+     * @param uploadedBy Name of uploader (optional)
+     * @return UploadSessionDTO with the part size and count
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<?> startUpload(
+            @RequestParam String fileName,
+            @RequestParam long fileSize,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) UUID questionId,
+            @RequestParam(required = false) UUID replyId,
+            @RequestParam(required = false) String uploadedBy
+    ) {
+        try {
+            UploadSessionDTO session = uploadSessionService.start(
+                    fileName, fileSize, contentType, questionId, replyId, uploadedBy);
+            return ResponseEntity.status(HttpStatus.CREATED).body(session);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (UnsupportedOperationException e) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(e.getMessage());
+        } catch (StorageCallLimiter.BusyException e) {
+            logger.warn("Upload session start rejected: {}", e.getMessage());
+            return busy(e);
+        } catch (Exception e) {
+            logger.error("Failed to start upload session", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to start upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * State of a resumable upload: the parts received so far (resume by
+     * sending the others)
+     *
+     * @param id Upload session ID
+     * @return UploadSessionDTO
+     */
+    @GetMapping("/uploads/{id}")
+    public ResponseEntity<?> getUpload(@PathVariable UUID id) {
+        return uploadSessionService.get(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Upload one part: the raw bytes as the request body, with Content-Length.
+     * Streamed to storage as it arrives; a part sent again replaces the earlier one.
+     *
+     * @param id Upload session ID
+     * @param partNumber 1-based part number
+     * @return The stored part (number, size, ETag)
+     */
+    @PutMapping("/uploads/{id}/parts/{partNumber}")
+    public ResponseEntity<?> uploadPart(
+            @PathVariable UUID id,
+            @PathVariable int partNumber,
+            HttpServletRequest request
+    ) {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).body("Content-Length is required");
+        }
+        try {
+            return uploadSessionService.uploadPart(id, partNumber, request::getInputStream, contentLength)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (StorageCallLimiter.BusyException e) {
+            logger.warn("Part upload rejected: {}", e.getMessage());
+            return busy(e);
+        } catch (Exception e) {
+            logger.error("Part {} of upload {} failed", partNumber, id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Part upload failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Complete a resumable upload once every part is stored
+     *
+     * @param id Upload session ID
+     * @return AttachmentDTO (as POST /upload returns it); 409 lists missing parts
+     */
+    @PostMapping("/uploads/{id}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable UUID id) {
+        try {
+            return uploadSessionService.complete(id)
+                    .<ResponseEntity<?>>map(saved -> ResponseEntity.ok(toDto(saved)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (StorageCallLimiter.BusyException e) {
+            logger.warn("Upload completion rejected: {}", e.getMessage());
+            return busy(e);
+        } catch (Exception e) {
+            logger.error("Failed to complete upload {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to complete upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Abort a resumable upload and drop its parts
+     *
+     * @param id Upload session ID
+     */
+    @DeleteMapping("/uploads/{id}")
+    public ResponseEntity<?> abortUpload(@PathVariable UUID id) {
+        try {
+            return uploadSessionService.abort(id)
+                    ? ResponseEntity.ok("Upload aborted")
+                    : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (StorageCallLimiter.BusyException e) {
+            return busy(e);
+        } catch (Exception e) {
+            logger.error("Failed to abort upload {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to abort upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Presigned upload, straight to the bucket (S3/R2): PUT the file to the
+     * returned URL with the returned headers, then POST the ticket to
+     * /presign/complete. No file bytes pass through the backend.
+     *
+     * @param fileName Name of the file
+     * @param fileSize Exact size in bytes (up to file.presign.max-size)
+     * @param contentType MIME type (optional; the PUT must send the same)
+     * @param questionId ID of the question (optional)
+     * @param replyId ID of the reply (optional)
+     * @param uploadedBy Name of uploader (optional)
+     * @return PresignedUrlDTO with the URL, headers and ticket
+     */
+    @PostMapping("/presign/upload")
+    public ResponseEntity<?> presignUpload(
+            @RequestParam String fileName,
+            @RequestParam long fileSize,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) UUID questionId,
+            @RequestParam(required = false) UUID replyId,
+            @RequestParam(required = false) String uploadedBy
+    ) {
+        try {
+            PresignedUrlDTO upload = presignedUploadService.issueUpload(
+                    fileName, fileSize, contentType, questionId, replyId, uploadedBy);
+            return ResponseEntity.ok(upload);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (UnsupportedOperationException e) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Failed to presign upload", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to presign upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Complete a presigned upload once the PUT succeeded
+     *
+     * @param ticket Ticket from /presign/upload
+     * @return AttachmentDTO (as POST /upload returns it); 409 if the file is
+     *         not in the bucket or has the wrong size
+     */
+    @PostMapping("/presign/complete")
+    public ResponseEntity<?> completePresignedUpload(@RequestParam String ticket) {
+        try {
+            return ResponseEntity.ok(toDto(presignedUploadService.complete(ticket)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (StorageCallLimiter.BusyException e) {
+            logger.warn("Presigned upload completion rejected: {}", e.getMessage());
+            return busy(e);
+        } catch (Exception e) {
+            logger.error("Failed to complete presigned upload", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to complete upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Presigned GET URL for an attachment (downloads straight from the bucket)
+     *
+     * @param id Attachment ID
+     * @return PresignedUrlDTO with the URL and its expiry
+     */
+    @GetMapping("/presign/download/{id}")
+    public ResponseEntity<?> presignDownload(@PathVariable UUID id) {
+        try {
+            return presignedUploadService.downloadUrl(id)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (UnsupportedOperationException e) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Failed to presign download {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to presign download: " + e.getMessage());
+        }
+    }
+
+    // Attachment DTO with local file URLs including the port
+    private AttachmentDTO toDto(Attachment attachment) {
+        AttachmentDTO dto = AttachmentDTO.fromEntity(attachment);
+        if ("local".equalsIgnoreCase(attachment.getStorageProvider())) {
+            dto.setStorageUrl(fileUrlUtil.constructFileUrl(attachment.getStorageUrl()));
+            dto.applyVariants(attachment);
+        }
+        return dto;
+    }
+
     /**
      * Download by storage key (supports slashes without encoding).
      * Example: GET /api/v1/files/key/attachments/uuid.jpg
+     *
+     * Local files support Range, ETag and caching (see LocalDownloadService).
      */
     @GetMapping("/key/**")
-    public ResponseEntity<Resource> downloadByKey(HttpServletRequest request) {
+    public ResponseEntity<Resource> downloadByKey(HttpServletRequest request, HttpServletResponse response) {
         try {
             String uri = request.getRequestURI(); // e.g. /api/v1/files/key/attachments/uuid.jpg
             // find '/files/key/' segment
@@ -229,27 +532,30 @@ public class FileUploadController {
             String storageKey = uri.substring(idx + marker.length());
             // storageKey is like attachments/uuid.jpg
 
-            // Try to find by storage key
-            Attachment byKey = attachmentRepository.findByStorageUrl(storageKey);
+            // Image variants (attachments/abc_w320.jpg) are files next to their original, with no record
+            Matcher variant = VARIANT_KEY.matcher(storageKey);
+            if (variant.matches() && "local".equalsIgnoreCase(fileStorageService.getProviderName())) {
+                String contentType = "png".equals(variant.group(1)) ? MediaType.IMAGE_PNG_VALUE : MediaType.IMAGE_JPEG_VALUE;
+                if (localDownloadService.serve(request, response, Paths.get(uploadDir).resolve(storageKey).normalize(),
+                        storageKey, contentType, null, null)) {
+                    return null;
+                }
+                return ResponseEntity.notFound().build();
+            }
+
+            // Try to find by storage key (cached)
+            DownloadMetadataCache.Metadata byKey = downloadMetadataCache.byStorageKey(storageKey).orElse(null);
             if (byKey == null) {
                 logger.warn("Attachment not found for storage key: {}", storageKey);
                 return ResponseEntity.notFound().build();
             }
 
-            if ("local".equalsIgnoreCase(byKey.getStorageProvider())) {
-                Path filePath = Paths.get(uploadDir).resolve(byKey.getStorageUrl()).normalize();
-                if (!Files.exists(filePath)) return ResponseEntity.notFound().build();
-                Resource resource = new FileSystemResource(filePath);
-                String contentType = Files.probeContentType(filePath);
-                if (contentType == null) contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + byKey.getFileName() + "\"")
-                        .body(resource);
+            if (byKey.isLocal()) {
+                return serveLocal(request, response, byKey);
             }
 
-            // Remote provider (S3) -> redirect to URL
-            return ResponseEntity.status(HttpStatus.FOUND).header(HttpHeaders.LOCATION, byKey.getStorageUrl()).build();
+            // Remote provider (S3) -> local cached copy, or redirect to URL
+            return serveRemote(request, response, byKey);
 
         } catch (Exception e) {
             logger.error("File download by key failed", e);
@@ -264,50 +570,22 @@ public class FileUploadController {
      * File is stored in cloud, not on local filesystem.
      *
      * @param filename Name of the file
-     * @return HTTP 302 redirect to remote storage URL
+     * @return HTTP 302 redirect to remote storage URL (local files are written directly)
      */
     @GetMapping("/{filename}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String filename) {
+    public ResponseEntity<Resource> downloadFile(@PathVariable String filename,
+                                                 HttpServletRequest request, HttpServletResponse response) {
         try {
-            // First try to find attachment by original filename (backwards compatibility)
-            Attachment attachment = attachmentRepository.findByFileName(filename);
-            if (attachment != null && attachment.getStorageUrl() != null) {
-                logger.info("Preparing download for file: {} (provider={})", filename, attachment.getStorageProvider());
-                if ("local".equalsIgnoreCase(attachment.getStorageProvider())) {
-                    Path filePath = Paths.get(uploadDir).resolve(attachment.getStorageUrl()).normalize();
-                    if (!Files.exists(filePath)) {
-                        logger.warn("Local file not found: {}", filePath);
-                        return ResponseEntity.notFound().build();
-                    }
-                    Resource resource = new FileSystemResource(filePath);
-                    String contentType = Files.probeContentType(filePath);
-                    if (contentType == null) contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
-                    return ResponseEntity.ok()
-                            .contentType(MediaType.parseMediaType(contentType))
-                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.getFileName() + "\"")
-                            .body(resource);
+            // First try to find attachment by original filename (backwards compatibility), then by storage key
+            DownloadMetadataCache.Metadata attachment = downloadMetadataCache.byFileName(filename)
+                    .or(() -> downloadMetadataCache.byStorageKey(filename))
+                    .orElse(null);
+            if (attachment != null) {
+                logger.debug("Preparing download for file: {} (provider={})", filename, attachment.storageProvider());
+                if (attachment.isLocal()) {
+                    return serveLocal(request, response, attachment);
                 }
-                logger.info("Redirecting to remote storage URL for file: {}", filename);
-                return ResponseEntity.status(HttpStatus.FOUND)
-                        .header(HttpHeaders.LOCATION, attachment.getStorageUrl())
-                        .build();
-            }
-
-            // If not found by filename, try to treat the path as a storage key (attachments/uuid.png)
-            Attachment byKey = attachmentRepository.findByStorageUrl(filename);
-            if (byKey != null) {
-                if ("local".equalsIgnoreCase(byKey.getStorageProvider())) {
-                    Path filePath = Paths.get(uploadDir).resolve(byKey.getStorageUrl()).normalize();
-                    if (!Files.exists(filePath)) return ResponseEntity.notFound().build();
-                    Resource resource = new FileSystemResource(filePath);
-                    String contentType = Files.probeContentType(filePath);
-                    if (contentType == null) contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
-                    return ResponseEntity.ok()
-                            .contentType(MediaType.parseMediaType(contentType))
-                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + byKey.getFileName() + "\"")
-                            .body(resource);
-                }
-                return ResponseEntity.status(HttpStatus.FOUND).header(HttpHeaders.LOCATION, byKey.getStorageUrl()).build();
+                return serveRemote(request, response, attachment);
             }
 
             logger.warn("File not found in database: {}", filename);
@@ -319,6 +597,58 @@ public class FileUploadController {
         }
     }
 
+    // Local attachment written to the response (null), or 404 when its file is gone
+    private ResponseEntity<Resource> serveLocal(HttpServletRequest request, HttpServletResponse response,
+                                                DownloadMetadataCache.Metadata attachment) throws IOException {
+        Path filePath = Paths.get(uploadDir).resolve(attachment.storageUrl()).normalize();
+        if (!localDownloadService.serve(request, response, filePath, attachment.storageUrl(),
+                attachment.fileType(), attachment.fileName(), attachment.contentHash())) {
+            logger.warn("Local file not found: {}", filePath);
+            downloadMetadataCache.evict(attachment.attachmentId());
+            return ResponseEntity.notFound().build();
+        }
+        return null;
+    }
+
+    // Remote attachment: its copy in the read-through cache (file.proxy.enabled), else a redirect
+    private ResponseEntity<Resource> serveRemote(HttpServletRequest request, HttpServletResponse response,
+                                                 DownloadMetadataCache.Metadata attachment) {
+        if (remoteFileCache.isEnabled() && remoteFileCache.accepts(attachment.fileSize())) {
+            try {
+                Optional<Path> cached = remoteFileCache.fetch(attachment.storageUrl());
+                if (cached.isEmpty()) {
+                    logger.warn("Remote file not found: {}", attachment.storageUrl());
+                    downloadMetadataCache.evict(attachment.attachmentId());
+                    return ResponseEntity.notFound().build();
+                }
+                if (localDownloadService.serve(request, response, cached.get(), attachment.storageKey(),
+                        attachment.fileType(), attachment.fileName(), attachment.contentHash())) {
+                    return null;
+                }
+                remoteFileCache.discard(attachment.storageUrl());
+            } catch (IOException e) {
+                // Storage busy or unreachable from here: the client may still reach it
+                logger.warn("Could not proxy {}, redirecting: {}", attachment.storageUrl(), e.getMessage());
+            }
+        }
+        return redirect(attachment);
+    }
+
+    // Remote attachment: redirect to its storage URL (or a presigned one)
+    private ResponseEntity<Resource> redirect(DownloadMetadataCache.Metadata attachment) {
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, presignedUploadService.redirectUrl(
+                        attachment.storageProvider(), attachment.storageUrl(), attachment.fileName()))
+                .build();
+    }
+
+    // Storage has no free slot: the client should retry shortly
+    private static ResponseEntity<String> busy(StorageCallLimiter.BusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
+
     /**
      * Delete an attachment
      *
@@ -331,20 +661,27 @@ public class FileUploadController {
             Attachment attachment = attachmentRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Attachment not found: " + id));
 
-            // Delete file from storage
-            fileStorageService.deleteFile(attachment.getStorageUrl());
+            // Delete database record (and uncount it)
+            debateCounterService.deleteAttachment(attachment);
+            downloadMetadataCache.evict(id);
 
-            // Delete database record
-            attachmentRepository.delete(attachment);
+            // Then the file: a pending file is still in the spool directory; a stored one
+            // is deleted unless other attachments share its content (after the record, so
+            // a failure here leaves an unused object rather than an attachment without one)
+            if (Attachment.STATUS_PENDING.equals(attachment.getStatus())) {
+                asyncUploadService.discard(attachment);
+            } else {
+                try {
+                    attachmentBlobService.release(AttachmentBlobService.of(attachment));
+                } catch (IOException e) {
+                    logger.warn("Attachment {} deleted, but its file could not be removed: {}", id, e.getMessage());
+                }
+            }
 
             logger.info("Attachment deleted: {}", id);
 
             return ResponseEntity.ok("Attachment deleted successfully");
 
-        } catch (IOException e) {
-            logger.error("Failed to delete file from storage", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Failed to delete file: " + e.getMessage());
         } catch (Exception e) {
             logger.error("Failed to delete attachment", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -392,7 +729,7 @@ public class FileUploadController {
                 evidenceUrl.setReply(reply);
             }
 
-            EvidenceUrl saved = evidenceUrlRepository.save(evidenceUrl);
+            EvidenceUrl saved = debateCounterService.createEvidenceUrl(evidenceUrl);
 
             logger.info("Evidence URL added: {}", saved.getId());
 
@@ -417,7 +754,7 @@ public class FileUploadController {
             EvidenceUrl evidenceUrl = evidenceUrlRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Evidence URL not found: " + id));
 
-            evidenceUrlRepository.delete(evidenceUrl);
+            debateCounterService.deleteEvidenceUrl(evidenceUrl);
 
             logger.info("Evidence URL deleted: {}", id);
 
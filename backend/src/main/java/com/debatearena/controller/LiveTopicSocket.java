@@ -0,0 +1,77 @@
+package com.debatearena.controller;
+
+import com.debatearena.service.LiveSocketHub;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Live Topic Socket - WebSocket endpoint
+ * =====================================================================
+ *
+ * ws(s)://host/api/v1/ws/topics/{topicId}
+ *
+ * Read-only live feed of a debate topic: the server sends JSON text frames
+ * {"type": ..., "seq": ..., "data": ...} with these types:
+ * - subscribed, heartbeat
+ * - question.created, question.updated, question.deleted
+ * - reply.created, reply.updated, reply.deleted
+ * - votes: array of {id, targetType, votesUp, votesDown}, batched
+ *
+ * Messages from the client are ignored. Registered by LiveSocketConfig;
+ * fan-out and vote batching are done by LiveSocketHub.
+ *
+ * @author TarkVtark Team
+ */
+public class LiveTopicSocket extends Endpoint {
+
+    private final LiveSocketHub liveSocketHub;
+
+    public LiveTopicSocket(LiveSocketHub liveSocketHub) {
+        this.liveSocketHub = liveSocketHub;
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        UUID topicId;
+        try {
+            topicId = UUID.fromString(session.getPathParameters().get("topicId"));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            close(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "Invalid topic id");
+            return;
+        }
+
+        if (!liveSocketHub.join(topicId, session)) {
+            System.out.println("⚠️ Live socket rejected for topic " + topicId + ": server at capacity");
+            close(session, CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too many connections");
+            return;
+        }
+        session.addMessageHandler(String.class, (MessageHandler.Whole<String>) message -> {
+            // Read-only feed: client messages (e.g. keep-alives) need no answer
+        });
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        liveSocketHub.leave(session);
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        liveSocketHub.leave(session);
+    }
+
+    private static void close(Session session, CloseReason.CloseCode code, String reason) {
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+}
@@ -1,24 +1,35 @@
 package com.debatearena.controller;
 
-import com.debatearena.dto.AttachmentDTO;
-import com.debatearena.dto.EvidenceUrlDTO;
 import com.debatearena.dto.QuestionDTO;
-import com.debatearena.dto.ReplyDTO;
+import com.debatearena.dto.QuestionPageDTO;
+import com.debatearena.dto.TopicChangesDTO;
+import com.debatearena.dto.VoteResultDTO;
+import com.debatearena.event.LiveDebateEvent;
 import com.debatearena.model.DebateTopic;
 import com.debatearena.model.Question;
-import com.debatearena.model.Reply;
-import com.debatearena.repository.AttachmentRepository;
 import com.debatearena.repository.DebateTopicRepository;
-import com.debatearena.repository.EvidenceUrlRepository;
 import com.debatearena.repository.QuestionRepository;
-import com.debatearena.repository.ReplyRepository;
+import com.debatearena.service.DebateCounterService;
+import com.debatearena.service.DebateTreeCache;
+import com.debatearena.service.DebateTreeStreamer;
+import com.debatearena.service.LiveEventBroadcaster;
+import com.debatearena.service.QuestionPageService;
+import com.debatearena.service.TopicDeltaService;
+import com.debatearena.service.VoteService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletResponse;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -35,6 +46,8 @@ import java.time.format.DateTimeFormatter;
  *
  * Endpoints:
  * - GET  /questions/topic/{topicId} - Get all questions for a topic
+ * - GET  /questions/topic/{topicId}/page - Get one page of questions (keyset cursor)
+ * - GET  /questions/topic/{topicId}/changes?since=N - Questions and replies changed since version N
  * - GET  /questions/{questionId} - Get specific question by ID
  * - POST /questions - Create new question
  * - PUT  /questions/{questionId} - Update question
@@ -50,83 +63,154 @@ public class QuestionController {
 
     private final QuestionRepository questionRepository;
     private final DebateTopicRepository debateTopicRepository;
-    private final ReplyRepository replyRepository;
-    private final AttachmentRepository attachmentRepository;
-    private final EvidenceUrlRepository evidenceUrlRepository;
+    private final DebateTreeCache debateTreeCache;
+    private final DebateTreeStreamer debateTreeStreamer;
+    private final QuestionPageService questionPageService;
+    private final TopicDeltaService topicDeltaService;
+    private final DebateCounterService debateCounterService;
+    private final VoteService voteService;
+    private final LiveEventBroadcaster liveEventBroadcaster;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final String CHANGE_VERSION_HEADER = "X-Change-Version";
 
     /**
      * GET /questions/topic/{topicId}
      * Get all questions for a specific debate topic with nested replies
      *
      * @param topicId UUID of the debate topic
-     * @return List of QuestionDTOs with replies
+     * @param acceptEncoding Accept-Encoding request header (gzip is served pre-compressed)
+     * @param response Receives the list of QuestionDTOs with replies (pre-serialized JSON,
+     *        written as cached); the X-Change-Version header is the version to pass to
+     *        GET /questions/topic/{topicId}/changes
      */
     @GetMapping("/topic/{topicId}")
-    public ResponseEntity<List<QuestionDTO>> getQuestionsByTopic(@PathVariable UUID topicId) {
+    public void getQuestionsByTopic(
+            @PathVariable UUID topicId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
         System.out.println("📥 GET /questions/topic/" + topicId + " - Loading questions with replies");
 
-        List<Question> questions = questionRepository.findByDebateTopic_Id(topicId);
-        System.out.println("✅ Found " + questions.size() + " questions");
-
-        // Convert to DTOs with replies, attachments, and evidence URLs
-        List<QuestionDTO> dtos = questions.stream()
-            .map(q -> {
-                List<Reply> replies = replyRepository.findByQuestion_Id(q.getId());
-                System.out.println("  Question " + q.getId() + " has " + replies.size() + " replies");
-
-                QuestionDTO dto = QuestionDTO.fromEntity(q, replies);
-
-                // Load attachments for this question
-                List<AttachmentDTO> attachments = attachmentRepository.findByQuestionId(q.getId())
-                    .stream()
-                    .map(AttachmentDTO::fromEntity)
-                    .toList();
-                dto.setAttachments(attachments);
-
-                // Load evidence URLs for this question
-                List<EvidenceUrlDTO> evidenceUrls = evidenceUrlRepository.findByQuestionId(q.getId())
-                    .stream()
-                    .map(EvidenceUrlDTO::fromEntity)
-                    .toList();
-                dto.setEvidenceUrls(evidenceUrls);
-
-                // Populate attachments and evidence URLs for each reply (including nested replies)
-                var populate = new java.util.function.Consumer<ReplyDTO>() {
-                    @Override
-                    public void accept(ReplyDTO rDto) {
-                        try {
-                            var atts = attachmentRepository.findByReplyId(rDto.getId())
-                                    .stream().map(AttachmentDTO::fromEntity).toList();
-                            rDto.setAttachments(atts);
-                        } catch (Exception ex) {
-                            // log and continue
-                            System.err.println("⚠️ Failed to load attachments for reply " + rDto.getId() + " - " + ex.getMessage());
-                        }
-
-                        try {
-                            var evs = evidenceUrlRepository.findByReplyId(rDto.getId())
-                                    .stream().map(EvidenceUrlDTO::fromEntity).toList();
-                            rDto.setEvidenceUrls(evs);
-                        } catch (Exception ex) {
-                            System.err.println("⚠️ Failed to load evidence URLs for reply " + rDto.getId() + " - " + ex.getMessage());
-                        }
-
-                        if (rDto.getReplies() != null) {
-                            rDto.getReplies().forEach(this);
-                        }
-                    }
-                };
+        // Whole tree (questions, nested replies, attachments, evidence) as cached JSON bytes;
+        // on a miss it is loaded in a fixed number of queries
+        DebateTreeCache.Tree tree = debateTreeCache.get(topicId);
+
+        // Question fragments go to the output stream as cached, never joined into one array
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(CHANGE_VERSION_HEADER, String.valueOf(tree.changeVersion()));
+        if (tree.hasGzip() && acceptsGzip(acceptEncoding)) {
+            System.out.println("✅ Returning debate tree (" + tree.gzipLength() + " bytes gzip)");
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLengthLong(tree.gzipLength());
+            tree.writeGzip(response.getOutputStream());
+            return;
+        }
+        System.out.println("✅ Returning debate tree (" + tree.jsonLength() + " bytes)");
+        response.setContentLengthLong(tree.jsonLength());
+        tree.writeJson(response.getOutputStream());
+    }
 
-                if (dto.getReplies() != null) dto.getReplies().forEach(populate);
+    /**
+     * GET /questions/topic/{topicId}/stream
+     * Same debate tree as GET /questions/topic/{topicId}, written while it is read from the
+     * database, for topics too large to build in memory (questions oldest first)
+     *
+     * @param topicId UUID of the debate topic
+     * @return JSON array of questions with nested replies, streamed
+     */
+    @GetMapping("/topic/{topicId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamQuestionsByTopic(@PathVariable UUID topicId) {
+        System.out.println("📥 GET /questions/topic/" + topicId + "/stream - Streaming questions with replies");
+
+        // Read before streaming: the streamed tree is at least this recent
+        long changeVersion = debateTopicRepository.findChangeVersion(topicId).orElse(0L);
+        StreamingResponseBody body = out -> debateTreeStreamer.writeTopicTree(topicId, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(CHANGE_VERSION_HEADER, String.valueOf(changeVersion))
+                .body(body);
+    }
 
-                System.out.println("  Question " + q.getId() + " has " + attachments.size() + " attachments and " + evidenceUrls.size() + " evidence URLs");
+    /**
+     * GET /questions/topic/{topicId}/changes?since=N
+     * Questions and replies created, edited, voted on or deleted after version N, so a client
+     * holding the tree (X-Change-Version) patches it instead of downloading it again
+     *
+     * @param topicId UUID of the debate topic
+     * @param since Version the client has (X-Change-Version or version of the previous call)
+     * @return Changed questions and replies (without nesting) and deleted ids, or fullReload
+     *         when the changes are no longer available; 404 if the topic does not exist
+     */
+    @GetMapping("/topic/{topicId}/changes")
+    public ResponseEntity<TopicChangesDTO> getTopicChanges(
+            @PathVariable UUID topicId,
+            @RequestParam(defaultValue = "0") long since) {
+        System.out.println("📥 GET /questions/topic/" + topicId + "/changes?since=" + since);
+
+        return topicDeltaService.changesSince(topicId, since)
+                .map(changes -> {
+                    System.out.println("✅ Topic at version " + changes.getVersion() + ": "
+                            + changes.getQuestions().size() + " questions, " + changes.getReplies().size()
+                            + " replies, " + changes.getDeleted().size() + " deleted"
+                            + (changes.getFullReload() ? " (full reload)" : ""));
+                    return ResponseEntity.ok(changes);
+                })
+                .orElseGet(() -> {
+                    System.out.println("❌ Topic not found: " + topicId);
+                    return ResponseEntity.notFound().build();
+                });
+    }
 
-                return dto;
-            })
-            .toList();
+    /**
+     * GET /questions/topic/{topicId}/events
+     * Server-Sent Events feed of a topic: question and reply creation, edits and deletions,
+     * and new vote counts, as they are committed
+     *
+     * @param topicId UUID of the debate topic
+     * @return Event stream, or 503 if the server has no room for more subscribers
+     */
+    @GetMapping(value = "/topic/{topicId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToTopicEvents(@PathVariable UUID topicId) {
+        System.out.println("📡 GET /questions/topic/" + topicId + "/events - Live subscription");
+
+        return liveEventBroadcaster.subscribe(topicId)
+                .map(emitter -> ResponseEntity.ok()
+                        .header("X-Accel-Buffering", "no") // no proxy buffering of the stream
+                        .body(emitter))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
 
-        System.out.println("✅ Returning " + dtos.size() + " QuestionDTOs with replies and evidence");
-        return ResponseEntity.ok(dtos);
+    /**
+     * GET /questions/topic/{topicId}/page
+     * Get one page of a topic's questions with reply counts and a short reply preview
+     *
+     * @param topicId UUID of the debate topic
+     * @param sort "newest" (default), "top" or "most-replied"
+     * @param limit Page size (default 20)
+     * @param cursor nextCursor from the previous page (omit for the first page)
+     * @param previewReplies Number of direct replies to include per question (default 3)
+     * @return Page of QuestionDTOs and the cursor of the next page
+     */
+    @GetMapping("/topic/{topicId}/page")
+    public ResponseEntity<QuestionPageDTO> getQuestionPageByTopic(
+            @PathVariable UUID topicId,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(defaultValue = "${questions.page.default-size:20}") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "3") int previewReplies) {
+        System.out.println("📥 GET /questions/topic/" + topicId + "/page - sort=" + sort + ", limit=" + limit);
+
+        try {
+            QuestionPageDTO page = questionPageService.loadPage(
+                    topicId, QuestionPageService.Sort.fromParam(sort), limit, cursor, previewReplies);
+            System.out.println("✅ Returning " + page.getItems().size() + " questions (hasMore=" + page.isHasMore() + ")");
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ Invalid page request: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -182,7 +266,10 @@ public class QuestionController {
         question.setVotesUp(0);
         question.setVotesDown(0);
 
-        Question savedQuestion = questionRepository.save(question);
+        // Saved together with the topic's question count
+        Question savedQuestion = debateCounterService.createQuestion(question);
+        eventPublisher.publishEvent(LiveDebateEvent.question(topicId, savedQuestion.getId(),
+                LiveDebateEvent.QUESTION_CREATED, QuestionDTO.fromEntity(savedQuestion, null)));
         return ResponseEntity.status(HttpStatus.CREATED).body(savedQuestion);
     }
 
@@ -218,7 +305,10 @@ public class QuestionController {
                     // existingQuestion.setAuthor(updatedQuestion.getAuthor());
 
                     // Save and return
-                    Question saved = questionRepository.save(existingQuestion);
+                    // Saved together with the topic's change log entry
+                    Question saved = debateCounterService.updateQuestion(existingQuestion);
+                    eventPublisher.publishEvent(LiveDebateEvent.question(saved.getDebateTopicId(), saved.getId(),
+                            LiveDebateEvent.QUESTION_UPDATED, QuestionDTO.fromEntity(saved, null)));
                     return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -233,12 +323,15 @@ public class QuestionController {
      */
     @DeleteMapping("/{questionId}")
     public ResponseEntity<Void> deleteQuestion(@PathVariable UUID questionId) {
-        if (!questionRepository.existsById(questionId)) {
-            return ResponseEntity.notFound().build();
-        }
-
-        questionRepository.deleteById(questionId);
-        return ResponseEntity.noContent().build();
+        return questionRepository.findById(questionId)
+                .map(question -> {
+                    // Question, replies and the topic's counts go in one transaction
+                    debateCounterService.deleteQuestion(question);
+                    eventPublisher.publishEvent(LiveDebateEvent.question(question.getDebateTopicId(), questionId,
+                            LiveDebateEvent.QUESTION_DELETED, Map.of("id", questionId)));
+                    return ResponseEntity.noContent().<Void>build();
+                })
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -246,30 +339,36 @@ public class QuestionController {
      * Vote on a question (upvote or downvote)
      *
      * @param questionId UUID of the question
-     * @param voteRequest Contains voteType: "up" or "down"
-     * @return The updated question with new vote counts
+     * @param voteRequest Contains voteType: "up" or "down" (action is advisory, the ledger decides)
+     * @param authHeader Bearer token of the voting user
+     * @return The new vote counts of the question and the user's resulting vote
      */
     @PutMapping("/{questionId}/vote")
-    public ResponseEntity<Question> voteOnQuestion(
+    public ResponseEntity<VoteResultDTO> voteOnQuestion(
             @PathVariable UUID questionId,
-            @RequestBody VoteRequest voteRequest) {
+            @RequestBody VoteRequest voteRequest,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
 
-        // Validate vote type first
-        if (!"up".equalsIgnoreCase(voteRequest.voteType) &&
-            !"down".equalsIgnoreCase(voteRequest.voteType)) {
-            return ResponseEntity.badRequest().build();
+        // One vote per user: the voter must be identified
+        Optional<UUID> userId = voteService.resolveVoter(authHeader);
+        if (userId.isEmpty()) {
+            System.out.println("❌ Vote rejected: missing or invalid token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        return questionRepository.findById(questionId)
-                .map(question -> {
-                    if ("up".equalsIgnoreCase(voteRequest.voteType)) {
-                        question.setVotesUp(question.getVotesUp() + 1);
-                    } else {
-                        question.setVotesDown(question.getVotesDown() + 1);
-                    }
+        // Validate vote type and action first
+        if (!VoteService.isValid(voteRequest.voteType, voteRequest.action)) {
+            return ResponseEntity.badRequest().build();
+        }
 
-                    Question saved = questionRepository.save(question);
-                    return ResponseEntity.ok(saved);
+        // Ledger transition and counter delta are applied in one transaction
+        return voteService.voteOnQuestion(questionId, userId.get(), voteRequest.voteType)
+                .map(result -> {
+                    // Counts only: the caller's own vote is not broadcast
+                    eventPublisher.publishEvent(LiveDebateEvent.question(null, questionId, LiveDebateEvent.VOTE,
+                            new VoteResultDTO(result.getId(), result.getTargetType(),
+                                    result.getVotesUp(), result.getVotesDown(), null)));
+                    return ResponseEntity.ok(result);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -279,6 +378,22 @@ public class QuestionController {
      */
     public static class VoteRequest {
         public String voteType; // "up" or "down"
+        public String action;   // optional: "add", "remove" or "change" (ignored, kept for older clients)
+    }
+
+    // Helper: true if the client lists gzip in Accept-Encoding (and does not refuse it with q=0)
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return parts.length < 2 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
     // Helper: format timestamp as DD.MM.YYYY.HH.mm.ss.SSS
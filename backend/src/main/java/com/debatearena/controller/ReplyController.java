@@ -3,19 +3,29 @@ package com.debatearena.controller;
 import com.debatearena.dto.AttachmentDTO;
 import com.debatearena.dto.EvidenceUrlDTO;
 import com.debatearena.dto.ReplyDTO;
+import com.debatearena.dto.ReplySubtreeDTO;
+import com.debatearena.dto.VoteResultDTO;
+import com.debatearena.event.LiveDebateEvent;
 import com.debatearena.model.Question;
 import com.debatearena.model.Reply;
 import com.debatearena.repository.AttachmentRepository;
 import com.debatearena.repository.EvidenceUrlRepository;
 import com.debatearena.repository.QuestionRepository;
 import com.debatearena.repository.ReplyRepository;
+import com.debatearena.service.DebateCounterService;
+import com.debatearena.service.ReplyPathService;
+import com.debatearena.service.ReplySubtreeService;
+import com.debatearena.service.VoteService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -32,6 +42,8 @@ import java.time.format.DateTimeFormatter;
  *
  * Endpoints:
  * - GET  /replies/question/{questionId} - Get all replies for a question
+ * - GET  /replies/subtree - Get replies beneath a question or reply, level by level
+ * - GET  /replies/{replyId}/thread - Get all replies beneath a reply in thread order
  * - GET  /replies/{replyId} - Get specific reply by ID
  * - POST /replies - Create new reply
  * - PUT  /replies/{replyId} - Update reply
@@ -49,6 +61,11 @@ public class ReplyController {
     private final QuestionRepository questionRepository;
     private final AttachmentRepository attachmentRepository;
     private final EvidenceUrlRepository evidenceUrlRepository;
+    private final VoteService voteService;
+    private final ReplySubtreeService replySubtreeService;
+    private final ReplyPathService replyPathService;
+    private final DebateCounterService debateCounterService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * GET /replies/question/{questionId}
@@ -63,6 +80,68 @@ public class ReplyController {
         return ResponseEntity.ok(replies);
     }
 
+    /**
+     * GET /replies/subtree
+     * Get the replies beneath a question or reply, down to a given depth
+     *
+     * Pass exactly one of questionId, replyId or cursor. Cursors come from a previous
+     * response (nextCursor for more siblings, repliesCursor on a reply for its children).
+     *
+     * @param questionId Start beneath this question
+     * @param replyId Start beneath this reply
+     * @param cursor Continue from an earlier response
+     * @param depth Number of reply levels to include (default 2)
+     * @param limit Maximum replies per parent (default 10)
+     * @return Replies with continuation cursors where the response stopped
+     */
+    @GetMapping("/subtree")
+    public ResponseEntity<ReplySubtreeDTO> getReplySubtree(
+            @RequestParam(required = false) UUID questionId,
+            @RequestParam(required = false) UUID replyId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "${replies.subtree.default-depth:2}") int depth,
+            @RequestParam(defaultValue = "${replies.subtree.default-limit:10}") int limit) {
+
+        int sources = (questionId != null ? 1 : 0) + (replyId != null ? 1 : 0) + (cursor != null ? 1 : 0);
+        if (sources != 1) {
+            System.out.println("❌ GET /replies/subtree needs exactly one of questionId, replyId or cursor");
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            ReplySubtreeDTO subtree;
+            if (questionId != null) {
+                subtree = replySubtreeService.loadForQuestion(questionId, depth, limit);
+            } else if (replyId != null) {
+                subtree = replySubtreeService.loadForReply(replyId, depth, limit);
+            } else {
+                subtree = replySubtreeService.loadFromCursor(cursor, depth, limit);
+            }
+            return ResponseEntity.ok(subtree);
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ Invalid subtree request: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * GET /replies/{replyId}/thread
+     * Get every reply beneath a reply as a flat list in thread order
+     * (depth-first, siblings oldest first; use depth for indentation)
+     *
+     * @param replyId UUID of the reply
+     * @return Replies beneath the reply, without nesting
+     */
+    @GetMapping("/{replyId}/thread")
+    public ResponseEntity<List<ReplyDTO>> getReplyThread(@PathVariable UUID replyId) {
+        return replyRepository.findById(replyId)
+                .filter(reply -> reply.getPath() != null)
+                .map(reply -> ResponseEntity.ok(replyPathService.findDescendants(reply).stream()
+                        .map(ReplyDTO::fromEntityWithoutReplies)
+                        .toList()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * GET /replies/{replyId}
      * Get a specific reply by ID
@@ -135,7 +214,9 @@ public class ReplyController {
             reply.setVotesDown(0);
 
             System.out.println("✅ All fields set, saving reply...");
-            Reply savedReply = replyRepository.save(reply);
+            // Saved together with its materialized path (root question and depth derived from the
+            // parent on the server) and the counters of its ancestors, question and topic
+            Reply savedReply = debateCounterService.createReply(reply);
             System.out.println("✅ Reply saved successfully: " + savedReply.getId());
 
             // Build DTO to return attachments and evidence URLs together with reply
@@ -158,7 +239,12 @@ public class ReplyController {
                 System.err.println("⚠️ Warning: failed to load evidence URLs for reply " + savedReply.getId() + " - " + ex.getMessage());
             }
 
+            eventPublisher.publishEvent(LiveDebateEvent.reply(
+                    savedReply.getRootQuestionId(), savedReply.getId(), LiveDebateEvent.REPLY_CREATED, dto));
             return ResponseEntity.status(HttpStatus.CREATED).body(dto);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Invalid reply: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             System.err.println("❌ Error creating reply: " + e.getMessage());
             e.printStackTrace();
@@ -195,7 +281,10 @@ public class ReplyController {
                     // existingReply.setAuthor(updatedReply.getAuthor());
 
                     // Save and return
-                    Reply saved = replyRepository.save(existingReply);
+                    // Saved together with the topic's change log entry
+                    Reply saved = debateCounterService.updateReply(existingReply);
+                    eventPublisher.publishEvent(LiveDebateEvent.reply(saved.getRootQuestionId(), saved.getId(),
+                            LiveDebateEvent.REPLY_UPDATED, ReplyDTO.fromEntityWithoutReplies(saved)));
                     return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -210,12 +299,22 @@ public class ReplyController {
      */
     @DeleteMapping("/{replyId}")
     public ResponseEntity<Void> deleteReply(@PathVariable UUID replyId) {
-        if (!replyRepository.existsById(replyId)) {
-            return ResponseEntity.notFound().build();
-        }
-
-        replyRepository.deleteById(replyId);
-        return ResponseEntity.noContent().build();
+        return replyRepository.findById(replyId)
+                .map(reply -> {
+                    // The reply and its whole thread are one path range: a single DELETE,
+                    // committed together with the counters of its ancestors, question and topic
+                    int deleted = debateCounterService.deleteReply(reply);
+                    System.out.println("🗑️ Deleted reply " + replyId + " with " + (deleted - 1) + " nested replies");
+                    Map<String, Object> removed = new HashMap<>();
+                    removed.put("id", replyId);
+                    removed.put("questionId", reply.getRootQuestionId());
+                    removed.put("parentReplyId", reply.getParentReply() != null ? reply.getParentReply().getId() : null);
+                    removed.put("deleted", deleted);
+                    eventPublisher.publishEvent(LiveDebateEvent.reply(
+                            reply.getRootQuestionId(), replyId, LiveDebateEvent.REPLY_DELETED, removed));
+                    return ResponseEntity.noContent().<Void>build();
+                })
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -223,30 +322,36 @@ public class ReplyController {
      * Vote on a reply (upvote or downvote)
      *
      * @param replyId UUID of the reply
-     * @param voteRequest Contains voteType: "up" or "down"
-     * @return The updated reply with new vote counts
+     * @param voteRequest Contains voteType: "up" or "down" (action is advisory, the ledger decides)
+     * @param authHeader Bearer token of the voting user
+     * @return The new vote counts of the reply and the user's resulting vote
      */
     @PutMapping("/{replyId}/vote")
-    public ResponseEntity<Reply> voteOnReply(
+    public ResponseEntity<VoteResultDTO> voteOnReply(
             @PathVariable UUID replyId,
-            @RequestBody VoteRequest voteRequest) {
+            @RequestBody VoteRequest voteRequest,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
 
-        // Validate vote type first
-        if (!"up".equalsIgnoreCase(voteRequest.voteType) &&
-            !"down".equalsIgnoreCase(voteRequest.voteType)) {
-            return ResponseEntity.badRequest().build();
+        // One vote per user: the voter must be identified
+        Optional<UUID> userId = voteService.resolveVoter(authHeader);
+        if (userId.isEmpty()) {
+            System.out.println("❌ Vote rejected: missing or invalid token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        return replyRepository.findById(replyId)
-                .map(reply -> {
-                    if ("up".equalsIgnoreCase(voteRequest.voteType)) {
-                        reply.setVotesUp(reply.getVotesUp() + 1);
-                    } else {
-                        reply.setVotesDown(reply.getVotesDown() + 1);
-                    }
+        // Validate vote type and action first
+        if (!VoteService.isValid(voteRequest.voteType, voteRequest.action)) {
+            return ResponseEntity.badRequest().build();
+        }
 
-                    Reply saved = replyRepository.save(reply);
-                    return ResponseEntity.ok(saved);
+        // Ledger transition and counter delta are applied in one transaction
+        return voteService.voteOnReply(replyId, userId.get(), voteRequest.voteType)
+                .map(result -> {
+                    // Counts only: the caller's own vote is not broadcast
+                    eventPublisher.publishEvent(LiveDebateEvent.reply(null, replyId, LiveDebateEvent.VOTE,
+                            new VoteResultDTO(result.getId(), result.getTargetType(),
+                                    result.getVotesUp(), result.getVotesDown(), null)));
+                    return ResponseEntity.ok(result);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -256,6 +361,7 @@ public class ReplyController {
      */
     public static class VoteRequest {
         public String voteType; // "up" or "down"
+        public String action;   // optional: "add", "remove" or "change" (ignored, kept for older clients)
     }
 
     // Helper: format timestamp as DD.MM.YYYY.HH.mm.ss.SSS
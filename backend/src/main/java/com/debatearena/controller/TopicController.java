@@ -1,16 +1,20 @@
 package com.debatearena.controller;
 
 import com.debatearena.dto.TopicDTO;
+import com.debatearena.event.DebateChangedEvent;
 import com.debatearena.model.DebateTopic;
 import com.debatearena.repository.DebateTopicRepository;
+import com.debatearena.service.TopicListCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * =====================================================================
@@ -35,20 +39,33 @@ import java.util.stream.Collectors;
 public class TopicController {
 
     private final DebateTopicRepository debateTopicRepository;
+    private final TopicListCache topicListCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * GET /topics
      * Get all debate topics with question counts
+     * Served from memory; answers 304 when the client's ETag or Last-Modified is still current
      *
+     * @param request Used to evaluate If-None-Match / If-Modified-Since
      * @return List of all debate topics with question counts
      */
     @GetMapping
-    public ResponseEntity<List<TopicDTO>> getAllTopics() {
-        List<Object[]> topicsWithCounts = debateTopicRepository.findAllTopicsWithQuestionCounts();
-        List<TopicDTO> topicDTOs = topicsWithCounts.stream()
-            .map(row -> TopicDTO.fromEntity((DebateTopic) row[0], (Long) row[1]))
-            .collect(Collectors.toList());
-        return ResponseEntity.ok(topicDTOs);
+    public ResponseEntity<List<TopicDTO>> getAllTopics(WebRequest request) {
+        TopicListCache.Snapshot snapshot = topicListCache.get();
+
+        // Browsers revalidate on every visit (no-cache), but only download on change
+        if (request.checkNotModified(snapshot.etag(), snapshot.lastModified().toEpochMilli())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .lastModified(snapshot.lastModified())
+                .cacheControl(CacheControl.noCache())
+                .body(snapshot.topics());
     }
 
     /**
@@ -81,6 +98,7 @@ public class TopicController {
 
         // Save the new topic
         DebateTopic savedTopic = debateTopicRepository.save(topic);
+        eventPublisher.publishEvent(DebateChangedEvent.topic(savedTopic.getId()));
         return ResponseEntity.status(HttpStatus.CREATED).body(savedTopic);
     }
 
@@ -108,6 +126,7 @@ public class TopicController {
 
                     // Save and return
                     DebateTopic saved = debateTopicRepository.save(existingTopic);
+                    eventPublisher.publishEvent(DebateChangedEvent.topic(topicId));
                     return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -127,6 +146,7 @@ public class TopicController {
         }
 
         debateTopicRepository.deleteById(topicId);
+        eventPublisher.publishEvent(DebateChangedEvent.topic(topicId));
         return ResponseEntity.noContent().build();
     }
 }
@@ -1,11 +1,14 @@
 package com.debatearena.dto;
 
 import com.debatearena.model.Attachment;
+import com.debatearena.util.ImageVariants;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -16,6 +19,10 @@ import java.util.UUID;
  * Data Transfer Object for Attachment entity.
  * Used to send attachment data to frontend without exposing internal entity structure.
  *
+ * Images also list smaller copies (variants, smallest first, the first one
+ * being the thumbnail) so clients can load the smallest that fits; empty
+ * until they are generated, or for images that are already small.
+ *
  * @author TarkVtark Team
  */
 @Data
@@ -29,9 +36,26 @@ public class AttachmentDTO {
     private String fileType;
     private String storageUrl;
     private String storageProvider;
+    private String status; // "ready", "pending" (storageUrl not known yet) or "failed"
     private String uploadedBy;
     private Integer displayOrder;
     private LocalDateTime createdAt;
+    private Integer imageWidth;
+    private Integer imageHeight;
+    private String thumbnailUrl;
+    private List<Variant> variants = new ArrayList<>();
+
+    /**
+     * A smaller copy of an image attachment
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Variant {
+        private Integer width;
+        private Integer height;
+        private String url;
+    }
 
     /**
      * Convert Attachment entity to DTO
@@ -74,12 +98,35 @@ public class AttachmentDTO {
             dto.setStorageUrl(storage);
         }
         dto.setStorageProvider(attachment.getStorageProvider());
+        dto.setStatus(attachment.getStatus());
         dto.setUploadedBy(attachment.getUploadedBy());
         dto.setDisplayOrder(attachment.getDisplayOrder());
         dto.setCreatedAt(attachment.getCreatedAt());
+        dto.applyVariants(attachment);
         return dto;
     }
 
+    /**
+     * Fill in the image variants, next to the current storageUrl (call again
+     * after changing storageUrl)
+     */
+    public void applyVariants(Attachment attachment) {
+        imageWidth = attachment.getImageWidth();
+        imageHeight = attachment.getImageHeight();
+        variants = new ArrayList<>();
+        thumbnailUrl = null;
+        if (storageUrl == null || imageWidth == null || imageHeight == null) {
+            return;
+        }
+        for (int width : ImageVariants.parseWidths(attachment.getVariantWidths())) {
+            variants.add(new Variant(width, ImageVariants.height(imageWidth, imageHeight, width),
+                    ImageVariants.url(storageUrl, width, attachment.getFileType())));
+        }
+        if (!variants.isEmpty()) {
+            thumbnailUrl = variants.get(0).getUrl();
+        }
+    }
+
     /**
      * Get file size in human-readable format
      */
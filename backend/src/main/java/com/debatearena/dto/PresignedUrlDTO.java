@@ -0,0 +1,36 @@
+package com.debatearena.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * =====================================================================
+ * Presigned URL DTO - For API Responses
+ * =====================================================================
+ *
+ * A URL the client uses directly against the bucket. For an upload: PUT
+ * the file to url with exactly these headers, then POST the ticket to
+ * /files/presign/complete. For a download: GET url (no headers).
+ *
+ * Used by: POST /api/v1/files/presign/upload,
+ *          GET /api/v1/files/presign/download/{id}
+ *
+ * @author TarkVtark Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedUrlDTO {
+
+    private String method; // "PUT" or "GET"
+    private String url;
+    private Map<String, String> headers = new LinkedHashMap<>();
+    private String key; // storage key of the object (uploads only)
+    private LocalDateTime expiresAt; // the URL stops working then
+    private String ticket; // signed proof of what was allowed (uploads only)
+}
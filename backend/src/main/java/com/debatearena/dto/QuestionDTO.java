@@ -40,8 +40,15 @@ public class QuestionDTO {
     private LocalDateTime updatedAt;
 
     // Nested replies - this is the key difference from entity
+    // (paginated listings only carry the first few direct replies as a preview)
     private List<ReplyDTO> replies = new ArrayList<>();
 
+    // Total replies at all nesting levels (maintained counter)
+    private Integer replyCount;
+
+    // Creation time of the newest reply, attachment or evidence URL in the thread
+    private LocalDateTime lastActivityAt;
+
     // Evidence and attachments
     private List<AttachmentDTO> attachments = new ArrayList<>();
     private List<EvidenceUrlDTO> evidenceUrls = new ArrayList<>();
@@ -62,6 +69,8 @@ public class QuestionDTO {
         dto.setUniqueId(question.getUniqueId());
         dto.setCreatedAt(question.getCreatedAt());
         dto.setUpdatedAt(question.getUpdatedAt());
+        dto.setReplyCount(question.getDescendantCount());
+        dto.setLastActivityAt(question.getLastActivityAt());
 
         // Convert top-level replies to DTOs (replies where parentReply is null)
         if (replies != null) {
@@ -0,0 +1,35 @@
+package com.debatearena.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * =====================================================================
+ * Question Page DTO - For API Responses
+ * =====================================================================
+ *
+ * One page of a topic's questions. Each question carries its reply count
+ * and a short preview of its first replies instead of the whole tree.
+ *
+ * Pass nextCursor back as the "cursor" parameter to get the next page;
+ * it is null on the last page.
+ *
+ * Used by: GET /api/v1/questions/topic/{topicId}/page
+ *
+ * @author TarkVtark Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionPageDTO {
+
+    private List<QuestionDTO> items = new ArrayList<>();
+    private String sort;        // "newest", "top" or "most-replied"
+    private Integer limit;
+    private boolean hasMore;
+    private String nextCursor;  // opaque, null on the last page
+}
@@ -1,5 +1,6 @@
 package com.debatearena.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -37,9 +38,18 @@ public class ReplyDTO {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Maintained counters: direct replies and replies at all levels beneath this one
+    private Integer replyCount;
+    private Integer descendantCount;
+
     // Nested replies for threaded conversations
     private List<ReplyDTO> replies = new ArrayList<>();
 
+    // Subtree expansion only: token to load replies not included above
+    // (deeper than the requested depth, or further siblings). Null = none left.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String repliesCursor;
+
     // Evidence and attachments
     private List<AttachmentDTO> attachments = new ArrayList<>();
     private List<EvidenceUrlDTO> evidenceUrls = new ArrayList<>();
@@ -48,6 +58,23 @@ public class ReplyDTO {
      * Convert Reply entity to DTO with nested replies
      */
     public static ReplyDTO fromEntity(com.debatearena.model.Reply reply) {
+        ReplyDTO dto = fromEntityWithoutReplies(reply);
+
+        // Recursively convert nested replies (using childReplies from entity)
+        if (reply.getChildReplies() != null && !reply.getChildReplies().isEmpty()) {
+            dto.setReplies(reply.getChildReplies().stream()
+                .map(ReplyDTO::fromEntity)
+                .toList());
+        }
+
+        return dto;
+    }
+
+    /**
+     * Convert Reply entity to DTO without touching the lazy childReplies collection.
+     * Used when the reply tree is assembled in memory from a flat list (see DebateTreeService).
+     */
+    public static ReplyDTO fromEntityWithoutReplies(com.debatearena.model.Reply reply) {
         ReplyDTO dto = new ReplyDTO();
         dto.setId(reply.getId());
         dto.setQuestionId(reply.getQuestion() != null ? reply.getQuestion().getId() : null);
@@ -61,14 +88,8 @@ public class ReplyDTO {
         dto.setDepth(reply.getDepth());
         dto.setCreatedAt(reply.getCreatedAt());
         dto.setUpdatedAt(reply.getUpdatedAt());
-
-        // Recursively convert nested replies (using childReplies from entity)
-        if (reply.getChildReplies() != null && !reply.getChildReplies().isEmpty()) {
-            dto.setReplies(reply.getChildReplies().stream()
-                .map(ReplyDTO::fromEntity)
-                .toList());
-        }
-
+        dto.setReplyCount(reply.getReplyCount());
+        dto.setDescendantCount(reply.getDescendantCount());
         return dto;
     }
 }
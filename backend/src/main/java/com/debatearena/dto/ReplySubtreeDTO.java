@@ -0,0 +1,36 @@
+package com.debatearena.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Reply Subtree DTO - For API Responses
+ * =====================================================================
+ *
+ * Replies beneath one question or reply, down to the requested depth.
+ *
+ * - items: direct replies of the parent, each with its own nested replies
+ * - nextCursor: more direct replies of the parent (null if none)
+ * - ReplyDTO.repliesCursor: more replies beneath that reply (null if none)
+ *
+ * Any cursor can be passed back to GET /replies/subtree?cursor=... to
+ * continue exactly where the previous response stopped.
+ *
+ * @author TarkVtark Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplySubtreeDTO {
+
+    private String parentType;  // "question" or "reply"
+    private UUID parentId;
+    private List<ReplyDTO> items = new ArrayList<>();
+    private String nextCursor;
+}
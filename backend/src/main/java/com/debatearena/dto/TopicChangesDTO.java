@@ -0,0 +1,58 @@
+package com.debatearena.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Topic Changes DTO - For API Responses
+ * =====================================================================
+ *
+ * Response of GET /questions/topic/{topicId}/changes?since=N: the
+ * questions and replies that changed after version N, in their current
+ * state, so a client can patch the debate it already has.
+ *
+ * - questions: created or edited questions, and questions whose votes,
+ *   attachments or evidence URLs changed (without replies)
+ * - replies: same for replies (without nested replies; parentReplyId
+ *   and questionId tell where they go)
+ * - deleted: removed questions and replies (everything beneath them is
+ *   gone too)
+ * - version: pass it as since on the next call
+ * - fullReload: the changes are no longer available (or too many) -
+ *   reload GET /questions/topic/{topicId} instead; the lists are empty
+ *
+ * Used by: GET /api/v1/questions/topic/{topicId}/changes
+ *
+ * @author TarkVtark Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopicChangesDTO {
+
+    private UUID topicId;
+    private Long since;
+    private Long version;
+    private Boolean fullReload;
+
+    private List<QuestionDTO> questions = new ArrayList<>();
+    private List<ReplyDTO> replies = new ArrayList<>();
+    private List<DeletedNode> deleted = new ArrayList<>();
+
+    /**
+     * A question or reply that was removed
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DeletedNode {
+        private String type; // "question" or "reply"
+        private UUID id;
+    }
+}
@@ -14,7 +14,7 @@ import java.util.UUID;
  * =====================================================================
  *
  * Data Transfer Object for DebateTopic entity.
- * Includes question count for the topic list view.
+ * Includes question and reply counts for the topic list view.
  *
  * This DTO is used to send topic data with question counts to the frontend,
  * avoiding the need to load all questions when fetching the topic list.
@@ -35,13 +35,15 @@ public class TopicDTO {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
-    // Question count for the topic
+    // Counts for the topic (maintained columns, see DebateCounterService)
     private Long questionCount;
+    private Long replyCount;
+    private LocalDateTime lastActivityAt;
 
     /**
-     * Convert DebateTopic entity to DTO with question count
+     * Convert DebateTopic entity to DTO with its maintained counts
      */
-    public static TopicDTO fromEntity(DebateTopic topic, Long questionCount) {
+    public static TopicDTO fromEntity(DebateTopic topic) {
         TopicDTO dto = new TopicDTO();
         dto.setId(topic.getId());
         dto.setTopic(topic.getTopic());
@@ -51,14 +53,9 @@ public class TopicDTO {
         dto.setIsActive(topic.getIsActive());
         dto.setCreatedAt(topic.getCreatedAt());
         dto.setUpdatedAt(topic.getUpdatedAt());
-        dto.setQuestionCount(questionCount != null ? questionCount : 0L);
+        dto.setQuestionCount(topic.getQuestionCount() != null ? topic.getQuestionCount().longValue() : 0L);
+        dto.setReplyCount(topic.getReplyCount() != null ? topic.getReplyCount().longValue() : 0L);
+        dto.setLastActivityAt(topic.getLastActivityAt());
         return dto;
     }
-
-    /**
-     * Convert DebateTopic entity to DTO without question count
-     */
-    public static TopicDTO fromEntity(DebateTopic topic) {
-        return fromEntity(topic, 0L);
-    }
 }
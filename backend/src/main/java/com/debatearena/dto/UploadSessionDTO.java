@@ -0,0 +1,71 @@
+package com.debatearena.dto;
+
+import com.debatearena.model.UploadSession;
+import com.debatearena.model.UploadSessionPart;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Upload Session DTO - For API Responses
+ * =====================================================================
+ *
+ * State of a resumable upload: how to cut the file (partSize, partCount)
+ * and which parts the server already has (receivedParts), so a client
+ * that was interrupted sends only the missing parts.
+ *
+ * Used by: POST /api/v1/files/uploads, GET /api/v1/files/uploads/{id}
+ *
+ * @author TarkVtark Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDTO {
+
+    private UUID id;
+    private String fileName;
+    private Long fileSize;
+    private String fileType;
+    private Long partSize;
+    private Integer partCount;
+    private String status; // "uploading" or "completing"
+    private List<Integer> receivedParts = new ArrayList<>();
+    private Long receivedBytes;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt; // aborted if no part arrives before then
+
+    /**
+     * Convert an UploadSession and its received parts to a DTO
+     */
+    public static UploadSessionDTO fromEntity(UploadSession session, List<UploadSessionPart> parts, long ttlMs) {
+        UploadSessionDTO dto = new UploadSessionDTO();
+        dto.setId(session.getId());
+        dto.setFileName(session.getFileName());
+        dto.setFileSize(session.getFileSize());
+        dto.setFileType(session.getFileType());
+        dto.setPartSize(session.getPartSize());
+        dto.setPartCount(session.getPartCount());
+        dto.setStatus(session.getStatus());
+        dto.setCreatedAt(session.getCreatedAt());
+
+        long receivedBytes = 0;
+        LocalDateTime lastActivity = session.getCreatedAt();
+        for (UploadSessionPart part : parts) {
+            dto.getReceivedParts().add(part.getPartNumber());
+            receivedBytes += part.getSize();
+            if (lastActivity == null || part.getUploadedAt().isAfter(lastActivity)) {
+                lastActivity = part.getUploadedAt();
+            }
+        }
+        dto.setReceivedBytes(receivedBytes);
+        dto.setExpiresAt(lastActivity != null ? lastActivity.plusNanos(ttlMs * 1_000_000) : null);
+        return dto;
+    }
+}
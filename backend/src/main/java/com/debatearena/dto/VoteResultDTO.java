@@ -0,0 +1,41 @@
+package com.debatearena.dto;
+
+import com.debatearena.repository.VoteCounts;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Vote Result DTO - For API Responses
+ * =====================================================================
+ *
+ * Returned by the vote endpoints with the new vote counts of the voted
+ * question or reply (the entity is not reloaded), plus the caller's vote
+ * after the request. With write-behind enabled the counts include deltas
+ * that are still buffered and not yet written to the database.
+ *
+ * Used by: PUT /api/v1/questions/{id}/vote, PUT /api/v1/replies/{id}/vote
+ *
+ * @author TarkVtark Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoteResultDTO {
+
+    private UUID id;
+    private String targetType; // "question" or "reply"
+    private Integer votesUp;
+    private Integer votesDown;
+    private String userVote;   // "up", "down" or null if the vote was removed
+
+    /**
+     * Convert counter projection to DTO
+     */
+    public static VoteResultDTO fromCounts(String targetType, VoteCounts counts) {
+        return new VoteResultDTO(counts.getId(), targetType, counts.getVotesUp(), counts.getVotesDown(), null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.debatearena.event;
+
+/**
+ * =====================================================================
+ * Attachment File Event
+ * =====================================================================
+ *
+ * Published when an attachment's file becomes downloadable (stored) or
+ * goes away (deleted). Listeners that look attachments up by original
+ * file name (DownloadMetadataCache) drop that name after the transaction
+ * commits, so the newest upload with the name is found again.
+ *
+ * @param fileName original file name of the attachment
+ *
+ * @author TarkVtark Team
+ */
+public record AttachmentFileEvent(String fileName) {
+}
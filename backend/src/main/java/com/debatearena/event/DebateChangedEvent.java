@@ -0,0 +1,39 @@
+package com.debatearena.event;
+
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Debate Changed Event
+ * =====================================================================
+ *
+ * Published whenever something that is shown on a topic list or debate
+ * page is created, updated or deleted. Caches listen for it (after the
+ * transaction commits) to drop or refresh what they hold for the topic.
+ *
+ * @param topicId    topic the change belongs to (null if not known to the publisher)
+ * @param type       what kind of item changed
+ * @param targetId   id of the changed topic, question or reply; for votes,
+ *                   attachments and evidence URLs the question or reply they belong to
+ * @param questionId question whose thread contains the change (null if not known to the publisher)
+ *
+ * @author TarkVtark Team
+ */
+public record DebateChangedEvent(UUID topicId, Type type, UUID targetId, UUID questionId) {
+
+    /**
+     * Kind of item that changed
+     */
+    public enum Type {
+        TOPIC,
+        QUESTION,
+        REPLY,
+        VOTE,
+        ATTACHMENT,
+        EVIDENCE_URL
+    }
+
+    public static DebateChangedEvent topic(UUID topicId) {
+        return new DebateChangedEvent(topicId, Type.TOPIC, topicId, null);
+    }
+}
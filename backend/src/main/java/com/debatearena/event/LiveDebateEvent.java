@@ -0,0 +1,40 @@
+package com.debatearena.event;
+
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Live Debate Event
+ * =====================================================================
+ *
+ * Something a client watching a debate page should see without reloading:
+ * a question or reply created, edited or deleted, or new vote counts.
+ * Published by the controllers once the change is committed and pushed
+ * to the topic's subscribers by LiveEventBroadcaster.
+ *
+ * @param topicId    topic of the change (null: resolved from questionId or replyId)
+ * @param questionId question whose thread contains the change (may be null)
+ * @param replyId    reply that changed (null for question changes)
+ * @param name       event name sent to clients, e.g. "reply.created" or "vote"
+ * @param data       payload, serialized as JSON (DTOs, never entities)
+ *
+ * @author TarkVtark Team
+ */
+public record LiveDebateEvent(UUID topicId, UUID questionId, UUID replyId, String name, Object data) {
+
+    public static final String QUESTION_CREATED = "question.created";
+    public static final String QUESTION_UPDATED = "question.updated";
+    public static final String QUESTION_DELETED = "question.deleted";
+    public static final String REPLY_CREATED = "reply.created";
+    public static final String REPLY_UPDATED = "reply.updated";
+    public static final String REPLY_DELETED = "reply.deleted";
+    public static final String VOTE = "vote";
+
+    public static LiveDebateEvent question(UUID topicId, UUID questionId, String name, Object data) {
+        return new LiveDebateEvent(topicId, questionId, null, name, data);
+    }
+
+    public static LiveDebateEvent reply(UUID questionId, UUID replyId, String name, Object data) {
+        return new LiveDebateEvent(null, questionId, replyId, name, data);
+    }
+}
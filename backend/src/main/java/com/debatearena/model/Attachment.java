@@ -9,6 +9,8 @@ import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * =====================================================================
@@ -23,6 +25,15 @@ import java.util.UUID;
  * - Either questionId OR replyId must be set (not both)
  * - Cascade delete: Deleting a question/reply deletes its attachments
  * - storageUrl should be publicly accessible (or use signed URLs)
+ * - storageKey: the object's key within storage (attachments/uuid.png),
+ *   derived from storageUrl; the download endpoints look files up by it
+ * - status: "ready", or "pending" while an accepted file is still being
+ *   sent to remote storage (no storageUrl yet; see AsyncUploadService),
+ *   or "failed" if that never succeeded
+ * - contentHash: SHA-256 of the content when the object is shared with
+ *   other attachments of the same content (see AttachmentBlob)
+ * - imageWidth/imageHeight/variantWidths: set for images once their
+ *   thumbnail and smaller copies are stored (see ImageVariantService)
  *
  * @author TarkVtark Team
  */
@@ -33,6 +44,16 @@ import java.util.UUID;
 @AllArgsConstructor
 public class Attachment {
 
+    public static final String STATUS_READY = "ready";
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_FAILED = "failed";
+
+    // scheme://host prefix of a full URL (local storage URLs are bare keys)
+    private static final Pattern URL_PREFIX = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://[^/]*");
+
+    // Last "folder/name" of a path (or just "name")
+    private static final Pattern KEY_SUFFIX = Pattern.compile("([^/]+/[^/]+|[^/]+)$");
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
@@ -60,12 +81,40 @@ public class Attachment {
     private String fileType;  // MIME type: image/jpeg, application/pdf, etc.
 
     // External storage reference
-    @Column(name = "storage_url", nullable = false, columnDefinition = "TEXT")
-    private String storageUrl;  // Full URL to access the file
+    @Column(name = "storage_url", columnDefinition = "TEXT")
+    private String storageUrl;  // Full URL to access the file (null while pending)
 
     @Column(name = "storage_provider", length = 50)
     private String storageProvider = "local";  // 'local', 's3', 'cloudinary'
 
+    // Key of the object (set from storageUrl when saved; shared like the URL, see contentHash)
+    @Column(name = "storage_key", length = 512)
+    @JsonIgnore
+    private String storageKey;
+
+    // Content-addressed blob this attachment shares (null: the object is its own)
+    @Column(name = "content_hash", length = 64)
+    @JsonIgnore
+    private String contentHash;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = STATUS_READY;
+
+    // Local copy of a pending file, removed once it is in remote storage
+    @Column(name = "spool_path", columnDefinition = "TEXT")
+    @JsonIgnore
+    private String spoolPath;
+
+    // Images: size of the original and widths of the stored variants ("160,320,640"), smallest first
+    @Column(name = "image_width")
+    private Integer imageWidth;
+
+    @Column(name = "image_height")
+    private Integer imageHeight;
+
+    @Column(name = "variant_widths", length = 100)
+    private String variantWidths;
+
     // Additional metadata
     @Column(name = "uploaded_by", length = 100)
     private String uploadedBy = "Anonymous";
@@ -78,6 +127,34 @@ public class Attachment {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        storageKey = storageKeyOf(storageUrl);
+    }
+
+    /**
+     * Storage key of a stored URL: the URL itself for local keys
+     * (attachments/uuid.png), else the last folder/name of its path
+     * (https://bucket.s3.amazonaws.com/attachments/uuid.png -> attachments/uuid.png).
+     * Same rule as the backfill in apply-storage-key-migration.sql.
+     *
+     * @return The key, or null without a URL (pending) or when it is too long to index
+     */
+    public static String storageKeyOf(String storageUrl) {
+        if (storageUrl == null || storageUrl.isBlank()) {
+            return null;
+        }
+        String key = storageUrl;
+        Matcher prefix = URL_PREFIX.matcher(storageUrl);
+        if (prefix.find()) {
+            String path = storageUrl.substring(prefix.end()).split("[?#]", 2)[0];
+            Matcher suffix = KEY_SUFFIX.matcher(path);
+            key = suffix.find() ? suffix.group(1) : null;
+        }
+        return key != null && key.length() <= 512 ? key : null;
+    }
+
     /**
      * Get the parent question ID without loading the entire question
      */
@@ -0,0 +1,61 @@
+package com.debatearena.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * =====================================================================
+ * Attachment Blob Entity
+ * =====================================================================
+ *
+ * One stored file, named by the SHA-256 of its content and shared by every
+ * attachment with the same content (attachments.content_hash). The same
+ * image uploaded a hundred times is stored once, with refCount 100.
+ *
+ * IMPORTANT:
+ * - refCount is changed only by AttachmentBlobService; the object is
+ *   deleted when the last attachment referencing it is deleted
+ * - A row at refCount 0 is being deleted (object first, then the row) and
+ *   is never referenced again
+ * - storageUrl is null while the object is not uploaded yet: the row and
+ *   the uploader's reference are committed before the upload
+ * - Attachments deleted by ON DELETE CASCADE (with their question or
+ *   reply) do not decrease refCount: their blob is kept, never lost
+ * - Matches database table: attachment_blobs (apply-attachment-blobs-migration.sql)
+ *
+ * @author TarkVtark Team
+ */
+@Entity
+@Table(name = "attachment_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttachmentBlob {
+
+    // Hex SHA-256 of the content
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "storage_url", columnDefinition = "TEXT")
+    private String storageUrl;
+
+    @Column(name = "storage_provider", nullable = false, length = 50)
+    private String storageProvider;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    // Attachments pointing at this blob
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 1;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
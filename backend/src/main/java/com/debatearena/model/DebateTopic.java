@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -54,6 +55,26 @@ public class DebateTopic {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
 
+    // Maintained counters (see DebateCounterService). Only written by counter UPDATEs,
+    // never by entity saves, so saving a stale entity cannot overwrite them.
+    @ColumnDefault("0")
+    @Column(name = "question_count", nullable = false, insertable = false, updatable = false)
+    private Integer questionCount = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "reply_count", nullable = false, insertable = false, updatable = false)
+    private Integer replyCount = 0; // Replies at all nesting levels, across all questions
+
+    // Creation time of the topic or of its newest question or reply
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "last_activity_at", insertable = false, updatable = false)
+    private LocalDateTime lastActivityAt;
+
+    // Bumped by every change logged in topic_changes (see TopicChangeLog)
+    @ColumnDefault("0")
+    @Column(name = "change_version", nullable = false, insertable = false, updatable = false)
+    private Long changeVersion = 0L;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -68,14 +89,5 @@ public class DebateTopic {
     @OneToMany(mappedBy = "debateTopic", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Question> questions = new ArrayList<>();
-
-    /**
-     * Helper method to get question count without loading all questions
-     * Can be used in DTOs
-     */
-    @Transient
-    public int getQuestionCount() {
-        return questions != null ? questions.size() : 0;
-    }
 }
 
@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -66,6 +67,29 @@ public class Question {
     @Column(name = "unique_id", unique = true, length = 100)
     private String uniqueId;
 
+    // Maintained counters (see DebateCounterService). Only written by counter UPDATEs,
+    // never by entity saves, so saving a stale entity cannot overwrite them.
+    @ColumnDefault("0")
+    @Column(name = "reply_count", nullable = false, insertable = false, updatable = false)
+    private Integer replyCount = 0; // Direct replies
+
+    @ColumnDefault("0")
+    @Column(name = "descendant_count", nullable = false, insertable = false, updatable = false)
+    private Integer descendantCount = 0; // Replies at all nesting levels
+
+    @ColumnDefault("0")
+    @Column(name = "attachment_count", nullable = false, insertable = false, updatable = false)
+    private Integer attachmentCount = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "evidence_count", nullable = false, insertable = false, updatable = false)
+    private Integer evidenceCount = 0;
+
+    // Creation time of the question or of the newest reply, attachment or evidence URL in its thread
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "last_activity_at", insertable = false, updatable = false)
+    private LocalDateTime lastActivityAt;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -81,15 +105,6 @@ public class Question {
     @JsonIgnore
     private List<Reply> replies = new ArrayList<>();
 
-    /**
-     * Helper method to get reply count without loading all replies
-     * Can be used in DTOs
-     */
-    @Transient
-    public int getReplyCount() {
-        return replies != null ? replies.size() : 0;
-    }
-
     /**
      * Convenience method to get the debate topic ID without loading the entire topic
      */
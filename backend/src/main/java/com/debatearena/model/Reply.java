@@ -5,7 +5,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -26,6 +26,7 @@ import java.util.UUID;
  * - @JsonIgnore on @OneToMany to prevent serialization errors
  * - fetch = FetchType.LAZY for all relationships
  * - Either questionId OR parentReplyId must be set (not both)
+ * - path/rootQuestionId/depth are maintained by ReplyPathService
  * - Matches database table: replies
  * - Matches API contract schema: Reply
  *
@@ -73,9 +74,43 @@ public class Reply {
     private String uniqueId;
 
     @Column(nullable = false)
-    private Integer depth = 0; // Nesting level: 0 = reply to question, 1 = reply to reply, etc.
+    private Integer depth = 0; // Nesting level: 0 = reply to question, 1 = reply to reply, etc. (set by the server)
 
-    @CreationTimestamp
+    // Question at the top of this reply's thread (set for nested replies too)
+    @Column(name = "root_question_id")
+    @JsonIgnore
+    private UUID rootQuestionId;
+
+    // Materialized path: root question id, then one segment per ancestor and this reply
+    // (see ReplyPathService). Byte-wise collation so prefix ranges use the index.
+    @Column(name = "path", columnDefinition = "VARCHAR(2000) COLLATE \"C\"")
+    @JsonIgnore
+    private String path;
+
+    // Maintained counters (see DebateCounterService). Only written by counter UPDATEs,
+    // never by entity saves, so saving a stale entity cannot overwrite them.
+    @ColumnDefault("0")
+    @Column(name = "reply_count", nullable = false, insertable = false, updatable = false)
+    private Integer replyCount = 0; // Direct replies
+
+    @ColumnDefault("0")
+    @Column(name = "descendant_count", nullable = false, insertable = false, updatable = false)
+    private Integer descendantCount = 0; // Replies at all nesting levels beneath this one
+
+    @ColumnDefault("0")
+    @Column(name = "attachment_count", nullable = false, insertable = false, updatable = false)
+    private Integer attachmentCount = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "evidence_count", nullable = false, insertable = false, updatable = false)
+    private Integer evidenceCount = 0;
+
+    // Creation time of the reply or of the newest reply, attachment or evidence URL beneath it
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "last_activity_at", insertable = false, updatable = false)
+    private LocalDateTime lastActivityAt;
+
+    // Set before the path is assigned (its segments start with the creation time); see onCreate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -90,13 +125,19 @@ public class Reply {
     @JsonIgnore
     private List<Reply> childReplies = new ArrayList<>();
 
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
     /**
-     * Helper method to get nested reply count without loading all replies
-     * Can be used in DTOs
+     * Number of nested replies, read from the maintained counter (does not load childReplies)
      */
     @Transient
     public int getChildReplyCount() {
-        return childReplies != null ? childReplies.size() : 0;
+        return replyCount != null ? replyCount : 0;
     }
 
     /**
@@ -0,0 +1,73 @@
+package com.debatearena.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Topic Change Entity
+ * =====================================================================
+ *
+ * One row per change of a debate topic, numbered by the topic's
+ * change_version at the time of the change. Used by
+ * GET /questions/topic/{topicId}/changes?since=N to send only the
+ * questions and replies that changed since version N.
+ *
+ * IMPORTANT:
+ * - A change is always recorded against a question or reply node: votes,
+ *   attachments and evidence URLs change the node they belong to
+ * - deleted = the node (and everything beneath it) was removed
+ * - Rows are written by TopicChangeLog in the same transaction as the
+ *   change and pruned after changes.retention-days
+ * - Matches database table: topic_changes (apply-topic-changes-migration.sql)
+ *
+ * @author TarkVtark Team
+ */
+@Entity
+@Table(name = "topic_changes",
+        indexes = @Index(name = "idx_topic_changes_changed_at", columnList = "changed_at"))
+@IdClass(TopicChange.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopicChange {
+
+    @Id
+    @Column(name = "topic_id", nullable = false)
+    private UUID topicId;
+
+    @Id
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "node_type", nullable = false, length = 10)
+    private String nodeType; // "question" or "reply"
+
+    @Column(name = "node_id", nullable = false)
+    private UUID nodeId;
+
+    @Column(name = "deleted", nullable = false)
+    private Boolean deleted = false;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    /**
+     * Primary key: (topic_id, version)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private UUID topicId;
+        private Long version;
+    }
+}
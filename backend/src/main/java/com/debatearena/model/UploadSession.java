@@ -0,0 +1,100 @@
+package com.debatearena.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Upload Session Entity
+ * =====================================================================
+ *
+ * A resumable upload of a large attachment, sent in parts
+ * (POST /files/uploads, PUT /files/uploads/{id}/parts/{n},
+ * POST /files/uploads/{id}/complete). The parts received so far are in
+ * upload_session_parts, so a client that lost its connection asks which
+ * parts are missing and sends only those.
+ *
+ * IMPORTANT:
+ * - storageKey/providerUploadId identify the upload at the storage
+ *   provider (S3/R2 multipart upload, part files locally)
+ * - questionId/replyId: where the attachment goes once completed (plain
+ *   ids, checked again on completion)
+ * - The session and its parts are deleted when the upload completes or is
+ *   aborted; sessions idle longer than file.multipart.session-ttl-ms are
+ *   aborted by UploadSessionService
+ * - Matches database table: upload_sessions (apply-upload-sessions-migration.sql)
+ *
+ * @author TarkVtark Team
+ */
+@Entity
+@Table(name = "upload_sessions",
+        indexes = @Index(name = "idx_upload_sessions_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    public static final String STATUS_UPLOADING = "uploading";
+    public static final String STATUS_COMPLETING = "completing";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // Storage reference
+    @Column(name = "storage_provider", nullable = false, length = 50)
+    private String storageProvider;
+
+    @Column(name = "storage_key", nullable = false, length = 500)
+    private String storageKey;
+
+    @Column(name = "provider_upload_id", nullable = false, columnDefinition = "TEXT")
+    private String providerUploadId;
+
+    // File metadata
+    @Column(name = "file_name", nullable = false, length = 255)
+    private String fileName;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;  // Size in bytes
+
+    @Column(name = "file_type", nullable = false, length = 100)
+    private String fileType;
+
+    @Column(name = "part_size", nullable = false)
+    private Long partSize;  // Every part but the last has exactly this size
+
+    @Column(name = "part_count", nullable = false)
+    private Integer partCount;
+
+    // Attachment target (either question OR reply)
+    @Column(name = "question_id")
+    private UUID questionId;
+
+    @Column(name = "reply_id")
+    private UUID replyId;
+
+    @Column(name = "uploaded_by", length = 100)
+    private String uploadedBy = "Anonymous";
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = STATUS_UPLOADING;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Expected size of a part (the last one holds the remainder)
+     */
+    @Transient
+    public long getExpectedPartSize(int partNumber) {
+        return partNumber < partCount ? partSize : fileSize - partSize * (partCount - 1);
+    }
+}
@@ -0,0 +1,62 @@
+package com.debatearena.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Upload Session Part Entity
+ * =====================================================================
+ *
+ * One part of a resumable upload (see UploadSession) that the storage
+ * provider has accepted, with the ETag needed to complete the upload.
+ * A part sent again replaces its row.
+ *
+ * Matches database table: upload_session_parts (apply-upload-sessions-migration.sql)
+ *
+ * @author TarkVtark Team
+ */
+@Entity
+@Table(name = "upload_session_parts")
+@IdClass(UploadSessionPart.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionPart {
+
+    @Id
+    @Column(name = "session_id", nullable = false)
+    private UUID sessionId;
+
+    @Id
+    @Column(name = "part_number", nullable = false)
+    private Integer partNumber;
+
+    @Column(name = "size", nullable = false)
+    private Long size;
+
+    @Column(name = "etag", nullable = false, length = 255)
+    private String etag;
+
+    @Column(name = "uploaded_at", nullable = false)
+    private LocalDateTime uploadedAt;
+
+    /**
+     * Primary key: (session_id, part_number)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private UUID sessionId;
+        private Integer partNumber;
+    }
+}
@@ -0,0 +1,61 @@
+package com.debatearena.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Vote Ledger Entry Entity
+ * =====================================================================
+ *
+ * Records the current vote of one user on one question or reply.
+ * Enforces the FAQ rule "One question or one answer can be voted only once":
+ * (user_id, target_id) is unique, so a user holds at most one vote per post.
+ *
+ * IMPORTANT:
+ * - user_id is the userId claim of the caller's JWT (see JwtUtil)
+ * - target_id is a question id or a reply id, target_type tells which
+ * - Changing a vote (up -> down) updates vote_type in place; removing a vote deletes the row
+ * - Matches database table: vote_ledger (apply-vote-ledger-migration.sql)
+ *
+ * @author TarkVtark Team
+ */
+@Entity
+@Table(name = "vote_ledger",
+        uniqueConstraints = @UniqueConstraint(name = "uk_vote_ledger_user_target", columnNames = {"user_id", "target_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoteLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "target_id", nullable = false)
+    private UUID targetId;
+
+    @Column(name = "target_type", nullable = false, length = 10)
+    private String targetType; // "question" or "reply"
+
+    @Column(name = "vote_type", nullable = false, length = 10)
+    private String voteType; // "up" or "down"
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,59 @@
+package com.debatearena.repository;
+
+import com.debatearena.model.AttachmentBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Repository for content-addressed attachment blobs (keyed by SHA-256)
+ */
+@Repository
+public interface AttachmentBlobRepository extends JpaRepository<AttachmentBlob, String> {
+
+    /**
+     * Reserve the row of new content, not uploaded yet (storage_url NULL) and not referenced
+     * yet; waits for a concurrent insert of the same content to commit or roll back
+     *
+     * @return 1 if inserted, 0 if the row already existed
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO attachment_blobs (sha256, storage_url, storage_provider, file_size, ref_count, created_at)
+            VALUES (:sha256, NULL, :provider, :fileSize, 0, now())
+            ON CONFLICT (sha256) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("sha256") String sha256,
+                       @Param("provider") String provider,
+                       @Param("fileSize") long fileSize);
+
+    /**
+     * Record where the object was uploaded (uploads of the same content all yield the same URL)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AttachmentBlob b SET b.storageUrl = :storageUrl WHERE b.sha256 = :sha256 AND b.storageUrl IS NULL")
+    int setStorageUrl(@Param("sha256") String sha256, @Param("storageUrl") String storageUrl);
+
+    /**
+     * The blob row, locked (SELECT ... FOR UPDATE) until the calling transaction ends
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM AttachmentBlob b WHERE b.sha256 = :sha256")
+    Optional<AttachmentBlob> findForUpdate(@Param("sha256") String sha256);
+
+    /**
+     * Delete the blob row if no attachment uses it any more, once its object is gone (1 if deleted)
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AttachmentBlob b WHERE b.sha256 = :sha256 AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("sha256") String sha256);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -69,16 +70,91 @@ public interface AttachmentRepository extends JpaRepository<Attachment, UUID> {
     long countByReplyId(@Param("replyId") UUID replyId);
 
     /**
-     * Find attachment by filename
-     * Used by download endpoint to get storage URL for redirect
+     * Find the newest stored attachment with this original filename
+     * Used by download endpoint to get storage URL for redirect (names are not unique)
      */
-    @Query("SELECT a FROM Attachment a WHERE a.fileName = :fileName")
-    Attachment findByFileName(@Param("fileName") String fileName);
+    Attachment findFirstByFileNameAndStorageUrlIsNotNullOrderByCreatedAtDesc(String fileName);
 
     /**
-     * Find attachment by storage URL/key (used for local storage keys like 'attachments/uuid.png')
+     * Find attachment by storage key ('attachments/uuid.png'), indexed.
+     * Attachments with the same content share their key; any of them is returned.
      */
-    @Query("SELECT a FROM Attachment a WHERE a.storageUrl = :storageUrl")
-    Attachment findByStorageUrl(@Param("storageUrl") String storageUrl);
+    Attachment findFirstByStorageKey(String storageKey);
+
+    /**
+     * Pending attachment is now in remote storage: set its URL and mark it ready
+     * (0 if it was deleted or is no longer pending)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Attachment a SET a.storageUrl = :storageUrl, a.storageKey = :storageKey, " +
+           "a.contentHash = :contentHash, a.status = 'ready', a.spoolPath = null " +
+           "WHERE a.id = :id AND a.status = 'pending'")
+    int markStored(@Param("id") UUID id, @Param("storageUrl") String storageUrl,
+                   @Param("storageKey") String storageKey, @Param("contentHash") String contentHash);
+
+    /**
+     * Pending attachment could not be stored
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Attachment a SET a.status = 'failed', a.spoolPath = null WHERE a.id = :id AND a.status = 'pending'")
+    int markFailed(@Param("id") UUID id);
+
+    /**
+     * Image variants of an attachment are stored (0 if it was deleted)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Attachment a SET a.imageWidth = :width, a.imageHeight = :height, a.variantWidths = :variantWidths " +
+           "WHERE a.id = :id AND a.status = 'ready'")
+    int markImageVariants(@Param("id") UUID id, @Param("width") int width, @Param("height") int height,
+                          @Param("variantWidths") String variantWidths);
+
+    /**
+     * An attachment with the same content whose variants are already stored
+     */
+    Attachment findFirstByContentHashAndVariantWidthsIsNotNull(String contentHash);
+
+    /**
+     * Pending attachments (to be sent to storage, e.g. after a restart)
+     */
+    @Query("SELECT a FROM Attachment a WHERE a.status = 'pending' ORDER BY a.createdAt ASC")
+    List<Attachment> findPending();
+
+    /**
+     * Find all attachments of a topic's questions and of every reply beneath them.
+     * Used by the debate-tree loader so attachments are fetched in one query per topic.
+     */
+    @Query(value = """
+            SELECT a.* FROM attachments a
+            WHERE a.question_id IN (SELECT q.id FROM questions q WHERE q.debate_topic_id = :topicId)
+               OR a.reply_id IN (
+                   SELECT r.id FROM replies r
+                   JOIN questions q ON q.id = r.root_question_id
+                   WHERE q.debate_topic_id = :topicId
+               )
+            ORDER BY a.display_order ASC, a.created_at ASC
+            """, nativeQuery = true)
+    List<Attachment> findAllByTopicId(@Param("topicId") UUID topicId);
+
+    /**
+     * Find all attachments of one question and of every reply beneath it
+     */
+    @Query(value = """
+            SELECT a.* FROM attachments a
+            WHERE a.question_id = :questionId
+               OR a.reply_id IN (SELECT r.id FROM replies r WHERE r.root_question_id = :questionId)
+            ORDER BY a.display_order ASC, a.created_at ASC
+            """, nativeQuery = true)
+    List<Attachment> findAllByRootQuestionId(@Param("questionId") UUID questionId);
+
+    /**
+     * All attachments of the given questions and replies in one query
+     */
+    @Query("SELECT a FROM Attachment a WHERE a.question.id IN :questionIds OR a.reply.id IN :replyIds " +
+           "ORDER BY a.displayOrder ASC, a.createdAt ASC")
+    List<Attachment> findByQuestionIdsOrReplyIds(@Param("questionIds") Collection<UUID> questionIds,
+                                                 @Param("replyIds") Collection<UUID> replyIds);
 }
 
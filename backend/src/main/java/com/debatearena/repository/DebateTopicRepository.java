@@ -2,9 +2,11 @@ package com.debatearena.repository;
 
 import com.debatearena.model.DebateTopic;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -33,10 +35,27 @@ public interface DebateTopicRepository extends JpaRepository<DebateTopic, UUID>
     boolean existsByTopic(String topic);
 
     /**
-     * Find all topics with their question counts
-     * Uses a native query to efficiently count questions without loading them
+     * Current change_version of a topic (see TopicChangeLog)
      */
-    @Query("SELECT t, COUNT(q) FROM DebateTopic t LEFT JOIN t.questions q WHERE t.isActive = true GROUP BY t")
-    List<Object[]> findAllTopicsWithQuestionCounts();
+    @Query(value = "SELECT change_version FROM debate_topics WHERE id = :id", nativeQuery = true)
+    Optional<Long> findChangeVersion(@Param("id") UUID id);
+
+    /**
+     * Adjust the maintained question and reply counters of a topic;
+     * touch = also set last_activity_at to now (see DebateCounterService)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE debate_topics
+            SET question_count = GREATEST(question_count + :questionDelta, 0),
+                reply_count = GREATEST(reply_count + :replyDelta, 0),
+                last_activity_at = CASE WHEN :touch THEN CURRENT_TIMESTAMP ELSE last_activity_at END
+            WHERE id = :id
+            """, nativeQuery = true)
+    int applyCounterDeltas(@Param("id") UUID id,
+                           @Param("questionDelta") int questionDelta,
+                           @Param("replyDelta") int replyDelta,
+                           @Param("touch") boolean touch);
 }
 
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -67,5 +68,40 @@ public interface EvidenceUrlRepository extends JpaRepository<EvidenceUrl, UUID>
      */
     @Query("SELECT COUNT(e) FROM EvidenceUrl e WHERE e.reply.id = :replyId")
     long countByReplyId(@Param("replyId") UUID replyId);
+
+    /**
+     * Find all evidence URLs of a topic's questions and of every reply beneath them.
+     * Used by the debate-tree loader so evidence is fetched in one query per topic.
+     */
+    @Query(value = """
+            SELECT e.* FROM evidence_urls e
+            WHERE e.question_id IN (SELECT q.id FROM questions q WHERE q.debate_topic_id = :topicId)
+               OR e.reply_id IN (
+                   SELECT r.id FROM replies r
+                   JOIN questions q ON q.id = r.root_question_id
+                   WHERE q.debate_topic_id = :topicId
+               )
+            ORDER BY e.display_order ASC, e.created_at ASC
+            """, nativeQuery = true)
+    List<EvidenceUrl> findAllByTopicId(@Param("topicId") UUID topicId);
+
+    /**
+     * Find all evidence URLs of one question and of every reply beneath it
+     */
+    @Query(value = """
+            SELECT e.* FROM evidence_urls e
+            WHERE e.question_id = :questionId
+               OR e.reply_id IN (SELECT r.id FROM replies r WHERE r.root_question_id = :questionId)
+            ORDER BY e.display_order ASC, e.created_at ASC
+            """, nativeQuery = true)
+    List<EvidenceUrl> findAllByRootQuestionId(@Param("questionId") UUID questionId);
+
+    /**
+     * All evidence URLs of the given questions and replies in one query
+     */
+    @Query("SELECT e FROM EvidenceUrl e WHERE e.question.id IN :questionIds OR e.reply.id IN :replyIds " +
+           "ORDER BY e.displayOrder ASC, e.createdAt ASC")
+    List<EvidenceUrl> findByQuestionIdsOrReplyIds(@Param("questionIds") Collection<UUID> questionIds,
+                                                  @Param("replyIds") Collection<UUID> replyIds);
 }
 
@@ -2,8 +2,13 @@ package com.debatearena.repository;
 
 import com.debatearena.model.Question;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,6 +25,11 @@ public interface QuestionRepository extends JpaRepository<Question, UUID> {
      */
     List<Question> findByDebateTopic_Id(UUID debateTopicId);
 
+    /**
+     * Find all questions for a specific debate topic, oldest first (ties by id)
+     */
+    List<Question> findByDebateTopic_IdOrderByCreatedAtAscIdAsc(UUID debateTopicId);
+
     /**
      * Find all questions for a specific debate topic, ordered by creation date
      */
@@ -39,5 +49,110 @@ public interface QuestionRepository extends JpaRepository<Question, UUID> {
      * Find all questions on a specific side (left or right)
      */
     List<Question> findBySide(String side);
+
+    // =====================================================================
+    // KEYSET PAGINATION
+    // Each query returns the next page after the given cursor (sort key + id).
+    // The first page passes a cursor above every real value.
+    // =====================================================================
+
+    /**
+     * Page of a topic's questions, newest first (cursor: created_at, id)
+     */
+    @Query(value = """
+            SELECT q.* FROM questions q
+            WHERE q.debate_topic_id = :topicId
+              AND (q.created_at, q.id) < (:cursorCreatedAt, :cursorId)
+            ORDER BY q.created_at DESC, q.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Question> findPageNewest(@Param("topicId") UUID topicId,
+                                  @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                  @Param("cursorId") UUID cursorId,
+                                  @Param("limit") int limit);
+
+    /**
+     * Page of a topic's questions, highest net votes (up - down) first (cursor: net votes, id)
+     */
+    @Query(value = """
+            SELECT q.* FROM questions q
+            WHERE q.debate_topic_id = :topicId
+              AND (COALESCE(q.votes_up, 0) - COALESCE(q.votes_down, 0), q.id) < (:cursorNetVotes, :cursorId)
+            ORDER BY COALESCE(q.votes_up, 0) - COALESCE(q.votes_down, 0) DESC, q.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Question> findPageTop(@Param("topicId") UUID topicId,
+                               @Param("cursorNetVotes") long cursorNetVotes,
+                               @Param("cursorId") UUID cursorId,
+                               @Param("limit") int limit);
+
+    /**
+     * Page of a topic's questions, most replies (whole thread) first (cursor: descendant count, id)
+     */
+    @Query(value = """
+            SELECT q.* FROM questions q
+            WHERE q.debate_topic_id = :topicId
+              AND (q.descendant_count, q.id) < (:cursorReplyCount, :cursorId)
+            ORDER BY q.descendant_count DESC, q.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Question> findPageMostReplied(@Param("topicId") UUID topicId,
+                                       @Param("cursorReplyCount") long cursorReplyCount,
+                                       @Param("cursorId") UUID cursorId,
+                                       @Param("limit") int limit);
+
+    /**
+     * Id of the topic a question belongs to (without loading the question)
+     */
+    @Query("SELECT q.debateTopic.id FROM Question q WHERE q.id = :id")
+    Optional<UUID> findTopicId(@Param("id") UUID id);
+
+    /**
+     * Adjust the maintained counters of a question; touch = also set last_activity_at to now
+     * (see DebateCounterService)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE questions
+            SET reply_count = GREATEST(reply_count + :replyDelta, 0),
+                descendant_count = GREATEST(descendant_count + :descendantDelta, 0),
+                attachment_count = GREATEST(attachment_count + :attachmentDelta, 0),
+                evidence_count = GREATEST(evidence_count + :evidenceDelta, 0),
+                last_activity_at = CASE WHEN :touch THEN CURRENT_TIMESTAMP ELSE last_activity_at END
+            WHERE id = :id
+            """, nativeQuery = true)
+    int applyCounterDeltas(@Param("id") UUID id,
+                           @Param("replyDelta") int replyDelta,
+                           @Param("descendantDelta") int descendantDelta,
+                           @Param("attachmentDelta") int attachmentDelta,
+                           @Param("evidenceDelta") int evidenceDelta,
+                           @Param("touch") boolean touch);
+
+    /**
+     * Read the current vote counts of a question (also serves as existence check)
+     */
+    @Query("SELECT q.id AS id, q.votesUp AS votesUp, q.votesDown AS votesDown FROM Question q WHERE q.id = :id")
+    Optional<VoteCounts> findVoteCounts(@Param("id") UUID id);
+
+    /**
+     * Atomically apply vote deltas in a single UPDATE and return the new counts.
+     * No read-modify-write through the entity, so concurrent votes are never lost
+     * and the row lock is held only for the duration of the statement.
+     * Counts never drop below zero.
+     *
+     * @return the updated counts, or empty if the question does not exist
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE questions
+            SET votes_up = GREATEST(votes_up + :upDelta, 0),
+                votes_down = GREATEST(votes_down + :downDelta, 0)
+            WHERE id = :id
+            RETURNING id AS "id", votes_up AS "votesUp", votes_down AS "votesDown"
+            """, nativeQuery = true)
+    Optional<VoteCounts> applyVoteDelta(@Param("id") UUID id,
+                                        @Param("upDelta") int upDelta,
+                                        @Param("downDelta") int downDelta);
 }
 
@@ -2,8 +2,14 @@ package com.debatearena.repository;
 
 import com.debatearena.model.Reply;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -34,5 +40,264 @@ public interface ReplyRepository extends JpaRepository<Reply, UUID> {
      * Find all replies at a specific depth level
      */
     List<Reply> findByDepth(Integer depth);
+
+    /**
+     * Find every reply (direct and nested, at any depth) under the questions of a topic.
+     * Every reply carries the id of its root question, so the whole thread is one
+     * indexed lookup instead of one query per reply.
+     * Ordered by materialized path: depth-first, siblings by creation time.
+     */
+    @Query(value = """
+            SELECT r.* FROM replies r
+            JOIN questions q ON q.id = r.root_question_id
+            WHERE q.debate_topic_id = :topicId
+            ORDER BY r.root_question_id, r.path
+            """, nativeQuery = true)
+    List<Reply> findAllByTopicId(@Param("topicId") UUID topicId);
+
+    /**
+     * Id of the question whose thread contains a reply (without loading the reply)
+     */
+    @Query("SELECT r.rootQuestionId FROM Reply r WHERE r.id = :id")
+    Optional<UUID> findRootQuestionId(@Param("id") UUID id);
+
+    /**
+     * Every reply (direct and nested) under one question, in path order
+     */
+    List<Reply> findByRootQuestionIdOrderByPathAsc(UUID rootQuestionId);
+
+    /**
+     * First {@code previewSize} direct replies (oldest first) of each given question
+     */
+    @Query(value = """
+            SELECT r.* FROM replies r
+            WHERE r.id IN (
+                SELECT x.id FROM (
+                    SELECT p.id, ROW_NUMBER() OVER (PARTITION BY p.question_id ORDER BY p.created_at, p.id) AS rn
+                    FROM replies p
+                    WHERE p.question_id IN (:questionIds)
+                ) x
+                WHERE x.rn <= :previewSize
+            )
+            ORDER BY r.created_at ASC, r.id ASC
+            """, nativeQuery = true)
+    List<Reply> findPreviewByQuestionIds(@Param("questionIds") Collection<UUID> questionIds,
+                                         @Param("previewSize") int previewSize);
+
+    // =====================================================================
+    // SUBTREE EXPANSION
+    // Sibling pages are keyset ranges on (created_at, id) under one parent,
+    // served by idx_replies_parent_created / idx_replies_question_created_id.
+    // =====================================================================
+
+    /**
+     * Direct replies of a question after the given (created_at, id), oldest first
+     */
+    @Query(value = """
+            SELECT r.* FROM replies r
+            WHERE r.question_id = :questionId
+              AND (r.created_at, r.id) > (:afterCreatedAt, :afterId)
+            ORDER BY r.created_at ASC, r.id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Reply> findChildrenOfQuestionAfter(@Param("questionId") UUID questionId,
+                                            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                            @Param("afterId") UUID afterId,
+                                            @Param("limit") int limit);
+
+    /**
+     * Direct replies of a reply after the given (created_at, id), oldest first
+     */
+    @Query(value = """
+            SELECT r.* FROM replies r
+            WHERE r.parent_reply_id = :parentReplyId
+              AND (r.created_at, r.id) > (:afterCreatedAt, :afterId)
+            ORDER BY r.created_at ASC, r.id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Reply> findChildrenOfReplyAfter(@Param("parentReplyId") UUID parentReplyId,
+                                         @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                         @Param("afterId") UUID afterId,
+                                         @Param("limit") int limit);
+
+    /**
+     * First {@code perParent} direct replies (oldest first) of each given reply
+     */
+    @Query(value = """
+            SELECT r.* FROM replies r
+            WHERE r.id IN (
+                SELECT x.id FROM (
+                    SELECT p.id, ROW_NUMBER() OVER (PARTITION BY p.parent_reply_id ORDER BY p.created_at, p.id) AS rn
+                    FROM replies p
+                    WHERE p.parent_reply_id IN (:parentIds)
+                ) x
+                WHERE x.rn <= :perParent
+            )
+            ORDER BY r.created_at ASC, r.id ASC
+            """, nativeQuery = true)
+    List<Reply> findFirstChildrenOfReplies(@Param("parentIds") Collection<UUID> parentIds,
+                                           @Param("perParent") int perParent);
+
+    /**
+     * Which of the given replies have at least one reply of their own
+     */
+    @Query("SELECT DISTINCT r.parentReply.id FROM Reply r WHERE r.parentReply.id IN :ids")
+    List<UUID> findIdsHavingChildren(@Param("ids") Collection<UUID> ids);
+
+    // =====================================================================
+    // MATERIALIZED PATH
+    // Descendants of a reply with path P are exactly the rows with
+    // P + "/" <= path < P + "0" ("/" sorts directly before "0"), so every
+    // subtree query is a single range scan on idx_replies_path.
+    // =====================================================================
+
+    /**
+     * All replies beneath a reply, in thread order (depth-first, siblings by creation time)
+     */
+    @Query(value = """
+            SELECT r.* FROM replies r
+            WHERE r.path > :lower AND r.path < :upper
+            ORDER BY r.path
+            """, nativeQuery = true)
+    List<Reply> findDescendantsByPathRange(@Param("lower") String lower, @Param("upper") String upper);
+
+    /**
+     * Number of replies beneath a reply (all nesting levels)
+     */
+    @Query(value = "SELECT COUNT(*) FROM replies r WHERE r.path > :lower AND r.path < :upper", nativeQuery = true)
+    long countDescendantsByPathRange(@Param("lower") String lower, @Param("upper") String upper);
+
+    /**
+     * Delete a reply and everything beneath it in one statement
+     * (attachments and evidence URLs go with them via ON DELETE CASCADE)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM replies r WHERE r.path >= :path AND r.path < :upper", nativeQuery = true)
+    int deleteSubtreeByPath(@Param("path") String path, @Param("upper") String upper);
+
+    /**
+     * Number of replies that still need a materialized path
+     */
+    long countByPathIsNull();
+
+    /**
+     * Number of replies (all nesting levels) under a question
+     */
+    long countByRootQuestionId(UUID rootQuestionId);
+
+    /**
+     * Backfill path, root_question_id and depth for replies created before the path existed.
+     * Walks every thread top-down from its question, keeping paths that already exist;
+     * new segments use each reply's created_at and id (same layout as ReplyPathService).
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            WITH RECURSIVE thread AS (
+                SELECT r.id, r.question_id AS root_id, 0 AS lvl,
+                       CAST(COALESCE(r.path, replace(CAST(r.question_id AS TEXT), '-', '') || '/'
+                            || lpad(to_hex(CAST(floor(extract(epoch FROM r.created_at) * 1000) AS BIGINT)), 12, '0')
+                            || substr(replace(CAST(r.id AS TEXT), '-', ''), 1, 8)) AS VARCHAR(2000)) AS p
+                FROM replies r
+                WHERE r.question_id IS NOT NULL
+                UNION ALL
+                SELECT c.id, t.root_id, t.lvl + 1,
+                       CAST(COALESCE(c.path, t.p || '/'
+                            || lpad(to_hex(CAST(floor(extract(epoch FROM c.created_at) * 1000) AS BIGINT)), 12, '0')
+                            || substr(replace(CAST(c.id AS TEXT), '-', ''), 1, 8)) AS VARCHAR(2000))
+                FROM replies c
+                JOIN thread t ON c.parent_reply_id = t.id
+            )
+            UPDATE replies r
+            SET path = t.p, root_question_id = t.root_id, depth = t.lvl
+            FROM thread t
+            WHERE r.id = t.id AND r.path IS NULL
+            """, nativeQuery = true)
+    int backfillPaths();
+
+    /**
+     * Backfill path, root question and depth of one reply (no-op if it already has a path).
+     * A bulk UPDATE, so a loaded (possibly stale) entity is never written back.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Reply r SET r.path = :path, r.rootQuestionId = :rootQuestionId, r.depth = :depth "
+            + "WHERE r.id = :id AND r.path IS NULL")
+    int backfillPath(@Param("id") UUID id, @Param("path") String path,
+                     @Param("rootQuestionId") UUID rootQuestionId, @Param("depth") int depth);
+
+    /**
+     * Read the current vote counts of a reply (also serves as existence check)
+     */
+    @Query("SELECT r.id AS id, r.votesUp AS votesUp, r.votesDown AS votesDown FROM Reply r WHERE r.id = :id")
+    Optional<VoteCounts> findVoteCounts(@Param("id") UUID id);
+
+    // =====================================================================
+    // MAINTAINED COUNTERS
+    // Adjusted in the transaction that creates or deletes a reply, attachment
+    // or evidence URL (see DebateCounterService), so lists never aggregate.
+    // =====================================================================
+
+    /**
+     * Adjust the counters of one reply; touch = also set last_activity_at to now
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE replies
+            SET reply_count = GREATEST(reply_count + :replyDelta, 0),
+                descendant_count = GREATEST(descendant_count + :descendantDelta, 0),
+                attachment_count = GREATEST(attachment_count + :attachmentDelta, 0),
+                evidence_count = GREATEST(evidence_count + :evidenceDelta, 0),
+                last_activity_at = CASE WHEN :touch THEN CURRENT_TIMESTAMP ELSE last_activity_at END
+            WHERE id = :id
+            """, nativeQuery = true)
+    int applyCounterDeltas(@Param("id") UUID id,
+                           @Param("replyDelta") int replyDelta,
+                           @Param("descendantDelta") int descendantDelta,
+                           @Param("attachmentDelta") int attachmentDelta,
+                           @Param("evidenceDelta") int evidenceDelta,
+                           @Param("touch") boolean touch);
+
+    /**
+     * Adjust descendant_count of every ancestor of a reply in one statement
+     * (ancestors are looked up by their exact paths on idx_replies_path).
+     * The direct parent also gets replyDelta on reply_count.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE replies
+            SET reply_count = GREATEST(reply_count + CASE WHEN id = :parentId THEN :replyDelta ELSE 0 END, 0),
+                descendant_count = GREATEST(descendant_count + :descendantDelta, 0),
+                last_activity_at = CASE WHEN :touch THEN CURRENT_TIMESTAMP ELSE last_activity_at END
+            WHERE path IN (:ancestorPaths)
+            """, nativeQuery = true)
+    int applyAncestorCounterDeltas(@Param("ancestorPaths") Collection<String> ancestorPaths,
+                                   @Param("parentId") UUID parentId,
+                                   @Param("replyDelta") int replyDelta,
+                                   @Param("descendantDelta") int descendantDelta,
+                                   @Param("touch") boolean touch);
+
+    /**
+     * Atomically apply vote deltas in a single UPDATE and return the new counts.
+     * No read-modify-write through the entity, so concurrent votes are never lost
+     * and the row lock is held only for the duration of the statement.
+     * Counts never drop below zero.
+     *
+     * @return the updated counts, or empty if the reply does not exist
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE replies
+            SET votes_up = GREATEST(votes_up + :upDelta, 0),
+                votes_down = GREATEST(votes_down + :downDelta, 0)
+            WHERE id = :id
+            RETURNING id AS "id", votes_up AS "votesUp", votes_down AS "votesDown"
+            """, nativeQuery = true)
+    Optional<VoteCounts> applyVoteDelta(@Param("id") UUID id,
+                                        @Param("upDelta") int upDelta,
+                                        @Param("downDelta") int downDelta);
 }
 
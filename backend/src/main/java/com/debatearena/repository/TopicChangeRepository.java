@@ -0,0 +1,132 @@
+package com.debatearena.repository;
+
+import com.debatearena.model.TopicChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for the topic change log (see TopicChangeLog)
+ */
+@Repository
+public interface TopicChangeRepository extends JpaRepository<TopicChange, TopicChange.Key> {
+
+    /**
+     * Bump the change_version of the question's topic and log the question as changed,
+     * in one statement (the topic row lock orders concurrent changes)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            WITH bumped AS (
+                UPDATE debate_topics d SET change_version = d.change_version + 1
+                FROM questions q
+                WHERE q.id = :questionId AND d.id = q.debate_topic_id
+                RETURNING d.id, d.change_version
+            )
+            INSERT INTO topic_changes (topic_id, version, node_type, node_id, deleted, changed_at)
+            SELECT id, change_version, 'question', :questionId, :deleted, CURRENT_TIMESTAMP FROM bumped
+            """, nativeQuery = true)
+    int recordQuestion(@Param("questionId") UUID questionId, @Param("deleted") boolean deleted);
+
+    /**
+     * Same as recordQuestion for a reply (topic found through its root question)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            WITH bumped AS (
+                UPDATE debate_topics d SET change_version = d.change_version + 1
+                FROM replies r JOIN questions q ON q.id = r.root_question_id
+                WHERE r.id = :replyId AND d.id = q.debate_topic_id
+                RETURNING d.id, d.change_version
+            )
+            INSERT INTO topic_changes (topic_id, version, node_type, node_id, deleted, changed_at)
+            SELECT id, change_version, 'reply', :replyId, :deleted, CURRENT_TIMESTAMP FROM bumped
+            """, nativeQuery = true)
+    int recordReply(@Param("replyId") UUID replyId, @Param("deleted") boolean deleted);
+
+    /**
+     * Log votes on several questions and replies (ids of either), for all their topics in one
+     * statement: each topic's change_version goes up once, by its number of changed nodes, and
+     * the nodes are numbered within that range. Run inside the vote flush transaction.
+     *
+     * @return number of changes logged
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            WITH changed AS (
+                SELECT q.debate_topic_id AS topic_id, 'question' AS node_type, q.id AS node_id
+                FROM questions q WHERE q.id IN (:nodeIds)
+                UNION ALL
+                SELECT q.debate_topic_id, 'reply', r.id
+                FROM replies r JOIN questions q ON q.id = r.root_question_id WHERE r.id IN (:nodeIds)
+            ),
+            numbered AS (
+                SELECT topic_id, node_type, node_id,
+                       ROW_NUMBER() OVER (PARTITION BY topic_id ORDER BY node_id) AS n,
+                       COUNT(*) OVER (PARTITION BY topic_id) AS total
+                FROM changed
+            ),
+            bumped AS (
+                UPDATE debate_topics d SET change_version = d.change_version + t.total
+                FROM (SELECT DISTINCT topic_id, total FROM numbered) t
+                WHERE d.id = t.topic_id
+                RETURNING d.id, d.change_version
+            )
+            INSERT INTO topic_changes (topic_id, version, node_type, node_id, deleted, changed_at)
+            SELECT n.topic_id, b.change_version - n.total + n.n, n.node_type, n.node_id, false, CURRENT_TIMESTAMP
+            FROM numbered n JOIN bumped b ON b.id = n.topic_id
+            """, nativeQuery = true)
+    int recordNodes(@Param("nodeIds") Collection<UUID> nodeIds);
+
+    /**
+     * Oldest change still in the log for a topic (older ones were pruned)
+     */
+    @Query(value = "SELECT MIN(version) FROM topic_changes WHERE topic_id = :topicId", nativeQuery = true)
+    Optional<Long> findOldestVersion(@Param("topicId") UUID topicId);
+
+    /**
+     * Distinct nodes changed in (since, upTo], at most limit of them
+     */
+    @Query(value = """
+            SELECT node_type AS nodeType, node_id AS nodeId, BOOL_OR(deleted) AS deleted
+            FROM topic_changes
+            WHERE topic_id = :topicId AND version > :since AND version <= :upTo
+            GROUP BY node_type, node_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ChangedNode> findChangedNodes(@Param("topicId") UUID topicId,
+                                       @Param("since") long since,
+                                       @Param("upTo") long upTo,
+                                       @Param("limit") int limit);
+
+    /**
+     * Retention: drop changes older than the cutoff
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM topic_changes WHERE changed_at < :cutoff", nativeQuery = true)
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * One changed question or reply
+     */
+    interface ChangedNode {
+        String getNodeType();
+
+        UUID getNodeId();
+
+        Boolean getDeleted();
+    }
+}
@@ -0,0 +1,40 @@
+package com.debatearena.repository;
+
+import com.debatearena.model.UploadSessionPart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for the received parts of upload sessions
+ */
+@Repository
+public interface UploadSessionPartRepository extends JpaRepository<UploadSessionPart, UploadSessionPart.Key> {
+
+    /**
+     * Parts received so far, in order
+     */
+    List<UploadSessionPart> findBySessionIdOrderByPartNumberAsc(UUID sessionId);
+
+    /**
+     * Record a received part (a part sent again replaces the earlier row)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO upload_session_parts (session_id, part_number, size, etag, uploaded_at)
+            VALUES (:sessionId, :partNumber, :size, :etag, CURRENT_TIMESTAMP)
+            ON CONFLICT (session_id, part_number)
+            DO UPDATE SET size = EXCLUDED.size, etag = EXCLUDED.etag, uploaded_at = EXCLUDED.uploaded_at
+            """, nativeQuery = true)
+    int upsert(@Param("sessionId") UUID sessionId,
+               @Param("partNumber") int partNumber,
+               @Param("size") long size,
+               @Param("etag") String etag);
+}
@@ -0,0 +1,43 @@
+package com.debatearena.repository;
+
+import com.debatearena.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for resumable upload sessions (see UploadSessionService)
+ */
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    /**
+     * Move a session from one status to another; 0 if it was not in the expected status
+     * (only one request can claim a session for completion)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.status = :to WHERE s.id = :id AND s.status = :from")
+    int updateStatus(@Param("id") UUID id, @Param("from") String from, @Param("to") String to);
+
+    /**
+     * Sessions on a storage provider started before the cutoff that received no part since then
+     */
+    @Query(value = """
+            SELECT s.* FROM upload_sessions s
+            WHERE s.storage_provider = :provider
+              AND s.created_at < :cutoff
+              AND NOT EXISTS (SELECT 1 FROM upload_session_parts p
+                              WHERE p.session_id = s.id AND p.uploaded_at >= :cutoff)
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<UploadSession> findIdleSince(@Param("provider") String provider, @Param("cutoff") LocalDateTime cutoff,
+                                      @Param("limit") int limit);
+}
@@ -0,0 +1,17 @@
+package com.debatearena.repository;
+
+import java.util.UUID;
+
+/**
+ * Projection returned by the atomic vote-counter updates in
+ * QuestionRepository and ReplyRepository (UPDATE ... RETURNING)
+ * and by their findVoteCounts reads.
+ */
+public interface VoteCounts {
+
+    UUID getId();
+
+    Integer getVotesUp();
+
+    Integer getVotesDown();
+}
@@ -0,0 +1,83 @@
+package com.debatearena.repository;
+
+import com.debatearena.model.VoteLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * =====================================================================
+ * Vote Ledger Repository
+ * =====================================================================
+ *
+ * Repository for per-user votes. All state transitions are conditional
+ * single statements, so two concurrent requests from the same user can
+ * never both count: the loser affects 0 rows and re-reads the ledger.
+ *
+ * @author TarkVtark Team
+ */
+@Repository
+public interface VoteLedgerRepository extends JpaRepository<VoteLedgerEntry, UUID> {
+
+    /**
+     * Current vote type ("up"/"down") of a user on a question or reply
+     */
+    @Query("SELECT v.voteType FROM VoteLedgerEntry v WHERE v.userId = :userId AND v.targetId = :targetId")
+    Optional<String> findVoteType(@Param("userId") UUID userId, @Param("targetId") UUID targetId);
+
+    /**
+     * Record a new vote unless the user already voted on this target
+     *
+     * @return 1 if inserted, 0 if a vote already existed
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO vote_ledger (id, user_id, target_id, target_type, vote_type, created_at, updated_at)
+            VALUES (gen_random_uuid(), :userId, :targetId, :targetType, :voteType, now(), now())
+            ON CONFLICT (user_id, target_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") UUID userId,
+                       @Param("targetId") UUID targetId,
+                       @Param("targetType") String targetType,
+                       @Param("voteType") String voteType);
+
+    /**
+     * Switch an existing vote from one type to the other
+     *
+     * @return 1 if changed, 0 if the stored vote was not of fromType
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE vote_ledger SET vote_type = :toType, updated_at = now()
+            WHERE user_id = :userId AND target_id = :targetId AND vote_type = :fromType
+            """, nativeQuery = true)
+    int changeVote(@Param("userId") UUID userId,
+                   @Param("targetId") UUID targetId,
+                   @Param("fromType") String fromType,
+                   @Param("toType") String toType);
+
+    /**
+     * Remove an existing vote of the given type
+     *
+     * @return 1 if removed, 0 if the stored vote was not of voteType
+     */
+    @Modifying
+    @Query(value = "DELETE FROM vote_ledger WHERE user_id = :userId AND target_id = :targetId AND vote_type = :voteType",
+            nativeQuery = true)
+    int deleteVote(@Param("userId") UUID userId,
+                   @Param("targetId") UUID targetId,
+                   @Param("voteType") String voteType);
+
+    /**
+     * Stream all (userId, targetId) pairs, used to warm up the in-memory membership index
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @Query("SELECT v.userId, v.targetId FROM VoteLedgerEntry v")
+    Stream<Object[]> streamAllKeys();
+}
@@ -0,0 +1,309 @@
+package com.debatearena.service;
+
+import com.debatearena.model.Attachment;
+import com.debatearena.repository.AttachmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * =====================================================================
+ * Async Upload Service
+ * =====================================================================
+ *
+ * Accepts uploads without waiting for remote storage (file.async.enabled):
+ * the file is moved to a local spool directory, the attachment is saved as
+ * "pending" (no storageUrl yet) and returned at once (202), and a bounded
+ * pool of workers sends it to S3/R2/Supabase. On success the attachment
+ * gets its URL and becomes "ready"; after max-attempts failures (with
+ * exponential backoff between them) it becomes "failed". Either way the
+ * question or reply is logged as changed, so clients see the new state.
+ *
+ * Pending attachments survive a restart: a periodic sweep queues every
+ * pending attachment whose spooled file is on this instance (and marks
+ * those pending for more than a day as failed). When the queue is full,
+ * the attachment simply waits for the next sweep.
+ *
+ * Uploads go through AttachmentBlobService, so content stored before is
+ * not sent again.
+ *
+ * Not used with local storage (the file is already on local disk).
+ *
+ * Metrics: attachments.async.in-flight, attachments.async.stored,
+ * attachments.async.failed, attachments.async.retries.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class AsyncUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncUploadService.class);
+
+    // Older pending attachments are given up on (spooled file lost, e.g. another instance's disk)
+    private static final long PENDING_MAX_AGE_HOURS = 24;
+
+    private final FileStorageService fileStorageService;
+    private final AttachmentBlobService attachmentBlobService;
+    private final ImageVariantService imageVariantService;
+    private final DebateCounterService debateCounterService;
+    private final AttachmentRepository attachmentRepository;
+    private final boolean enabled;
+    private final Path spoolDir;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retryScheduler;
+
+    // Attachments queued, uploading or waiting for a retry
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Counter storedCounter;
+    private final Counter failedCounter;
+    private final Counter retryCounter;
+
+    public AsyncUploadService(
+            FileStorageService fileStorageService,
+            AttachmentBlobService attachmentBlobService,
+            ImageVariantService imageVariantService,
+            DebateCounterService debateCounterService,
+            AttachmentRepository attachmentRepository,
+            MeterRegistry meterRegistry,
+            @Value("${file.async.enabled:false}") boolean enabled,
+            @Value("${file.async.spool-dir:./uploads/.spool}") String spoolDir,
+            @Value("${file.async.workers:4}") int workerCount,
+            @Value("${file.async.queue-size:1000}") int queueSize,
+            @Value("${file.async.max-attempts:5}") int maxAttempts,
+            @Value("${file.async.retry-delay-ms:2000}") long retryDelayMs) {
+        this.fileStorageService = fileStorageService;
+        this.attachmentBlobService = attachmentBlobService;
+        this.imageVariantService = imageVariantService;
+        this.debateCounterService = debateCounterService;
+        this.attachmentRepository = attachmentRepository;
+        this.enabled = enabled;
+        this.spoolDir = Paths.get(spoolDir);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelayMs = retryDelayMs;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(Math.max(1, workerCount), Math.max(1, workerCount),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+            Thread thread = new Thread(runnable, "attachment-upload-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "attachment-upload-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("attachments.async.in-flight", inFlight, Set::size)
+                .description("Pending attachments queued, uploading or waiting for a retry")
+                .register(meterRegistry);
+        this.storedCounter = Counter.builder("attachments.async.stored")
+                .description("Pending attachments sent to remote storage")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("attachments.async.failed")
+                .description("Pending attachments given up on")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("attachments.async.retries")
+                .description("Failed remote uploads scheduled again")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether uploads are accepted before they reach storage
+     */
+    public boolean isEnabled() {
+        return enabled && !"local".equalsIgnoreCase(fileStorageService.getProviderName());
+    }
+
+    /**
+     * Spool the file, save the attachment as pending and queue its upload
+     *
+     * @param file       The uploaded file (moved into the spool directory)
+     * @param attachment New attachment with its metadata and question or reply set
+     * @return The saved (pending) attachment
+     */
+    public Attachment accept(MultipartFile file, Attachment attachment) throws IOException {
+        Files.createDirectories(spoolDir);
+        Path spooled = spoolDir.resolve(UUID.randomUUID().toString());
+        file.transferTo(spooled);
+
+        attachment.setStatus(Attachment.STATUS_PENDING);
+        attachment.setStorageUrl(null);
+        attachment.setStorageProvider(fileStorageService.getProviderName());
+        attachment.setSpoolPath(spooled.toString());
+        Attachment saved;
+        try {
+            saved = debateCounterService.createAttachment(attachment);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+
+        queue(saved.getId());
+        return saved;
+    }
+
+    /**
+     * A pending attachment is being deleted: drop its spooled file (an upload
+     * in progress finishes, finds the attachment gone and deletes the object)
+     */
+    public void discard(Attachment attachment) {
+        if (attachment.getSpoolPath() == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(attachment.getSpoolPath()));
+        } catch (IOException e) {
+            logger.warn("Could not delete spooled file {}: {}", attachment.getSpoolPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Queue pending attachments that are not in flight (after a restart, or
+     * when the queue was full)
+     */
+    @Scheduled(fixedDelayString = "${file.async.sweep-interval-ms:60000}", initialDelay = 10000)
+    public void resumePending() {
+        LocalDateTime giveUpBefore = LocalDateTime.now().minusHours(PENDING_MAX_AGE_HOURS);
+        for (Attachment attachment : attachmentRepository.findPending()) {
+            if (inFlight.contains(attachment.getId())) {
+                continue;
+            }
+            if (attachment.getSpoolPath() != null && Files.exists(Paths.get(attachment.getSpoolPath()))) {
+                queue(attachment.getId());
+            } else if (attachment.getCreatedAt() != null && attachment.getCreatedAt().isBefore(giveUpBefore)) {
+                logger.warn("Pending attachment {} has no spooled file here, giving up", attachment.getId());
+                fail(attachment.getId());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void queue(UUID attachmentId) {
+        if (inFlight.add(attachmentId)) {
+            submit(attachmentId, 1);
+        }
+    }
+
+    private void submit(UUID attachmentId, int attempt) {
+        try {
+            workers.execute(() -> upload(attachmentId, attempt));
+        } catch (RejectedExecutionException e) {
+            // Queue full (or shutting down): the next sweep picks it up
+            inFlight.remove(attachmentId);
+            logger.warn("Upload queue full, attachment {} waits for the next sweep", attachmentId);
+        }
+    }
+
+    private void upload(UUID attachmentId, int attempt) {
+        Optional<Attachment> found = attachmentRepository.findById(attachmentId);
+        if (found.isEmpty() || !Attachment.STATUS_PENDING.equals(found.get().getStatus())) {
+            inFlight.remove(attachmentId);
+            return;
+        }
+        Attachment attachment = found.get();
+        Path spooled = attachment.getSpoolPath() != null ? Paths.get(attachment.getSpoolPath()) : null;
+        if (spooled == null || !Files.exists(spooled)) {
+            logger.error("Spooled file of attachment {} is missing", attachmentId);
+            fail(attachmentId);
+            return;
+        }
+
+        AttachmentBlobService.StoredContent stored;
+        try {
+            stored = attachmentBlobService.store(new FileSystemResource(spooled), Files.size(spooled),
+                    attachment.getFileName(), attachment.getFileType(), "attachments");
+        } catch (Exception e) {
+            if (attempt >= maxAttempts) {
+                logger.error("Upload of attachment {} failed {} times, giving up", attachmentId, attempt, e);
+                fail(attachmentId);
+                return;
+            }
+            long delay = retryDelayMs << Math.min(attempt - 1, 10);
+            logger.warn("Upload of attachment {} failed (attempt {}/{}), retrying in {} ms: {}",
+                    attachmentId, attempt, maxAttempts, delay, e.getMessage());
+            retryCounter.increment();
+            try {
+                retryScheduler.schedule(() -> submit(attachmentId, attempt + 1), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException shuttingDown) {
+                inFlight.remove(attachmentId);
+            }
+            return;
+        }
+
+        boolean recorded;
+        try {
+            recorded = debateCounterService.attachmentStored(attachmentId, stored.storageUrl(), stored.contentHash());
+        } catch (Exception e) {
+            // Rolled back: the content is not referenced, so give it back below; without
+            // its spooled file the next sweep marks the attachment failed
+            logger.error("Could not record stored attachment {}", attachmentId, e);
+            recorded = false;
+        }
+
+        try {
+            if (recorded) {
+                storedCounter.increment();
+                logger.info("Pending attachment {} stored: {}", attachmentId, stored.storageUrl());
+                // Images: the spooled file is used for the variants, then deleted
+                imageVariantService.submit(attachmentId, attachment.getFileType(), spooled);
+            } else {
+                // Deleted while it was uploading, or not recorded. The spooled file goes
+                // first, so a failed release can never lead to storing the content again.
+                Files.deleteIfExists(spooled);
+                attachmentBlobService.release(stored);
+            }
+        } catch (Exception e) {
+            logger.error("Could not finish pending attachment {}", attachmentId, e);
+        } finally {
+            inFlight.remove(attachmentId);
+        }
+    }
+
+    private void fail(UUID attachmentId) {
+        try {
+            Optional<Attachment> found = attachmentRepository.findById(attachmentId);
+            if (debateCounterService.attachmentFailed(attachmentId)) {
+                failedCounter.increment();
+                found.ifPresent(this::discard);
+            }
+        } catch (Exception e) {
+            logger.error("Could not mark attachment {} as failed", attachmentId, e);
+        } finally {
+            inFlight.remove(attachmentId);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.debatearena.service;
+
+import com.debatearena.model.Attachment;
+import com.debatearena.model.AttachmentBlob;
+import com.debatearena.repository.AttachmentBlobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * =====================================================================
+ * Attachment Blob Service
+ * =====================================================================
+ *
+ * Content-addressed attachment storage: an uploaded file is hashed
+ * (SHA-256, one streamed pass over the copy the servlet container or the
+ * async spool already has on disk) and stored as attachments/{sha256}.{ext}.
+ * A file whose content is already stored is not uploaded again: the new
+ * attachment points at the existing blob and its refCount goes up. Deleting
+ * an attachment lowers the count; the object is deleted with the last one.
+ *
+ * References are counted in the database, so this holds across instances.
+ * Adding and removing one both lock the blob row (SELECT ... FOR UPDATE):
+ * - adding one first inserts the row if it is missing (ON CONFLICT DO
+ *   NOTHING), then counts the reference under the lock and commits it
+ *   before anything is uploaded; while the row has no storageUrl the
+ *   object is not uploaded yet, and the new reference uploads it (the
+ *   same name and bytes if several do so at once)
+ * - removing one decides under the lock whether it was the last; the
+ *   object is deleted only after that transaction committed refCount 0,
+ *   and the row last
+ * - a row at refCount 0 is being deleted: it is never referenced again,
+ *   and uploads of the same content meanwhile get their own object
+ * So an upload of the content name always happens while its reference is
+ * counted, and the object is never deleted under an attachment using it.
+ * A reference whose upload fails is removed again; one left behind by a
+ * crash mid-upload only keeps the object stored for good.
+ *
+ * Image variants (ImageVariantService) are named after the object, so
+ * they are shared and deleted with it.
+ *
+ * Attachments without a content hash (resumable and presigned uploads,
+ * attachments from before file.dedup, or file.dedup.enabled=false) keep
+ * their own object, deleted with them as before.
+ *
+ * Metrics: attachments.blobs.reused, attachments.blobs.bytes-saved.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class AttachmentBlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentBlobService.class);
+
+    private final FileStorageService fileStorageService;
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final TransactionTemplate referenceTransaction;
+    private final boolean enabled;
+
+    private final Counter reusedCounter;
+    private final Counter bytesSavedCounter;
+
+    public AttachmentBlobService(
+            FileStorageService fileStorageService,
+            AttachmentBlobRepository attachmentBlobRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${file.dedup.enabled:true}") boolean enabled) {
+        this.fileStorageService = fileStorageService;
+        this.attachmentBlobRepository = attachmentBlobRepository;
+        // Its own transaction: a reference is counted before the upload, and the object
+        // is deleted only once the new count is committed
+        this.referenceTransaction = new TransactionTemplate(transactionManager);
+        this.referenceTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.reusedCounter = Counter.builder("attachments.blobs.reused")
+                .description("Uploads whose content was already stored")
+                .register(meterRegistry);
+        this.bytesSavedCounter = Counter.builder("attachments.blobs.bytes-saved")
+                .description("Bytes not uploaded because the content was already stored")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Where an attachment's content is stored
+     *
+     * @param storageUrl  URL (or local key) of the object
+     * @param contentHash SHA-256 of the content, or null if the object is not shared
+     * @param variantUrls Image variants stored next to it (deleted with it)
+     */
+    public record StoredContent(String storageUrl, String contentHash, List<String> variantUrls) {
+
+        public StoredContent(String storageUrl, String contentHash) {
+            this(storageUrl, contentHash, List.of());
+        }
+    }
+
+    /**
+     * Store content, or take another reference to the same content stored before
+     *
+     * @param content          Source of the bytes (read twice: hashed, then uploaded if new)
+     * @param contentLength    Exact number of bytes
+     * @param originalFilename Name of the uploaded file (its extension is kept)
+     * @param contentType      MIME type
+     * @param folder           Folder/prefix for the stored object
+     * @return The stored content; the caller records it on the attachment, or
+     *         calls release if the attachment is not saved after all
+     */
+    public StoredContent store(InputStreamSource content, long contentLength, String originalFilename,
+                               String contentType, String folder) throws IOException {
+        if (!enabled) {
+            return ownCopy(content, contentLength, originalFilename, contentType, folder);
+        }
+
+        String sha256 = sha256(content);
+        String provider = fileStorageService.getProviderName();
+        Optional<AttachmentBlob> reserved = addReference(sha256, provider, contentLength);
+        if (reserved.isEmpty()) {
+            // Stored with the previous provider, or its object is being deleted: keep this copy separate
+            return ownCopy(content, contentLength, originalFilename, contentType, folder);
+        }
+        if (reserved.get().getStorageUrl() != null) {
+            reusedCounter.increment();
+            bytesSavedCounter.increment(contentLength);
+            logger.info("Content of {} already stored ({} bytes not uploaded): {}",
+                    originalFilename, contentLength, reserved.get().getStorageUrl());
+            return new StoredContent(reserved.get().getStorageUrl(), sha256);
+        }
+
+        // Not uploaded yet; the reference counted above keeps the object from being deleted meanwhile
+        String storageUrl;
+        try {
+            storageUrl = fileStorageService.uploadStreamAs(content, contentLength,
+                    sha256 + extension(originalFilename), contentType, folder);
+            attachmentBlobRepository.setStorageUrl(sha256, storageUrl);
+        } catch (IOException | RuntimeException e) {
+            try {
+                releaseReference(sha256, null);
+            } catch (IOException | RuntimeException releaseFailure) {
+                e.addSuppressed(releaseFailure);
+            }
+            throw e;
+        }
+        return new StoredContent(storageUrl, sha256);
+    }
+
+    // Count one more reference to the content, inserting its row first if needed;
+    // empty if the content has to be stored separately
+    private Optional<AttachmentBlob> addReference(String sha256, String provider, long contentLength) {
+        return referenceTransaction.execute(status -> {
+            boolean inserted = attachmentBlobRepository.insertIfAbsent(sha256, provider, contentLength) > 0;
+            // Gone already if it was at 0 and its deletion finished meanwhile
+            AttachmentBlob blob = attachmentBlobRepository.findForUpdate(sha256).orElse(null);
+            if (blob == null || !provider.equals(blob.getStorageProvider())
+                    || (!inserted && blob.getRefCount() <= 0)) {
+                return Optional.<AttachmentBlob>empty();
+            }
+            blob.setRefCount(blob.getRefCount() + 1);
+            return Optional.of(blob);
+        });
+    }
+
+    /**
+     * An attachment no longer uses its content: delete the object if it was
+     * the last reference (or not shared at all)
+     */
+    public void release(StoredContent stored) throws IOException {
+        if (stored.storageUrl() == null) {
+            return;
+        }
+        if (stored.contentHash() == null) {
+            deleteWithVariants(stored);
+            return;
+        }
+
+        releaseReference(stored.contentHash(), stored);
+    }
+
+    // Count one reference less; with the last one, delete the object (if uploaded) and then the row
+    private void releaseReference(String sha256, StoredContent stored) throws IOException {
+        // The row lock orders this against every other reference change of the same content
+        AttachmentBlob last = referenceTransaction.execute(status -> {
+            AttachmentBlob blob = attachmentBlobRepository.findForUpdate(sha256).orElse(null);
+            if (blob == null || blob.getRefCount() <= 0) {
+                return null; // already released
+            }
+            blob.setRefCount(blob.getRefCount() - 1);
+            return blob.getRefCount() == 0 ? blob : null;
+        });
+        if (last == null) {
+            return;
+        }
+        // Committed at 0: no reference can be added any more. The row goes only after the
+        // object, so a new upload of the same content cannot be stored under its name meanwhile.
+        if (stored != null) {
+            deleteWithVariants(stored);
+        } else if (last.getStorageUrl() != null) {
+            fileStorageService.deleteFile(last.getStorageUrl());
+        }
+        attachmentBlobRepository.deleteIfUnreferenced(sha256);
+        logger.info("Last reference to {} released, object deleted", last.getStorageUrl());
+    }
+
+    /**
+     * The content of a saved attachment
+     */
+    public static StoredContent of(Attachment attachment) {
+        return new StoredContent(attachment.getStorageUrl(), attachment.getContentHash(),
+                ImageVariantService.variantUrls(attachment));
+    }
+
+    private StoredContent ownCopy(InputStreamSource content, long contentLength, String originalFilename,
+                                  String contentType, String folder) throws IOException {
+        return new StoredContent(
+                fileStorageService.uploadStream(content, contentLength, originalFilename, contentType, folder), null);
+    }
+
+    private void deleteWithVariants(StoredContent stored) throws IOException {
+        fileStorageService.deleteFile(stored.storageUrl());
+        for (String variantUrl : stored.variantUrls()) {
+            try {
+                fileStorageService.deleteFile(variantUrl);
+            } catch (IOException e) {
+                logger.warn("Could not delete image variant {}: {}", variantUrl, e.getMessage());
+            }
+        }
+    }
+
+    private static String sha256(InputStreamSource content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(content.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // ".png" for "Meme.PNG"; empty for names without a usable extension
+    private static String extension(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        String ext = originalFilename.substring(originalFilename.lastIndexOf('.')).toLowerCase();
+        return ext.matches("\\.[a-z0-9]{1,10}") ? ext : "";
+    }
+}
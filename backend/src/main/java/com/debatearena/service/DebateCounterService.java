@@ -0,0 +1,300 @@
+package com.debatearena.service;
+
+import com.debatearena.event.AttachmentFileEvent;
+import com.debatearena.event.DebateChangedEvent;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.EvidenceUrl;
+import com.debatearena.model.Question;
+import com.debatearena.model.Reply;
+import com.debatearena.repository.AttachmentRepository;
+import com.debatearena.repository.DebateTopicRepository;
+import com.debatearena.repository.EvidenceUrlRepository;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Debate Counter Service
+ * =====================================================================
+ *
+ * Creates and deletes questions, replies, attachments and evidence URLs
+ * together with the counter columns that describe them, in one
+ * transaction, so list views read counts instead of aggregating:
+ *
+ * - debate_topics: question_count, reply_count, last_activity_at
+ * - questions:     reply_count (direct), descendant_count (all levels),
+ *                  attachment_count, evidence_count, last_activity_at
+ * - replies:       same as questions, for the replies beneath the reply
+ *
+ * Every counter change is a relative UPDATE (count = count + delta), so
+ * concurrent writers never lose an increment. The ancestors of a reply
+ * come from its materialized path and are updated in one statement.
+ *
+ * last_activity_at is moved forward when something is created; deletes
+ * leave it as it is.
+ *
+ * Every change is also logged in the topic's change log (TopicChangeLog)
+ * in the same transaction, and publishes a DebateChangedEvent, which
+ * caches act on once the transaction has committed. Edits of questions
+ * and replies go through here for the same reason.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+@RequiredArgsConstructor
+public class DebateCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DebateCounterService.class);
+
+    private final DebateTopicRepository debateTopicRepository;
+    private final QuestionRepository questionRepository;
+    private final ReplyRepository replyRepository;
+    private final AttachmentRepository attachmentRepository;
+    private final EvidenceUrlRepository evidenceUrlRepository;
+    private final ReplyPathService replyPathService;
+    private final TopicChangeLog topicChangeLog;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Save a new question and count it on its topic
+     */
+    @Transactional
+    public Question createQuestion(Question question) {
+        Question saved = questionRepository.saveAndFlush(question);
+        debateTopicRepository.applyCounterDeltas(saved.getDebateTopicId(), 1, 0, true);
+        saved.setLastActivityAt(saved.getCreatedAt());
+        topicChangeLog.questionChanged(saved.getId());
+        eventPublisher.publishEvent(new DebateChangedEvent(
+                saved.getDebateTopicId(), DebateChangedEvent.Type.QUESTION, saved.getId(), saved.getId()));
+        return saved;
+    }
+
+    /**
+     * Save an edited question (text, tag, side)
+     */
+    @Transactional
+    public Question updateQuestion(Question question) {
+        Question saved = questionRepository.save(question);
+        topicChangeLog.questionChanged(saved.getId());
+        eventPublisher.publishEvent(new DebateChangedEvent(
+                saved.getDebateTopicId(), DebateChangedEvent.Type.QUESTION, saved.getId(), saved.getId()));
+        return saved;
+    }
+
+    /**
+     * Delete a question with its replies and remove them from the topic's counts
+     */
+    @Transactional
+    public void deleteQuestion(Question question) {
+        long replies = replyRepository.countByRootQuestionId(question.getId());
+        debateTopicRepository.applyCounterDeltas(question.getDebateTopicId(), -1, (int) -replies, false);
+        topicChangeLog.questionDeleted(question.getId());
+        questionRepository.delete(question);
+        eventPublisher.publishEvent(new DebateChangedEvent(
+                question.getDebateTopicId(), DebateChangedEvent.Type.QUESTION, question.getId(), question.getId()));
+    }
+
+    /**
+     * Save a new reply with its materialized path and count it on every ancestor,
+     * its question and its topic (an on-demand path backfill of its thread is part
+     * of the same transaction)
+     *
+     * @throws IllegalArgumentException if the thread is already at the maximum depth
+     */
+    @Transactional
+    public Reply createReply(Reply reply) {
+        reply.setCreatedAt(LocalDateTime.now());
+        replyPathService.assignPath(reply);
+        Reply saved = replyRepository.saveAndFlush(reply);
+        UUID topicId = applyReplyDeltas(saved, 1, true);
+        saved.setLastActivityAt(saved.getCreatedAt());
+        topicChangeLog.replyChanged(saved.getId());
+        eventPublisher.publishEvent(new DebateChangedEvent(
+                topicId, DebateChangedEvent.Type.REPLY, saved.getId(), rootQuestionOf(saved)));
+        return saved;
+    }
+
+    /**
+     * Save an edited reply (text, side)
+     */
+    @Transactional
+    public Reply updateReply(Reply reply) {
+        Reply saved = replyRepository.save(reply);
+        topicChangeLog.replyChanged(saved.getId());
+        eventPublisher.publishEvent(new DebateChangedEvent(
+                null, DebateChangedEvent.Type.REPLY, saved.getId(), rootQuestionOf(saved)));
+        return saved;
+    }
+
+    /**
+     * Delete a reply with all replies beneath it and remove them from the counts
+     * of its ancestors, question and topic
+     *
+     * @return number of replies deleted
+     */
+    @Transactional
+    public int deleteReply(Reply reply) {
+        long removed = reply.getPath() != null ? 1 + replyPathService.countDescendants(reply) : 1;
+        UUID topicId = applyReplyDeltas(reply, (int) -removed, false);
+        topicChangeLog.replyDeleted(reply.getId());
+        int deleted = replyPathService.deleteWithDescendants(reply);
+        eventPublisher.publishEvent(new DebateChangedEvent(
+                topicId, DebateChangedEvent.Type.REPLY, reply.getId(), rootQuestionOf(reply)));
+        return deleted;
+    }
+
+    /**
+     * Save a new attachment and count it on its question or reply
+     */
+    @Transactional
+    public Attachment createAttachment(Attachment attachment) {
+        Attachment saved = attachmentRepository.save(attachment);
+        applyEvidenceDeltas(saved.getQuestionId(), saved.getReplyId(), 1, 0, true);
+        topicChangeLog.ownerChanged(saved.getQuestionId(), saved.getReplyId());
+        publishOwnerChanged(DebateChangedEvent.Type.ATTACHMENT, saved.getQuestionId(), saved.getReplyId());
+        if (saved.getStorageUrl() != null) {
+            eventPublisher.publishEvent(new AttachmentFileEvent(saved.getFileName()));
+        }
+        return saved;
+    }
+
+    /**
+     * A pending attachment reached remote storage: record its URL and content
+     * hash (logged as a change of its question or reply, like a new attachment)
+     *
+     * @return false if the attachment was deleted (or is no longer pending)
+     */
+    @Transactional
+    public boolean attachmentStored(UUID attachmentId, String storageUrl, String contentHash) {
+        return attachmentChanged(attachmentId, attachmentRepository.markStored(attachmentId, storageUrl,
+                Attachment.storageKeyOf(storageUrl), contentHash), true);
+    }
+
+    /**
+     * A pending attachment could not be stored
+     *
+     * @return false if the attachment was deleted (or is no longer pending)
+     */
+    @Transactional
+    public boolean attachmentFailed(UUID attachmentId) {
+        return attachmentChanged(attachmentId, attachmentRepository.markFailed(attachmentId), false);
+    }
+
+    /**
+     * The thumbnail and smaller copies of an image attachment are stored
+     *
+     * @return false if the attachment was deleted meanwhile
+     */
+    @Transactional
+    public boolean attachmentVariantsStored(UUID attachmentId, int width, int height, String variantWidths) {
+        return attachmentChanged(attachmentId,
+                attachmentRepository.markImageVariants(attachmentId, width, height, variantWidths), false);
+    }
+
+    // fileStored: the file just became downloadable under its name
+    private boolean attachmentChanged(UUID attachmentId, int updated, boolean fileStored) {
+        if (updated == 0) {
+            return false;
+        }
+        attachmentRepository.findById(attachmentId).ifPresent(attachment -> {
+            topicChangeLog.ownerChanged(attachment.getQuestionId(), attachment.getReplyId());
+            publishOwnerChanged(DebateChangedEvent.Type.ATTACHMENT, attachment.getQuestionId(), attachment.getReplyId());
+            if (fileStored) {
+                eventPublisher.publishEvent(new AttachmentFileEvent(attachment.getFileName()));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Delete an attachment record and remove it from its question's or reply's count
+     */
+    @Transactional
+    public void deleteAttachment(Attachment attachment) {
+        applyEvidenceDeltas(attachment.getQuestionId(), attachment.getReplyId(), -1, 0, false);
+        topicChangeLog.ownerChanged(attachment.getQuestionId(), attachment.getReplyId());
+        attachmentRepository.delete(attachment);
+        publishOwnerChanged(DebateChangedEvent.Type.ATTACHMENT, attachment.getQuestionId(), attachment.getReplyId());
+        eventPublisher.publishEvent(new AttachmentFileEvent(attachment.getFileName()));
+    }
+
+    /**
+     * Save a new evidence URL and count it on its question or reply
+     */
+    @Transactional
+    public EvidenceUrl createEvidenceUrl(EvidenceUrl evidenceUrl) {
+        EvidenceUrl saved = evidenceUrlRepository.save(evidenceUrl);
+        applyEvidenceDeltas(saved.getQuestionId(), saved.getReplyId(), 0, 1, true);
+        topicChangeLog.ownerChanged(saved.getQuestionId(), saved.getReplyId());
+        publishOwnerChanged(DebateChangedEvent.Type.EVIDENCE_URL, saved.getQuestionId(), saved.getReplyId());
+        return saved;
+    }
+
+    /**
+     * Delete an evidence URL and remove it from its question's or reply's count
+     */
+    @Transactional
+    public void deleteEvidenceUrl(EvidenceUrl evidenceUrl) {
+        applyEvidenceDeltas(evidenceUrl.getQuestionId(), evidenceUrl.getReplyId(), 0, -1, false);
+        topicChangeLog.ownerChanged(evidenceUrl.getQuestionId(), evidenceUrl.getReplyId());
+        evidenceUrlRepository.delete(evidenceUrl);
+        publishOwnerChanged(DebateChangedEvent.Type.EVIDENCE_URL, evidenceUrl.getQuestionId(), evidenceUrl.getReplyId());
+    }
+
+    // delta = replies added (positive) or removed with the reply's subtree (negative)
+    // returns the reply's topic, or null if it could not be resolved
+    private UUID applyReplyDeltas(Reply reply, int delta, boolean touch) {
+        int direct = Integer.signum(delta);
+        Reply parent = reply.getParentReply();
+
+        if (parent != null) {
+            if (reply.getPath() != null) {
+                List<String> ancestors = ReplyPathService.ancestorPaths(reply.getPath());
+                replyRepository.applyAncestorCounterDeltas(ancestors, parent.getId(), direct, delta, touch);
+            } else {
+                // Path not backfilled yet: only the parent can be found without recursion
+                replyRepository.applyCounterDeltas(parent.getId(), direct, delta, 0, 0, touch);
+            }
+        }
+
+        UUID questionId = rootQuestionOf(reply);
+        if (questionId == null) {
+            logger.warn("Reply {} has no root question yet; question and topic counters not updated", reply.getId());
+            return null;
+        }
+        questionRepository.applyCounterDeltas(questionId, parent == null ? direct : 0, delta, 0, 0, touch);
+        UUID topicId = questionRepository.findTopicId(questionId).orElse(null);
+        if (topicId != null) {
+            debateTopicRepository.applyCounterDeltas(topicId, 0, delta, touch);
+        }
+        return topicId;
+    }
+
+    private static UUID rootQuestionOf(Reply reply) {
+        return reply.getRootQuestionId() != null ? reply.getRootQuestionId() : reply.getQuestionId();
+    }
+
+    // Topic is left to the listeners: they resolve it from the owning question or reply
+    private void publishOwnerChanged(DebateChangedEvent.Type type, UUID questionId, UUID replyId) {
+        eventPublisher.publishEvent(new DebateChangedEvent(null, type, questionId != null ? questionId : replyId, questionId));
+    }
+
+    private void applyEvidenceDeltas(UUID questionId, UUID replyId, int attachmentDelta, int evidenceDelta,
+                                     boolean touch) {
+        if (questionId != null) {
+            questionRepository.applyCounterDeltas(questionId, 0, 0, attachmentDelta, evidenceDelta, touch);
+        } else if (replyId != null) {
+            replyRepository.applyCounterDeltas(replyId, 0, 0, attachmentDelta, evidenceDelta, touch);
+        }
+    }
+}
@@ -0,0 +1,645 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.QuestionDTO;
+import com.debatearena.dto.ReplyDTO;
+import com.debatearena.event.DebateChangedEvent;
+import com.debatearena.repository.DebateTopicRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * =====================================================================
+ * Debate Tree Cache
+ * =====================================================================
+ *
+ * Keeps the debate page of a topic (the response of
+ * GET /questions/topic/{topicId}) in memory as final UTF-8 JSON bytes,
+ * one fragment per question, so a read is a map lookup and a write of
+ * the fragments to the response: no queries, no tree assembly, no Jackson.
+ *
+ * The topic JSON is never built as one array: Tree writes '[', the
+ * fragments separated by ',' and ']' straight to the output stream. Each
+ * fragment also keeps its own deflate-compressed bytes (flushed to a byte
+ * boundary), and the gzip response is the gzip header, those blocks in
+ * the same order and the trailer. When something inside one question's
+ * thread changes, only that question is reloaded, re-serialized and
+ * re-compressed; the other fragments are kept as they are, and only the
+ * CRC-32 of the gzip trailer is computed again over the topic's bytes.
+ *
+ * Invalidation arrives as DebateChangedEvent after commit:
+ * - a reply, vote, attachment or evidence URL change marks its question
+ *   dirty (found from the event or from the ids of the cached trees; if
+ *   the item is in no cached tree there is nothing to do)
+ * - an edited or deleted question marks that question dirty
+ * - a new question (not yet in the tree) reloads the whole topic
+ * - a topic change drops the topic
+ *
+ * Stale entries:
+ * - stale-while-revalidate (default): readers get the stale bytes at once
+ *   and one background refresh per topic rebuilds them, so a hot topic is
+ *   never loaded on a request thread after its first read
+ * - otherwise: the reader that finds the entry stale rebuilds it
+ * Concurrent loads of the same topic are coalesced into one.
+ *
+ * Each tree carries the topic's change_version read before it was loaded
+ * (kept as is by partial rebuilds), so the tree is at least that recent
+ * and a client can continue with GET .../changes?since=changeVersion.
+ *
+ * Entries are fully reloaded after max-age-ms. Memory is bounded by
+ * max-bytes (JSON, gzip copy and an estimate for the id index); the least
+ * recently read topics are evicted first.
+ *
+ * Metrics: debate.tree.cache.requests (result=hit|stale|miss),
+ * debate.tree.cache.invalidations, debate.tree.cache.evictions,
+ * debate.tree.cache.bytes, debate.tree.cache.entries,
+ * debate.tree.cache.load (timer, tag kind=full|partial).
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class DebateTreeCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DebateTreeCache.class);
+
+    // Rough heap cost of one id in the item -> question index (map node, key, value)
+    private static final int BYTES_PER_INDEXED_ID = 128;
+
+    // Gzip member header (deflate, no flags, no mtime, unknown OS); the trailer is built per tree
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    // Array punctuation as JSON and as deflate blocks; only ']' ends the deflate stream
+    private static final byte[] OPEN = {'['};
+    private static final byte[] COMMA = {','};
+    private static final byte[] CLOSE = {']'};
+    private static final byte[] OPEN_DEFLATED = deflate(OPEN, false);
+    private static final byte[] COMMA_DEFLATED = deflate(COMMA, false);
+    private static final byte[] CLOSE_DEFLATED = deflate(CLOSE, true);
+
+    private final DebateTreeService debateTreeService;
+    private final DebateTopicRepository debateTopicRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean staleWhileRevalidate;
+    private final boolean gzip;
+    private final int gzipMinBytes;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final ExecutorService refreshExecutor;
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    // Pending invalidations per topic (kept even when the topic is not cached)
+    private final Map<UUID, TopicState> states = new ConcurrentHashMap<>();
+
+    // Loads in progress, so concurrent misses and refreshes share one
+    private final Map<UUID, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+    // Question/reply id -> where it sits, for every cached tree
+    private final Map<UUID, Location> locations = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter staleCounter;
+    private final Counter missCounter;
+    private final Counter invalidationCounter;
+    private final Counter evictionCounter;
+    private final Timer fullLoadTimer;
+    private final Timer partialLoadTimer;
+
+    public DebateTreeCache(
+            DebateTreeService debateTreeService,
+            DebateTopicRepository debateTopicRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${questions.tree-cache.enabled:true}") boolean enabled,
+            @Value("${questions.tree-cache.stale-while-revalidate:true}") boolean staleWhileRevalidate,
+            @Value("${questions.tree-cache.gzip:true}") boolean gzip,
+            @Value("${questions.tree-cache.gzip-min-bytes:1024}") int gzipMinBytes,
+            @Value("${questions.tree-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${questions.tree-cache.max-age-ms:600000}") long maxAgeMs,
+            @Value("${questions.tree-cache.refresh-threads:2}") int refreshThreads) {
+        this.debateTreeService = debateTreeService;
+        this.debateTopicRepository = debateTopicRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.gzip = gzip;
+        this.gzipMinBytes = gzipMinBytes;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refreshExecutor = Executors.newFixedThreadPool(Math.max(1, refreshThreads), runnable -> {
+            Thread thread = new Thread(runnable, "debate-tree-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.hitCounter = requests(meterRegistry, "hit");
+        this.staleCounter = requests(meterRegistry, "stale");
+        this.missCounter = requests(meterRegistry, "miss");
+        this.invalidationCounter = Counter.builder("debate.tree.cache.invalidations")
+                .description("Changes that made a cached topic tree stale")
+                .register(meterRegistry);
+        this.evictionCounter = Counter.builder("debate.tree.cache.evictions")
+                .description("Topic trees evicted to stay within the memory budget")
+                .register(meterRegistry);
+        this.fullLoadTimer = loads(meterRegistry, "full");
+        this.partialLoadTimer = loads(meterRegistry, "partial");
+        Gauge.builder("debate.tree.cache.bytes", totalBytes, AtomicLong::get)
+                .description("Approximate memory held by cached topic trees")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("debate.tree.cache.entries", entries, Map::size)
+                .description("Cached topic trees")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A topic's debate tree as JSON (same content as DebateTreeService.loadTopicTree),
+     * with a gzip encoding when it is large enough to be worth compressing
+     */
+    public Tree get(UUID topicId) {
+        if (!enabled) {
+            long changeVersion = changeVersion(topicId);
+            List<Fragment> fragments = new ArrayList<>();
+            for (QuestionDTO question : debateTreeService.loadTopicTree(topicId)) {
+                fragments.add(new Fragment(question.getId(), serialize(question), null, List.of()));
+            }
+            return new Tree(fragments, false, changeVersion);
+        }
+
+        Entry entry = entries.get(topicId);
+        if (entry != null) {
+            entry.lastReadAt = System.currentTimeMillis();
+            if (isFresh(topicId, entry)) {
+                hitCounter.increment();
+                return entry.tree;
+            }
+            if (staleWhileRevalidate) {
+                staleCounter.increment();
+                refreshInBackground(topicId);
+                return entry.tree;
+            }
+        }
+
+        missCounter.increment();
+        try {
+            return load(topicId).join().tree;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Mark what a committed change touched as stale
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDebateChanged(DebateChangedEvent event) {
+        if (event.type() == DebateChangedEvent.Type.TOPIC) {
+            state(event.topicId()).version.incrementAndGet();
+            Entry removed = entries.remove(event.topicId());
+            if (removed != null) {
+                release(removed);
+            }
+            invalidationCounter.increment();
+            return;
+        }
+
+        // Where is the change? The event may say; otherwise the cached trees know
+        Location known = locations.get(event.targetId());
+        UUID topicId = event.topicId() != null ? event.topicId() : known != null ? known.topicId() : null;
+        UUID questionId = event.questionId() != null ? event.questionId() : known != null ? known.questionId() : null;
+        if (topicId == null && questionId != null) {
+            Location question = locations.get(questionId);
+            topicId = question != null ? question.topicId() : null;
+        }
+        if (topicId == null) {
+            return; // not in any cached tree
+        }
+        invalidationCounter.increment();
+
+        TopicState state = state(topicId);
+        if (questionId != null && locations.containsKey(questionId)) {
+            // Question is in the cached tree: rebuild only its fragment
+            state.dirtyQuestions.merge(questionId, 1L, Long::sum);
+        } else {
+            // New question, or a change we cannot place: rebuild the topic
+            state.version.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private boolean isFresh(UUID topicId, Entry entry) {
+        TopicState state = states.get(topicId);
+        long version = state == null ? 0 : state.version.get();
+        boolean clean = state == null || state.dirtyQuestions.isEmpty();
+        return entry.version == version && clean && !isExpired(entry);
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.loadedAt >= maxAgeMs;
+    }
+
+    private void refreshInBackground(UUID topicId) {
+        if (loading.containsKey(topicId)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(topicId);
+                } catch (Exception e) {
+                    logger.warn("Background refresh of topic {} failed: {}", topicId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Refresh of topic {} skipped: {}", topicId, e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Entry> load(UUID topicId) {
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        CompletableFuture<Entry> running = loading.putIfAbsent(topicId, created);
+        if (running != null) {
+            return running;
+        }
+        try {
+            Entry current = entries.get(topicId);
+            TopicState state = state(topicId);
+            Entry loaded = current != null && current.version == state.version.get() && !isExpired(current)
+                    ? partialLoadTimer.record(() -> rebuildDirty(topicId, current, state))
+                    : fullLoadTimer.record(() -> buildFull(topicId, state));
+            store(topicId, loaded, current);
+            created.complete(loaded);
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+        } finally {
+            loading.remove(topicId, created);
+        }
+        return created;
+    }
+
+    private Entry buildFull(UUID topicId, TopicState state) {
+        // Read the version first: a change committed during the load leaves the entry stale
+        long version = state.version.get();
+        state.dirtyQuestions.clear();
+        long changeVersion = changeVersion(topicId);
+
+        List<QuestionDTO> tree = debateTreeService.loadTopicTree(topicId);
+        List<Fragment> fragments = new ArrayList<>(tree.size());
+        for (QuestionDTO question : tree) {
+            fragments.add(fragment(question));
+        }
+        return assemble(topicId, fragments, version, changeVersion, System.currentTimeMillis(), null);
+    }
+
+    private Entry rebuildDirty(UUID topicId, Entry current, TopicState state) {
+        // Snapshot the marks; marks added while rebuilding survive the removal below
+        Map<UUID, Long> dirty = new HashMap<>(state.dirtyQuestions);
+
+        List<Fragment> fragments = new ArrayList<>(current.fragments.size());
+        for (int i = 0; i < current.fragments.size(); i++) {
+            Fragment fragment = current.fragments.get(i);
+            if (!dirty.containsKey(fragment.questionId())) {
+                fragments.add(fragment);
+                continue;
+            }
+            // Deleted questions simply drop out
+            Optional<QuestionDTO> question = debateTreeService.loadQuestionTree(fragment.questionId());
+            question.ifPresent(dto -> fragments.add(fragment(dto)));
+        }
+
+        // The changes behind the marks may be newer than the kept change version; that is safe
+        Entry rebuilt = assemble(topicId, fragments, current.version, current.tree.changeVersion(),
+                current.loadedAt, current);
+        dirty.forEach(state.dirtyQuestions::remove);
+        return rebuilt;
+    }
+
+    // Fragment = the JSON of one question (and its deflate blocks), plus the ids inside it for the location index
+    private Fragment fragment(QuestionDTO question) {
+        List<UUID> itemIds = new ArrayList<>();
+        itemIds.add(question.getId());
+        collectReplyIds(question.getReplies(), itemIds);
+        byte[] json = serialize(question);
+        return new Fragment(question.getId(), json, gzip ? deflate(json, false) : null, itemIds);
+    }
+
+    private Entry assemble(UUID topicId, List<Fragment> fragments, long version, long changeVersion,
+                           long loadedAt, Entry previous) {
+        long length = 2 + Math.max(0, fragments.size() - 1);
+        for (Fragment fragment : fragments) {
+            length += fragment.json().length;
+        }
+        Tree tree = new Tree(fragments, gzip && length >= gzipMinBytes, changeVersion);
+        return new Entry(topicId, tree, fragments, version, loadedAt,
+                previous != null ? previous.lastReadAt : System.currentTimeMillis());
+    }
+
+    private void store(UUID topicId, Entry entry, Entry previous) {
+        if (previous != null && entries.remove(topicId, previous)) {
+            release(previous);
+        }
+        if (entry.size > maxBytes) {
+            logger.debug("Topic {} tree ({} bytes) exceeds the cache budget, not cached", topicId, entry.size);
+            return;
+        }
+        Entry replaced = entries.put(topicId, entry);
+        if (replaced != null) {
+            release(replaced);
+        }
+        for (Fragment fragment : entry.fragments) {
+            Location location = new Location(topicId, fragment.questionId());
+            for (UUID id : fragment.itemIds()) {
+                locations.put(id, location);
+            }
+        }
+        totalBytes.addAndGet(entry.size);
+        evictOverBudget(topicId);
+    }
+
+    private void release(Entry entry) {
+        totalBytes.addAndGet(-entry.size);
+        for (Fragment fragment : entry.fragments) {
+            for (UUID id : fragment.itemIds()) {
+                Location location = locations.get(id);
+                if (location != null && location.topicId().equals(entry.topicId)) {
+                    locations.remove(id, location);
+                }
+            }
+        }
+    }
+
+    // Evict least recently read topics (never the one just stored) until within budget
+    private synchronized void evictOverBudget(UUID keep) {
+        while (totalBytes.get() > maxBytes) {
+            Map.Entry<UUID, Entry> oldest = null;
+            for (Map.Entry<UUID, Entry> candidate : entries.entrySet()) {
+                if (!candidate.getKey().equals(keep)
+                        && (oldest == null || candidate.getValue().lastReadAt < oldest.getValue().lastReadAt)) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                release(oldest.getValue());
+                evictionCounter.increment();
+            }
+        }
+    }
+
+    private TopicState state(UUID topicId) {
+        return states.computeIfAbsent(topicId, id -> new TopicState());
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Raw deflate blocks of {@code data} with a fresh dictionary: sync-flushed to a byte
+     * boundary, so blocks of several calls can follow each other in one stream, or
+     * finished (final block) for the end of the stream
+     */
+    private static byte[] deflate(byte[] data, boolean last) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            if (last) {
+                deflater.finish();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (true) {
+                int count = deflater.deflate(buffer, 0, buffer.length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, count);
+                if (last ? deflater.finished() : count < buffer.length) {
+                    return out.toByteArray();
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void collectReplyIds(List<ReplyDTO> replies, List<UUID> into) {
+        if (replies == null) {
+            return;
+        }
+        for (ReplyDTO reply : replies) {
+            into.add(reply.getId());
+            collectReplyIds(reply.getReplies(), into);
+        }
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("debate.tree.cache.requests")
+                .description("Debate tree reads by cache result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Timer loads(MeterRegistry meterRegistry, String kind) {
+        return Timer.builder("debate.tree.cache.load")
+                .description("Time to load and serialize a topic tree (full) or its changed questions (partial)")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    // Change version the tree is at least as recent as (0 for a missing topic)
+    private long changeVersion(UUID topicId) {
+        return debateTopicRepository.findChangeVersion(topicId).orElse(0L);
+    }
+
+    /**
+     * Serialized tree: the UTF-8 JSON array of the question fragments and, for large trees,
+     * its gzip encoding, written to a stream part by part; plus the topic's change version
+     * for GET .../changes?since=
+     */
+    public static final class Tree {
+        private final List<Fragment> fragments;
+        private final long changeVersion;
+        private final long jsonLength;
+        private final byte[] gzipTrailer; // null: no gzip encoding
+        private final long gzipLength;
+
+        private Tree(List<Fragment> fragments, boolean gzip, long changeVersion) {
+            this.fragments = fragments;
+            this.changeVersion = changeVersion;
+
+            long length = OPEN.length + CLOSE.length;
+            long compressed = GZIP_HEADER.length + OPEN_DEFLATED.length + CLOSE_DEFLATED.length + 8;
+            CRC32 crc = gzip ? new CRC32() : null;
+            for (int i = 0; i < fragments.size(); i++) {
+                Fragment fragment = fragments.get(i);
+                length += fragment.json().length + (i > 0 ? COMMA.length : 0);
+                if (crc != null) {
+                    compressed += fragment.deflated().length + (i > 0 ? COMMA_DEFLATED.length : 0);
+                }
+            }
+            this.jsonLength = length;
+
+            if (crc != null) {
+                crc.update(OPEN);
+                for (int i = 0; i < fragments.size(); i++) {
+                    if (i > 0) {
+                        crc.update(COMMA);
+                    }
+                    crc.update(fragments.get(i).json());
+                }
+                crc.update(CLOSE);
+                this.gzipTrailer = littleEndian(crc.getValue(), length);
+                this.gzipLength = compressed;
+            } else {
+                this.gzipTrailer = null;
+                this.gzipLength = 0;
+            }
+        }
+
+        public long changeVersion() {
+            return changeVersion;
+        }
+
+        public long jsonLength() {
+            return jsonLength;
+        }
+
+        public boolean hasGzip() {
+            return gzipTrailer != null;
+        }
+
+        public long gzipLength() {
+            return gzipLength;
+        }
+
+        /**
+         * Write the JSON array: '[', the question fragments separated by ',', ']'
+         */
+        public void writeJson(OutputStream out) throws IOException {
+            out.write(OPEN);
+            for (int i = 0; i < fragments.size(); i++) {
+                if (i > 0) {
+                    out.write(COMMA);
+                }
+                out.write(fragments.get(i).json());
+            }
+            out.write(CLOSE);
+        }
+
+        /**
+         * Write the gzip encoding of the JSON array (only if hasGzip())
+         */
+        public void writeGzip(OutputStream out) throws IOException {
+            if (gzipTrailer == null) {
+                throw new IllegalStateException("Tree has no gzip encoding");
+            }
+            out.write(GZIP_HEADER);
+            out.write(OPEN_DEFLATED);
+            for (int i = 0; i < fragments.size(); i++) {
+                if (i > 0) {
+                    out.write(COMMA_DEFLATED);
+                }
+                out.write(fragments.get(i).deflated());
+            }
+            out.write(CLOSE_DEFLATED);
+            out.write(gzipTrailer);
+        }
+
+        // Gzip trailer: CRC-32 and uncompressed length modulo 2^32, both little-endian
+        private static byte[] littleEndian(long crc, long length) {
+            byte[] trailer = new byte[8];
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte) (crc >>> (8 * i));
+                trailer[4 + i] = (byte) (length >>> (8 * i));
+            }
+            return trailer;
+        }
+    }
+
+    // deflated: sync-flushed deflate blocks of json (null when gzip is off)
+    private record Fragment(UUID questionId, byte[] json, byte[] deflated, List<UUID> itemIds) {
+    }
+
+    private record Location(UUID topicId, UUID questionId) {
+    }
+
+    // Invalidations not yet applied: version bumps force a full reload,
+    // dirty questions (with a mark count) a partial one
+    private static final class TopicState {
+        final AtomicLong version = new AtomicLong();
+        final Map<UUID, Long> dirtyQuestions = new ConcurrentHashMap<>();
+    }
+
+    private static final class Entry {
+        final UUID topicId;
+        final Tree tree;
+        final List<Fragment> fragments;
+        final long version;
+        final long loadedAt;
+        final long size;
+        volatile long lastReadAt;
+
+        Entry(UUID topicId, Tree tree, List<Fragment> fragments, long version, long loadedAt, long lastReadAt) {
+            this.topicId = topicId;
+            this.tree = tree;
+            this.fragments = fragments;
+            this.version = version;
+            this.loadedAt = loadedAt;
+            this.lastReadAt = lastReadAt;
+
+            // Only the fragments hold bytes; the tree writes them in place
+            long bytes = 0;
+            for (Fragment fragment : fragments) {
+                bytes += fragment.json().length + (fragment.deflated() != null ? fragment.deflated().length : 0)
+                        + (long) fragment.itemIds().size() * BYTES_PER_INDEXED_ID;
+            }
+            this.size = bytes;
+        }
+    }
+}
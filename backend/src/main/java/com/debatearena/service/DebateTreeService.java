@@ -0,0 +1,161 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.AttachmentDTO;
+import com.debatearena.dto.EvidenceUrlDTO;
+import com.debatearena.dto.QuestionDTO;
+import com.debatearena.dto.ReplyDTO;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.EvidenceUrl;
+import com.debatearena.model.Question;
+import com.debatearena.model.Reply;
+import com.debatearena.repository.AttachmentRepository;
+import com.debatearena.repository.EvidenceUrlRepository;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Debate Tree Service
+ * =====================================================================
+ *
+ * Loads the complete debate tree for a topic (questions, nested replies,
+ * attachments and evidence URLs) and assembles the QuestionDTO/ReplyDTO
+ * hierarchy in memory.
+ *
+ * The number of database round-trips is fixed regardless of topic size:
+ * 1. questions of the topic
+ * 2. all replies beneath them (by replies.root_question_id, in path order)
+ * 3. all attachments of those questions and replies
+ * 4. all evidence URLs of those questions and replies
+ *
+ * Previously every question, and every reply at every depth, triggered its
+ * own reply/attachment/evidence queries.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+@RequiredArgsConstructor
+public class DebateTreeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DebateTreeService.class);
+
+    private final QuestionRepository questionRepository;
+    private final ReplyRepository replyRepository;
+    private final AttachmentRepository attachmentRepository;
+    private final EvidenceUrlRepository evidenceUrlRepository;
+
+    /**
+     * Load all questions of a topic with their full reply trees, attachments and evidence URLs
+     *
+     * @param topicId UUID of the debate topic
+     * @return Question DTOs with nested replies, oldest question first (empty list if the
+     *         topic has no questions)
+     */
+    @Transactional(readOnly = true)
+    public List<QuestionDTO> loadTopicTree(UUID topicId) {
+        // Same order as DebateTreeStreamer
+        List<Question> questions = questionRepository.findByDebateTopic_IdOrderByCreatedAtAscIdAsc(topicId);
+        if (questions.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Reply> replies = replyRepository.findAllByTopicId(topicId);
+        List<Attachment> attachments = attachmentRepository.findAllByTopicId(topicId);
+        List<EvidenceUrl> evidenceUrls = evidenceUrlRepository.findAllByTopicId(topicId);
+
+        List<QuestionDTO> tree = assemble(questions, replies, attachments, evidenceUrls);
+
+        logger.debug("Loaded debate tree for topic {}: {} questions, {} replies, {} attachments, {} evidence URLs",
+                topicId, questions.size(), replies.size(), attachments.size(), evidenceUrls.size());
+        return tree;
+    }
+
+    /**
+     * Load one question with its full reply tree, attachments and evidence URLs
+     * (same shape as one element of loadTopicTree, also in a fixed number of queries)
+     *
+     * @param questionId UUID of the question
+     * @return The question DTO, or empty if the question does not exist
+     */
+    @Transactional(readOnly = true)
+    public Optional<QuestionDTO> loadQuestionTree(UUID questionId) {
+        return questionRepository.findById(questionId).map(question -> assemble(
+                List.of(question),
+                replyRepository.findByRootQuestionIdOrderByPathAsc(questionId),
+                attachmentRepository.findAllByRootQuestionId(questionId),
+                evidenceUrlRepository.findAllByRootQuestionId(questionId)).get(0));
+    }
+
+    /**
+     * Build the DTO tree from flat, already-loaded lists.
+     * Only ids of the lazy parent associations are read, so no further queries are issued.
+     */
+    static List<QuestionDTO> assemble(List<Question> questions,
+                                      List<Reply> replies,
+                                      List<Attachment> attachments,
+                                      List<EvidenceUrl> evidenceUrls) {
+        Map<UUID, QuestionDTO> questionsById = new LinkedHashMap<>();
+        for (Question question : questions) {
+            questionsById.put(question.getId(), QuestionDTO.fromEntity(question, null));
+        }
+
+        // First pass: create every reply DTO so children can find their parent regardless of order
+        Map<UUID, ReplyDTO> repliesById = new HashMap<>();
+        for (Reply reply : replies) {
+            repliesById.put(reply.getId(), ReplyDTO.fromEntityWithoutReplies(reply));
+        }
+
+        // Second pass: link each reply to its parent question or parent reply
+        for (Reply reply : replies) {
+            ReplyDTO dto = repliesById.get(reply.getId());
+            if (dto.getParentReplyId() != null) {
+                ReplyDTO parent = repliesById.get(dto.getParentReplyId());
+                if (parent != null) {
+                    parent.getReplies().add(dto);
+                }
+            } else if (dto.getQuestionId() != null) {
+                QuestionDTO parent = questionsById.get(dto.getQuestionId());
+                if (parent != null) {
+                    parent.getReplies().add(dto);
+                }
+            }
+        }
+
+        for (Attachment attachment : attachments) {
+            AttachmentDTO dto = AttachmentDTO.fromEntity(attachment);
+            if (attachment.getReplyId() != null) {
+                ReplyDTO parent = repliesById.get(attachment.getReplyId());
+                if (parent != null) parent.getAttachments().add(dto);
+            } else if (attachment.getQuestionId() != null) {
+                QuestionDTO parent = questionsById.get(attachment.getQuestionId());
+                if (parent != null) parent.getAttachments().add(dto);
+            }
+        }
+
+        for (EvidenceUrl evidenceUrl : evidenceUrls) {
+            EvidenceUrlDTO dto = EvidenceUrlDTO.fromEntity(evidenceUrl);
+            if (evidenceUrl.getReplyId() != null) {
+                ReplyDTO parent = repliesById.get(evidenceUrl.getReplyId());
+                if (parent != null) parent.getEvidenceUrls().add(dto);
+            } else if (evidenceUrl.getQuestionId() != null) {
+                QuestionDTO parent = questionsById.get(evidenceUrl.getQuestionId());
+                if (parent != null) parent.getEvidenceUrls().add(dto);
+            }
+        }
+
+        return new ArrayList<>(questionsById.values());
+    }
+}
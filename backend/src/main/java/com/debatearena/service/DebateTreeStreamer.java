@@ -0,0 +1,415 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.AttachmentDTO;
+import com.debatearena.dto.EvidenceUrlDTO;
+import com.debatearena.dto.ReplyDTO;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.EvidenceUrl;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Debate Tree Streamer
+ * =====================================================================
+ *
+ * Writes the debate tree of a topic (same content as
+ * DebateTreeService.loadTopicTree) straight to an output stream while the
+ * rows are read, so memory per request stays bounded by the JDBC fetch
+ * size and the thread depth, not by the number of replies.
+ *
+ * Four forward-only cursors are read side by side in one read-only
+ * REPEATABLE READ transaction (so they all see the same snapshot):
+ * questions, replies, attachments and evidence URLs, all in the same
+ * order (question created_at and id, then reply path). Because
+ * the order is shared, the attachments and evidence URLs of the item being
+ * written are always at the head of their cursors, and the path order of
+ * the replies is depth-first, so nesting is a stack of open reply paths.
+ *
+ * Replies without a materialized path (not backfilled yet) sort last in
+ * their question and cannot be nested by path: a question that has any is
+ * assembled in memory by parent id, as the buffered response does, and
+ * written in one piece.
+ *
+ * The only difference from the buffered response: "attachments" and
+ * "evidenceUrls" come before "replies" in each object (field order carries
+ * no meaning in JSON; it is what allows streaming).
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class DebateTreeStreamer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DebateTreeStreamer.class);
+
+    // has_unpathed_replies: one lookup on (root_question_id, path) per question
+    private static final String QUESTIONS_SQL = """
+            SELECT q.*, EXISTS (SELECT 1 FROM replies r WHERE r.root_question_id = q.id AND r.path IS NULL)
+                   AS has_unpathed_replies
+            FROM questions q
+            WHERE q.debate_topic_id = ?
+            ORDER BY q.created_at, q.id
+            """;
+
+    // Replies without a path sort last in their question (NULLS LAST)
+    private static final String REPLIES_SQL = """
+            SELECT r.* FROM replies r
+            JOIN questions q ON q.id = r.root_question_id
+            WHERE q.debate_topic_id = ?
+            ORDER BY q.created_at, q.id, r.path
+            """;
+
+    // Question-level rows sort before the replies of the question (path ''), rows of replies
+    // without a path after them
+    private static final String ATTACHMENTS_SQL = """
+            SELECT a.*, COALESCE(a.question_id, a.reply_id) AS owner_id, q.id AS tree_question_id
+            FROM attachments a
+            LEFT JOIN replies r ON r.id = a.reply_id
+            JOIN questions q ON q.id = COALESCE(a.question_id, r.root_question_id)
+            WHERE q.debate_topic_id = ?
+            ORDER BY q.created_at, q.id,
+                     CASE WHEN a.question_id IS NOT NULL THEN '' ELSE r.path END COLLATE "C",
+                     a.display_order, a.created_at
+            """;
+
+    private static final String EVIDENCE_URLS_SQL = """
+            SELECT e.*, COALESCE(e.question_id, e.reply_id) AS owner_id, q.id AS tree_question_id
+            FROM evidence_urls e
+            LEFT JOIN replies r ON r.id = e.reply_id
+            JOIN questions q ON q.id = COALESCE(e.question_id, r.root_question_id)
+            WHERE q.debate_topic_id = ?
+            ORDER BY q.created_at, q.id,
+                     CASE WHEN e.question_id IS NOT NULL THEN '' ELSE r.path END COLLATE "C",
+                     e.display_order, e.created_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public DebateTreeStreamer(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${questions.stream.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // One snapshot for all cursors: under READ COMMITTED each cursor takes its own, and a row of
+        // a reply newer than the replies cursor would stay at the head of its cursor and block the rest
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Write the topic's questions with nested replies, attachments and evidence URLs
+     * as a JSON array to the given stream
+     *
+     * @param topicId UUID of the debate topic
+     * @param out     response stream (not closed)
+     */
+    public void writeTopicTree(UUID topicId, OutputStream out) {
+        // PostgreSQL only streams with a fetch size inside a transaction (autocommit off)
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (JsonGenerator json = objectMapper.createGenerator(out);
+                 Cursor questions = open(connection, QUESTIONS_SQL, topicId);
+                 Cursor replies = open(connection, REPLIES_SQL, topicId);
+                 Cursor attachments = open(connection, ATTACHMENTS_SQL, topicId);
+                 Cursor evidenceUrls = open(connection, EVIDENCE_URLS_SQL, topicId)) {
+                // A failure mid-way must leave the JSON visibly truncated, not quietly closed
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                long written = write(json, questions, replies, attachments, evidenceUrls);
+                logger.debug("Streamed debate tree for topic {}: {} questions and replies", topicId, written);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }));
+    }
+
+    private long write(JsonGenerator json, Cursor questions, Cursor replies, Cursor attachments,
+                       Cursor evidenceUrls) throws SQLException, IOException {
+        long written = 0;
+        json.writeStartArray();
+        while (questions.next()) {
+            ResultSet question = questions.rs;
+            UUID questionId = question.getObject("id", UUID.class);
+            json.writeStartObject();
+            json.writeObjectField("id", questionId);
+            json.writeObjectField("debateTopicId", question.getObject("debate_topic_id", UUID.class));
+            json.writeStringField("text", question.getString("text"));
+            json.writeStringField("tag", question.getString("tag"));
+            json.writeStringField("side", question.getString("side"));
+            json.writeStringField("author", question.getString("author"));
+            json.writeObjectField("votesUp", question.getObject("votes_up", Integer.class));
+            json.writeObjectField("votesDown", question.getObject("votes_down", Integer.class));
+            json.writeStringField("uniqueId", question.getString("unique_id"));
+            json.writeObjectField("createdAt", localDateTime(question, "created_at"));
+            json.writeObjectField("updatedAt", localDateTime(question, "updated_at"));
+            json.writeObjectField("replyCount", question.getObject("descendant_count", Integer.class));
+            json.writeObjectField("lastActivityAt", localDateTime(question, "last_activity_at"));
+            boolean hasUnpathedReplies = question.getBoolean("has_unpathed_replies");
+            writeEvidence(json, questionId, attachments, evidenceUrls);
+            written++;
+
+            json.writeArrayFieldStart("replies");
+            written += hasUnpathedReplies
+                    ? writeAssembledReplies(json, questionId, replies, attachments, evidenceUrls)
+                    : writeReplies(json, questionId, replies, attachments, evidenceUrls);
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        return written;
+    }
+
+    // Replies of one question; the open (not yet closed) replies are kept as a stack of paths
+    private long writeReplies(JsonGenerator json, UUID questionId, Cursor replies, Cursor attachments,
+                              Cursor evidenceUrls) throws SQLException, IOException {
+        long written = 0;
+        Deque<String> open = new ArrayDeque<>();
+        while (replies.peek() && questionId.equals(replies.rs.getObject("root_question_id", UUID.class))) {
+            ResultSet reply = replies.take();
+            String path = reply.getString("path");
+            while (!open.isEmpty() && !path.startsWith(open.peek() + "/")) {
+                closeReply(json);
+                open.pop();
+            }
+
+            UUID replyId = reply.getObject("id", UUID.class);
+            json.writeStartObject();
+            json.writeObjectField("id", replyId);
+            json.writeObjectField("questionId", reply.getObject("question_id", UUID.class));
+            json.writeObjectField("parentReplyId", reply.getObject("parent_reply_id", UUID.class));
+            json.writeStringField("text", reply.getString("text"));
+            json.writeStringField("side", reply.getString("side"));
+            json.writeStringField("author", reply.getString("author"));
+            json.writeObjectField("votesUp", reply.getObject("votes_up", Integer.class));
+            json.writeObjectField("votesDown", reply.getObject("votes_down", Integer.class));
+            json.writeStringField("uniqueId", reply.getString("unique_id"));
+            json.writeObjectField("depth", reply.getObject("depth", Integer.class));
+            json.writeObjectField("createdAt", localDateTime(reply, "created_at"));
+            json.writeObjectField("updatedAt", localDateTime(reply, "updated_at"));
+            json.writeObjectField("replyCount", reply.getObject("reply_count", Integer.class));
+            json.writeObjectField("descendantCount", reply.getObject("descendant_count", Integer.class));
+            writeEvidence(json, replyId, attachments, evidenceUrls);
+            json.writeArrayFieldStart("replies");
+            open.push(path);
+            written++;
+        }
+        while (!open.isEmpty()) {
+            closeReply(json);
+            open.pop();
+        }
+        return written;
+    }
+
+    // Replies of a question with some not backfilled yet: linked by parent id in memory, as
+    // DebateTreeService.assemble does (children in path order, those without a path last)
+    private long writeAssembledReplies(JsonGenerator json, UUID questionId, Cursor replies, Cursor attachments,
+                                       Cursor evidenceUrls) throws SQLException, IOException {
+        Map<UUID, ReplyDTO> repliesById = new LinkedHashMap<>();
+        while (replies.peek() && questionId.equals(replies.rs.getObject("root_question_id", UUID.class))) {
+            ReplyDTO dto = reply(replies.take());
+            repliesById.put(dto.getId(), dto);
+        }
+
+        List<ReplyDTO> topLevel = new ArrayList<>();
+        for (ReplyDTO dto : repliesById.values()) {
+            if (dto.getParentReplyId() != null) {
+                ReplyDTO parent = repliesById.get(dto.getParentReplyId());
+                if (parent != null) {
+                    parent.getReplies().add(dto);
+                }
+            } else if (questionId.equals(dto.getQuestionId())) {
+                topLevel.add(dto);
+            }
+        }
+
+        // The question's own rows were taken already; the rest of the question's rows are its replies'
+        while (attachments.peek() && questionId.equals(attachments.rs.getObject("tree_question_id", UUID.class))) {
+            ResultSet row = attachments.take();
+            ReplyDTO owner = repliesById.get(row.getObject("owner_id", UUID.class));
+            if (owner != null) {
+                owner.getAttachments().add(AttachmentDTO.fromEntity(attachment(row)));
+            }
+        }
+        while (evidenceUrls.peek() && questionId.equals(evidenceUrls.rs.getObject("tree_question_id", UUID.class))) {
+            ResultSet row = evidenceUrls.take();
+            ReplyDTO owner = repliesById.get(row.getObject("owner_id", UUID.class));
+            if (owner != null) {
+                owner.getEvidenceUrls().add(EvidenceUrlDTO.fromEntity(evidenceUrl(row)));
+            }
+        }
+
+        for (ReplyDTO dto : topLevel) {
+            json.writeObject(dto);
+        }
+        return repliesById.size();
+    }
+
+    private static void closeReply(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    // Attachments and evidence URLs of one question or reply (the rows at the head of the cursors)
+    private void writeEvidence(JsonGenerator json, UUID ownerId, Cursor attachments, Cursor evidenceUrls)
+            throws SQLException, IOException {
+        json.writeArrayFieldStart("attachments");
+        while (attachments.peek() && ownerId.equals(attachments.rs.getObject("owner_id", UUID.class))) {
+            json.writeObject(AttachmentDTO.fromEntity(attachment(attachments.take())));
+        }
+        json.writeEndArray();
+
+        json.writeArrayFieldStart("evidenceUrls");
+        while (evidenceUrls.peek() && ownerId.equals(evidenceUrls.rs.getObject("owner_id", UUID.class))) {
+            json.writeObject(EvidenceUrlDTO.fromEntity(evidenceUrl(evidenceUrls.take())));
+        }
+        json.writeEndArray();
+    }
+
+    // Same fields as ReplyDTO.fromEntityWithoutReplies
+    private static ReplyDTO reply(ResultSet rs) throws SQLException {
+        ReplyDTO dto = new ReplyDTO();
+        dto.setId(rs.getObject("id", UUID.class));
+        dto.setQuestionId(rs.getObject("question_id", UUID.class));
+        dto.setParentReplyId(rs.getObject("parent_reply_id", UUID.class));
+        dto.setText(rs.getString("text"));
+        dto.setSide(rs.getString("side"));
+        dto.setAuthor(rs.getString("author"));
+        dto.setVotesUp(rs.getObject("votes_up", Integer.class));
+        dto.setVotesDown(rs.getObject("votes_down", Integer.class));
+        dto.setUniqueId(rs.getString("unique_id"));
+        dto.setDepth(rs.getObject("depth", Integer.class));
+        dto.setCreatedAt(localDateTime(rs, "created_at"));
+        dto.setUpdatedAt(localDateTime(rs, "updated_at"));
+        dto.setReplyCount(rs.getObject("reply_count", Integer.class));
+        dto.setDescendantCount(rs.getObject("descendant_count", Integer.class));
+        return dto;
+    }
+
+    private static Attachment attachment(ResultSet rs) throws SQLException {
+        Attachment attachment = new Attachment();
+        attachment.setId(rs.getObject("id", UUID.class));
+        attachment.setFileName(rs.getString("file_name"));
+        attachment.setFileSize(rs.getObject("file_size", Long.class));
+        attachment.setFileType(rs.getString("file_type"));
+        attachment.setStorageUrl(rs.getString("storage_url"));
+        attachment.setStorageProvider(rs.getString("storage_provider"));
+        attachment.setStatus(rs.getString("status"));
+        attachment.setUploadedBy(rs.getString("uploaded_by"));
+        attachment.setDisplayOrder(rs.getObject("display_order", Integer.class));
+        attachment.setCreatedAt(localDateTime(rs, "created_at"));
+        attachment.setImageWidth(rs.getObject("image_width", Integer.class));
+        attachment.setImageHeight(rs.getObject("image_height", Integer.class));
+        attachment.setVariantWidths(rs.getString("variant_widths"));
+        return attachment;
+    }
+
+    private static EvidenceUrl evidenceUrl(ResultSet rs) throws SQLException {
+        EvidenceUrl evidenceUrl = new EvidenceUrl();
+        evidenceUrl.setId(rs.getObject("id", UUID.class));
+        evidenceUrl.setUrl(rs.getString("url"));
+        evidenceUrl.setTitle(rs.getString("title"));
+        evidenceUrl.setDisplayOrder(rs.getObject("display_order", Integer.class));
+        evidenceUrl.setCreatedAt(localDateTime(rs, "created_at"));
+        return evidenceUrl;
+    }
+
+    private static LocalDateTime localDateTime(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private Cursor open(Connection connection, String sql, UUID topicId) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(fetchSize);
+            statement.setObject(1, topicId);
+            return new Cursor(statement, statement.executeQuery());
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Forward-only result set with one row of look-ahead
+     */
+    private static final class Cursor implements AutoCloseable {
+        private final PreparedStatement statement;
+        private final ResultSet rs;
+        private boolean pending;   // current row read but not taken yet
+        private boolean exhausted;
+
+        Cursor(PreparedStatement statement, ResultSet rs) {
+            this.statement = statement;
+            this.rs = rs;
+        }
+
+        // Is there a row to take? (reads it if needed; the row is then available in rs)
+        boolean peek() throws SQLException {
+            if (!pending && !exhausted) {
+                pending = rs.next();
+                exhausted = !pending;
+            }
+            return pending;
+        }
+
+        ResultSet take() throws SQLException {
+            if (!peek()) {
+                throw new IllegalStateException("No row left");
+            }
+            pending = false;
+            return rs;
+        }
+
+        boolean next() throws SQLException {
+            if (!peek()) {
+                return false;
+            }
+            pending = false;
+            return true;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                rs.close();
+            } finally {
+                statement.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.debatearena.service;
+
+import com.debatearena.event.AttachmentFileEvent;
+import com.debatearena.event.DebateChangedEvent;
+import com.debatearena.model.Attachment;
+import com.debatearena.repository.AttachmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * =====================================================================
+ * Download Metadata Cache
+ * =====================================================================
+ *
+ * Keeps what the download endpoints need about an attachment (provider,
+ * URL, content type, size, file name, content hash) in memory, keyed by
+ * storage key (GET /files/key/**) and by original file name
+ * (GET /files/{filename}), so hot files are served without a query.
+ *
+ * - Least recently used entries are dropped beyond max-entries.
+ * - An entry is dropped when its attachment is deleted here, and after
+ *   any change to its question's or reply's attachments. The entry for a
+ *   file name is dropped whenever an attachment with that name is stored
+ *   or deleted, so a newer upload of the same name is found; ttl-ms bounds
+ *   how long an entry can outlive a deletion made elsewhere (another
+ *   instance, or a question deleted with its replies).
+ * - Only stored attachments are kept; misses (including pending
+ *   attachments) always ask the database.
+ * - A load that raced with an eviction is returned but not kept.
+ *
+ * Metrics: attachments.metadata-cache.hits, attachments.metadata-cache.misses,
+ * attachments.metadata-cache.size.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class DownloadMetadataCache {
+
+    private static final String KEY_PREFIX = "key:";
+    private static final String NAME_PREFIX = "name:";
+
+    private final AttachmentRepository attachmentRepository;
+    private final boolean enabled;
+    private final long ttlMs;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries;
+
+    // A lock rather than synchronized, so waiting virtual threads do not pin their carrier threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Bumped by every eviction; a load that raced with one is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public DownloadMetadataCache(
+            AttachmentRepository attachmentRepository,
+            MeterRegistry meterRegistry,
+            @Value("${file.metadata-cache.enabled:true}") boolean enabled,
+            @Value("${file.metadata-cache.max-entries:10000}") int maxEntries,
+            @Value("${file.metadata-cache.ttl-ms:600000}") long ttlMs) {
+        this.attachmentRepository = attachmentRepository;
+        this.enabled = enabled;
+        this.ttlMs = ttlMs;
+        int capacity = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        Gauge.builder("attachments.metadata-cache.size", this, DownloadMetadataCache::size)
+                .description("Download lookups held in memory")
+                .register(meterRegistry);
+        this.hitCounter = Counter.builder("attachments.metadata-cache.hits")
+                .description("Download lookups answered from memory")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("attachments.metadata-cache.misses")
+                .description("Download lookups that queried the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * What the download endpoints need about a stored attachment
+     *
+     * @param contentHash SHA-256 of a content-addressed file (its strong ETag), else null
+     */
+    public record Metadata(UUID attachmentId, UUID questionId, UUID replyId, String storageUrl, String storageKey,
+                           String storageProvider, String fileName, String fileType, Long fileSize,
+                           String contentHash) {
+
+        static Metadata of(Attachment attachment) {
+            return new Metadata(attachment.getId(), attachment.getQuestionId(), attachment.getReplyId(),
+                    attachment.getStorageUrl(), attachment.getStorageKey(), attachment.getStorageProvider(),
+                    attachment.getFileName(), attachment.getFileType(), attachment.getFileSize(),
+                    attachment.getContentHash());
+        }
+
+        public boolean isLocal() {
+            return "local".equalsIgnoreCase(storageProvider);
+        }
+    }
+
+    private record Entry(Metadata metadata, long loadedAt) {
+    }
+
+    /**
+     * Stored attachment with this storage key (any of them, when the content is shared)
+     */
+    public Optional<Metadata> byStorageKey(String storageKey) {
+        return lookup(KEY_PREFIX + storageKey, () -> attachmentRepository.findFirstByStorageKey(storageKey));
+    }
+
+    /**
+     * Newest stored attachment with this original file name
+     */
+    public Optional<Metadata> byFileName(String fileName) {
+        return lookup(NAME_PREFIX + fileName,
+                () -> attachmentRepository.findFirstByFileNameAndStorageUrlIsNotNullOrderByCreatedAtDesc(fileName));
+    }
+
+    /**
+     * Drop every entry of an attachment (deleted, or its file is gone)
+     */
+    public void evict(UUID attachmentId) {
+        evictIf(metadata -> metadata.attachmentId().equals(attachmentId));
+    }
+
+    /**
+     * Drop the entries of a question or reply once a change to it (or to its
+     * attachments) is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDebateChanged(DebateChangedEvent event) {
+        UUID owner = event.targetId();
+        switch (event.type()) {
+            case ATTACHMENT, QUESTION, REPLY -> {
+                if (owner != null) {
+                    evictIf(metadata -> owner.equals(metadata.questionId()) || owner.equals(metadata.replyId()));
+                }
+            }
+            default -> {
+                // Does not touch attachments
+            }
+        }
+    }
+
+    /**
+     * Drop the lookup by file name once an attachment with that name is stored
+     * or deleted (the newest stored one may have changed)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAttachmentFile(AttachmentFileEvent event) {
+        if (event.fileName() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.remove(NAME_PREFIX + event.fileName());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<Metadata> lookup(String cacheKey, Supplier<Attachment> loader) {
+        if (!enabled) {
+            return load(loader);
+        }
+        lock.lock();
+        try {
+            Entry entry = entries.get(cacheKey);
+            if (entry != null) {
+                if (System.currentTimeMillis() - entry.loadedAt() < ttlMs) {
+                    hitCounter.increment();
+                    return Optional.of(entry.metadata());
+                }
+                entries.remove(cacheKey);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        missCounter.increment();
+        long loadGeneration = generation.get();
+        Optional<Metadata> loaded = load(loader);
+        loaded.ifPresent(metadata -> {
+            lock.lock();
+            try {
+                if (generation.get() == loadGeneration) {
+                    entries.put(cacheKey, new Entry(metadata, System.currentTimeMillis()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+        return loaded;
+    }
+
+    private static Optional<Metadata> load(Supplier<Attachment> loader) {
+        Attachment attachment = loader.get();
+        if (attachment == null || attachment.getStorageUrl() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(Metadata.of(attachment));
+    }
+
+    private void evictIf(Predicate<Metadata> matches) {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.values().removeIf(entry -> matches.test(entry.metadata()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
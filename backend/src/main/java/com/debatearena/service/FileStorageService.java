@@ -1,8 +1,15 @@
 package com.debatearena.service;
 
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * =====================================================================
@@ -15,6 +22,21 @@ import java.io.IOException;
  * - AWS S3 (for production)
  * - Cloudinary (for media files)
  *
+ * Uploads are streamed (uploadStream): no implementation holds a whole
+ * file in memory. Multipart files are spooled to disk by the servlet
+ * container (spring.servlet.multipart.file-size-threshold) and read from
+ * there while they are sent to storage.
+ *
+ * Large files can be sent in parts instead (startMultipartUpload,
+ * uploadPart, completeMultipartUpload) by providers that support it, so a
+ * failed upload resumes from the last part (see UploadSessionService).
+ *
+ * S3 and R2 can also sign URLs so clients upload and download directly,
+ * the backend only registering the result (see PresignedUploadService).
+ *
+ * Remote providers can copy an object back to local disk (downloadTo),
+ * for the read-through cache of the download endpoints (see RemoteFileCache).
+ *
  * @author TarkVtark Team
  */
 public interface FileStorageService {
@@ -23,11 +45,165 @@ public interface FileStorageService {
      * Upload a file to storage
      *
      * @param file The file to upload
-     * @param fileName Custom file name (optional, will generate UUID if null)
+     * @param folder Folder/prefix for the stored object (e.g. "attachments"); the name is a new UUID
      * @return Public URL to access the file
      * @throws IOException if upload fails
      */
-    String uploadFile(MultipartFile file, String fileName) throws IOException;
+    default String uploadFile(MultipartFile file, String folder) throws IOException {
+        return uploadStream(file, file.getSize(), file.getOriginalFilename(), file.getContentType(), folder);
+    }
+
+    /**
+     * Upload content of known length, streamed from its source to storage
+     *
+     * @param content Source of the bytes (e.g. a MultipartFile); may be opened again to retry
+     * @param contentLength Exact number of bytes the source yields
+     * @param originalFilename Name of the uploaded file (its extension is kept, optional)
+     * @param contentType MIME type (optional, default application/octet-stream)
+     * @param folder Folder/prefix for the stored object (e.g. "attachments"); the name is a new UUID
+     * @return Public URL to access the file
+     * @throws IOException if upload fails
+     */
+    String uploadStream(InputStreamSource content, long contentLength, String originalFilename,
+                        String contentType, String folder) throws IOException;
+
+    /**
+     * Upload content under a name chosen by the caller (e.g. its content hash,
+     * see AttachmentBlobService); an object with that name is replaced
+     *
+     * @param content Source of the bytes; may be opened again to retry
+     * @param contentLength Exact number of bytes the source yields
+     * @param name Object name within the folder (letters, digits, '.', '_' and '-')
+     * @param contentType MIME type (optional, default application/octet-stream)
+     * @param folder Folder/prefix for the stored object (e.g. "attachments")
+     * @return Public URL to access the file
+     * @throws IOException if upload fails
+     */
+    String uploadStreamAs(InputStreamSource content, long contentLength, String name,
+                          String contentType, String folder) throws IOException;
+
+    /**
+     * Whether this provider supports resumable uploads in parts
+     * (startMultipartUpload ... completeMultipartUpload)
+     */
+    default boolean supportsMultipartUpload() {
+        return false;
+    }
+
+    /**
+     * Start an upload sent in parts (S3 multipart upload, part files locally)
+     *
+     * @param originalFilename Name of the uploaded file (its extension is kept, optional)
+     * @param contentType MIME type (optional, default application/octet-stream)
+     * @param folder Folder/prefix for the stored object; the name is a new UUID
+     * @return Key of the future object and the provider's upload id
+     * @throws IOException if the upload cannot be started
+     */
+    default MultipartUpload startMultipartUpload(String originalFilename, String contentType, String folder)
+            throws IOException {
+        throw new UnsupportedOperationException(getProviderName() + " does not support uploads in parts");
+    }
+
+    /**
+     * Store one part; parts may be sent in any order and in parallel, and a
+     * part sent again replaces the earlier copy
+     *
+     * @param upload The upload from startMultipartUpload
+     * @param partNumber 1-based part number
+     * @param content Bytes of the part (streamed)
+     * @param contentLength Exact number of bytes
+     * @return ETag of the part (needed to complete the upload)
+     * @throws IOException if the part cannot be stored
+     */
+    default String uploadPart(MultipartUpload upload, int partNumber, InputStreamSource content, long contentLength)
+            throws IOException {
+        throw new UnsupportedOperationException(getProviderName() + " does not support uploads in parts");
+    }
+
+    /**
+     * Join the parts into the final object
+     *
+     * @param upload The upload from startMultipartUpload
+     * @param partETags ETags of parts 1..n, in order
+     * @return Public URL (or storage key) of the object, as uploadStream returns it
+     * @throws IOException if the parts cannot be joined
+     */
+    default String completeMultipartUpload(MultipartUpload upload, List<String> partETags) throws IOException {
+        throw new UnsupportedOperationException(getProviderName() + " does not support uploads in parts");
+    }
+
+    /**
+     * Drop an unfinished upload and the parts stored so far
+     *
+     * @param upload The upload from startMultipartUpload
+     * @throws IOException if the parts cannot be removed
+     */
+    default void abortMultipartUpload(MultipartUpload upload) throws IOException {
+        throw new UnsupportedOperationException(getProviderName() + " does not support uploads in parts");
+    }
+
+    /**
+     * Whether this provider can sign URLs that let clients upload and download
+     * directly (presignUpload, presignDownload, storedSize)
+     */
+    default boolean supportsPresignedUrls() {
+        return false;
+    }
+
+    /**
+     * Sign a URL the client PUTs a new object to, without passing through the backend
+     *
+     * @param originalFilename Name of the file (its extension is kept, optional)
+     * @param contentType MIME type the client must send
+     * @param contentLength Exact size the client must send
+     * @param folder Folder/prefix for the object; the name is a new UUID
+     * @param ttl How long the URL is valid
+     * @return Key and future public URL of the object, the signed URL and the headers to send
+     */
+    default PresignedUpload presignUpload(String originalFilename, String contentType, long contentLength,
+                                          String folder, Duration ttl) {
+        throw new UnsupportedOperationException(getProviderName() + " does not support presigned URLs");
+    }
+
+    /**
+     * Sign a URL the client GETs an object from (also for private buckets)
+     *
+     * @param fileUrl URL of the file as uploadStream returned it
+     * @param fileName Name the browser saves the file under
+     * @param ttl How long the URL is valid
+     */
+    default PresignedUrl presignDownload(String fileUrl, String fileName, Duration ttl) {
+        throw new UnsupportedOperationException(getProviderName() + " does not support presigned URLs");
+    }
+
+    /**
+     * Size of a stored object, or empty if it does not exist
+     *
+     * @param key Storage key (e.g. attachments/uuid.png)
+     * @throws IOException if storage cannot be asked
+     */
+    default Optional<Long> storedSize(String key) throws IOException {
+        throw new UnsupportedOperationException(getProviderName() + " does not support presigned URLs");
+    }
+
+    /**
+     * Whether this provider can copy stored objects to local disk (downloadTo)
+     */
+    default boolean supportsDownload() {
+        return false;
+    }
+
+    /**
+     * Copy a stored object to a local file (streamed)
+     *
+     * @param fileUrl URL of the file as uploadStream returned it
+     * @param target File to write; must not exist yet
+     * @return Bytes written, or empty if the object does not exist (nothing written)
+     * @throws IOException if storage cannot be read or the file cannot be written
+     */
+    default Optional<Long> downloadTo(String fileUrl, Path target) throws IOException {
+        throw new UnsupportedOperationException(getProviderName() + " does not support downloads to disk");
+    }
 
     /**
      * Delete a file from storage
@@ -43,5 +219,23 @@ public interface FileStorageService {
      * @return Provider name: "local", "s3", or "cloudinary"
      */
     String getProviderName();
+
+    /**
+     * An upload in parts: key of the future object and the provider's upload id
+     */
+    record MultipartUpload(String key, String uploadId) {
+    }
+
+    /**
+     * A signed upload: PUT the file to url with the given headers before expiresAt
+     */
+    record PresignedUpload(String key, String fileUrl, String url, Map<String, String> headers, Instant expiresAt) {
+    }
+
+    /**
+     * A signed URL and when it stops working
+     */
+    record PresignedUrl(String url, Instant expiresAt) {
+    }
 }
 
@@ -0,0 +1,377 @@
+package com.debatearena.service;
+
+import com.debatearena.model.Attachment;
+import com.debatearena.repository.AttachmentRepository;
+import com.debatearena.util.ImageVariants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * =====================================================================
+ * Image Variant Service
+ * =====================================================================
+ *
+ * Generates a thumbnail (fitting file.images.thumbnail-size square) and a
+ * few smaller widths (file.images.widths) of every image attachment, and
+ * stores them next to the original (see ImageVariants for the names), so
+ * pages load previews instead of full-resolution images. Widths at or
+ * above the original's are skipped.
+ *
+ * Runs after the upload, on a bounded pool of workers
+ * (file.images.workers, file.images.queue-size): the attachment is
+ * returned at once, and its variants appear once they are stored (logged
+ * as a change of its question or reply). When the queue is full the image
+ * simply has no variants, and clients use the original.
+ *
+ * Pure Java (Image IO): JPEG, PNG, GIF and BMP. Large images are decoded
+ * subsampled (never more pixels than twice the largest variant needs), and
+ * images above file.images.max-pixels even after that are skipped. EXIF
+ * orientation is not applied.
+ *
+ * Attachments sharing their content (AttachmentBlobService) share their
+ * variants too: they are generated once.
+ *
+ * Metrics: attachments.images.processed, attachments.images.failed.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private static final String FOLDER = "attachments";
+
+    private final FileStorageService fileStorageService;
+    private final AttachmentRepository attachmentRepository;
+    private final DebateCounterService debateCounterService;
+    private final boolean enabled;
+    private final int thumbnailSize;
+    private final int[] widths;
+    private final long maxPixels;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor workers;
+
+    private final Counter processedCounter;
+    private final Counter failedCounter;
+
+    public ImageVariantService(
+            FileStorageService fileStorageService,
+            AttachmentRepository attachmentRepository,
+            DebateCounterService debateCounterService,
+            MeterRegistry meterRegistry,
+            @Value("${file.images.enabled:true}") boolean enabled,
+            @Value("${file.images.thumbnail-size:160}") int thumbnailSize,
+            @Value("${file.images.widths:320,640,1280}") int[] widths,
+            @Value("${file.images.max-pixels:25000000}") long maxPixels,
+            @Value("${file.images.jpeg-quality:0.82}") float jpegQuality,
+            @Value("${file.images.workers:2}") int workerCount,
+            @Value("${file.images.queue-size:200}") int queueSize) {
+        this.fileStorageService = fileStorageService;
+        this.attachmentRepository = attachmentRepository;
+        this.debateCounterService = debateCounterService;
+        this.enabled = enabled;
+        this.thumbnailSize = thumbnailSize;
+        this.widths = Arrays.stream(widths).filter(width -> width > 0).sorted().toArray();
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(Math.max(1, workerCount), Math.max(1, workerCount),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+            Thread thread = new Thread(runnable, "image-variants-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.processedCounter = Counter.builder("attachments.images.processed")
+                .description("Image attachments whose variants were stored")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("attachments.images.failed")
+                .description("Image attachments whose variants could not be generated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether variants are generated for files of this type
+     */
+    public boolean accepts(String fileType) {
+        return enabled && fileType != null && fileType.toLowerCase().startsWith("image/");
+    }
+
+    /**
+     * Copy an uploaded image for its variants, before the upload moves or
+     * consumes the original
+     *
+     * @return The copy, or null if no variants are generated for this file
+     */
+    public Path copyIfImage(MultipartFile file) throws IOException {
+        if (!accepts(file.getContentType())) {
+            return null;
+        }
+        Path copy = Files.createTempFile("image-variants-", ".tmp");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(copy);
+            throw e;
+        }
+        return copy;
+    }
+
+    /**
+     * Queue the variants of a stored attachment. Takes over the source file:
+     * it is deleted once the variants are stored (or right away if the
+     * attachment is not an image or the queue is full).
+     *
+     * @param attachmentId Saved attachment
+     * @param fileType     Its MIME type
+     * @param source       Local copy of its content (null: nothing to do)
+     */
+    public void submit(UUID attachmentId, String fileType, Path source) {
+        if (source == null) {
+            return;
+        }
+        if (!accepts(fileType)) {
+            discard(source);
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    generate(attachmentId, source);
+                } catch (Exception e) {
+                    failedCounter.increment();
+                    logger.warn("Could not generate image variants of attachment {}: {}", attachmentId, e.getMessage());
+                } finally {
+                    discard(source);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Image variant queue full, attachment {} keeps only its original", attachmentId);
+            discard(source);
+        }
+    }
+
+    /**
+     * Delete a copy that will not be submitted
+     */
+    public void discard(Path source) {
+        if (source == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(source);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}: {}", source, e.getMessage());
+        }
+    }
+
+    /**
+     * URLs (or local keys) of the stored variants of an attachment
+     */
+    public static List<String> variantUrls(Attachment attachment) {
+        List<String> urls = new ArrayList<>();
+        if (attachment.getStorageUrl() == null) {
+            return urls;
+        }
+        for (int width : ImageVariants.parseWidths(attachment.getVariantWidths())) {
+            urls.add(ImageVariants.url(attachment.getStorageUrl(), width, attachment.getFileType()));
+        }
+        return urls;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void generate(UUID attachmentId, Path source) throws IOException {
+        Optional<Attachment> found = attachmentRepository.findById(attachmentId);
+        if (found.isEmpty() || found.get().getStorageUrl() == null) {
+            return;
+        }
+        Attachment attachment = found.get();
+
+        // Same content processed before: its variants are already stored under the same names
+        if (attachment.getContentHash() != null) {
+            Attachment sibling = attachmentRepository.findFirstByContentHashAndVariantWidthsIsNotNull(attachment.getContentHash());
+            if (sibling != null && sibling.getImageWidth() != null) {
+                debateCounterService.attachmentVariantsStored(attachmentId,
+                        sibling.getImageWidth(), sibling.getImageHeight(), sibling.getVariantWidths());
+                return;
+            }
+        }
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                logger.debug("Attachment {} ({}) is not a readable image", attachmentId, attachment.getFileType());
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                generate(attachment, reader);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void generate(Attachment attachment, ImageReader reader) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+
+        // Thumbnail fits a thumbnailSize square; only widths below the original's
+        TreeSet<Integer> targets = new TreeSet<>();
+        int thumbnailWidth = width >= height ? thumbnailSize
+                : Math.max(1, Math.round((float) width * thumbnailSize / height));
+        if (thumbnailWidth < width) {
+            targets.add(thumbnailWidth);
+        }
+        for (int target : widths) {
+            if (target < width) {
+                targets.add(target);
+            }
+        }
+
+        String variantWidths = "";
+        if (!targets.isEmpty()) {
+            // Decode at most twice the largest variant's resolution
+            int subsampling = Math.max(1, width / (2 * targets.last()));
+            long pixels = (long) (width / subsampling) * (height / subsampling);
+            if (pixels > maxPixels) {
+                logger.warn("Attachment {} is too large for variants ({}x{})", attachment.getId(), width, height);
+                return;
+            }
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            BufferedImage image = normalize(reader.read(0, param), attachment.getFileType());
+
+            // Largest first, each scaled from the previous one
+            String originalName = attachment.getStorageUrl().substring(attachment.getStorageUrl().lastIndexOf('/') + 1);
+            for (int target : targets.descendingSet()) {
+                image = scale(image, target, ImageVariants.height(width, height, target));
+                byte[] encoded = encode(image, attachment.getFileType());
+                fileStorageService.uploadStreamAs(new ByteArrayResource(encoded), encoded.length,
+                        ImageVariants.name(originalName, target, attachment.getFileType()),
+                        ImageVariants.contentType(attachment.getFileType()), FOLDER);
+            }
+            variantWidths = targets.stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+
+        if (debateCounterService.attachmentVariantsStored(attachment.getId(), width, height, variantWidths)) {
+            processedCounter.increment();
+            logger.info("Image variants of attachment {} stored: {}x{}, widths [{}]",
+                    attachment.getId(), width, height, variantWidths);
+        } else if (attachment.getContentHash() == null) {
+            // Deleted meanwhile (shared variants stay with the blob)
+            attachment.setVariantWidths(variantWidths);
+            for (String url : variantUrls(attachment)) {
+                fileStorageService.deleteFile(url);
+            }
+        }
+    }
+
+    // RGB on white for JPEG variants, ARGB for PNG ones
+    private static BufferedImage normalize(BufferedImage image, String fileType) {
+        int type = ImageVariants.keepsAlpha(fileType) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        if (image.getType() == type) {
+            return image;
+        }
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D g = converted.createGraphics();
+        try {
+            if (type == BufferedImage.TYPE_INT_RGB) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            }
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return converted;
+    }
+
+    // Halves the image (bilinear) until one step from the target, so large reductions stay sharp
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != width || current.getHeight() != height) {
+            current = draw(current, width, height);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, image.getType());
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private byte[] encode(BufferedImage image, String fileType) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(ImageVariants.formatName(fileType)).next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (!ImageVariants.keepsAlpha(fileType)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
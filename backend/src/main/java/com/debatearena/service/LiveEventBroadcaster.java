@@ -0,0 +1,380 @@
+package com.debatearena.service;
+
+import com.debatearena.event.LiveDebateEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * =====================================================================
+ * Live Event Broadcaster
+ * =====================================================================
+ *
+ * Pushes LiveDebateEvents to the clients watching a topic over
+ * Server-Sent Events (GET /questions/topic/{topicId}/events), so they see
+ * new questions, replies and vote counts without re-polling the topic.
+ *
+ * Fan-out:
+ * - subscribers of a topic are held in a copy-on-write list, so publishing
+ *   never takes a lock; the event is serialized to JSON once per topic
+ * - every subscriber has its own bounded queue, drained by a small shared
+ *   sender pool; at most one sender works on a subscriber at a time
+ *
+ * Slow clients (queue full):
+ * - drop-oldest (default): the oldest queued event is dropped and the
+ *   client is sent a "resync" event with the number of events it missed,
+ *   so it knows to reload the topic
+ * - disconnect: the subscription is closed; EventSource reconnects and
+ *   the client reloads
+ * A send blocked for longer than send-timeout-ms (client not reading) also
+ * closes the subscription.
+ *
+ * Closing only marks the subscription closed and drops its queue; the
+ * emitter is completed by a sender thread. SseEmitter.complete() waits for
+ * a send in progress (both lock the emitter), so the heartbeat (on the
+ * shared scheduler thread) and publishing request threads must never call
+ * it. A send stuck on a client that stopped reading is ended by the
+ * connector's write timeout (server.tomcat.connection-timeout), which
+ * bounds how long it holds a sender thread.
+ *
+ * A comment line is sent every heartbeat-ms to keep proxies from closing
+ * idle connections and to detect clients that went away.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class LiveEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveEventBroadcaster.class);
+
+    // Events sent per turn before a sender moves on to other subscribers
+    private static final int MAX_EVENTS_PER_TURN = 64;
+
+    /**
+     * What to do when a subscriber's queue is full
+     */
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DISCONNECT
+    }
+
+    private final ObjectMapper objectMapper;
+    private final LiveTopicResolver liveTopicResolver;
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxSubscribers;
+    private final long emitterTimeoutMs;
+    private final long sendTimeoutMs;
+    private final ExecutorService senders;
+
+    private final Map<UUID, TopicChannel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final Counter publishedCounter;
+    private final Counter droppedCounter;
+    private final Counter disconnectedCounter;
+
+    public LiveEventBroadcaster(
+            ObjectMapper objectMapper,
+            LiveTopicResolver liveTopicResolver,
+            MeterRegistry meterRegistry,
+            @Value("${live.buffer-size:256}") int bufferSize,
+            @Value("${live.overflow-policy:drop-oldest}") String overflowPolicy,
+            @Value("${live.max-subscribers:10000}") int maxSubscribers,
+            @Value("${live.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+            @Value("${live.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${live.sender-threads:4}") int senderThreads) {
+        this.objectMapper = objectMapper;
+        this.liveTopicResolver = liveTopicResolver;
+        this.bufferSize = Math.max(1, bufferSize);
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        this.maxSubscribers = maxSubscribers;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), runnable -> {
+            Thread thread = new Thread(runnable, "live-event-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.publishedCounter = Counter.builder("live.events.published")
+                .description("Live events published to at least one subscriber")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("live.events.dropped")
+                .description("Live events dropped because a subscriber's queue was full")
+                .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("live.subscribers.disconnected")
+                .description("Subscriptions closed by the server (slow or stuck clients)")
+                .register(meterRegistry);
+        Gauge.builder("live.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open live event subscriptions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a subscription to a topic's live events
+     *
+     * @param topicId UUID of the debate topic
+     * @return The emitter to return from the controller, or empty if the server is at max-subscribers
+     */
+    public Optional<SseEmitter> subscribe(UUID topicId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(topicId, emitter);
+        emitter.onCompletion(() -> subscriber.close(false));
+        emitter.onTimeout(() -> subscriber.close(false));
+        emitter.onError(error -> subscriber.close(false));
+        channels.compute(topicId, (id, channel) -> {
+            TopicChannel target = channel != null ? channel : new TopicChannel();
+            target.subscribers.add(subscriber);
+            return target;
+        });
+
+        // First event confirms the subscription (and flushes the response headers)
+        subscriber.offer(new Message(0, "subscribed", "{\"topicId\":\"" + topicId + "\"}"));
+        logger.debug("Live subscriber added to topic {} ({} open)", topicId, subscriberCount.get());
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Push a committed change to the subscribers of its topic
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLiveEvent(LiveDebateEvent event) {
+        if (channels.isEmpty()) {
+            return; // nobody is listening: skip topic lookup and serialization
+        }
+        UUID topicId = liveTopicResolver.resolve(event);
+        TopicChannel channel = topicId != null ? channels.get(topicId) : null;
+        if (channel == null || channel.subscribers.isEmpty()) {
+            return;
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event.data());
+        } catch (JsonProcessingException e) {
+            logger.warn("Live event {} not sent: {}", event.name(), e.getMessage());
+            return;
+        }
+        Message message = new Message(channel.sequence.incrementAndGet(), event.name(), json);
+        for (Subscriber subscriber : channel.subscribers) {
+            subscriber.offer(message);
+        }
+        publishedCounter.increment();
+    }
+
+    /**
+     * Heartbeat to every subscriber; closes subscriptions whose send is stuck
+     */
+    @Scheduled(fixedDelayString = "${live.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (TopicChannel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                long since = subscriber.sendingSince;
+                if (since > 0 && now - since > sendTimeoutMs) {
+                    logger.debug("Live subscriber of topic {} stuck for {} ms, closing", subscriber.topicId, now - since);
+                    subscriber.close(true);
+                } else {
+                    subscriber.offer(Message.HEARTBEAT);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (TopicChannel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.close(false);
+            }
+        }
+        // Let the senders complete the emitters, but do not wait for stuck sends
+        senders.shutdown();
+        try {
+            senders.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senders.shutdownNow();
+    }
+
+    private void remove(Subscriber subscriber) {
+        channels.computeIfPresent(subscriber.topicId, (id, channel) -> {
+            channel.subscribers.remove(subscriber);
+            return channel.subscribers.isEmpty() ? null : channel;
+        });
+    }
+
+    /**
+     * One SSE event as sent to every subscriber (name null = comment line)
+     */
+    private record Message(long id, String name, String json) {
+        static final Message HEARTBEAT = new Message(0, null, "heartbeat");
+
+        SseEmitter.SseEventBuilder toSse() {
+            if (name == null) {
+                return SseEmitter.event().comment(json);
+            }
+            SseEmitter.SseEventBuilder event = SseEmitter.event().name(name).data(json);
+            return id > 0 ? event.id(Long.toString(id)) : event;
+        }
+    }
+
+    private static final class TopicChannel {
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        final AtomicLong sequence = new AtomicLong();
+    }
+
+    private final class Subscriber {
+        final UUID topicId;
+        final SseEmitter emitter;
+        final ConcurrentLinkedQueue<Message> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger missed = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean completed = new AtomicBoolean();
+        volatile long sendingSince;
+
+        Subscriber(UUID topicId, SseEmitter emitter) {
+            this.topicId = topicId;
+            this.emitter = emitter;
+        }
+
+        void offer(Message message) {
+            if (closed.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > bufferSize) {
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    queued.decrementAndGet();
+                    droppedCounter.increment();
+                    close(true);
+                    return;
+                }
+                if (queue.poll() != null) {
+                    queued.decrementAndGet();
+                    missed.incrementAndGet();
+                    droppedCounter.increment();
+                }
+            }
+            queue.add(message);
+            schedule();
+        }
+
+        void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        void drain() {
+            try {
+                for (int i = 0; i < MAX_EVENTS_PER_TURN && !closed.get(); i++) {
+                    int gap = missed.getAndSet(0);
+                    if (gap > 0) {
+                        send(new Message(0, "resync", "{\"missed\":" + gap + "}"));
+                    }
+                    Message message = queue.poll();
+                    if (message == null) {
+                        break;
+                    }
+                    queued.decrementAndGet();
+                    send(message);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away (or the emitter already completed)
+                close(false);
+            } finally {
+                scheduled.set(false);
+            }
+            if (closed.get()) {
+                complete();
+            } else if (!queue.isEmpty() || missed.get() > 0) {
+                schedule();
+            }
+        }
+
+        void send(Message message) throws IOException {
+            sendingSince = System.currentTimeMillis();
+            try {
+                emitter.send(message.toSse());
+            } finally {
+                sendingSince = 0;
+            }
+        }
+
+        void close(boolean byServer) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscriberCount.decrementAndGet();
+            remove(this);
+            queue.clear();
+            if (byServer) {
+                disconnectedCounter.increment();
+            }
+            // Completed on a sender thread: complete() waits for a send in progress, and the caller
+            // may be the scheduler thread or a publishing request thread. A drain already running
+            // (possibly stuck in send) completes the emitter when it returns.
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    complete(); // shutting down
+                }
+            }
+        }
+
+        void complete() {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                emitter.complete();
+            } catch (Exception e) {
+                logger.debug("Completing live subscription of topic {} failed: {}", topicId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.VoteResultDTO;
+import com.debatearena.event.LiveDebateEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * =====================================================================
+ * Live Socket Hub
+ * =====================================================================
+ *
+ * WebSocket side of the live debate feed (ws://.../api/v1/ws/topics/{topicId},
+ * see LiveTopicSocket). Every topic with at least one open socket has a
+ * room; LiveDebateEvents are multicast to the sockets of their topic's room
+ * as JSON text frames: {"type": ..., "seq": ..., "data": ...}.
+ *
+ * Votes are coalesced: a vote only records the latest counts of its
+ * question or reply in the room, and every vote-flush-ms one "votes"
+ * frame with all counts changed since the last flush is sent. During a
+ * live debate, with hundreds of viewers voting on the same replies, the
+ * number of frames sent depends on rooms x sockets x flushes, not on the
+ * number of votes. Other events (new or edited questions and replies) go
+ * out immediately.
+ *
+ * Each frame is serialized once per room and the same String is queued
+ * on every socket. Sockets send asynchronously, one frame at a time, from
+ * a bounded queue; a socket whose queue fills up (client not reading) or
+ * whose send times out is closed with 1013 "try again later", and the
+ * client reconnects and reloads.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class LiveSocketHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveSocketHub.class);
+
+    private static final String VOTES = "votes";
+
+    private final ObjectMapper objectMapper;
+    private final LiveTopicResolver liveTopicResolver;
+    private final int bufferSize;
+    private final int maxSessions;
+    private final long sendTimeoutMs;
+
+    private final Map<UUID, Room> rooms = new ConcurrentHashMap<>();
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+
+    private final Counter framesCounter;
+    private final Counter votesCoalescedCounter;
+    private final Counter disconnectedCounter;
+
+    public LiveSocketHub(
+            ObjectMapper objectMapper,
+            LiveTopicResolver liveTopicResolver,
+            MeterRegistry meterRegistry,
+            @Value("${live.ws.buffer-size:256}") int bufferSize,
+            @Value("${live.ws.max-sessions:10000}") int maxSessions,
+            @Value("${live.ws.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.liveTopicResolver = liveTopicResolver;
+        this.bufferSize = Math.max(1, bufferSize);
+        this.maxSessions = maxSessions;
+        this.sendTimeoutMs = sendTimeoutMs;
+
+        this.framesCounter = Counter.builder("live.ws.frames")
+                .description("Frames multicast to a room (each sent to every socket of the room)")
+                .register(meterRegistry);
+        this.votesCoalescedCounter = Counter.builder("live.ws.votes")
+                .description("Votes folded into the next batched votes frame")
+                .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("live.ws.disconnected")
+                .description("Sockets closed by the server (slow or stuck clients)")
+                .register(meterRegistry);
+        Gauge.builder("live.ws.sessions", sessionCount, AtomicInteger::get)
+                .description("Open live WebSocket sessions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Join a socket to its topic's room
+     *
+     * @return false if the server is at max-sessions (the caller closes the socket)
+     */
+    public boolean join(UUID topicId, Session session) {
+        if (sessionCount.incrementAndGet() > maxSessions) {
+            sessionCount.decrementAndGet();
+            return false;
+        }
+        session.getAsyncRemote().setSendTimeout(sendTimeoutMs);
+        Connection connection = new Connection(topicId, session);
+        connections.put(session.getId(), connection);
+        rooms.compute(topicId, (id, room) -> {
+            Room target = room != null ? room : new Room();
+            target.connections.add(connection);
+            return target;
+        });
+        connection.offer(frame("subscribed", 0, "{\"topicId\":\"" + topicId + "\"}"));
+        return true;
+    }
+
+    /**
+     * Remove a socket that was closed (by either side) or failed
+     */
+    public void leave(Session session) {
+        Connection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.detach();
+        }
+    }
+
+    /**
+     * Multicast a committed change to the sockets of its topic (votes wait for the next flush)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLiveEvent(LiveDebateEvent event) {
+        if (rooms.isEmpty()) {
+            return;
+        }
+        UUID topicId = liveTopicResolver.resolve(event);
+        Room room = topicId != null ? rooms.get(topicId) : null;
+        if (room == null) {
+            return;
+        }
+
+        if (LiveDebateEvent.VOTE.equals(event.name()) && event.data() instanceof VoteResultDTO counts) {
+            // Latest counts win; the batch goes out with the next flush
+            room.pendingVotes.put(counts.getId(), counts);
+            votesCoalescedCounter.increment();
+            return;
+        }
+        String json = toJson(event.data());
+        if (json != null) {
+            room.multicast(frame(event.name(), room.sequence.incrementAndGet(), json));
+        }
+    }
+
+    /**
+     * Send each room's votes since the last flush as one frame
+     */
+    @Scheduled(fixedDelayString = "${live.ws.vote-flush-ms:250}")
+    public void flushVotes() {
+        for (Room room : rooms.values()) {
+            if (room.pendingVotes.isEmpty()) {
+                continue;
+            }
+            List<VoteResultDTO> batch = new ArrayList<>(room.pendingVotes.size());
+            for (UUID id : room.pendingVotes.keySet()) {
+                VoteResultDTO counts = room.pendingVotes.remove(id);
+                if (counts != null) {
+                    batch.add(counts);
+                }
+            }
+            String json = toJson(batch);
+            if (json != null && !batch.isEmpty()) {
+                room.multicast(frame(VOTES, room.sequence.incrementAndGet(), json));
+            }
+        }
+    }
+
+    /**
+     * Keep idle sockets (and the proxies in front of them) alive
+     */
+    @Scheduled(fixedDelayString = "${live.heartbeat-ms:15000}")
+    public void heartbeat() {
+        String heartbeat = frame("heartbeat", 0, "{}");
+        for (Room room : rooms.values()) {
+            room.multicast(heartbeat);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Connection connection : connections.values()) {
+            connection.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Server shutting down"));
+        }
+    }
+
+    private String toJson(Object data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            logger.warn("Live frame not sent: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String frame(String type, long seq, String json) {
+        return "{\"type\":\"" + type + "\",\"seq\":" + seq + ",\"data\":" + json + "}";
+    }
+
+    private final class Room {
+        final List<Connection> connections = new CopyOnWriteArrayList<>();
+        final Map<UUID, VoteResultDTO> pendingVotes = new ConcurrentHashMap<>();
+        final AtomicLong sequence = new AtomicLong();
+
+        void multicast(String frame) {
+            for (Connection connection : connections) {
+                connection.offer(frame);
+            }
+            framesCounter.increment();
+        }
+    }
+
+    private final class Connection {
+        final UUID topicId;
+        final Session session;
+        final ConcurrentLinkedQueue<String> outbox = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean sending = new AtomicBoolean();
+        final AtomicBoolean detached = new AtomicBoolean();
+
+        Connection(UUID topicId, Session session) {
+            this.topicId = topicId;
+            this.session = session;
+        }
+
+        void offer(String frame) {
+            if (detached.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > bufferSize) {
+                queued.decrementAndGet();
+                disconnectedCounter.increment();
+                close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too slow"));
+                return;
+            }
+            outbox.add(frame);
+            pump();
+        }
+
+        // One asynchronous send at a time; the completion handler sends the next frame
+        void pump() {
+            while (!detached.get() && !outbox.isEmpty() && sending.compareAndSet(false, true)) {
+                String frame = outbox.poll();
+                if (frame == null) {
+                    sending.set(false);
+                    continue; // re-check: a frame may have been added after the poll
+                }
+                try {
+                    session.getAsyncRemote().sendText(frame, result -> {
+                        queued.decrementAndGet();
+                        sending.set(false);
+                        if (result.isOK()) {
+                            pump();
+                        } else {
+                            disconnectedCounter.increment();
+                            close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Send failed"));
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    // Session already closed
+                    sending.set(false);
+                    close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Closed"));
+                }
+                return;
+            }
+        }
+
+        void close(CloseReason reason) {
+            detach();
+            connections.remove(session.getId(), this);
+            try {
+                if (session.isOpen()) {
+                    session.close(reason);
+                }
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Closing live socket of topic {} failed: {}", topicId, e.getMessage());
+            }
+        }
+
+        void detach() {
+            if (!detached.compareAndSet(false, true)) {
+                return;
+            }
+            sessionCount.decrementAndGet();
+            outbox.clear();
+            rooms.computeIfPresent(topicId, (id, room) -> {
+                room.connections.remove(this);
+                return room.connections.isEmpty() ? null : room;
+            });
+        }
+    }
+}
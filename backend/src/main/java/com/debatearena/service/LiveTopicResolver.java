@@ -0,0 +1,82 @@
+package com.debatearena.service;
+
+import com.debatearena.event.LiveDebateEvent;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * =====================================================================
+ * Live Topic Resolver
+ * =====================================================================
+ *
+ * Finds the topic of a LiveDebateEvent that was published without one
+ * (votes and reply changes only know their question or reply).
+ *
+ * A question never moves to another topic and a reply never moves to
+ * another question, so lookups are cached without invalidation (a deleted
+ * item's entry is simply never asked for again). Each cache is cleared when
+ * it reaches cache-size, which keeps memory bounded without bookkeeping.
+ * Hot items (replies being voted on during a live debate) are back in the
+ * cache after one query.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class LiveTopicResolver {
+
+    private final QuestionRepository questionRepository;
+    private final ReplyRepository replyRepository;
+    private final int cacheSize;
+
+    private final Map<UUID, UUID> topicByQuestion = new ConcurrentHashMap<>();
+    private final Map<UUID, UUID> questionByReply = new ConcurrentHashMap<>();
+
+    public LiveTopicResolver(
+            QuestionRepository questionRepository,
+            ReplyRepository replyRepository,
+            @Value("${live.resolver-cache-size:100000}") int cacheSize) {
+        this.questionRepository = questionRepository;
+        this.replyRepository = replyRepository;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Topic of the change: from the event, else from its question, else from its reply's question
+     *
+     * @return The topic id, or null if the question or reply no longer exists
+     */
+    public UUID resolve(LiveDebateEvent event) {
+        if (event.topicId() != null) {
+            return event.topicId();
+        }
+        UUID questionId = event.questionId();
+        if (questionId == null && event.replyId() != null) {
+            questionId = lookup(questionByReply, event.replyId(), id -> replyRepository.findRootQuestionId(id).orElse(null));
+        }
+        return questionId != null
+                ? lookup(topicByQuestion, questionId, id -> questionRepository.findTopicId(id).orElse(null))
+                : null;
+    }
+
+    private UUID lookup(Map<UUID, UUID> cache, UUID key, Function<UUID, UUID> loader) {
+        UUID cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        UUID loaded = loader.apply(key);
+        if (loaded != null) {
+            if (cache.size() >= cacheSize) {
+                cache.clear();
+            }
+            cache.put(key, loaded);
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,270 @@
+package com.debatearena.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Pattern;
+
+/**
+ * =====================================================================
+ * Local Download Service
+ * =====================================================================
+ *
+ * Serves files of the local provider (file.provider=local), and local copies
+ * of remote ones (see RemoteFileCache), straight to the servlet response:
+ * - Content-Type from the attachment's fileType (no probing of the disk)
+ * - strong ETag (the content hash when known, else size and modification
+ *   time) with If-None-Match / If-Modified-Since answered by 304
+ * - a single byte range (Range, honoured only while If-Range still matches)
+ *   answered by 206, or 416 when it lies past the end, so audio and video
+ *   can seek
+ * - Cache-Control for a year on keys that never change content (UUID or
+ *   SHA-256 names and their image variants), no-cache on anything else
+ * - zero-copy body: Tomcat's sendfile when the connector offers it,
+ *   otherwise FileChannel.transferTo into the response
+ *
+ * Multiple ranges in one request are not supported; the whole file is
+ * sent instead, which HTTP allows.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class LocalDownloadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalDownloadService.class);
+
+    // Names written once and never rewritten: {uuid|sha256}[_w{width}].{ext}
+    private static final Pattern IMMUTABLE_NAME = Pattern.compile(
+            "(?i)([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}|[0-9a-f]{64})(_w\\d+)?(\\.[a-z0-9]+)?");
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Marks a Range that cannot be satisfied (416); null means "no usable Range, send everything"
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    // Request attributes of Tomcat's sendfile support (see its DefaultServlet)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Write a local file (or the requested part of it, or a 304/416) to the response
+     *
+     * @param file         The file on disk
+     * @param storageKey   Its storage key (decides whether it may be cached for good)
+     * @param contentType  Stored content type (null or invalid: application/octet-stream)
+     * @param downloadName File name offered to the client (null: none)
+     * @param contentHash  SHA-256 of the content when known (used as the ETag)
+     * @return false when the file does not exist (nothing written)
+     */
+    public boolean serve(HttpServletRequest request, HttpServletResponse response, Path file, String storageKey,
+                         String contentType, String downloadName, String contentHash) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (!attributes.isRegularFile()) {
+            return false;
+        }
+        long length = attributes.size();
+        // HTTP dates have whole seconds
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag = contentHash != null
+                ? "\"" + contentHash + "\""
+                : "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, isImmutable(storageKey) ? IMMUTABLE_CACHE_CONTROL : "no-cache");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+
+        response.setContentType(mediaType(contentType));
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (downloadName != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(downloadName, StandardCharsets.UTF_8).build().toString());
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, lastModified)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == UNSATISFIABLE) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setContentLength(0);
+                return true;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count == 0 || "HEAD".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sends the file with sendfile(2) once the request returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return true;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break; // file shrank underneath us
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (IOException e) {
+            // Mostly clients going away mid-download (seeking, closing the tab); the response is committed
+            logger.debug("Download of {} stopped: {}", storageKey, e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Whether a storage key names content that never changes
+     */
+    static boolean isImmutable(String storageKey) {
+        if (storageKey == null) {
+            return false;
+        }
+        String name = storageKey.substring(storageKey.lastIndexOf('/') + 1);
+        return IMMUTABLE_NAME.matcher(name).matches();
+    }
+
+    /**
+     * Parse a single "bytes=start-end", "bytes=start-" or "bytes=-suffix" range
+     *
+     * @return {start, end} (inclusive), UNSATISFIABLE, or null when the header
+     *         is malformed or asks for several ranges (ignored, as HTTP allows)
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Last n bytes
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, Math.min(end, length - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // Weak comparison: W/"x" matches "x"
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || stripWeak(tag).equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Strong comparison: a weak tag never matches
+            return ifRange.equals(etag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && date == lastModified;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static String mediaType(String contentType) {
+        if (contentType != null && !contentType.isBlank()) {
+            try {
+                return MediaType.parseMediaType(contentType).toString();
+            } catch (Exception e) {
+                // Not a valid type (client-supplied): fall through
+            }
+        }
+        return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+}
@@ -4,15 +4,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * =====================================================================
@@ -27,6 +37,7 @@ import java.util.UUID;
  * - Files are accessible via HTTP at /api/v1/files/{filename}
  * - NOT suitable for production (use S3 or Cloudinary instead)
  * - No redundancy or backup
+ * - Uploads in parts keep their parts in ./uploads/.parts/{uploadId}/
  *
  * @author TarkVtark Team
  */
@@ -36,6 +47,9 @@ public class LocalFileStorageService implements FileStorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(LocalFileStorageService.class);
 
+    // Parts of unfinished uploads, under upload-dir
+    private static final String PARTS_DIR = ".parts";
+
     @Value("${file.upload-dir:./uploads}")
     private String uploadDir;
 
@@ -50,9 +64,24 @@ public class LocalFileStorageService implements FileStorageService {
 
     /**
      * Upload a file to local storage
+     *
+     * A multipart file is moved into place (transferTo renames the container's
+     * temp file when it is on the same file system); other sources are copied.
      */
     @Override
-    public String uploadFile(MultipartFile file, String folder) throws IOException {
+    public String uploadStream(InputStreamSource content, long contentLength, String originalFilename,
+                               String contentType, String folder) throws IOException {
+        // Generate unique filename preserving extension
+        String fileExtension = "";
+        if (originalFilename != null && originalFilename.contains(".")) {
+            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        }
+        return uploadStreamAs(content, contentLength, UUID.randomUUID().toString() + fileExtension, contentType, folder);
+    }
+
+    @Override
+    public String uploadStreamAs(InputStreamSource content, long contentLength, String name,
+                                 String contentType, String folder) throws IOException {
         // Create uploads directory if it doesn't exist
         Path uploadPath = Paths.get(uploadDir);
         if (!Files.exists(uploadPath)) {
@@ -67,28 +96,178 @@ public class LocalFileStorageService implements FileStorageService {
             Files.createDirectories(destFolder);
         }
 
-        // Generate unique filename preserving extension
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        }
-
-        String fileName = UUID.randomUUID().toString() + fileExtension;
         // Ensure filename is safe
-        fileName = fileName.replaceAll("[^a-zA-Z0-9._-]", "_");
+        String fileName = name.replaceAll("[^a-zA-Z0-9._-]", "_");
 
         // Save file
         Path filePath = destFolder.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        if (content instanceof MultipartFile multipartFile) {
+            multipartFile.transferTo(filePath);
+        } else {
+            try (InputStream in = content.getInputStream()) {
+                Files.copy(in, filePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
 
-        logger.info("File uploaded successfully: {} ({} bytes)", filePath.toAbsolutePath(), file.getSize());
+        logger.info("File uploaded successfully: {} ({} bytes)", filePath.toAbsolutePath(), contentLength);
 
         // Construct the storage key relative to uploadDir (e.g., attachments/uuid.png or uuid.png)
         String storageKey = (safeFolder.isEmpty() ? "" : safeFolder + "/") + fileName;
         return storageKey;
     }
 
+    @Override
+    public boolean supportsMultipartUpload() {
+        return true;
+    }
+
+    /**
+     * Start an upload in parts: parts are kept as files in
+     * {upload-dir}/.parts/{uploadId}/ until the upload completes
+     */
+    @Override
+    public MultipartUpload startMultipartUpload(String originalFilename, String contentType, String folder)
+            throws IOException {
+        String uploadId = UUID.randomUUID().toString();
+        Files.createDirectories(partsDir(uploadId));
+
+        String safeFolder = (folder == null || folder.isBlank()) ? "" : folder.replaceAll("[^a-zA-Z0-9/_-]", "_");
+        String fileExtension = "";
+        if (originalFilename != null && originalFilename.contains(".")) {
+            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        }
+        String fileName = (UUID.randomUUID().toString() + fileExtension).replaceAll("[^a-zA-Z0-9._-]", "_");
+        String storageKey = (safeFolder.isEmpty() ? "" : safeFolder + "/") + fileName;
+
+        logger.info("Started upload in parts: {} ({})", storageKey, uploadId);
+        return new MultipartUpload(storageKey, uploadId);
+    }
+
+    /**
+     * Store one part file (written to a temp file and renamed, so a part that
+     * fails halfway never replaces a complete copy). The ETag is the part's MD5,
+     * recorded next to it ({partNumber}.md5) for completeMultipartUpload.
+     */
+    @Override
+    public String uploadPart(MultipartUpload upload, int partNumber, InputStreamSource content, long contentLength)
+            throws IOException {
+        Path dir = partsDir(upload.uploadId());
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("Upload not found: " + upload.uploadId());
+        }
+
+        Path temp = dir.resolve(partNumber + "." + UUID.randomUUID() + ".tmp");
+        MessageDigest md5 = md5();
+        try (InputStream in = new DigestInputStream(content.getInputStream(), md5)) {
+            long written = Files.copy(in, temp);
+            if (written != contentLength) {
+                throw new IOException("Part " + partNumber + " has " + written + " bytes, expected " + contentLength);
+            }
+            Files.move(temp, dir.resolve(String.valueOf(partNumber)),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        // Written after the part, so a part replaced meanwhile shows up as a mismatch, never as a match
+        String etag = HexFormat.of().formatHex(md5.digest());
+        Path etagTemp = dir.resolve(partNumber + ".md5." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.writeString(etagTemp, etag);
+            Files.move(etagTemp, etagPath(dir, partNumber),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(etagTemp);
+        }
+        return etag;
+    }
+
+    /**
+     * Join the part files into the final file (channel to channel, no copy
+     * through the heap) and remove them. Like S3, every part must be there
+     * with the ETag the client got for it; a stale or replaced part is rejected.
+     */
+    @Override
+    public String completeMultipartUpload(MultipartUpload upload, List<String> partETags) throws IOException {
+        Path dir = partsDir(upload.uploadId());
+        for (int partNumber = 1; partNumber <= partETags.size(); partNumber++) {
+            Path etagPath = etagPath(dir, partNumber);
+            if (!Files.exists(dir.resolve(String.valueOf(partNumber))) || !Files.exists(etagPath)) {
+                throw new IOException("Part " + partNumber + " is missing");
+            }
+            String expected = partETags.get(partNumber - 1);
+            String recorded = Files.readString(etagPath).trim();
+            if (expected == null || !recorded.equalsIgnoreCase(expected.replace("\"", "").trim())) {
+                throw new IOException("Part " + partNumber + " does not match its ETag");
+            }
+        }
+
+        Path filePath = Paths.get(uploadDir).resolve(upload.key()).normalize();
+        Files.createDirectories(filePath.getParent());
+
+        try (FileChannel out = FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            for (int partNumber = 1; partNumber <= partETags.size(); partNumber++) {
+                Path part = dir.resolve(String.valueOf(partNumber));
+                if (!Files.exists(part)) {
+                    throw new IOException("Part " + partNumber + " is missing");
+                }
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(filePath);
+            throw e;
+        }
+
+        deleteParts(dir);
+        logger.info("Upload in parts completed: {} ({} parts, {} bytes)",
+                filePath.toAbsolutePath(), partETags.size(), Files.size(filePath));
+        return upload.key();
+    }
+
+    /**
+     * Remove the part files of an unfinished upload
+     */
+    @Override
+    public void abortMultipartUpload(MultipartUpload upload) throws IOException {
+        deleteParts(partsDir(upload.uploadId()));
+        logger.info("Upload in parts aborted: {}", upload.key());
+    }
+
+    // uploadId is a UUID we generated; parsing it keeps it from naming any other directory
+    private Path partsDir(String uploadId) {
+        return Paths.get(uploadDir).resolve(PARTS_DIR).resolve(UUID.fromString(uploadId).toString());
+    }
+
+    private static Path etagPath(Path dir, int partNumber) {
+        return dir.resolve(partNumber + ".md5");
+    }
+
+    private static void deleteParts(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> parts = Files.list(dir)) {
+            for (Path part : (Iterable<Path>) parts::iterator) {
+                Files.deleteIfExists(part);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Delete a file from local storage
      */
@@ -0,0 +1,257 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.PresignedUrlDTO;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.Question;
+import com.debatearena.model.Reply;
+import com.debatearena.repository.AttachmentRepository;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import com.debatearena.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Presigned Upload Service
+ * =====================================================================
+ *
+ * Uploads and downloads that go straight between the client and the
+ * bucket (S3/R2), so the backend only handles metadata:
+ *
+ * 1. issueUpload: checks the file like POST /files/upload does and returns
+ *    a presigned PUT URL (bound to the key, size and content type) plus a
+ *    signed ticket describing the upload
+ * 2. the client PUTs the file to the bucket
+ * 3. complete: the client sends the ticket back; the object's size is
+ *    checked with a HEAD request and the attachment is created. Sending
+ *    the same ticket again returns the same attachment.
+ *
+ * The ticket is what makes this safe without server-side state: the client
+ * cannot change the target, size or key after the URL was issued.
+ *
+ * Downloads: presigned GET URLs (file.presign.downloads also makes the
+ * download endpoints redirect to them, for private buckets).
+ *
+ * Objects that are uploaded but never completed stay in the bucket; a
+ * lifecycle rule on the attachments/ prefix removes them.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class PresignedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresignedUploadService.class);
+
+    // How long after the URL expires the ticket can still be completed (slow uploads)
+    private static final long TICKET_GRACE_MS = 3_600_000;
+
+    private final FileStorageService fileStorageService;
+    private final AttachmentRepository attachmentRepository;
+    private final QuestionRepository questionRepository;
+    private final ReplyRepository replyRepository;
+    private final DebateCounterService debateCounterService;
+    private final JwtUtil jwtUtil;
+    private final long uploadTtlMs;
+    private final long downloadTtlMs;
+    private final boolean presignDownloads;
+    private final long maxSize;
+
+    public PresignedUploadService(
+            FileStorageService fileStorageService,
+            AttachmentRepository attachmentRepository,
+            QuestionRepository questionRepository,
+            ReplyRepository replyRepository,
+            DebateCounterService debateCounterService,
+            JwtUtil jwtUtil,
+            @Value("${file.presign.upload-ttl-ms:900000}") long uploadTtlMs,
+            @Value("${file.presign.download-ttl-ms:300000}") long downloadTtlMs,
+            @Value("${file.presign.downloads:false}") boolean presignDownloads,
+            @Value("${file.presign.max-size:1073741824}") long maxSize) {
+        this.fileStorageService = fileStorageService;
+        this.attachmentRepository = attachmentRepository;
+        this.questionRepository = questionRepository;
+        this.replyRepository = replyRepository;
+        this.debateCounterService = debateCounterService;
+        this.jwtUtil = jwtUtil;
+        this.uploadTtlMs = uploadTtlMs;
+        this.downloadTtlMs = downloadTtlMs;
+        this.presignDownloads = presignDownloads;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Presigned PUT URL and ticket for a new attachment
+     *
+     * @param fileName    Name of the file
+     * @param fileSize    Exact size in bytes (the bucket rejects any other size)
+     * @param contentType MIME type (optional; the PUT must send the same)
+     * @param questionId  Question the attachment goes to (or null)
+     * @param replyId     Reply the attachment goes to (or null)
+     * @param uploadedBy  Name of uploader (optional)
+     * @throws IllegalArgumentException if the size or target is invalid
+     * @throws UnsupportedOperationException if the storage provider cannot presign
+     */
+    public PresignedUrlDTO issueUpload(String fileName, long fileSize, String contentType,
+                                       UUID questionId, UUID replyId, String uploadedBy) {
+        checkSupported();
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        if (fileSize <= 0 || fileSize > maxSize) {
+            throw new IllegalArgumentException("File size must be between 1 and " + maxSize + " bytes");
+        }
+        if ((questionId == null) == (replyId == null)) {
+            throw new IllegalArgumentException("Exactly one of questionId or replyId must be provided");
+        }
+        if (questionId != null && !questionRepository.existsById(questionId)) {
+            throw new IllegalArgumentException("Question not found: " + questionId);
+        }
+        if (replyId != null && !replyRepository.existsById(replyId)) {
+            throw new IllegalArgumentException("Reply not found: " + replyId);
+        }
+        String fileType = contentType != null && !contentType.isBlank() ? contentType : "application/octet-stream";
+
+        FileStorageService.PresignedUpload upload = fileStorageService.presignUpload(
+                fileName, fileType, fileSize, "attachments", Duration.ofMillis(uploadTtlMs));
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("key", upload.key());
+        claims.put("fileUrl", upload.fileUrl());
+        claims.put("provider", fileStorageService.getProviderName());
+        claims.put("fileName", fileName);
+        claims.put("fileSize", fileSize);
+        claims.put("fileType", fileType);
+        claims.put("questionId", questionId != null ? questionId.toString() : null);
+        claims.put("replyId", replyId != null ? replyId.toString() : null);
+        claims.put("uploadedBy", uploadedBy != null ? uploadedBy : "Anonymous");
+        String ticket = jwtUtil.generateUploadTicket(claims, uploadTtlMs + TICKET_GRACE_MS);
+
+        logger.info("Presigned upload issued: {} ({} bytes) -> {}", fileName, fileSize, upload.key());
+        return new PresignedUrlDTO("PUT", upload.url(), upload.headers(), upload.key(),
+                LocalDateTime.ofInstant(upload.expiresAt(), ZoneId.systemDefault()), ticket);
+    }
+
+    /**
+     * Create the attachment for an object the client has uploaded
+     *
+     * @param ticket Ticket from issueUpload
+     * @return The attachment (the existing one if this ticket was completed before)
+     * @throws IllegalArgumentException if the ticket is invalid or expired
+     * @throws IllegalStateException if the object is missing or has the wrong size,
+     *                               or the question/reply was deleted meanwhile
+     */
+    public Attachment complete(String ticket) throws IOException {
+        Claims claims;
+        try {
+            claims = jwtUtil.parseUploadTicket(ticket);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid or expired upload ticket");
+        }
+        String key = claims.get("key", String.class);
+        String fileUrl = claims.get("fileUrl", String.class);
+        long fileSize = claims.get("fileSize", Number.class).longValue();
+        if (!fileStorageService.getProviderName().equals(claims.get("provider", String.class))) {
+            throw new IllegalStateException("Upload was issued for another storage provider");
+        }
+
+        Attachment existing = attachmentRepository.findFirstByStorageKey(Attachment.storageKeyOf(fileUrl));
+        if (existing != null) {
+            return existing;
+        }
+
+        Optional<Long> stored = fileStorageService.storedSize(key);
+        if (stored.isEmpty()) {
+            throw new IllegalStateException("File has not been uploaded yet");
+        }
+        if (stored.get() != fileSize) {
+            throw new IllegalStateException("Uploaded file is " + stored.get() + " bytes, expected " + fileSize);
+        }
+
+        Attachment attachment = new Attachment();
+        String questionId = claims.get("questionId", String.class);
+        String replyId = claims.get("replyId", String.class);
+        if (questionId != null) {
+            Question question = questionRepository.findById(UUID.fromString(questionId))
+                    .orElseThrow(() -> new IllegalStateException("Question not found: " + questionId));
+            attachment.setQuestion(question);
+        } else {
+            Reply reply = replyRepository.findById(UUID.fromString(replyId))
+                    .orElseThrow(() -> new IllegalStateException("Reply not found: " + replyId));
+            attachment.setReply(reply);
+        }
+        attachment.setFileName(claims.get("fileName", String.class));
+        attachment.setFileSize(fileSize);
+        attachment.setFileType(claims.get("fileType", String.class));
+        attachment.setStorageUrl(fileUrl);
+        attachment.setStorageProvider(fileStorageService.getProviderName());
+        attachment.setUploadedBy(claims.get("uploadedBy", String.class));
+
+        Attachment saved;
+        try {
+            saved = debateCounterService.createAttachment(attachment);
+        } catch (DataIntegrityViolationException e) {
+            // Completed twice at once: the unique storage key let only one through
+            Attachment other = attachmentRepository.findFirstByStorageKey(Attachment.storageKeyOf(fileUrl));
+            if (other == null) {
+                throw e;
+            }
+            return other;
+        }
+        logger.info("Presigned upload completed: {} ({} bytes, attachment {})",
+                saved.getFileName(), fileSize, saved.getId());
+        return saved;
+    }
+
+    /**
+     * Presigned GET URL for an attachment
+     *
+     * @return The URL, or empty if the attachment does not exist or is not stored yet
+     * @throws UnsupportedOperationException if the storage provider cannot presign
+     */
+    public Optional<PresignedUrlDTO> downloadUrl(UUID attachmentId) {
+        checkSupported();
+        return attachmentRepository.findById(attachmentId)
+                .filter(attachment -> attachment.getStorageUrl() != null)
+                .map(attachment -> {
+                    FileStorageService.PresignedUrl url = fileStorageService.presignDownload(
+                            attachment.getStorageUrl(), attachment.getFileName(), Duration.ofMillis(downloadTtlMs));
+                    return new PresignedUrlDTO("GET", url.url(), new LinkedHashMap<>(), null,
+                            LocalDateTime.ofInstant(url.expiresAt(), ZoneId.systemDefault()), null);
+                });
+    }
+
+    /**
+     * Where the download endpoints send the client for a remote attachment:
+     * a presigned GET URL with file.presign.downloads, else its stored URL
+     */
+    public String redirectUrl(String storageProvider, String storageUrl, String fileName) {
+        if (presignDownloads && fileStorageService.supportsPresignedUrls()
+                && storageProvider != null
+                && storageProvider.equals(fileStorageService.getProviderName())) {
+            return fileStorageService.presignDownload(storageUrl, fileName, Duration.ofMillis(downloadTtlMs)).url();
+        }
+        return storageUrl;
+    }
+
+    private void checkSupported() {
+        if (!fileStorageService.supportsPresignedUrls()) {
+            throw new UnsupportedOperationException(
+                    "Presigned URLs are not supported by " + fileStorageService.getProviderName() + "; use POST /files/upload");
+        }
+    }
+}
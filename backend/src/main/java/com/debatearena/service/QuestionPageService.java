@@ -0,0 +1,197 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.QuestionDTO;
+import com.debatearena.dto.QuestionPageDTO;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.EvidenceUrl;
+import com.debatearena.model.Question;
+import com.debatearena.model.Reply;
+import com.debatearena.repository.AttachmentRepository;
+import com.debatearena.repository.EvidenceUrlRepository;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Question Page Service
+ * =====================================================================
+ *
+ * Keyset-paginated listing of a topic's questions, so the first paint
+ * needs one small page instead of the whole debate tree.
+ *
+ * Sort orders (each with the question id as tie-breaker):
+ * - newest:       created_at DESC
+ * - top:          votes_up - votes_down DESC
+ * - most-replied: replies at all nesting levels DESC (questions.descendant_count)
+ *
+ * The cursor encodes the sort key and id of the last question on a page,
+ * so the next page is a plain index range scan ("after this row") rather
+ * than an OFFSET that re-reads every skipped row.
+ *
+ * Every page is loaded in a fixed number of queries: questions, reply
+ * previews, attachments and evidence URLs. Reply counts are maintained
+ * columns on the question rows (see DebateCounterService).
+ *
+ * @author TarkVtark Team
+ */
+@Service
+@RequiredArgsConstructor
+public class QuestionPageService {
+
+    // First-page cursor: above every real sort key
+    private static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final UUID MAX_ID = new UUID(-1L, -1L);
+
+    private final QuestionRepository questionRepository;
+    private final ReplyRepository replyRepository;
+    private final AttachmentRepository attachmentRepository;
+    private final EvidenceUrlRepository evidenceUrlRepository;
+
+    @Value("${questions.page.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${questions.page.max-preview-replies:20}")
+    private int maxPreviewReplies;
+
+    /**
+     * Sort orders supported by the paginated listing
+     */
+    public enum Sort {
+        NEWEST("newest"),
+        TOP("top"),
+        MOST_REPLIED("most-replied");
+
+        private final String param;
+
+        Sort(String param) {
+            this.param = param;
+        }
+
+        public String getParam() {
+            return param;
+        }
+
+        public static Sort fromParam(String value) {
+            for (Sort sort : values()) {
+                if (sort.param.equalsIgnoreCase(value)) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("Unknown sort: " + value + " (use newest, top or most-replied)");
+        }
+    }
+
+    /**
+     * Load one page of a topic's questions
+     *
+     * @param topicId UUID of the debate topic
+     * @param sort Sort order
+     * @param limit Page size (clamped to 1..questions.page.max-size)
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param previewReplies Number of direct replies to include per question
+     * @return The page (IllegalArgumentException if the cursor is malformed)
+     */
+    @Transactional(readOnly = true)
+    public QuestionPageDTO loadPage(UUID topicId, Sort sort, int limit, String cursor, int previewReplies) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        int previewSize = Math.max(0, Math.min(previewReplies, maxPreviewReplies));
+        String[] position = decodeCursor(cursor);
+
+        // Fetch one extra row to know whether another page follows
+        List<Question> questions;
+        try {
+            questions = fetchQuestions(topicId, sort, position, pageSize + 1);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+
+        boolean hasMore = questions.size() > pageSize;
+        if (hasMore) {
+            questions = questions.subList(0, pageSize);
+        }
+
+        QuestionPageDTO page = new QuestionPageDTO();
+        page.setSort(sort.getParam());
+        page.setLimit(pageSize);
+        page.setHasMore(hasMore);
+        if (questions.isEmpty()) {
+            return page;
+        }
+
+        List<UUID> questionIds = questions.stream().map(Question::getId).toList();
+
+        List<Reply> previews = previewSize > 0
+                ? replyRepository.findPreviewByQuestionIds(questionIds, previewSize)
+                : new ArrayList<>();
+        List<UUID> previewIds = previews.stream().map(Reply::getId).toList();
+
+        List<Attachment> attachments = attachmentRepository.findByQuestionIdsOrReplyIds(questionIds, previewIds);
+        List<EvidenceUrl> evidenceUrls = evidenceUrlRepository.findByQuestionIdsOrReplyIds(questionIds, previewIds);
+
+        List<QuestionDTO> items = DebateTreeService.assemble(questions, previews, attachments, evidenceUrls);
+        page.setItems(items);
+
+        if (hasMore) {
+            page.setNextCursor(encodeCursor(sort, items.get(items.size() - 1)));
+        }
+        return page;
+    }
+
+    private List<Question> fetchQuestions(UUID topicId, Sort sort, String[] position, int limit) {
+        UUID cursorId = position == null ? MAX_ID : UUID.fromString(position[1]);
+        return switch (sort) {
+            case NEWEST -> questionRepository.findPageNewest(topicId,
+                    position == null ? MAX_CREATED_AT : LocalDateTime.parse(position[0]), cursorId, limit);
+            case TOP -> questionRepository.findPageTop(topicId,
+                    position == null ? Long.MAX_VALUE : Long.parseLong(position[0]), cursorId, limit);
+            case MOST_REPLIED -> questionRepository.findPageMostReplied(topicId,
+                    position == null ? Long.MAX_VALUE : Long.parseLong(position[0]), cursorId, limit);
+        };
+    }
+
+    private static String encodeCursor(Sort sort, QuestionDTO last) {
+        String key = switch (sort) {
+            case NEWEST -> last.getCreatedAt().toString();
+            case TOP -> String.valueOf(zeroIfNull(last.getVotesUp()) - zeroIfNull(last.getVotesDown()));
+            case MOST_REPLIED -> String.valueOf(last.getReplyCount());
+        };
+        String raw = key + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return [sortKey, id] or null for the first page
+     */
+    private static String[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        String[] parts = raw.split("\\|", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return parts;
+    }
+
+    private static int zeroIfNull(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
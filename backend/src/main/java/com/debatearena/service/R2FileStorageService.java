@@ -1,24 +1,50 @@
 package com.debatearena.service;
 
 // ...existing imports...
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
 import software.amazon.awssdk.services.s3.model.ObjectCannedACL;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -45,40 +71,171 @@ public class R2FileStorageService implements FileStorageService {
 
     private S3Client s3;
 
+    private S3Presigner presigner;
+
+    @Autowired
+    private StorageCallLimiter storageCallLimiter;
+
     @PostConstruct
     public void init() {
         AwsBasicCredentials creds = AwsBasicCredentials.create(accessKey, secretKey);
         S3ClientBuilder b = S3Client.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(creds))
                 .region(Region.of(regionName));
+        S3Presigner.Builder p = S3Presigner.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(creds))
+                .region(Region.of(regionName));
 
         if (endpoint != null && !endpoint.isBlank()) {
             b.endpointOverride(URI.create(endpoint));
+            p.endpointOverride(URI.create(endpoint));
         }
 
         this.s3 = b.build();
+        this.presigner = p.build();
     }
 
     @Override
-    public String uploadFile(MultipartFile file, String customFileName) throws IOException {
-        String originalFilename = file.getOriginalFilename();
-        String ext = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            ext = originalFilename.substring(originalFilename.lastIndexOf("."));
-        }
+    public String uploadStream(InputStreamSource content, long contentLength, String originalFilename,
+                               String contentType, String folder) throws IOException {
+        return uploadStreamAs(content, contentLength, newName(originalFilename), contentType, folder);
+    }
 
-        String key = (customFileName != null ? customFileName : UUID.randomUUID().toString()) + ext;
-        key = key.replaceAll("[^a-zA-Z0-9._-]", "_");
+    @Override
+    public String uploadStreamAs(InputStreamSource content, long contentLength, String name,
+                                 String contentType, String folder) throws IOException {
+        String key = key(name, folder);
 
         PutObjectRequest putReq = PutObjectRequest.builder()
                 .bucket(bucket)
                 .key(key)
                 .acl(ObjectCannedACL.PUBLIC_READ)
-                .contentType(file.getContentType() != null ? file.getContentType() : "application/octet-stream")
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .build();
+
+        // Streamed from the source; the SDK keeps at most 128 KB for retries
+        storageCallLimiter.acquire();
+        try (InputStream in = content.getInputStream()) {
+            s3.putObject(putReq, RequestBody.fromInputStream(in, contentLength));
+        } finally {
+            storageCallLimiter.release();
+        }
+
+        return publicUrl(key);
+    }
+
+    @Override
+    public boolean supportsMultipartUpload() {
+        return true;
+    }
+
+    @Override
+    public MultipartUpload startMultipartUpload(String originalFilename, String contentType, String folder)
+            throws IOException {
+        String key = newKey(originalFilename, folder);
+
+        CreateMultipartUploadRequest req = CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .acl(ObjectCannedACL.PUBLIC_READ)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .build();
+
+        storageCallLimiter.acquire();
+        try {
+            return new MultipartUpload(key, s3.createMultipartUpload(req).uploadId());
+        } catch (SdkException e) {
+            throw new IOException("Starting R2 multipart upload failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
+    @Override
+    public String uploadPart(MultipartUpload upload, int partNumber, InputStreamSource content, long contentLength)
+            throws IOException {
+        UploadPartRequest req = UploadPartRequest.builder()
+                .bucket(bucket)
+                .key(upload.key())
+                .uploadId(upload.uploadId())
+                .partNumber(partNumber)
+                .contentLength(contentLength)
+                .build();
+
+        storageCallLimiter.acquire();
+        try (InputStream in = content.getInputStream()) {
+            return s3.uploadPart(req, RequestBody.fromInputStream(in, contentLength)).eTag();
+        } catch (SdkException e) {
+            throw new IOException("Uploading part " + partNumber + " to R2 failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
+    @Override
+    public String completeMultipartUpload(MultipartUpload upload, List<String> partETags) throws IOException {
+        List<CompletedPart> parts = new ArrayList<>(partETags.size());
+        for (int i = 0; i < partETags.size(); i++) {
+            parts.add(CompletedPart.builder().partNumber(i + 1).eTag(partETags.get(i)).build());
+        }
+        CompleteMultipartUploadRequest req = CompleteMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(upload.key())
+                .uploadId(upload.uploadId())
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
                 .build();
 
-        s3.putObject(putReq, RequestBody.fromBytes(file.getBytes()));
+        storageCallLimiter.acquire();
+        try {
+            s3.completeMultipartUpload(req);
+        } catch (SdkException e) {
+            throw new IOException("Completing R2 multipart upload failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+        return publicUrl(upload.key());
+    }
+
+    @Override
+    public void abortMultipartUpload(MultipartUpload upload) throws IOException {
+        AbortMultipartUploadRequest req = AbortMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(upload.key())
+                .uploadId(upload.uploadId())
+                .build();
+
+        storageCallLimiter.acquire();
+        try {
+            s3.abortMultipartUpload(req);
+        } catch (NoSuchUploadException e) {
+            // Already aborted or completed
+        } catch (SdkException e) {
+            throw new IOException("Aborting R2 multipart upload failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
+    // New UUID per object under the folder (e.g. attachments/uuid.png)
+    private String newKey(String originalFilename, String folder) {
+        return key(newName(originalFilename), folder);
+    }
+
+    private static String newName(String originalFilename) {
+        String ext = "";
+        if (originalFilename != null && originalFilename.contains(".")) {
+            ext = originalFilename.substring(originalFilename.lastIndexOf("."));
+        }
+        return UUID.randomUUID() + ext;
+    }
+
+    private static String key(String name, String folder) {
+        String fileName = name.replaceAll("[^a-zA-Z0-9._-]", "_");
+        String safeFolder = (folder == null || folder.isBlank()) ? "" : folder.replaceAll("[^a-zA-Z0-9/_-]", "_");
+        return safeFolder.isEmpty() ? fileName : safeFolder + "/" + fileName;
+    }
 
+    private String publicUrl(String key) {
         if (publicBaseUrl != null && !publicBaseUrl.isBlank()) {
             return String.format("%s/%s", publicBaseUrl.replaceAll("/$", ""), key);
         } else if (endpoint != null && !endpoint.isBlank()) {
@@ -88,8 +245,103 @@ public class R2FileStorageService implements FileStorageService {
         }
     }
 
+    @Override
+    public boolean supportsPresignedUrls() {
+        return true;
+    }
+
+    @Override
+    public PresignedUpload presignUpload(String originalFilename, String contentType, long contentLength,
+                                         String folder, Duration ttl) {
+        String key = newKey(originalFilename, folder);
+
+        // No ACL: R2 ignores it, public access is a bucket setting
+        PutObjectRequest putReq = PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .contentLength(contentLength)
+                .build();
+        PresignedPutObjectRequest presigned = presigner.presignPutObject(r -> r
+                .signatureDuration(ttl)
+                .putObjectRequest(putReq));
+
+        return new PresignedUpload(key, publicUrl(key), presigned.url().toString(),
+                requiredHeaders(presigned.signedHeaders()), presigned.expiration());
+    }
+
+    @Override
+    public PresignedUrl presignDownload(String fileUrl, String fileName, Duration ttl) {
+        GetObjectRequest getReq = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(keyFromUrl(fileUrl))
+                .responseContentDisposition(contentDisposition(fileName))
+                .build();
+        PresignedGetObjectRequest presigned = presigner.presignGetObject(r -> r
+                .signatureDuration(ttl)
+                .getObjectRequest(getReq));
+        return new PresignedUrl(presigned.url().toString(), presigned.expiration());
+    }
+
+    @Override
+    public Optional<Long> storedSize(String key) throws IOException {
+        storageCallLimiter.acquire();
+        try {
+            return Optional.of(s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build()).contentLength());
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("R2 HEAD failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
+    @Override
+    public boolean supportsDownload() {
+        return true;
+    }
+
+    @Override
+    public Optional<Long> downloadTo(String fileUrl, Path target) throws IOException {
+        storageCallLimiter.acquire();
+        try {
+            s3.getObject(GetObjectRequest.builder().bucket(bucket).key(keyFromUrl(fileUrl)).build(),
+                    ResponseTransformer.toFile(target));
+            return Optional.of(Files.size(target));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("R2 GET failed: " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("R2 GET failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
     @Override
     public void deleteFile(String fileUrl) throws IOException {
+        DeleteObjectRequest delReq = DeleteObjectRequest.builder()
+                .bucket(bucket)
+                .key(keyFromUrl(fileUrl))
+                .build();
+
+        storageCallLimiter.acquire();
+        try {
+            s3.deleteObject(delReq);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
+    private String keyFromUrl(String fileUrl) {
         String key = fileUrl;
 
         // If fileUrl looks like a full URL, extract the path and remove a leading bucket segment if present
@@ -109,13 +361,23 @@ public class R2FileStorageService implements FileStorageService {
         } catch (IllegalArgumentException ignored) {
             // not a URI, keep fileUrl as-is (assume it's already a key)
         }
+        return key;
+    }
 
-        DeleteObjectRequest delReq = DeleteObjectRequest.builder()
-                .bucket(bucket)
-                .key(key)
-                .build();
+    // Signed headers the client must send with the PUT (Host is set by the client itself)
+    private static Map<String, String> requiredHeaders(Map<String, List<String>> signedHeaders) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        signedHeaders.forEach((name, values) -> {
+            if (!"host".equalsIgnoreCase(name)) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return headers;
+    }
 
-        s3.deleteObject(delReq);
+    private static String contentDisposition(String fileName) {
+        String safeName = fileName == null ? "file" : fileName.replaceAll("[\\\\\"\\r\\n]", "_");
+        return "attachment; filename=\"" + safeName + "\"";
     }
 
     @Override
@@ -0,0 +1,358 @@
+package com.debatearena.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * =====================================================================
+ * Remote File Cache
+ * =====================================================================
+ *
+ * Read-through disk cache in front of S3/R2/Supabase (file.proxy.enabled):
+ * instead of redirecting to the bucket, the download endpoints serve
+ * attachments from this node (with ranges, ETags and sendfile, see
+ * LocalDownloadService), fetching each one from remote storage once.
+ *
+ * - The cache directory holds at most max-size bytes; least recently
+ *   used files are deleted first. Files served in the last few seconds
+ *   are kept (a response may still be reading them), so the directory
+ *   can briefly exceed the limit.
+ * - Files larger than max-file-size are not cached (still redirected).
+ * - Concurrent misses for the same file wait for a single fetch.
+ * - Cached files are named by the SHA-256 of their storage URL. Stored
+ *   URLs never change content (UUID or content-hash names), so entries
+ *   are never stale; deleted attachments are no longer looked up and
+ *   their copies age out.
+ * - The index lives in memory and is rebuilt from the directory at
+ *   startup (oldest file first), so the cache survives restarts.
+ *
+ * Image variants of remote attachments are still linked directly.
+ *
+ * Metrics: attachments.proxy-cache.hits, attachments.proxy-cache.fetches,
+ * attachments.proxy-cache.coalesced, attachments.proxy-cache.evictions,
+ * attachments.proxy-cache.size-bytes.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class RemoteFileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RemoteFileCache.class);
+
+    // Files fetched but not yet moved into place
+    private static final String TEMP_PREFIX = ".fetch-";
+
+    private final FileStorageService fileStorageService;
+    private final boolean enabled;
+    private final Path cacheDir;
+    private final long maxSize;
+    private final long maxFileSize;
+
+    // Files served this recently are not evicted
+    private final long evictionGraceMs;
+
+    // Access-ordered: iteration starts at the least recently used file
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+
+    // A lock rather than synchronized, so waiting virtual threads do not pin their carrier threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Fetches in progress, by cache name; later misses wait for them
+    private final Map<String, CompletableFuture<Optional<Path>>> fetches = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter fetchCounter;
+    private final Counter coalescedCounter;
+    private final Counter evictionCounter;
+
+    public RemoteFileCache(
+            FileStorageService fileStorageService,
+            MeterRegistry meterRegistry,
+            @Value("${file.proxy.enabled:false}") boolean enabled,
+            @Value("${file.proxy.cache-dir:./uploads/.cache}") String cacheDir,
+            @Value("${file.proxy.max-size:10737418240}") long maxSize,
+            @Value("${file.proxy.max-file-size:268435456}") long maxFileSize,
+            @Value("${file.proxy.eviction-grace-ms:30000}") long evictionGraceMs) {
+        this.fileStorageService = fileStorageService;
+        this.enabled = enabled;
+        this.cacheDir = Paths.get(cacheDir);
+        this.maxSize = maxSize;
+        this.maxFileSize = maxFileSize;
+        this.evictionGraceMs = evictionGraceMs;
+
+        Gauge.builder("attachments.proxy-cache.size-bytes", this, RemoteFileCache::size)
+                .description("Bytes of remote attachments cached on local disk")
+                .register(meterRegistry);
+        this.hitCounter = Counter.builder("attachments.proxy-cache.hits")
+                .description("Remote attachments served from local disk")
+                .register(meterRegistry);
+        this.fetchCounter = Counter.builder("attachments.proxy-cache.fetches")
+                .description("Remote attachments fetched from storage")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("attachments.proxy-cache.coalesced")
+                .description("Misses that waited for a fetch already in progress")
+                .register(meterRegistry);
+        this.evictionCounter = Counter.builder("attachments.proxy-cache.evictions")
+                .description("Cached files deleted to stay within max-size")
+                .register(meterRegistry);
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private final long size;
+        private long lastUsed;
+
+        Entry(Path file, long size, long lastUsed) {
+            this.file = file;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    /**
+     * Rebuild the index from the files left by the previous run
+     */
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheDir);
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> listing = Files.list(cacheDir)) {
+                listing.forEach(files::add);
+            }
+            List<Map.Entry<Path, BasicFileAttributes>> cached = new ArrayList<>();
+            for (Path file : files) {
+                if (file.getFileName().toString().startsWith(TEMP_PREFIX)) {
+                    Files.deleteIfExists(file);
+                } else {
+                    cached.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+                }
+            }
+            cached.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+            lock.lock();
+            try {
+                for (Map.Entry<Path, BasicFileAttributes> entry : cached) {
+                    if (entry.getValue().isRegularFile()) {
+                        add(entry.getKey().getFileName().toString(), entry.getKey(), entry.getValue().size(), 0);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            evictOverBudget();
+            logger.info("Remote file cache in {}: {} bytes", cacheDir.toAbsolutePath(), size());
+        } catch (IOException e) {
+            logger.error("Could not read remote file cache {}: {}", cacheDir.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Whether downloads of remote attachments are served through this cache
+     */
+    public boolean isEnabled() {
+        return enabled && fileStorageService.supportsDownload();
+    }
+
+    /**
+     * Whether a file of this size is cached (unknown sizes are)
+     */
+    public boolean accepts(Long fileSize) {
+        return fileSize == null || fileSize <= maxFileSize;
+    }
+
+    /**
+     * Local copy of a stored file, fetched from storage on a miss (once, however
+     * many requests miss at the same time)
+     *
+     * @param storageUrl URL of the file as stored on the attachment
+     * @return The cached file, or empty if the object does not exist in storage
+     * @throws IOException if it could not be fetched (also for the requests that waited)
+     */
+    public Optional<Path> fetch(String storageUrl) throws IOException {
+        String name = cacheName(storageUrl);
+        Path cached = hit(name);
+        if (cached != null) {
+            hitCounter.increment();
+            return Optional.of(cached);
+        }
+
+        CompletableFuture<Optional<Path>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<Path>> running = fetches.putIfAbsent(name, mine);
+        if (running != null) {
+            coalescedCounter.increment();
+            return await(running);
+        }
+        try {
+            // The previous fetch may have finished between the lookup and putIfAbsent
+            cached = hit(name);
+            Optional<Path> result = cached != null ? Optional.of(cached) : download(name, storageUrl);
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            fetches.remove(name, mine);
+        }
+    }
+
+    /**
+     * Forget a cached file that turned out to be gone from disk
+     */
+    public void discard(String storageUrl) {
+        lock.lock();
+        try {
+            Entry entry = entries.remove(cacheName(storageUrl));
+            if (entry != null) {
+                totalSize -= entry.size;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<Path> download(String name, String storageUrl) throws IOException {
+        Files.createDirectories(cacheDir);
+        Path temp = cacheDir.resolve(TEMP_PREFIX + UUID.randomUUID());
+        Path target = cacheDir.resolve(name);
+        fetchCounter.increment();
+        try {
+            Optional<Long> size = fileStorageService.downloadTo(storageUrl, temp);
+            if (size.isEmpty()) {
+                return Optional.empty();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lock.lock();
+            try {
+                add(name, target, size.get(), System.currentTimeMillis());
+            } finally {
+                lock.unlock();
+            }
+            logger.debug("Cached {} ({} bytes)", storageUrl, size.get());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evictOverBudget();
+        return Optional.of(target);
+    }
+
+    // Cached file marked as just used, or null
+    private Path hit(String name) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(name);
+            if (entry == null) {
+                return null;
+            }
+            entry.lastUsed = System.currentTimeMillis();
+            return entry.file;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Under the lock
+    private void add(String name, Path file, long size, long lastUsed) {
+        Entry previous = entries.put(name, new Entry(file, size, lastUsed));
+        if (previous != null) {
+            totalSize -= previous.size;
+        }
+        totalSize += size;
+    }
+
+    private void evictOverBudget() {
+        List<Path> victims = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<Entry> eldestFirst = entries.values().iterator();
+            while (totalSize > maxSize && eldestFirst.hasNext()) {
+                Entry eldest = eldestFirst.next();
+                if (now - eldest.lastUsed < evictionGraceMs) {
+                    break; // every other file was used even more recently
+                }
+                eldestFirst.remove();
+                totalSize -= eldest.size;
+                victims.add(eldest.file);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Path victim : victims) {
+            try {
+                Files.deleteIfExists(victim);
+                evictionCounter.increment();
+            } catch (IOException e) {
+                logger.warn("Could not delete cached file {}: {}", victim, e.getMessage());
+            }
+        }
+    }
+
+    private static Optional<Path> await(CompletableFuture<Optional<Path>> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a fetch");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Fetch failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static String cacheName(String storageUrl) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(storageUrl.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private long size() {
+        lock.lock();
+        try {
+            return totalSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
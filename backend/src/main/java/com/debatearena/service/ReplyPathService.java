@@ -0,0 +1,235 @@
+package com.debatearena.service;
+
+import com.debatearena.model.Reply;
+import com.debatearena.repository.ReplyRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Reply Path Service
+ * =====================================================================
+ *
+ * Maintains the materialized path of every reply, so threads can be read,
+ * counted and deleted with one indexed range scan instead of recursion.
+ *
+ * Path layout (lowercase hex, "/" separated):
+ *   {question id, 32 hex} / {segment} / {segment} ...
+ * with one 20-character segment per reply from the top of the thread down:
+ *   12 hex digits of creation time (epoch millis) + 8 hex tie-breaker digits
+ *   (random on insert, the first 8 digits of the id when backfilled).
+ *
+ * Because segments have a fixed width and start with the creation time:
+ * - ORDER BY path renders a thread depth-first with siblings oldest first
+ * - the descendants of a reply are the paths in [path + "/", path + "0")
+ *
+ * Paths are assigned on insert (depth and root question are set at the
+ * same time, ignoring any client-supplied depth). Deleting a reply removes
+ * its whole path range. Rows created before this existed are backfilled
+ * on startup, and a thread that gets a new reply before that is backfilled
+ * on the spot (same segments as the startup backfill).
+ *
+ * @author TarkVtark Team
+ */
+@Service
+@RequiredArgsConstructor
+public class ReplyPathService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplyPathService.class);
+
+    public static final String SEPARATOR = "/";
+
+    // replies.path is VARCHAR(2000): 32 + 93 * 21 characters fit (depth 0..92)
+    public static final int MAX_DEPTH = 92;
+
+    private final ReplyRepository replyRepository;
+
+    @Value("${replies.path.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    /**
+     * Set path, root question and depth of a new reply from its question or parent reply.
+     * Must be called with createdAt set, before the reply is first saved and in the same
+     * transaction (see DebateCounterService.createReply).
+     *
+     * @throws IllegalArgumentException if the thread is already at the maximum depth
+     */
+    public void assignPath(Reply reply) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        String segment = segment(epochMillis(reply.getCreatedAt()), suffix);
+
+        Reply parent = reply.getParentReply();
+        if (parent == null) {
+            UUID questionId = reply.getQuestion().getId();
+            reply.setRootQuestionId(questionId);
+            reply.setDepth(0);
+            reply.setPath(rootSegment(questionId) + SEPARATOR + segment);
+            return;
+        }
+
+        PathInfo above = parent.getPath() != null
+                ? new PathInfo(parent.getPath(), parent.getRootQuestionId(), parent.getDepth())
+                : backfillChain(parent);
+        if (above == null) {
+            // Thread without a question at the top: the backfill skips it too
+            reply.setDepth(parent.getDepth() != null ? parent.getDepth() + 1 : 0);
+            return;
+        }
+        int depth = above.depth() + 1;
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Reply thread is too deep (max " + MAX_DEPTH + " levels)");
+        }
+        reply.setRootQuestionId(above.rootQuestionId());
+        reply.setDepth(depth);
+        reply.setPath(above.path() + SEPARATOR + segment);
+    }
+
+    private record PathInfo(String path, UUID rootQuestionId, int depth) {
+    }
+
+    /**
+     * Backfill a reply created before paths existed, with every ancestor still
+     * missing its path, top-down like backfillPaths (created_at + first 8 hex
+     * digits of the id, so a concurrent backfill writes the same values)
+     *
+     * @return the reply's new path, or null if its thread has no question at the top
+     */
+    private PathInfo backfillChain(Reply reply) {
+        Deque<Reply> missing = new ArrayDeque<>();
+        Reply current = reply;
+        while (current != null && current.getPath() == null) {
+            missing.push(current);
+            UUID parentId = current.getParentReplyId();
+            current = parentId != null ? replyRepository.findById(parentId).orElse(null) : null;
+        }
+
+        PathInfo above = current != null
+                ? new PathInfo(current.getPath(), current.getRootQuestionId(), current.getDepth())
+                : null;
+        while (!missing.isEmpty()) {
+            Reply next = missing.pop();
+            String segment = segment(epochMillis(next.getCreatedAt()),
+                    next.getId().toString().replace("-", "").substring(0, 8));
+            if (above != null) {
+                above = new PathInfo(above.path() + SEPARATOR + segment, above.rootQuestionId(), above.depth() + 1);
+            } else if (next.getQuestionId() != null) {
+                above = new PathInfo(rootSegment(next.getQuestionId()) + SEPARATOR + segment, next.getQuestionId(), 0);
+            } else {
+                return null;
+            }
+            replyRepository.backfillPath(next.getId(), above.path(), above.rootQuestionId(), above.depth());
+        }
+        logger.info("Backfilled materialized path of reply {} on demand", reply.getId());
+        return above;
+    }
+
+    // created_at is stored without a zone and read as UTC by the backfill query
+    private static long epochMillis(LocalDateTime createdAt) {
+        return createdAt != null ? createdAt.toInstant(ZoneOffset.UTC).toEpochMilli() : System.currentTimeMillis();
+    }
+
+    /**
+     * All replies beneath a reply, in thread order
+     */
+    @Transactional(readOnly = true)
+    public List<Reply> findDescendants(Reply reply) {
+        return replyRepository.findDescendantsByPathRange(descendantsLowerBound(reply.getPath()),
+                descendantsUpperBound(reply.getPath()));
+    }
+
+    /**
+     * Number of replies beneath a reply (all levels)
+     */
+    @Transactional(readOnly = true)
+    public long countDescendants(Reply reply) {
+        return replyRepository.countDescendantsByPathRange(descendantsLowerBound(reply.getPath()),
+                descendantsUpperBound(reply.getPath()));
+    }
+
+    /**
+     * Delete a reply with all replies beneath it
+     *
+     * @return number of replies deleted
+     */
+    @Transactional
+    public int deleteWithDescendants(Reply reply) {
+        if (reply.getPath() == null) {
+            // Not backfilled yet: fall back to cascading delete
+            replyRepository.deleteById(reply.getId());
+            return 1;
+        }
+        return replyRepository.deleteSubtreeByPath(reply.getPath(), descendantsUpperBound(reply.getPath()));
+    }
+
+    /**
+     * Fill in paths of replies created before paths existed
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            long missing = replyRepository.countByPathIsNull();
+            if (missing == 0) {
+                return;
+            }
+            int updated = replyRepository.backfillPaths();
+            logger.info("Backfilled materialized paths for {} of {} replies", updated, missing);
+        } catch (Exception e) {
+            logger.warn("Reply path backfill failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * First path element: the question id without dashes
+     */
+    public static String rootSegment(UUID questionId) {
+        return questionId.toString().replace("-", "");
+    }
+
+    /**
+     * One reply segment: 12 hex digits of epoch millis + 8 hex characters
+     */
+    public static String segment(long epochMillis, String suffix) {
+        return String.format("%012x", epochMillis) + suffix;
+    }
+
+    /**
+     * Paths of all replies above a reply, top first (the question segment is not a reply)
+     */
+    public static List<String> ancestorPaths(String path) {
+        List<String> ancestors = new ArrayList<>();
+        int end = path.indexOf(SEPARATOR);
+        while (end >= 0) {
+            end = path.indexOf(SEPARATOR, end + 1);
+            if (end > 0) {
+                ancestors.add(path.substring(0, end));
+            }
+        }
+        return ancestors;
+    }
+
+    public static String descendantsLowerBound(String path) {
+        return path + SEPARATOR;
+    }
+
+    // "/" is followed directly by "0" in byte order, so this is the first key past the subtree
+    public static String descendantsUpperBound(String path) {
+        return path + "0";
+    }
+}
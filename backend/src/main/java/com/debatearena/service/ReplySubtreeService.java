@@ -0,0 +1,208 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.AttachmentDTO;
+import com.debatearena.dto.EvidenceUrlDTO;
+import com.debatearena.dto.ReplyDTO;
+import com.debatearena.dto.ReplySubtreeDTO;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.EvidenceUrl;
+import com.debatearena.model.Reply;
+import com.debatearena.repository.AttachmentRepository;
+import com.debatearena.repository.EvidenceUrlRepository;
+import com.debatearena.repository.ReplyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Reply Subtree Service
+ * =====================================================================
+ *
+ * Loads the replies beneath a question or reply level by level, down to a
+ * requested depth and with at most {@code limit} replies per parent, so a
+ * deep thread can be expanded on demand instead of shipping it whole.
+ *
+ * Queries per request: one per level, one to find which of the deepest
+ * replies have replies of their own, plus attachments and evidence URLs.
+ *
+ * Wherever the response stops (depth reached, or more siblings than the
+ * limit) a continuation cursor is returned. The cursor names the parent
+ * and the last (created_at, id) already sent, so the next call is a keyset
+ * range on (parent_reply_id, created_at).
+ *
+ * @author TarkVtark Team
+ */
+@Service
+@RequiredArgsConstructor
+public class ReplySubtreeService {
+
+    // "Start from the first reply" position
+    private static final LocalDateTime MIN_CREATED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private final ReplyRepository replyRepository;
+    private final AttachmentRepository attachmentRepository;
+    private final EvidenceUrlRepository evidenceUrlRepository;
+
+    @Value("${replies.subtree.max-depth:10}")
+    private int maxDepth;
+
+    @Value("${replies.subtree.max-limit:100}")
+    private int maxLimit;
+
+    /**
+     * Replies beneath a question, starting with its first reply
+     */
+    @Transactional(readOnly = true)
+    public ReplySubtreeDTO loadForQuestion(UUID questionId, int depth, int limit) {
+        return load(new Position(VoteService.TARGET_QUESTION, questionId, MIN_CREATED_AT, MIN_ID), depth, limit);
+    }
+
+    /**
+     * Replies beneath a reply, starting with its first reply
+     */
+    @Transactional(readOnly = true)
+    public ReplySubtreeDTO loadForReply(UUID replyId, int depth, int limit) {
+        return load(new Position(VoteService.TARGET_REPLY, replyId, MIN_CREATED_AT, MIN_ID), depth, limit);
+    }
+
+    /**
+     * Continue from a cursor returned by an earlier call
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public ReplySubtreeDTO loadFromCursor(String cursor, int depth, int limit) {
+        return load(decodeCursor(cursor), depth, limit);
+    }
+
+    private ReplySubtreeDTO load(Position position, int depth, int limit) {
+        int levels = Math.max(1, Math.min(depth, maxDepth));
+        int perParent = Math.max(1, Math.min(limit, maxLimit));
+
+        // Level 1: a page of the parent's direct replies (one extra to detect more)
+        List<Reply> firstLevel = VoteService.TARGET_QUESTION.equals(position.parentType())
+                ? replyRepository.findChildrenOfQuestionAfter(
+                        position.parentId(), position.afterCreatedAt(), position.afterId(), perParent + 1)
+                : replyRepository.findChildrenOfReplyAfter(
+                        position.parentId(), position.afterCreatedAt(), position.afterId(), perParent + 1);
+
+        ReplySubtreeDTO result = new ReplySubtreeDTO();
+        result.setParentType(position.parentType());
+        result.setParentId(position.parentId());
+
+        boolean moreSiblings = firstLevel.size() > perParent;
+        if (moreSiblings) {
+            firstLevel = firstLevel.subList(0, perParent);
+        }
+        if (firstLevel.isEmpty()) {
+            return result;
+        }
+
+        Map<UUID, ReplyDTO> byId = new LinkedHashMap<>();
+        for (Reply reply : firstLevel) {
+            ReplyDTO dto = ReplyDTO.fromEntityWithoutReplies(reply);
+            byId.put(dto.getId(), dto);
+            result.getItems().add(dto);
+        }
+        if (moreSiblings) {
+            Reply last = firstLevel.get(firstLevel.size() - 1);
+            result.setNextCursor(encodeCursor(position.parentType(), position.parentId(),
+                    last.getCreatedAt(), last.getId()));
+        }
+
+        // Levels 2..depth: first replies of every reply on the previous level
+        List<UUID> frontier = firstLevel.stream().map(Reply::getId).toList();
+        for (int level = 2; level <= levels && !frontier.isEmpty(); level++) {
+            Map<UUID, List<Reply>> childrenByParent = new LinkedHashMap<>();
+            for (Reply child : replyRepository.findFirstChildrenOfReplies(frontier, perParent + 1)) {
+                childrenByParent.computeIfAbsent(child.getParentReply().getId(), k -> new ArrayList<>()).add(child);
+            }
+
+            List<UUID> nextFrontier = new ArrayList<>();
+            for (Map.Entry<UUID, List<Reply>> entry : childrenByParent.entrySet()) {
+                ReplyDTO parent = byId.get(entry.getKey());
+                List<Reply> children = entry.getValue();
+                if (children.size() > perParent) {
+                    children = children.subList(0, perParent);
+                    Reply last = children.get(children.size() - 1);
+                    parent.setRepliesCursor(encodeCursor(VoteService.TARGET_REPLY, parent.getId(),
+                            last.getCreatedAt(), last.getId()));
+                }
+                for (Reply child : children) {
+                    ReplyDTO dto = ReplyDTO.fromEntityWithoutReplies(child);
+                    byId.put(dto.getId(), dto);
+                    parent.getReplies().add(dto);
+                    nextFrontier.add(dto.getId());
+                }
+            }
+            frontier = nextFrontier;
+        }
+
+        // Deepest level: tell the client which replies can be expanded further
+        if (!frontier.isEmpty()) {
+            Set<UUID> expandable = new HashSet<>(replyRepository.findIdsHavingChildren(frontier));
+            for (UUID id : frontier) {
+                if (expandable.contains(id)) {
+                    byId.get(id).setRepliesCursor(encodeCursor(VoteService.TARGET_REPLY, id, null, null));
+                }
+            }
+        }
+
+        attachEvidence(byId);
+        return result;
+    }
+
+    private void attachEvidence(Map<UUID, ReplyDTO> byId) {
+        List<UUID> replyIds = new ArrayList<>(byId.keySet());
+        for (Attachment attachment : attachmentRepository.findByQuestionIdsOrReplyIds(List.of(), replyIds)) {
+            ReplyDTO owner = byId.get(attachment.getReplyId());
+            if (owner != null) owner.getAttachments().add(AttachmentDTO.fromEntity(attachment));
+        }
+        for (EvidenceUrl evidenceUrl : evidenceUrlRepository.findByQuestionIdsOrReplyIds(List.of(), replyIds)) {
+            ReplyDTO owner = byId.get(evidenceUrl.getReplyId());
+            if (owner != null) owner.getEvidenceUrls().add(EvidenceUrlDTO.fromEntity(evidenceUrl));
+        }
+    }
+
+    // Cursor: base64url("<parentType>|<parentId>|<afterCreatedAt>|<afterId>"), empty position = from the start
+    private static String encodeCursor(String parentType, UUID parentId, LocalDateTime afterCreatedAt, UUID afterId) {
+        String raw = parentType + "|" + parentId + "|"
+                + (afterCreatedAt == null ? "" : afterCreatedAt.toString()) + "|"
+                + (afterId == null ? "" : afterId.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4
+                    || !(VoteService.TARGET_QUESTION.equals(parts[0]) || VoteService.TARGET_REPLY.equals(parts[0]))) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new Position(parts[0], UUID.fromString(parts[1]),
+                    parts[2].isEmpty() ? MIN_CREATED_AT : LocalDateTime.parse(parts[2]),
+                    parts[3].isEmpty() ? MIN_ID : UUID.fromString(parts[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+    }
+
+    private record Position(String parentType, UUID parentId, LocalDateTime afterCreatedAt, UUID afterId) {
+    }
+}
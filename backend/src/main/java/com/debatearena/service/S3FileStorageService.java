@@ -4,17 +4,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
-import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -32,6 +47,8 @@ import java.util.UUID;
  * - Upload files to AWS S3 bucket
  * - Generate public URLs for file access
  * - Delete files from S3
+ * - Resumable uploads in parts (S3 multipart upload)
+ * - Presigned PUT/GET URLs (clients upload and download without the backend)
  * - Support for different folders/prefixes
  *
  * Configuration (from .env or environment variables):
@@ -49,6 +66,10 @@ public class S3FileStorageService implements FileStorageService {
     private static final Logger logger = LoggerFactory.getLogger(S3FileStorageService.class);
 
     private S3Client s3Client;
+
+    private S3Presigner s3Presigner;
+
+    private final StorageCallLimiter storageCallLimiter;
     
     @Value("${aws.s3.bucket}")
     private String bucketName;
@@ -65,23 +86,29 @@ public class S3FileStorageService implements FileStorageService {
     public S3FileStorageService(
             @Value("${aws.access-key-id:}") String accessKeyId,
             @Value("${aws.secret-access-key:}") String secretAccessKey,
-            @Value("${aws.region:us-east-1}") String regionName) {
+            @Value("${aws.region:us-east-1}") String regionName,
+            StorageCallLimiter storageCallLimiter) {
+        this.storageCallLimiter = storageCallLimiter;
         try {
             logger.info("✅ Initializing AWS S3 storage service (file.provider=s3)");
 
+            AwsCredentialsProvider credentialsProvider;
             if (accessKeyId != null && !accessKeyId.isEmpty() && secretAccessKey != null && !secretAccessKey.isEmpty()) {
                 AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
-                this.s3Client = S3Client.builder()
-                        .region(Region.of(regionName))
-                        .credentialsProvider(StaticCredentialsProvider.create(credentials))
-                        .build();
+                credentialsProvider = StaticCredentialsProvider.create(credentials);
             } else {
                 // Use default provider chain (IAM role, environment, profile, etc.)
-                this.s3Client = S3Client.builder()
-                        .region(Region.of(regionName))
-                        .credentialsProvider(DefaultCredentialsProvider.create())
-                        .build();
+                credentialsProvider = DefaultCredentialsProvider.create();
             }
+            this.s3Client = S3Client.builder()
+                    .region(Region.of(regionName))
+                    .credentialsProvider(credentialsProvider)
+                    .build();
+            // Signs URLs locally (no call to S3)
+            this.s3Presigner = S3Presigner.builder()
+                    .region(Region.of(regionName))
+                    .credentialsProvider(credentialsProvider)
+                    .build();
 
         } catch (Exception e) {
             logger.error("❌ Failed to initialize S3 client", e);
@@ -90,20 +117,28 @@ public class S3FileStorageService implements FileStorageService {
     }
 
     /**
-     * Upload a file to S3
+     * Upload a file to S3 (streamed; the SDK keeps at most 128 KB for retries)
      *
-     * @param file The file to upload
+     * @param content Source of the bytes
+     * @param contentLength Exact number of bytes
+     * @param originalFilename Name of the uploaded file (for the extension)
+     * @param contentType MIME type
      * @param folder The folder/prefix in S3 (e.g., "attachments")
      * @return The public S3 URL of the uploaded file
      * @throws IOException If upload fails
      */
     @Override
-    public String uploadFile(MultipartFile file, String folder) throws IOException {
+    public String uploadStream(InputStreamSource content, long contentLength, String originalFilename,
+                               String contentType, String folder) throws IOException {
+        // Generate unique filename
+        return uploadStreamAs(content, contentLength, generateUniqueFileName(originalFilename), contentType, folder);
+    }
+
+    @Override
+    public String uploadStreamAs(InputStreamSource content, long contentLength, String name,
+                                 String contentType, String folder) throws IOException {
         try {
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String uniqueFileName = generateUniqueFileName(originalFilename);
-            String key = (folder != null && !folder.isEmpty()) ? folder + "/" + uniqueFileName : uniqueFileName;
+            String key = (folder != null && !folder.isEmpty()) ? folder + "/" + name : name;
 
             logger.info("📤 Uploading file to AWS S3: {}", key);
 
@@ -111,11 +146,15 @@ public class S3FileStorageService implements FileStorageService {
             PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                     .bucket(bucketName)
                     .key(key)
-                    .contentType(file.getContentType())
+                    .contentType(contentType)
                     .build();
 
-            s3Client.putObject(putObjectRequest,
-                    RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
+            storageCallLimiter.acquire();
+            try (InputStream in = content.getInputStream()) {
+                s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(in, contentLength));
+            } finally {
+                storageCallLimiter.release();
+            }
 
             // Generate public URL
             String fileUrl = String.format("%s/%s/%s", baseUrl, bucketName, key);
@@ -123,6 +162,8 @@ public class S3FileStorageService implements FileStorageService {
 
             return fileUrl;
 
+        } catch (StorageCallLimiter.BusyException e) {
+            throw e;
         } catch (IOException e) {
             logger.error("❌ Failed to upload file to S3", e);
             throw new IOException("Upload to S3 failed: " + e.getMessage(), e);
@@ -132,6 +173,217 @@ public class S3FileStorageService implements FileStorageService {
         }
     }
 
+    @Override
+    public boolean supportsMultipartUpload() {
+        return true;
+    }
+
+    /**
+     * Start an S3 multipart upload
+     */
+    @Override
+    public MultipartUpload startMultipartUpload(String originalFilename, String contentType, String folder)
+            throws IOException {
+        String uniqueFileName = generateUniqueFileName(originalFilename);
+        String key = (folder != null && !folder.isEmpty()) ? folder + "/" + uniqueFileName : uniqueFileName;
+
+        CreateMultipartUploadRequest request = CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build();
+
+        storageCallLimiter.acquire();
+        try {
+            String uploadId = s3Client.createMultipartUpload(request).uploadId();
+            logger.info("📤 Started S3 multipart upload: {} ({})", key, uploadId);
+            return new MultipartUpload(key, uploadId);
+        } catch (SdkException e) {
+            throw new IOException("Starting S3 multipart upload failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
+    /**
+     * Upload one part (streamed; at least 5 MB except for the last part)
+     */
+    @Override
+    public String uploadPart(MultipartUpload upload, int partNumber, InputStreamSource content, long contentLength)
+            throws IOException {
+        UploadPartRequest request = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(upload.key())
+                .uploadId(upload.uploadId())
+                .partNumber(partNumber)
+                .contentLength(contentLength)
+                .build();
+
+        storageCallLimiter.acquire();
+        try (InputStream in = content.getInputStream()) {
+            return s3Client.uploadPart(request, RequestBody.fromInputStream(in, contentLength)).eTag();
+        } catch (SdkException e) {
+            throw new IOException("Uploading part " + partNumber + " to S3 failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
+    /**
+     * Join the uploaded parts into the object
+     */
+    @Override
+    public String completeMultipartUpload(MultipartUpload upload, List<String> partETags) throws IOException {
+        List<CompletedPart> parts = new ArrayList<>(partETags.size());
+        for (int i = 0; i < partETags.size(); i++) {
+            parts.add(CompletedPart.builder().partNumber(i + 1).eTag(partETags.get(i)).build());
+        }
+        CompleteMultipartUploadRequest request = CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(upload.key())
+                .uploadId(upload.uploadId())
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build();
+
+        storageCallLimiter.acquire();
+        try {
+            s3Client.completeMultipartUpload(request);
+        } catch (SdkException e) {
+            throw new IOException("Completing S3 multipart upload failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+
+        String fileUrl = getFileUrl(upload.key());
+        logger.info("✅ Multipart upload completed on S3 ({} parts): {}", parts.size(), fileUrl);
+        return fileUrl;
+    }
+
+    /**
+     * Abort a multipart upload (S3 drops the parts)
+     */
+    @Override
+    public void abortMultipartUpload(MultipartUpload upload) throws IOException {
+        AbortMultipartUploadRequest request = AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(upload.key())
+                .uploadId(upload.uploadId())
+                .build();
+
+        storageCallLimiter.acquire();
+        try {
+            s3Client.abortMultipartUpload(request);
+            logger.info("🗑️ Aborted S3 multipart upload: {}", upload.key());
+        } catch (NoSuchUploadException e) {
+            logger.debug("S3 multipart upload already gone: {}", upload.key());
+        } catch (SdkException e) {
+            throw new IOException("Aborting S3 multipart upload failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
+    @Override
+    public boolean supportsPresignedUrls() {
+        return true;
+    }
+
+    /**
+     * Presigned PUT for a new object: the client sends the file straight to S3
+     * (Content-Type and Content-Length are part of the signature)
+     */
+    @Override
+    public PresignedUpload presignUpload(String originalFilename, String contentType, long contentLength,
+                                         String folder, Duration ttl) {
+        String uniqueFileName = generateUniqueFileName(originalFilename);
+        String key = (folder != null && !folder.isEmpty()) ? folder + "/" + uniqueFileName : uniqueFileName;
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .build();
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(request -> request
+                .signatureDuration(ttl)
+                .putObjectRequest(putObjectRequest));
+
+        logger.debug("Presigned upload for S3 key {} (expires {})", key, presigned.expiration());
+        return new PresignedUpload(key, getFileUrl(key), presigned.url().toString(),
+                requiredHeaders(presigned.signedHeaders()), presigned.expiration());
+    }
+
+    /**
+     * Presigned GET (works for private buckets); the browser saves it under fileName
+     */
+    @Override
+    public PresignedUrl presignDownload(String fileUrl, String fileName, Duration ttl) {
+        String key = extractKeyFromUrl(fileUrl);
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .responseContentDisposition(contentDisposition(fileName))
+                .build();
+        PresignedGetObjectRequest presigned = s3Presigner.presignGetObject(request -> request
+                .signatureDuration(ttl)
+                .getObjectRequest(getObjectRequest));
+        return new PresignedUrl(presigned.url().toString(), presigned.expiration());
+    }
+
+    /**
+     * Size of a stored object (HEAD), empty if there is none
+     */
+    @Override
+    public Optional<Long> storedSize(String key) throws IOException {
+        storageCallLimiter.acquire();
+        try {
+            return Optional.of(s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build())
+                    .contentLength());
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("S3 HEAD failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
+    @Override
+    public boolean supportsDownload() {
+        return true;
+    }
+
+    /**
+     * Copy an object to a local file (GET, streamed to disk)
+     */
+    @Override
+    public Optional<Long> downloadTo(String fileUrl, Path target) throws IOException {
+        String key = extractKeyFromUrl(fileUrl);
+        if (key == null || key.isEmpty()) {
+            return Optional.empty();
+        }
+        storageCallLimiter.acquire();
+        try {
+            s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(key).build(),
+                    ResponseTransformer.toFile(target));
+            return Optional.of(Files.size(target));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("S3 GET failed: " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("S3 GET failed: " + e.getMessage(), e);
+        } finally {
+            storageCallLimiter.release();
+        }
+    }
+
     /**
      * Delete a file from S3
      *
@@ -154,7 +406,12 @@ public class S3FileStorageService implements FileStorageService {
                     .key(key)
                     .build();
 
-            s3Client.deleteObject(deleteObjectRequest);
+            storageCallLimiter.acquire();
+            try {
+                s3Client.deleteObject(deleteObjectRequest);
+            } finally {
+                storageCallLimiter.release();
+            }
 
             logger.info("✅ File deleted successfully from S3: {}", key);
 
@@ -261,6 +518,22 @@ public class S3FileStorageService implements FileStorageService {
         return null;
     }
 
+    // Signed headers the client must send with the PUT (Host is set by the client itself)
+    private static Map<String, String> requiredHeaders(Map<String, List<String>> signedHeaders) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        signedHeaders.forEach((name, values) -> {
+            if (!"host".equalsIgnoreCase(name)) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return headers;
+    }
+
+    private static String contentDisposition(String fileName) {
+        String safeName = fileName == null ? "file" : fileName.replaceAll("[\\\\\"\\r\\n]", "_");
+        return "attachment; filename=\"" + safeName + "\"";
+    }
+
     /**
      * Check if S3 service is configured
      */
@@ -280,6 +553,9 @@ public class S3FileStorageService implements FileStorageService {
      */
     public void close() {
         try {
+            if (s3Presigner != null) {
+                s3Presigner.close();
+            }
             if (s3Client != null) {
                 s3Client.close();
                 logger.info("✅ S3 client closed");
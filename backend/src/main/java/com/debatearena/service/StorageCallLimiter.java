@@ -0,0 +1,88 @@
+package com.debatearena.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * =====================================================================
+ * Storage Call Limiter
+ * =====================================================================
+ *
+ * Bounds the number of concurrent calls to the remote storage providers
+ * (S3, R2, Supabase). With platform request threads the Tomcat pool is the
+ * bound; with virtual threads (virtual-threads profile) every request gets
+ * its own thread, and without this limit a burst of uploads would open
+ * more connections than the S3 SDK pool holds (50 by default) and fail
+ * there instead of waiting.
+ *
+ * - max-concurrent-calls: calls in flight at once (fair queue beyond it)
+ * - acquire-timeout-ms: how long a call waits for a slot before it fails
+ *   with BusyException (the upload endpoint answers 503)
+ *
+ * Metrics: storage.calls.active, storage.calls.rejected.
+ *
+ * @author TarkVtark Team
+ */
+@Component
+public class StorageCallLimiter {
+
+    private final Semaphore permits;
+    private final int maxConcurrentCalls;
+    private final long acquireTimeoutMs;
+    private final Counter rejectedCounter;
+
+    public StorageCallLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${storage.max-concurrent-calls:32}") int maxConcurrentCalls,
+            @Value("${storage.acquire-timeout-ms:10000}") long acquireTimeoutMs) {
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+
+        Gauge.builder("storage.calls.active", permits, p -> this.maxConcurrentCalls - p.availablePermits())
+                .description("Storage provider calls in flight")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("storage.calls.rejected")
+                .description("Storage provider calls that timed out waiting for a slot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Take a slot for one storage call; release() it in a finally block
+     *
+     * @throws BusyException if no slot frees up within acquire-timeout-ms
+     */
+    public void acquire() throws IOException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedCounter.increment();
+                throw new BusyException("Storage is busy (" + maxConcurrentCalls + " calls in flight), try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for storage", e);
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Too many storage calls in flight: retry later
+     */
+    public static class BusyException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public BusyException(String message) {
+            super(message);
+        }
+    }
+}
@@ -2,24 +2,33 @@ package com.debatearena.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.core.io.InputStreamSource;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Supabase Storage implementation using the Supabase Storage REST API.
  * <p>
  * - Uploads using POST /storage/v1/object/{bucket} with multipart/form-data
+ *   (streamed: the file is never held in memory)
  * - Deletes using DELETE /storage/v1/object/{bucket}/{path}
  * <p>
  * Requires server-side (service_role) key in configuration: `supabase.service-role-key`.
@@ -44,43 +53,45 @@ public class SupabaseFileStorageService implements FileStorageService {
 
     private final HttpClient httpClient = HttpClient.newHttpClient();
 
+    @Autowired
+    private StorageCallLimiter storageCallLimiter;
+
+    @Override
+    public String uploadStream(InputStreamSource content, long contentLength, String originalFilename,
+                               String contentType, String folder) throws IOException {
+        String ext = "";
+        if (originalFilename != null && originalFilename.contains(".")) {
+            ext = originalFilename.substring(originalFilename.lastIndexOf('.'));
+        }
+        return uploadStreamAs(content, contentLength, UUID.randomUUID().toString() + ext, contentType, folder);
+    }
+
     @Override
-    public String uploadFile(MultipartFile file, String folder) throws IOException {
+    public String uploadStreamAs(InputStreamSource content, long contentLength, String name,
+                                 String contentType, String folder) throws IOException {
         // Use anon key if available, otherwise fall back to service role key
         String apiKey = (anonKey != null && !anonKey.isBlank()) ? anonKey : serviceRoleKey;
         if (supabaseUrl == null || supabaseUrl.isBlank() || apiKey == null || apiKey.isBlank()) {
             throw new IOException("Supabase storage is not configured (supabase.url or supabase.anon-key/supabase.service-role-key missing)");
         }
 
-        String originalFilename = file.getOriginalFilename();
-        String ext = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            ext = originalFilename.substring(originalFilename.lastIndexOf('.'));
-        }
-
-        String uniqueFileName = UUID.randomUUID().toString() + ext;
         // For Supabase, don't prepend folder to path since the bucket name already serves as the folder
-        String path = uniqueFileName;
+        String path = name.replaceAll("[^a-zA-Z0-9._-]", "_");
 
-        // Build multipart/form-data body where filename contains the path
+        // Build multipart/form-data body where filename contains the path. Only the part
+        // header and the closing boundary are in memory; the file is streamed between them.
         String boundary = "----DebateArenaBoundary" + UUID.randomUUID().toString();
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         String lineSep = "\r\n";
 
         StringBuilder sb = new StringBuilder();
         sb.append("--").append(boundary).append(lineSep);
         sb.append("Content-Disposition: form-data; name=\"file\"; filename=\"")
                 .append(path).append('\"').append(lineSep);
-        sb.append("Content-Type: ").append(file.getContentType() == null ? "application/octet-stream" : file.getContentType()).append(lineSep).append(lineSep);
-
-        baos.write(sb.toString().getBytes(StandardCharsets.UTF_8));
-        baos.write(file.getBytes());
-        baos.write(lineSep.getBytes(StandardCharsets.UTF_8));
-
-        String end = "--" + boundary + "--" + lineSep;
-        baos.write(end.getBytes(StandardCharsets.UTF_8));
+        sb.append("Content-Type: ").append(contentType == null ? "application/octet-stream" : contentType).append(lineSep).append(lineSep);
 
-        byte[] body = baos.toByteArray();
+        byte[] head = sb.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] tail = (lineSep + "--" + boundary + "--" + lineSep).getBytes(StandardCharsets.UTF_8);
+        HttpRequest.BodyPublisher body = multipartBody(content, contentLength, head, tail);
 
         String uploadUrl = supabaseUrl.replaceAll("/+$", "") + "/storage/v1/object/" + bucket + "/" + path;
 
@@ -93,7 +104,9 @@ public class SupabaseFileStorageService implements FileStorageService {
                 // Supabase also accepts the key via the "apikey" header; include both to be safe
                 .header("apikey", apiKey)
                 .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+                // Replace an existing object (content-addressed names are stored again after a failed attempt)
+                .header("x-upsert", "true")
+                .POST(body);
 
         HttpRequest request = reqBuilder.build();
 
@@ -105,17 +118,17 @@ public class SupabaseFileStorageService implements FileStorageService {
         logger.info("  Authorization header: Bearer {}", apiKey);
         logger.info("  apikey header: {}", apiKey);
         logger.info("  Content-Type: multipart/form-data; boundary={}", boundary);
-        logger.info("  Body size: {} bytes", body.length);
+        logger.info("  Body size: {} bytes", body.contentLength());
         logger.info("  Filename in path: {}", path);
         logger.info("  Content-Disposition: form-data; name=\"file\"; filename=\"{}\"", path);
 
         try {
-            HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> resp = send(request);
             int status = resp.statusCode();
             if (status >= 200 && status < 300) {
                 // Return public URL for the object (assumes public bucket). If your bucket is private, you may want to store the path instead.
                 String publicUrl = supabaseUrl.replaceAll("/+$", "") + "/storage/v1/object/public/" + bucket + "/" + path;
-                logger.info("Supabase upload succeeded: {} -> {}", originalFilename, publicUrl);
+                logger.info("Supabase upload succeeded: {} -> {}", path, publicUrl);
                 return publicUrl;
             } else {
                 logger.error("Supabase upload failed (status={}): {}", status, resp.body());
@@ -133,15 +146,15 @@ public class SupabaseFileStorageService implements FileStorageService {
                                     .header("Authorization", "Bearer " + serviceRoleKey)
                                     .header("apikey", serviceRoleKey)
                                     .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                                    .POST(body)
                                     .build();
 
-                            HttpResponse<String> altResp = httpClient.send(altReq, HttpResponse.BodyHandlers.ofString());
+                            HttpResponse<String> altResp = send(altReq);
                             int altStatus = altResp.statusCode();
                             logger.warn("Fallback upload to {} returned status {}: {}", alt, altStatus, altResp.body());
                             if (altStatus >= 200 && altStatus < 300) {
                                 String publicUrl = supabaseUrl.replaceAll("/+$", "") + "/storage/v1/object/public/" + bucket + "/" + path;
-                                logger.info("Supabase upload succeeded via fallback: {} -> {}", originalFilename, publicUrl);
+                                logger.info("Supabase upload succeeded via fallback: {} -> {}", path, publicUrl);
                                 return publicUrl;
                             }
                         } catch (InterruptedException ie) {
@@ -165,7 +178,75 @@ public class SupabaseFileStorageService implements FileStorageService {
             throw new IOException("Supabase storage is not configured (supabase.url or supabase.service-role-key missing)");
         }
 
-        // Determine object path from fileUrl. Accept either a public URL or a stored key/path.
+        String key = keyFromUrl(fileUrl);
+
+        // Build delete URL: DELETE /storage/v1/object/{bucket}/{path}
+        String deleteUrl = supabaseUrl.replaceAll("/+$", "") + "/storage/v1/object/" + bucket + "/" + key;
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(deleteUrl))
+                .header("Authorization", "Bearer " + serviceRoleKey)
+                .DELETE()
+                .build();
+
+        try {
+            HttpResponse<String> resp = send(request);
+            int status = resp.statusCode();
+            if (status >= 200 && status < 300) {
+                logger.info("Supabase delete succeeded: {}", key);
+            } else {
+                logger.warn("Supabase delete returned status {}: {}", status, resp.body());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Delete interrupted", e);
+        }
+    }
+
+    @Override
+    public boolean supportsDownload() {
+        return true;
+    }
+
+    /**
+     * Copy an object to a local file (authenticated GET, so private buckets work too)
+     */
+    @Override
+    public Optional<Long> downloadTo(String fileUrl, Path target) throws IOException {
+        if (supabaseUrl == null || supabaseUrl.isBlank() || serviceRoleKey == null || serviceRoleKey.isBlank()) {
+            throw new IOException("Supabase storage is not configured (supabase.url or supabase.service-role-key missing)");
+        }
+        String downloadUrl = supabaseUrl.replaceAll("/+$", "") + "/storage/v1/object/" + bucket + "/" + keyFromUrl(fileUrl);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(downloadUrl))
+                .header("Authorization", "Bearer " + serviceRoleKey)
+                .header("apikey", serviceRoleKey)
+                .GET()
+                .build();
+
+        // Only a successful body goes to the file
+        HttpResponse.BodyHandler<Path> toFile = info -> info.statusCode() == 200
+                ? HttpResponse.BodySubscribers.ofFile(target)
+                : HttpResponse.BodySubscribers.replacing(null);
+        try {
+            HttpResponse<Path> resp = send(request, toFile);
+            int status = resp.statusCode();
+            if (status == 200) {
+                return Optional.of(Files.size(target));
+            }
+            if (status == 400 || status == 404) {
+                // Supabase answers a missing object with 400 "not_found" or 404
+                return Optional.empty();
+            }
+            throw new IOException("Supabase download returned status " + status);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrupted", e);
+        }
+    }
+
+    // Object path from a public URL or a stored key/path
+    private String keyFromUrl(String fileUrl) {
         String key = fileUrl;
         try {
             URI uri = URI.create(fileUrl);
@@ -191,27 +272,41 @@ public class SupabaseFileStorageService implements FileStorageService {
             // not a URI: assume fileUrl is already a key/path
             key = fileUrl;
         }
+        return key;
+    }
 
-        // Build delete URL: DELETE /storage/v1/object/{bucket}/{path}
-        String deleteUrl = supabaseUrl.replaceAll("/+$", "") + "/storage/v1/object/" + bucket + "/" + key;
+    /**
+     * head + file + tail as one streamed body. Each send opens the source again, so the
+     * fallback retries can resend it. Sent with Content-Length when the size is known,
+     * with chunked transfer otherwise.
+     */
+    private static HttpRequest.BodyPublisher multipartBody(InputStreamSource content, long contentLength,
+                                                           byte[] head, byte[] tail) {
+        HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                return new SequenceInputStream(Collections.enumeration(List.of(
+                        new ByteArrayInputStream(head), content.getInputStream(), new ByteArrayInputStream(tail))));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return contentLength >= 0
+                ? HttpRequest.BodyPublishers.fromPublisher(stream, head.length + contentLength + tail.length)
+                : stream;
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(deleteUrl))
-                .header("Authorization", "Bearer " + serviceRoleKey)
-                .DELETE()
-                .build();
+    // Blocking call to Supabase, within the storage concurrency limit
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return send(request, HttpResponse.BodyHandlers.ofString());
+    }
 
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        storageCallLimiter.acquire();
         try {
-            HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            int status = resp.statusCode();
-            if (status >= 200 && status < 300) {
-                logger.info("Supabase delete succeeded: {}", key);
-            } else {
-                logger.warn("Supabase delete returned status {}: {}", status, resp.body());
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Delete interrupted", e);
+            return httpClient.send(request, bodyHandler);
+        } finally {
+            storageCallLimiter.release();
         }
     }
 
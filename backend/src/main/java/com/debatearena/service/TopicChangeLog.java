@@ -0,0 +1,119 @@
+package com.debatearena.service;
+
+import com.debatearena.repository.TopicChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Topic Change Log
+ * =====================================================================
+ *
+ * Records every change of a debate topic in topic_changes and bumps the
+ * topic's change_version, so clients can ask for "changes since version N"
+ * (see TopicDeltaService) instead of reloading the whole debate.
+ *
+ * Changes are recorded against the question or reply they affect:
+ * - question/reply created or edited: the node itself
+ * - question/reply deleted: the node, flagged deleted (replies beneath
+ *   it are implied and not logged one by one)
+ * - vote, attachment or evidence URL: the question or reply it belongs to
+ *
+ * Called inside the transaction of the change (DebateCounterService), so
+ * the version and the change are committed together. Votes are logged by
+ * VoteWriteBehindBuffer inside its flush transaction, all nodes of a flush
+ * at once (votesChanged): a vote transaction never takes the topic row
+ * lock, and a busy topic gets one version bump per flush, not per vote.
+ *
+ * Rows older than changes.retention-days are pruned periodically; a client
+ * asking for changes older than that is told to reload the topic.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class TopicChangeLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicChangeLog.class);
+
+    private final TopicChangeRepository topicChangeRepository;
+    private final boolean enabled;
+    private final int retentionDays;
+
+    public TopicChangeLog(
+            TopicChangeRepository topicChangeRepository,
+            @Value("${changes.enabled:true}") boolean enabled,
+            @Value("${changes.retention-days:7}") int retentionDays) {
+        this.topicChangeRepository = topicChangeRepository;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+    }
+
+    public void questionChanged(UUID questionId) {
+        if (enabled && questionId != null) {
+            topicChangeRepository.recordQuestion(questionId, false);
+        }
+    }
+
+    /**
+     * Must be called before the question is deleted (its topic is looked up)
+     */
+    public void questionDeleted(UUID questionId) {
+        if (enabled && questionId != null) {
+            topicChangeRepository.recordQuestion(questionId, true);
+        }
+    }
+
+    public void replyChanged(UUID replyId) {
+        if (enabled && replyId != null) {
+            topicChangeRepository.recordReply(replyId, false);
+        }
+    }
+
+    /**
+     * Must be called before the reply is deleted (its topic is looked up)
+     */
+    public void replyDeleted(UUID replyId) {
+        if (enabled && replyId != null) {
+            topicChangeRepository.recordReply(replyId, true);
+        }
+    }
+
+    /**
+     * Something attached to a question or reply changed (vote, attachment, evidence URL)
+     */
+    public void ownerChanged(UUID questionId, UUID replyId) {
+        if (questionId != null) {
+            questionChanged(questionId);
+        } else {
+            replyChanged(replyId);
+        }
+    }
+
+    /**
+     * Votes changed on these questions and replies (ids of either): one version bump per
+     * topic and one insert for all of them
+     */
+    public void votesChanged(Collection<UUID> nodeIds) {
+        if (enabled && !nodeIds.isEmpty()) {
+            topicChangeRepository.recordNodes(nodeIds);
+        }
+    }
+
+    /**
+     * Retention: drop changes older than retention-days
+     */
+    @Scheduled(fixedDelayString = "${changes.prune-interval-ms:3600000}", initialDelayString = "${changes.prune-interval-ms:3600000}")
+    public void prune() {
+        int deleted = topicChangeRepository.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("Pruned {} topic changes older than {} days", deleted, retentionDays);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.AttachmentDTO;
+import com.debatearena.dto.EvidenceUrlDTO;
+import com.debatearena.dto.QuestionDTO;
+import com.debatearena.dto.ReplyDTO;
+import com.debatearena.dto.TopicChangesDTO;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.EvidenceUrl;
+import com.debatearena.model.Question;
+import com.debatearena.model.Reply;
+import com.debatearena.repository.AttachmentRepository;
+import com.debatearena.repository.DebateTopicRepository;
+import com.debatearena.repository.EvidenceUrlRepository;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import com.debatearena.repository.TopicChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Topic Delta Service
+ * =====================================================================
+ *
+ * Answers "what changed in this topic since version N" from the change
+ * log (see TopicChangeLog): the distinct questions and replies changed
+ * after N, loaded in their current state in a fixed number of queries.
+ * A client that already has the debate only downloads what changed.
+ *
+ * The client is told to reload the whole topic instead (fullReload) when:
+ * - N is older than the oldest change still kept (retention)
+ * - N is newer than the topic's version (e.g. the database was restored)
+ * - more than max-nodes nodes changed (the full tree is cheaper)
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class TopicDeltaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicDeltaService.class);
+
+    private static final String QUESTION = "question";
+
+    private final DebateTopicRepository debateTopicRepository;
+    private final TopicChangeRepository topicChangeRepository;
+    private final QuestionRepository questionRepository;
+    private final ReplyRepository replyRepository;
+    private final AttachmentRepository attachmentRepository;
+    private final EvidenceUrlRepository evidenceUrlRepository;
+    private final int maxNodes;
+
+    public TopicDeltaService(
+            DebateTopicRepository debateTopicRepository,
+            TopicChangeRepository topicChangeRepository,
+            QuestionRepository questionRepository,
+            ReplyRepository replyRepository,
+            AttachmentRepository attachmentRepository,
+            EvidenceUrlRepository evidenceUrlRepository,
+            @Value("${changes.max-nodes:500}") int maxNodes) {
+        this.debateTopicRepository = debateTopicRepository;
+        this.topicChangeRepository = topicChangeRepository;
+        this.questionRepository = questionRepository;
+        this.replyRepository = replyRepository;
+        this.attachmentRepository = attachmentRepository;
+        this.evidenceUrlRepository = evidenceUrlRepository;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Questions and replies changed after a version
+     *
+     * @param topicId UUID of the debate topic
+     * @param since   version the client has (0 = none)
+     * @return The changes, or empty if the topic does not exist
+     */
+    @Transactional(readOnly = true)
+    public Optional<TopicChangesDTO> changesSince(UUID topicId, long since) {
+        // Read the version first: every change up to it is committed (same transaction as its bump)
+        Optional<Long> current = debateTopicRepository.findChangeVersion(topicId);
+        if (current.isEmpty()) {
+            return Optional.empty();
+        }
+        long version = current.get();
+
+        TopicChangesDTO changes = new TopicChangesDTO();
+        changes.setTopicId(topicId);
+        changes.setSince(since);
+        changes.setVersion(version);
+        changes.setFullReload(false);
+        if (since == version) {
+            return Optional.of(changes);
+        }
+
+        // Log pruned past the client's version (or the client is ahead): nothing to patch with
+        Long oldest = topicChangeRepository.findOldestVersion(topicId).orElse(null);
+        if (since > version || oldest == null || oldest > since + 1) {
+            changes.setFullReload(true);
+            return Optional.of(changes);
+        }
+
+        List<TopicChangeRepository.ChangedNode> nodes =
+                topicChangeRepository.findChangedNodes(topicId, since, version, maxNodes + 1);
+        if (nodes.size() > maxNodes) {
+            changes.setFullReload(true);
+            return Optional.of(changes);
+        }
+
+        List<UUID> questionIds = new ArrayList<>();
+        List<UUID> replyIds = new ArrayList<>();
+        for (TopicChangeRepository.ChangedNode node : nodes) {
+            boolean question = QUESTION.equals(node.getNodeType());
+            if (Boolean.TRUE.equals(node.getDeleted())) {
+                changes.getDeleted().add(new TopicChangesDTO.DeletedNode(node.getNodeType(), node.getNodeId()));
+            } else if (question) {
+                questionIds.add(node.getNodeId());
+            } else {
+                replyIds.add(node.getNodeId());
+            }
+        }
+
+        load(changes, questionIds, replyIds);
+        logger.debug("Topic {} changes {} -> {}: {} questions, {} replies, {} deleted", topicId, since, version,
+                changes.getQuestions().size(), changes.getReplies().size(), changes.getDeleted().size());
+        return Optional.of(changes);
+    }
+
+    // Current state of the changed nodes with their attachments and evidence URLs (3-5 queries)
+    private void load(TopicChangesDTO changes, List<UUID> questionIds, List<UUID> replyIds) {
+        if (questionIds.isEmpty() && replyIds.isEmpty()) {
+            return;
+        }
+        Map<UUID, List<AttachmentDTO>> attachments = new HashMap<>();
+        for (Attachment attachment : attachmentRepository.findByQuestionIdsOrReplyIds(questionIds, replyIds)) {
+            UUID owner = attachment.getReplyId() != null ? attachment.getReplyId() : attachment.getQuestionId();
+            attachments.computeIfAbsent(owner, id -> new ArrayList<>()).add(AttachmentDTO.fromEntity(attachment));
+        }
+        Map<UUID, List<EvidenceUrlDTO>> evidenceUrls = new HashMap<>();
+        for (EvidenceUrl evidenceUrl : evidenceUrlRepository.findByQuestionIdsOrReplyIds(questionIds, replyIds)) {
+            UUID owner = evidenceUrl.getReplyId() != null ? evidenceUrl.getReplyId() : evidenceUrl.getQuestionId();
+            evidenceUrls.computeIfAbsent(owner, id -> new ArrayList<>()).add(EvidenceUrlDTO.fromEntity(evidenceUrl));
+        }
+
+        Map<UUID, Question> questions = new HashMap<>();
+        questionRepository.findAllById(questionIds).forEach(question -> questions.put(question.getId(), question));
+        for (UUID id : questionIds) {
+            Question question = questions.get(id);
+            if (question == null) {
+                // Deleted after the version was read
+                changes.getDeleted().add(new TopicChangesDTO.DeletedNode(QUESTION, id));
+                continue;
+            }
+            QuestionDTO dto = QuestionDTO.fromEntity(question, null);
+            dto.setAttachments(attachments.getOrDefault(id, new ArrayList<>()));
+            dto.setEvidenceUrls(evidenceUrls.getOrDefault(id, new ArrayList<>()));
+            changes.getQuestions().add(dto);
+        }
+
+        Map<UUID, Reply> replies = new HashMap<>();
+        replyRepository.findAllById(replyIds).forEach(reply -> replies.put(reply.getId(), reply));
+        for (UUID id : replyIds) {
+            Reply reply = replies.get(id);
+            if (reply == null) {
+                changes.getDeleted().add(new TopicChangesDTO.DeletedNode("reply", id));
+                continue;
+            }
+            ReplyDTO dto = ReplyDTO.fromEntityWithoutReplies(reply);
+            dto.setAttachments(attachments.getOrDefault(id, new ArrayList<>()));
+            dto.setEvidenceUrls(evidenceUrls.getOrDefault(id, new ArrayList<>()));
+            changes.getReplies().add(dto);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.TopicDTO;
+import com.debatearena.event.DebateChangedEvent;
+import com.debatearena.repository.DebateTopicRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * =====================================================================
+ * Topic List Cache
+ * =====================================================================
+ *
+ * Keeps the homepage topic list (GET /topics) in memory so that it is
+ * read from the database once per change instead of once per visit.
+ *
+ * - The cached list is dropped (write-through invalidation) after every
+ *   committed topic, question or reply change, because each of them
+ *   changes a name, label or count shown on the list (votes, attachments
+ *   and evidence URLs are not shown and are ignored).
+ * - It is also reloaded after ttl-ms, as a safety net for changes made
+ *   outside the application (e.g. migrations or manual SQL).
+ * - Concurrent misses wait for a single load instead of all querying
+ *   (a lock rather than synchronized, so waiting virtual threads do not
+ *   pin their carrier threads while the load runs).
+ *
+ * Every snapshot carries an ETag (hash of its JSON) and a Last-Modified
+ * time (when the content last changed), so browsers can revalidate and
+ * get a 304 instead of downloading the list again.
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class TopicListCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicListCache.class);
+
+    private final DebateTopicRepository debateTopicRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long ttlMs;
+
+    // Current snapshot (null = not loaded or invalidated)
+    private volatile Snapshot snapshot;
+
+    // One load at a time
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    // Bumped by every invalidation; a load that raced with one is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    // Last content served, to keep Last-Modified stable across reloads with no change
+    private volatile Snapshot previous;
+
+    public TopicListCache(
+            DebateTopicRepository debateTopicRepository,
+            ObjectMapper objectMapper,
+            @Value("${topics.cache.enabled:true}") boolean enabled,
+            @Value("${topics.cache.ttl-ms:300000}") long ttlMs) {
+        this.debateTopicRepository = debateTopicRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Active topics with their counts, from memory if the snapshot is still valid
+     */
+    public Snapshot get() {
+        if (!enabled) {
+            return load();
+        }
+        Snapshot current = snapshot;
+        if (current != null && !isExpired(current)) {
+            return current;
+        }
+        loadLock.lock();
+        try {
+            current = snapshot;
+            if (current != null && !isExpired(current)) {
+                return current;
+            }
+            long loadGeneration = generation.get();
+            Snapshot loaded = load();
+            if (generation.get() == loadGeneration) {
+                snapshot = loaded;
+            }
+            return loaded;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Drop the cached list once a change that affects it is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDebateChanged(DebateChangedEvent event) {
+        switch (event.type()) {
+            case TOPIC, QUESTION, REPLY -> invalidate();
+            default -> {
+                // Not part of the topic list
+            }
+        }
+    }
+
+    /**
+     * Drop the cached list; the next request reloads it
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot load() {
+        List<TopicDTO> topics = debateTopicRepository.findByIsActiveTrue().stream()
+                .map(TopicDTO::fromEntity)
+                .collect(Collectors.toList());
+        String etag = "\"" + hash(topics) + "\"";
+
+        // Same content as before: keep its Last-Modified so conditional requests still match
+        Snapshot last = previous;
+        Instant lastModified = last != null && last.etag().equals(etag)
+                ? last.lastModified()
+                : Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+        Snapshot loaded = new Snapshot(List.copyOf(topics), etag, lastModified, System.currentTimeMillis());
+        previous = loaded;
+        logger.debug("Loaded topic list: {} topics, ETag {}", topics.size(), etag);
+        return loaded;
+    }
+
+    private boolean isExpired(Snapshot current) {
+        return System.currentTimeMillis() - current.loadedAt() >= ttlMs;
+    }
+
+    private String hash(List<TopicDTO> topics) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(topics));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            // Never matches a client ETag, so clients simply refetch
+            return "nohash-" + System.nanoTime();
+        }
+    }
+
+    /**
+     * One loaded topic list with its validators
+     */
+    public record Snapshot(List<TopicDTO> topics, String etag, Instant lastModified, long loadedAt) {
+    }
+}
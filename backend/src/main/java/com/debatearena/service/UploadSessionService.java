@@ -0,0 +1,353 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.UploadSessionDTO;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.Question;
+import com.debatearena.model.Reply;
+import com.debatearena.model.UploadSession;
+import com.debatearena.model.UploadSessionPart;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import com.debatearena.repository.UploadSessionPartRepository;
+import com.debatearena.repository.UploadSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * =====================================================================
+ * Upload Session Service
+ * =====================================================================
+ *
+ * Resumable uploads of large attachments, sent in parts:
+ *
+ * 1. start: the client announces the file; the server picks the part size
+ *    and starts a multipart upload at the storage provider
+ * 2. uploadPart: each part is streamed to storage as it arrives. Parts may
+ *    be sent in any order and several at once; a failed part is sent again
+ *    on its own, and get() tells an interrupted client which parts are
+ *    missing
+ * 3. complete: the provider joins the parts and the attachment is created,
+ *    as POST /files/upload does for small files
+ *
+ * Providers: S3 and R2 (S3 multipart uploads, parts of at least 5 MB) and
+ * local storage (part files). Supabase does not support it; clients fall
+ * back to POST /files/upload.
+ *
+ * Sessions that received no part for file.multipart.session-ttl-ms are
+ * aborted periodically (the provider drops their parts).
+ *
+ * @author TarkVtark Team
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSessionService.class);
+
+    // S3 limits: parts of 5 MB or more (except the last), at most 10000 parts
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+    private static final int CLEANUP_BATCH_SIZE = 100;
+
+    private final FileStorageService fileStorageService;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadSessionPartRepository uploadSessionPartRepository;
+    private final QuestionRepository questionRepository;
+    private final ReplyRepository replyRepository;
+    private final DebateCounterService debateCounterService;
+    private final long maxSize;
+    private final long partSize;
+    private final long sessionTtlMs;
+
+    public UploadSessionService(
+            FileStorageService fileStorageService,
+            UploadSessionRepository uploadSessionRepository,
+            UploadSessionPartRepository uploadSessionPartRepository,
+            QuestionRepository questionRepository,
+            ReplyRepository replyRepository,
+            DebateCounterService debateCounterService,
+            @Value("${file.multipart.max-size:1073741824}") long maxSize,
+            @Value("${file.multipart.part-size:8388608}") long partSize,
+            @Value("${file.multipart.session-ttl-ms:86400000}") long sessionTtlMs) {
+        this.fileStorageService = fileStorageService;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.uploadSessionPartRepository = uploadSessionPartRepository;
+        this.questionRepository = questionRepository;
+        this.replyRepository = replyRepository;
+        this.debateCounterService = debateCounterService;
+        this.maxSize = maxSize;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+        this.sessionTtlMs = sessionTtlMs;
+    }
+
+    /**
+     * Start a resumable upload
+     *
+     * @param fileName    Name of the file
+     * @param fileSize    Exact size in bytes
+     * @param contentType MIME type (optional)
+     * @param questionId  Question the attachment goes to (or null)
+     * @param replyId     Reply the attachment goes to (or null)
+     * @param uploadedBy  Name of uploader (optional)
+     * @return The new session (part size and count)
+     * @throws IllegalArgumentException if the size or target is invalid
+     * @throws UnsupportedOperationException if the storage provider cannot upload in parts
+     */
+    public UploadSessionDTO start(String fileName, long fileSize, String contentType,
+                                  UUID questionId, UUID replyId, String uploadedBy) throws IOException {
+        if (!fileStorageService.supportsMultipartUpload()) {
+            throw new UnsupportedOperationException(
+                    "Uploads in parts are not supported by " + fileStorageService.getProviderName() + "; use POST /files/upload");
+        }
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        if (fileSize <= 0 || fileSize > maxSize) {
+            throw new IllegalArgumentException("File size must be between 1 and " + maxSize + " bytes");
+        }
+        if ((questionId == null) == (replyId == null)) {
+            throw new IllegalArgumentException("Exactly one of questionId or replyId must be provided");
+        }
+        if (questionId != null && !questionRepository.existsById(questionId)) {
+            throw new IllegalArgumentException("Question not found: " + questionId);
+        }
+        if (replyId != null && !replyRepository.existsById(replyId)) {
+            throw new IllegalArgumentException("Reply not found: " + replyId);
+        }
+
+        // Larger parts for files that would need more than MAX_PARTS
+        long sessionPartSize = Math.max(partSize, (fileSize + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) ((fileSize + sessionPartSize - 1) / sessionPartSize);
+        String fileType = contentType != null && !contentType.isBlank() ? contentType : "application/octet-stream";
+
+        FileStorageService.MultipartUpload upload =
+                fileStorageService.startMultipartUpload(fileName, fileType, "attachments");
+
+        UploadSession session = new UploadSession();
+        session.setStorageProvider(fileStorageService.getProviderName());
+        session.setStorageKey(upload.key());
+        session.setProviderUploadId(upload.uploadId());
+        session.setFileName(fileName);
+        session.setFileSize(fileSize);
+        session.setFileType(fileType);
+        session.setPartSize(sessionPartSize);
+        session.setPartCount(partCount);
+        session.setQuestionId(questionId);
+        session.setReplyId(replyId);
+        session.setUploadedBy(uploadedBy != null ? uploadedBy : "Anonymous");
+        try {
+            session = uploadSessionRepository.save(session);
+        } catch (RuntimeException e) {
+            abortQuietly(upload);
+            throw e;
+        }
+
+        logger.info("Upload session {} started: {} ({} bytes in {} parts of {})",
+                session.getId(), fileName, fileSize, partCount, sessionPartSize);
+        return UploadSessionDTO.fromEntity(session, List.of(), sessionTtlMs);
+    }
+
+    /**
+     * State of a session, with the parts received so far
+     */
+    public Optional<UploadSessionDTO> get(UUID sessionId) {
+        return uploadSessionRepository.findById(sessionId)
+                .map(session -> UploadSessionDTO.fromEntity(session,
+                        uploadSessionPartRepository.findBySessionIdOrderByPartNumberAsc(sessionId), sessionTtlMs));
+    }
+
+    /**
+     * Stream one part to storage and record it
+     *
+     * @param sessionId     Upload session
+     * @param partNumber    1-based part number
+     * @param content       Bytes of the part
+     * @param contentLength Size of the part (must match the part's expected size)
+     * @return The recorded part, or empty if the session does not exist
+     * @throws IllegalArgumentException if the part number or size is wrong
+     * @throws IllegalStateException if the session is being completed
+     */
+    public Optional<UploadSessionPart> uploadPart(UUID sessionId, int partNumber, InputStreamSource content,
+                                                  long contentLength) throws IOException {
+        Optional<UploadSession> found = uploadSessionRepository.findById(sessionId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        UploadSession session = found.get();
+        checkUploading(session);
+        if (partNumber < 1 || partNumber > session.getPartCount()) {
+            throw new IllegalArgumentException("Part number must be between 1 and " + session.getPartCount());
+        }
+        long expected = session.getExpectedPartSize(partNumber);
+        if (contentLength != expected) {
+            throw new IllegalArgumentException("Part " + partNumber + " must be " + expected + " bytes, got " + contentLength);
+        }
+
+        String etag = fileStorageService.uploadPart(upload(session), partNumber, content, contentLength);
+        uploadSessionPartRepository.upsert(sessionId, partNumber, contentLength, etag);
+        logger.debug("Upload session {}: part {}/{} stored ({} bytes)",
+                sessionId, partNumber, session.getPartCount(), contentLength);
+        return Optional.of(new UploadSessionPart(sessionId, partNumber, contentLength, etag, LocalDateTime.now()));
+    }
+
+    /**
+     * Join the parts and create the attachment; the session is deleted
+     *
+     * @param sessionId Upload session
+     * @return The new attachment, or empty if the session does not exist
+     * @throws IllegalStateException if parts are missing, the session is already being
+     *                               completed, or the question/reply was deleted meanwhile
+     */
+    public Optional<Attachment> complete(UUID sessionId) throws IOException {
+        Optional<UploadSession> found = uploadSessionRepository.findById(sessionId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        UploadSession session = found.get();
+        checkUploading(session);
+
+        // Only one request completes a session
+        if (uploadSessionRepository.updateStatus(sessionId,
+                UploadSession.STATUS_UPLOADING, UploadSession.STATUS_COMPLETING) == 0) {
+            throw new IllegalStateException("Upload is already being completed");
+        }
+
+        String storageUrl;
+        Attachment attachment = new Attachment();
+        try {
+            List<UploadSessionPart> parts = uploadSessionPartRepository.findBySessionIdOrderByPartNumberAsc(sessionId);
+            List<String> etags = new ArrayList<>(parts.size());
+            List<Integer> missing = new ArrayList<>();
+            int next = 1;
+            for (UploadSessionPart part : parts) {
+                while (next < part.getPartNumber()) {
+                    missing.add(next++);
+                }
+                etags.add(part.getEtag());
+                next++;
+            }
+            while (next <= session.getPartCount()) {
+                missing.add(next++);
+            }
+            if (!missing.isEmpty()) {
+                throw new IllegalStateException("Missing parts: " + missing);
+            }
+
+            // Target checked before the parts are joined (they cannot be joined twice)
+            if (session.getQuestionId() != null) {
+                Question question = questionRepository.findById(session.getQuestionId())
+                        .orElseThrow(() -> new IllegalStateException("Question not found: " + session.getQuestionId()));
+                attachment.setQuestion(question);
+            } else {
+                Reply reply = replyRepository.findById(session.getReplyId())
+                        .orElseThrow(() -> new IllegalStateException("Reply not found: " + session.getReplyId()));
+                attachment.setReply(reply);
+            }
+
+            storageUrl = fileStorageService.completeMultipartUpload(upload(session), etags);
+        } catch (IOException | RuntimeException e) {
+            // Nothing joined yet: the client may send missing parts and complete again
+            uploadSessionRepository.updateStatus(sessionId,
+                    UploadSession.STATUS_COMPLETING, UploadSession.STATUS_UPLOADING);
+            throw e;
+        }
+
+        attachment.setFileName(session.getFileName());
+        attachment.setFileSize(session.getFileSize());
+        attachment.setFileType(session.getFileType());
+        attachment.setStorageUrl(storageUrl);
+        attachment.setStorageProvider(session.getStorageProvider());
+        attachment.setUploadedBy(session.getUploadedBy());
+        try {
+            Attachment saved = debateCounterService.createAttachment(attachment);
+            logger.info("Upload session {} completed: {} ({} bytes, attachment {})",
+                    sessionId, session.getFileName(), session.getFileSize(), saved.getId());
+            return Optional.of(saved);
+        } catch (RuntimeException e) {
+            // The object exists but no attachment points at it
+            try {
+                fileStorageService.deleteFile(storageUrl);
+            } catch (IOException deleteFailed) {
+                logger.warn("Could not delete {} after failed completion: {}", storageUrl, deleteFailed.getMessage());
+            }
+            throw e;
+        } finally {
+            uploadSessionRepository.deleteById(sessionId);
+        }
+    }
+
+    /**
+     * Abort a session; the provider drops the parts
+     *
+     * @return false if the session does not exist
+     */
+    public boolean abort(UUID sessionId) throws IOException {
+        Optional<UploadSession> found = uploadSessionRepository.findById(sessionId);
+        if (found.isEmpty()) {
+            return false;
+        }
+        UploadSession session = found.get();
+        checkUploading(session);
+        fileStorageService.abortMultipartUpload(upload(session));
+        uploadSessionRepository.deleteById(sessionId);
+        logger.info("Upload session {} aborted", sessionId);
+        return true;
+    }
+
+    /**
+     * Abort sessions that received no part within the TTL (abandoned uploads).
+     * Only sessions on this instance's provider: the parts of others can only be
+     * dropped through their provider, so they are left to an instance using it.
+     */
+    @Scheduled(fixedDelayString = "${file.multipart.cleanup-interval-ms:3600000}",
+            initialDelayString = "${file.multipart.cleanup-interval-ms:3600000}")
+    public void abortIdleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(sessionTtlMs * 1_000_000);
+        int aborted = 0;
+        List<UploadSession> idle;
+        do {
+            idle = uploadSessionRepository.findIdleSince(fileStorageService.getProviderName(), cutoff,
+                    CLEANUP_BATCH_SIZE);
+            for (UploadSession session : idle) {
+                abortQuietly(upload(session));
+                uploadSessionRepository.deleteById(session.getId());
+                aborted++;
+            }
+        } while (idle.size() == CLEANUP_BATCH_SIZE);
+        if (aborted > 0) {
+            logger.info("Aborted {} upload sessions idle for more than {} ms", aborted, sessionTtlMs);
+        }
+    }
+
+    // Parts can only be added to (and a session completed on) the provider that holds them
+    private void checkUploading(UploadSession session) {
+        if (!session.getStorageProvider().equals(fileStorageService.getProviderName())) {
+            throw new IllegalStateException("Upload was started on storage provider " + session.getStorageProvider());
+        }
+        if (!UploadSession.STATUS_UPLOADING.equals(session.getStatus())) {
+            throw new IllegalStateException("Upload is already being completed");
+        }
+    }
+
+    private static FileStorageService.MultipartUpload upload(UploadSession session) {
+        return new FileStorageService.MultipartUpload(session.getStorageKey(), session.getProviderUploadId());
+    }
+
+    private void abortQuietly(FileStorageService.MultipartUpload upload) {
+        try {
+            fileStorageService.abortMultipartUpload(upload);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not abort upload {} ({}): {}", upload.key(), upload.uploadId(), e.getMessage());
+        }
+    }
+}
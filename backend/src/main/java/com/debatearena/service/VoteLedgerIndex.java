@@ -0,0 +1,161 @@
+package com.debatearena.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * =====================================================================
+ * Vote Ledger Index
+ * =====================================================================
+ *
+ * In-memory membership index in front of the vote_ledger table, so the
+ * "has this user already voted?" check usually costs no database read.
+ *
+ * Two layers:
+ * - Bloom filter over (userId, targetId): a miss proves the user never voted
+ *   on the target. Bits live in a primitive long array (no per-entry objects).
+ * - LRU of recent voters: exact current vote for recently seen pairs,
+ *   including "no vote" after a vote was removed.
+ *
+ * Only when the Bloom filter says "maybe" and the LRU has no entry does the
+ * caller fall back to the database. The index is a hint: every ledger write
+ * is a conditional statement, so a stale answer costs a retry, never a
+ * double-counted vote.
+ *
+ * @author TarkVtark Team
+ */
+@Component
+public class VoteLedgerIndex {
+
+    /** Stored in the LRU when the user is known to have no vote on the target */
+    public static final String NO_VOTE = "";
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+    private final Map<VoteKey, String> recentVotes;
+
+    private volatile boolean warmedUp = false;
+
+    public VoteLedgerIndex(
+            @Value("${votes.ledger.expected-entries:1000000}") int expectedEntries,
+            @Value("${votes.ledger.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${votes.ledger.recent-cache-size:100000}") int recentCacheSize) {
+        // Standard Bloom filter sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long m = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+
+        this.recentVotes = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<VoteKey, String> eldest) {
+                return size() > recentCacheSize;
+            }
+        };
+    }
+
+    /**
+     * Look up the current vote of a user on a target without touching the database
+     *
+     * @return "up"/"down" if known, NO_VOTE if the user certainly has no vote,
+     *         or null if unknown (caller must read the ledger)
+     */
+    public String lookup(UUID userId, UUID targetId) {
+        VoteKey key = new VoteKey(userId, targetId);
+        synchronized (recentVotes) {
+            String recent = recentVotes.get(key);
+            if (recent != null) {
+                return recent;
+            }
+        }
+        if (warmedUp && !mightContain(userId, targetId)) {
+            return NO_VOTE;
+        }
+        return null;
+    }
+
+    /**
+     * Remember the current vote of a user on a target (NO_VOTE or null after removal)
+     */
+    public void record(UUID userId, UUID targetId, String voteType) {
+        String value = voteType == null ? NO_VOTE : voteType;
+        if (!NO_VOTE.equals(value)) {
+            add(userId, targetId);
+        }
+        synchronized (recentVotes) {
+            recentVotes.put(new VoteKey(userId, targetId), value);
+        }
+    }
+
+    /**
+     * Forget what the LRU knows about a pair (e.g. after a failed write)
+     */
+    public void forget(UUID userId, UUID targetId) {
+        synchronized (recentVotes) {
+            recentVotes.remove(new VoteKey(userId, targetId));
+        }
+    }
+
+    /**
+     * Add a pair to the Bloom filter (used while warming up from the ledger table)
+     */
+    public void add(UUID userId, UUID targetId) {
+        long h1 = mix(userId.getMostSignificantBits() ^ Long.rotateLeft(targetId.getLeastSignificantBits(), 17));
+        long h2 = mix(userId.getLeastSignificantBits() ^ Long.rotateLeft(targetId.getMostSignificantBits(), 31)) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (int) Math.floorMod(h1 + i * h2, (long) bitCount);
+            long mask = 1L << (bit & 63);
+            int word = bit >>> 6;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) break;
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * Bloom filter check: false means the pair was definitely never added
+     */
+    public boolean mightContain(UUID userId, UUID targetId) {
+        long h1 = mix(userId.getMostSignificantBits() ^ Long.rotateLeft(targetId.getLeastSignificantBits(), 17));
+        long h2 = mix(userId.getLeastSignificantBits() ^ Long.rotateLeft(targetId.getMostSignificantBits(), 31)) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (int) Math.floorMod(h1 + i * h2, (long) bitCount);
+            if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mark the Bloom filter as complete: from now on a miss is trusted as "no vote"
+     */
+    public void markWarmedUp() {
+        this.warmedUp = true;
+    }
+
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    // 64-bit finalizer from MurmurHash3
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private record VoteKey(UUID userId, UUID targetId) {
+    }
+}
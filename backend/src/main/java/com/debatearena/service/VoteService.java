@@ -0,0 +1,250 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.VoteResultDTO;
+import com.debatearena.event.DebateChangedEvent;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import com.debatearena.repository.VoteCounts;
+import com.debatearena.repository.VoteLedgerRepository;
+import com.debatearena.util.JwtUtil;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * =====================================================================
+ * Vote Service
+ * =====================================================================
+ *
+ * Applies votes on questions and replies, one vote per user per post.
+ *
+ * Each vote is checked against the per-user vote ledger (fronted by
+ * VoteLedgerIndex, so the check usually needs no database read) and the
+ * resulting transition is applied as a delta to the counters, so concurrent
+ * votes on the same post are never lost:
+ * - write-behind (default): the delta is handed to VoteWriteBehindBuffer after
+ *   commit and written in coalesced batches
+ * - otherwise: a single atomic SQL update (votes_up = votes_up + delta)
+ *
+ * Changed counts are announced with a DebateChangedEvent (VOTE): after
+ * commit for direct updates, by the buffer once it has flushed otherwise.
+ * Either way the buffer logs them in the topic change log with its next
+ * flush, so a vote never waits for the topic row.
+ *
+ * Transitions (decided by the ledger, not by the client):
+ * - no vote  -> vote X: +1 on X
+ * - vote X   -> vote X: -1 on X (toggle off)
+ * - vote X   -> vote Y: -1 on X, +1 on Y
+ *
+ * @author TarkVtark Team
+ */
+@Service
+@RequiredArgsConstructor
+public class VoteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VoteService.class);
+
+    public static final String TARGET_QUESTION = "question";
+    public static final String TARGET_REPLY = "reply";
+
+    // Conditional ledger writes that lose a race are retried against a fresh read
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final QuestionRepository questionRepository;
+    private final ReplyRepository replyRepository;
+    private final VoteLedgerRepository voteLedgerRepository;
+    private final VoteLedgerIndex voteLedgerIndex;
+    private final VoteWriteBehindBuffer voteWriteBehindBuffer;
+    private final JwtUtil jwtUtil;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Vote on a question
+     *
+     * @param questionId UUID of the question
+     * @param userId UUID of the voting user (from JWT)
+     * @param voteType "up" or "down"
+     * @return New vote counts and the user's resulting vote, or empty if the question does not exist
+     */
+    @Transactional
+    public Optional<VoteResultDTO> voteOnQuestion(UUID questionId, UUID userId, String voteType) {
+        return vote(TARGET_QUESTION, questionId, userId, voteType);
+    }
+
+    /**
+     * Vote on a reply
+     *
+     * @param replyId UUID of the reply
+     * @param userId UUID of the voting user (from JWT)
+     * @param voteType "up" or "down"
+     * @return New vote counts and the user's resulting vote, or empty if the reply does not exist
+     */
+    @Transactional
+    public Optional<VoteResultDTO> voteOnReply(UUID replyId, UUID userId, String voteType) {
+        return vote(TARGET_REPLY, replyId, userId, voteType);
+    }
+
+    /**
+     * Resolve the voting user from an "Authorization: Bearer ..." header
+     *
+     * @return User id, or empty if the header is missing or the token is invalid
+     */
+    public Optional<UUID> resolveVoter(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return Optional.empty();
+        }
+        String token = authHeader.substring(7);
+        if (!jwtUtil.validateToken(token)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(jwtUtil.getUserIdFromToken(token));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Check vote type and (optional, advisory) action values sent by the client
+     */
+    public static boolean isValid(String voteType, String action) {
+        boolean validType = "up".equalsIgnoreCase(voteType) || "down".equalsIgnoreCase(voteType);
+        boolean validAction = action == null
+                || "add".equalsIgnoreCase(action)
+                || "remove".equalsIgnoreCase(action)
+                || "change".equalsIgnoreCase(action);
+        return validType && validAction;
+    }
+
+    /**
+     * Load all ledger keys into the Bloom filter once the application is up.
+     * Until this finishes, lookups that miss the LRU fall back to the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUpLedgerIndex() {
+        long count = 0;
+        try (Stream<Object[]> keys = voteLedgerRepository.streamAllKeys()) {
+            for (Object[] key : (Iterable<Object[]>) keys::iterator) {
+                voteLedgerIndex.add((UUID) key[0], (UUID) key[1]);
+                count++;
+            }
+        } catch (Exception e) {
+            logger.warn("Could not warm up vote ledger index, falling back to database checks: {}", e.getMessage());
+            return;
+        }
+        voteLedgerIndex.markWarmedUp();
+        logger.info("Vote ledger index warmed up with {} votes", count);
+    }
+
+    private Optional<VoteResultDTO> vote(String targetType, UUID targetId, UUID userId, String voteType) {
+        if (!isValid(voteType, null)) {
+            throw new IllegalArgumentException("Invalid vote type: " + voteType);
+        }
+        String requested = voteType.toLowerCase();
+
+        String current = voteLedgerIndex.lookup(userId, targetId);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (current == null) {
+                current = voteLedgerRepository.findVoteType(userId, targetId).orElse(VoteLedgerIndex.NO_VOTE);
+            }
+
+            String next;
+            int changed;
+            if (VoteLedgerIndex.NO_VOTE.equals(current)) {
+                next = requested;
+                changed = voteLedgerRepository.insertIfAbsent(userId, targetId, targetType, requested);
+            } else if (current.equals(requested)) {
+                next = VoteLedgerIndex.NO_VOTE;
+                changed = voteLedgerRepository.deleteVote(userId, targetId, current);
+            } else {
+                next = requested;
+                changed = voteLedgerRepository.changeVote(userId, targetId, current, requested);
+            }
+
+            if (changed == 1) {
+                return applyTransition(targetType, targetId, userId, current, next);
+            }
+
+            // The ledger did not hold what we expected (stale index or a concurrent
+            // request from the same user): re-read it and decide again
+            current = null;
+        }
+
+        throw new IllegalStateException("Vote on " + targetType + " " + targetId + " kept conflicting, giving up");
+    }
+
+    private Optional<VoteResultDTO> applyTransition(String targetType, UUID targetId, UUID userId,
+                                                    String from, String to) {
+        int upDelta = ("up".equals(to) ? 1 : 0) - ("up".equals(from) ? 1 : 0);
+        int downDelta = ("down".equals(to) ? 1 : 0) - ("down".equals(from) ? 1 : 0);
+        boolean writeBehind = voteWriteBehindBuffer.isEnabled();
+
+        // Write-behind: only read the counts (existence check), the delta is buffered after commit.
+        // Otherwise: apply the delta directly with the atomic UPDATE.
+        Optional<VoteCounts> counts;
+        if (TARGET_QUESTION.equals(targetType)) {
+            counts = writeBehind
+                    ? questionRepository.findVoteCounts(targetId)
+                    : questionRepository.applyVoteDelta(targetId, upDelta, downDelta);
+        } else {
+            counts = writeBehind
+                    ? replyRepository.findVoteCounts(targetId)
+                    : replyRepository.applyVoteDelta(targetId, upDelta, downDelta);
+        }
+
+        if (counts.isEmpty()) {
+            // Target does not exist: undo the ledger write
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return Optional.empty();
+        }
+        if (!writeBehind) {
+            UUID questionId = TARGET_QUESTION.equals(targetType) ? targetId : null;
+            eventPublisher.publishEvent(new DebateChangedEvent(null, DebateChangedEvent.Type.VOTE, targetId, questionId));
+        }
+
+        // Only trust the new state once it is committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    voteLedgerIndex.record(userId, targetId, to);
+                    if (writeBehind) {
+                        voteWriteBehindBuffer.add(targetType, targetId, upDelta, downDelta);
+                    } else {
+                        // Logged in the buffer's next flush, not under the topic row lock here
+                        voteWriteBehindBuffer.changed(targetType, targetId);
+                    }
+                } else {
+                    voteLedgerIndex.forget(userId, targetId);
+                }
+            }
+        });
+
+        VoteResultDTO result = VoteResultDTO.fromCounts(targetType, counts.get());
+        if (writeBehind) {
+            // Persisted counts + deltas still in the buffer + this vote
+            VoteWriteBehindBuffer.Delta buffered = voteWriteBehindBuffer.pendingDelta(targetType, targetId);
+            result.setVotesUp(Math.max(zeroIfNull(result.getVotesUp()) + buffered.up() + upDelta, 0));
+            result.setVotesDown(Math.max(zeroIfNull(result.getVotesDown()) + buffered.down() + downDelta, 0));
+        }
+        result.setUserVote(VoteLedgerIndex.NO_VOTE.equals(to) ? null : to);
+        return Optional.of(result);
+    }
+
+    private static int zeroIfNull(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
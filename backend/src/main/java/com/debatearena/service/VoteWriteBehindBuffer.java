@@ -0,0 +1,297 @@
+package com.debatearena.service;
+
+import com.debatearena.event.DebateChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * =====================================================================
+ * Vote Write-Behind Buffer
+ * =====================================================================
+ *
+ * Collects vote counter deltas in memory and writes them to the database
+ * in JDBC batch updates, so a vote request does not wait for (or contend
+ * on) the questions/replies row lock.
+ *
+ * - Deltas are coalesced per target: 1,000 votes on one viral reply
+ *   between two flushes become a single UPDATE.
+ * - A flush runs every flush-interval-ms once the oldest pending delta is
+ *   max-staleness-ms old, or as soon as max-batch-size targets are pending.
+ * - Question and reply batches are written in one transaction; a failed
+ *   flush is rolled back as a whole and puts its deltas back into the
+ *   buffer for the next run (so no delta is ever applied twice).
+ * - Remaining deltas are flushed on shutdown.
+ * - Each written target is announced with a DebateChangedEvent (VOTE),
+ *   so caches refresh once per flush rather than once per vote.
+ * - The topic change log (TopicChangeLog) gets every target of a flush in
+ *   one statement inside the flush transaction: one version bump per topic
+ *   per flush. Votes applied directly (write-behind disabled) are handed
+ *   over with changed() after their commit and logged the same way, so no
+ *   vote transaction locks the topic row.
+ *
+ * Metrics: votes.buffer.pending (targets waiting), votes.buffer.deltas,
+ * votes.flush (timer), votes.flush.failures.
+ *
+ * @author TarkVtark Team
+ */
+@Component
+public class VoteWriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(VoteWriteBehindBuffer.class);
+
+    private static final String FLUSH_QUESTIONS_SQL = """
+            UPDATE questions
+            SET votes_up = GREATEST(votes_up + ?, 0), votes_down = GREATEST(votes_down + ?, 0)
+            WHERE id = ?
+            """;
+
+    private static final String FLUSH_REPLIES_SQL = """
+            UPDATE replies
+            SET votes_up = GREATEST(votes_up + ?, 0), votes_down = GREATEST(votes_down + ?, 0)
+            WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TopicChangeLog topicChangeLog;
+    private final boolean enabled;
+    private final long maxStalenessMs;
+    private final int maxBatchSize;
+
+    // Pending deltas per target. merge() is a CAS into an empty bin and only
+    // locks the single bin otherwise, so voters never block each other globally.
+    private final Map<VoteTarget, Delta> pending = new ConcurrentHashMap<>();
+
+    // Targets whose counts were updated directly and only need logging
+    private final Set<VoteTarget> pendingChanges = ConcurrentHashMap.newKeySet();
+
+    // Time the oldest unflushed delta or change was added (0 = buffer empty)
+    private final AtomicLong oldestPendingAt = new AtomicLong();
+
+    // Only one flush at a time (scheduler and shutdown may overlap)
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter deltasCounter;
+    private final Counter failureCounter;
+    private final Timer flushTimer;
+
+    public VoteWriteBehindBuffer(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            TopicChangeLog topicChangeLog,
+            MeterRegistry meterRegistry,
+            @Value("${votes.write-behind.enabled:true}") boolean enabled,
+            @Value("${votes.write-behind.max-staleness-ms:1000}") long maxStalenessMs,
+            @Value("${votes.write-behind.max-batch-size:500}") int maxBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.topicChangeLog = topicChangeLog;
+        this.enabled = enabled;
+        this.maxStalenessMs = maxStalenessMs;
+        this.maxBatchSize = maxBatchSize;
+
+        Gauge.builder("votes.buffer.pending", pending, Map::size)
+                .description("Targets with vote deltas waiting to be flushed")
+                .register(meterRegistry);
+        this.deltasCounter = Counter.builder("votes.buffer.deltas")
+                .description("Vote deltas accepted into the buffer")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("votes.flush.failures")
+                .description("Vote flushes that failed and were retried")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("votes.flush")
+                .description("Time to write buffered vote deltas to the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true if votes should go through the buffer instead of a direct UPDATE
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Add a counter delta for a question or reply
+     */
+    public void add(String targetType, UUID targetId, int upDelta, int downDelta) {
+        if (upDelta == 0 && downDelta == 0) {
+            return;
+        }
+        pending.merge(new VoteTarget(targetType, targetId), new Delta(upDelta, downDelta), Delta::plus);
+        oldestPendingAt.compareAndSet(0, System.currentTimeMillis());
+        deltasCounter.increment();
+    }
+
+    /**
+     * A vote changed the counts of a question or reply directly (committed): log it with the next flush
+     */
+    public void changed(String targetType, UUID targetId) {
+        pendingChanges.add(new VoteTarget(targetType, targetId));
+        oldestPendingAt.compareAndSet(0, System.currentTimeMillis());
+    }
+
+    /**
+     * Delta not yet written for a target (added to the persisted counts in vote responses)
+     */
+    public Delta pendingDelta(String targetType, UUID targetId) {
+        Delta delta = pending.get(new VoteTarget(targetType, targetId));
+        return delta == null ? Delta.ZERO : delta;
+    }
+
+    /**
+     * Scheduled check: flush when the oldest delta is too old or the buffer is full
+     */
+    @Scheduled(fixedDelayString = "${votes.write-behind.flush-interval-ms:100}")
+    public void flushIfDue() {
+        long since = oldestPendingAt.get();
+        if (since == 0) {
+            return;
+        }
+        if (System.currentTimeMillis() - since >= maxStalenessMs
+                || pending.size() + pendingChanges.size() >= maxBatchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Write all pending deltas now
+     *
+     * @return number of targets written
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            oldestPendingAt.set(0);
+
+            List<Object[]> questionArgs = new ArrayList<>();
+            List<Object[]> replyArgs = new ArrayList<>();
+            List<Map.Entry<VoteTarget, Delta>> drained = new ArrayList<>();
+            Set<UUID> changedIds = new LinkedHashSet<>();
+
+            // remove() hands over each delta atomically; votes arriving meanwhile
+            // start a new entry and go out with the next flush
+            for (VoteTarget target : pending.keySet()) {
+                Delta delta = pending.remove(target);
+                if (delta == null || delta.isZero()) {
+                    continue;
+                }
+                drained.add(Map.entry(target, delta));
+                changedIds.add(target.id());
+                Object[] args = {delta.up(), delta.down(), target.id()};
+                if (VoteService.TARGET_QUESTION.equals(target.type())) {
+                    questionArgs.add(args);
+                } else {
+                    replyArgs.add(args);
+                }
+            }
+
+            List<VoteTarget> drainedChanges = new ArrayList<>();
+            for (VoteTarget target : pendingChanges) {
+                if (pendingChanges.remove(target)) {
+                    drainedChanges.add(target);
+                    changedIds.add(target.id());
+                }
+            }
+
+            if (changedIds.isEmpty()) {
+                return 0;
+            }
+
+            Timer.Sample sample = Timer.start();
+            try {
+                // Both batches and the change log commit or roll back together, so putting
+                // the deltas back below can never apply a committed half twice
+                transaction.executeWithoutResult(status -> {
+                    if (!questionArgs.isEmpty()) {
+                        jdbcTemplate.batchUpdate(FLUSH_QUESTIONS_SQL, questionArgs);
+                    }
+                    if (!replyArgs.isEmpty()) {
+                        jdbcTemplate.batchUpdate(FLUSH_REPLIES_SQL, replyArgs);
+                    }
+                    topicChangeLog.votesChanged(changedIds);
+                });
+            } catch (Exception e) {
+                // Rolled back: put everything back; it is retried on the next run
+                failureCounter.increment();
+                for (Map.Entry<VoteTarget, Delta> entry : drained) {
+                    pending.merge(entry.getKey(), entry.getValue(), Delta::plus);
+                }
+                pendingChanges.addAll(drainedChanges);
+                oldestPendingAt.compareAndSet(0, System.currentTimeMillis());
+                logger.warn("Vote flush of {} targets failed, will retry: {}", changedIds.size(), e.getMessage());
+                return 0;
+            } finally {
+                sample.stop(flushTimer);
+            }
+
+            logger.debug("Flushed vote deltas: {} questions, {} replies; {} changes logged",
+                    questionArgs.size(), replyArgs.size(), changedIds.size());
+            for (Map.Entry<VoteTarget, Delta> entry : drained) {
+                VoteTarget target = entry.getKey();
+                UUID questionId = VoteService.TARGET_QUESTION.equals(target.type()) ? target.id() : null;
+                eventPublisher.publishEvent(new DebateChangedEvent(null, DebateChangedEvent.Type.VOTE, target.id(), questionId));
+            }
+            return drained.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Drain the buffer before the application stops
+     */
+    @PreDestroy
+    public void drain() {
+        int written = flush();
+        if (!pending.isEmpty() || !pendingChanges.isEmpty()) {
+            logger.error("Shutting down with {} unflushed vote targets", pending.size() + pendingChanges.size());
+        } else if (written > 0) {
+            logger.info("Flushed {} pending vote targets on shutdown", written);
+        }
+    }
+
+    private record VoteTarget(String type, UUID id) {
+    }
+
+    /**
+     * Coalesced up/down delta of one target
+     */
+    public record Delta(int up, int down) {
+
+        static final Delta ZERO = new Delta(0, 0);
+
+        Delta plus(Delta other) {
+            return new Delta(up + other.up, down + other.down);
+        }
+
+        boolean isZero() {
+            return up == 0 && down == 0;
+        }
+    }
+}
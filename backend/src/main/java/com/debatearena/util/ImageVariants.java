@@ -0,0 +1,85 @@
+package com.debatearena.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * =====================================================================
+ * Image Variant Naming
+ * =====================================================================
+ *
+ * Smaller copies of an image attachment are stored next to the original,
+ * named after it: attachments/abc.jpeg -> attachments/abc_w320.jpg. So a
+ * variant's URL follows from the original's URL and its width, and only
+ * the widths are kept on the attachment (attachments.variant_widths).
+ *
+ * Variants are PNG for originals that may be transparent (PNG, GIF) and
+ * JPEG otherwise.
+ *
+ * @author TarkVtark Team
+ */
+public final class ImageVariants {
+
+    private ImageVariants() {
+    }
+
+    /**
+     * MIME type of the variants of an original of this type
+     */
+    public static String contentType(String originalType) {
+        return keepsAlpha(originalType) ? "image/png" : "image/jpeg";
+    }
+
+    /**
+     * Image IO format name of the variants ("png" or "jpeg")
+     */
+    public static String formatName(String originalType) {
+        return keepsAlpha(originalType) ? "png" : "jpeg";
+    }
+
+    public static boolean keepsAlpha(String originalType) {
+        return "image/png".equalsIgnoreCase(originalType) || "image/gif".equalsIgnoreCase(originalType);
+    }
+
+    /**
+     * URL (or local storage key) of a variant, next to the original's
+     *
+     * @param originalUrl  URL or key of the original (e.g. attachments/abc.jpeg)
+     * @param width        Width of the variant
+     * @param originalType MIME type of the original
+     */
+    public static String url(String originalUrl, int width, String originalType) {
+        int slash = originalUrl.lastIndexOf('/');
+        return originalUrl.substring(0, slash + 1) + name(originalUrl.substring(slash + 1), width, originalType);
+    }
+
+    /**
+     * Object name of a variant (abc.jpeg -> abc_w320.jpg)
+     */
+    public static String name(String originalName, int width, String originalType) {
+        int dot = originalName.lastIndexOf('.');
+        String base = dot > 0 ? originalName.substring(0, dot) : originalName;
+        return base + "_w" + width + (keepsAlpha(originalType) ? ".png" : ".jpg");
+    }
+
+    /**
+     * Height of a variant, keeping the original's aspect ratio
+     */
+    public static int height(int originalWidth, int originalHeight, int width) {
+        return Math.max(1, Math.round((float) originalHeight * width / originalWidth));
+    }
+
+    /**
+     * Widths stored on an attachment ("160,320,640"), smallest first
+     */
+    public static List<Integer> parseWidths(String variantWidths) {
+        List<Integer> widths = new ArrayList<>();
+        if (variantWidths == null || variantWidths.isBlank()) {
+            return widths;
+        }
+        for (String width : variantWidths.split(",")) {
+            widths.add(Integer.parseInt(width.trim()));
+        }
+        return widths;
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -174,6 +175,51 @@ public class JwtUtil {
         }
     }
 
+    /**
+     * Generate a signed upload ticket (presigned uploads)
+     *
+     * Signed with a key derived from JWT_SECRET, so a ticket is never
+     * accepted as a login token (and a login token never as a ticket).
+     *
+     * @param claims What the client was allowed to upload, and where it goes
+     * @param ttlMs Ticket lifetime in milliseconds
+     * @return Ticket string
+     */
+    public String generateUploadTicket(Map<String, Object> claims, long ttlMs) {
+        Date now = new Date();
+
+        return Jwts.builder()
+                .addClaims(claims)
+                .claim("type", "upload")
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + ttlMs))
+                .signWith(uploadTicketKey(), SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    /**
+     * Verify an upload ticket and return its claims
+     *
+     * @param ticket Ticket from generateUploadTicket
+     * @return Claims object
+     * @throws JwtException if the ticket is invalid or expired
+     */
+    public Claims parseUploadTicket(String ticket) {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(uploadTicketKey())
+                .build()
+                .parseClaimsJws(ticket)
+                .getBody();
+        if (!"upload".equals(claims.get("type", String.class))) {
+            throw new UnsupportedJwtException("Not an upload ticket");
+        }
+        return claims;
+    }
+
+    private SecretKey uploadTicketKey() {
+        return Keys.hmacShaKeyFor((jwtSecret + ":upload-ticket").getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Parse JWT token and extract claims
      *
@@ -0,0 +1,176 @@
+package com.debatearena.integration;
+
+import com.debatearena.repository.AttachmentBlobRepository;
+import com.debatearena.service.AttachmentBlobService;
+import com.debatearena.service.FileStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Proves that a shared attachment object is never deleted while an
+ * attachment still uses it: many threads store and release the same few
+ * contents in parallel, against slow uploads and deletes, and every stored
+ * content must exist from the moment store returns until it is released.
+ * Runs against a real PostgreSQL (Testcontainers) because the guarantees
+ * come from the row locks and ON CONFLICT.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AttachmentBlobService.class, AttachmentBlobConcurrencyIT.MemoryStorage.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class AttachmentBlobConcurrencyIT {
+
+    static PostgreSQLContainer<?> postgres;
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 200;
+    private static final List<byte[]> CONTENTS = List.of(
+            "first shared image".getBytes(StandardCharsets.UTF_8),
+            "second shared image".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private AttachmentBlobService attachmentBlobService;
+
+    @Autowired
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Autowired
+    private MemoryStorage storage;
+
+    @BeforeAll
+    public static void setup() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+        postgres.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (postgres != null) postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> postgres.getUsername());
+        registry.add("spring.datasource.password", () -> postgres.getPassword());
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "20");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    @Test
+    public void sharedObjectIsNeverDeletedWhileReferenced() throws Exception {
+        AtomicInteger missing = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int round = 0; round < ROUNDS; round++) {
+                    byte[] bytes = CONTENTS.get(ThreadLocalRandom.current().nextInt(CONTENTS.size()));
+                    AttachmentBlobService.StoredContent stored = attachmentBlobService.store(
+                            new ByteArrayResource(bytes), bytes.length, "meme.png", "image/png", "attachments");
+                    if (!storage.exists(stored.storageUrl())) {
+                        missing.incrementAndGet();
+                    }
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                    if (!storage.exists(stored.storageUrl())) {
+                        missing.incrementAndGet();
+                    }
+                    attachmentBlobService.release(stored);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        Assertions.assertEquals(0, missing.get(), "stored content was missing while referenced");
+        Assertions.assertEquals(0, attachmentBlobRepository.count(), "blob rows left after the last release");
+        Assertions.assertEquals(Map.of(), storage.objects, "objects left after the last release");
+    }
+
+    /**
+     * In-memory storage with slow uploads and deletes, to widen the windows between
+     * the database and the storage steps
+     */
+    static class MemoryStorage implements FileStorageService {
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+        boolean exists(String key) {
+            return objects.containsKey(key);
+        }
+
+        @Override
+        public String uploadStream(InputStreamSource content, long contentLength, String originalFilename,
+                                   String contentType, String folder) throws IOException {
+            return uploadStreamAs(content, contentLength, UUID.randomUUID() + ".png", contentType, folder);
+        }
+
+        @Override
+        public String uploadStreamAs(InputStreamSource content, long contentLength, String name,
+                                     String contentType, String folder) throws IOException {
+            byte[] bytes;
+            try (InputStream in = content.getInputStream()) {
+                bytes = in.readAllBytes();
+            }
+            pause();
+            String key = folder + "/" + name;
+            objects.put(key, bytes);
+            return key;
+        }
+
+        @Override
+        public void deleteFile(String fileUrl) {
+            pause();
+            objects.remove(fileUrl);
+        }
+
+        @Override
+        public String getProviderName() {
+            return "memory";
+        }
+
+        private static void pause() {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.debatearena.integration;
+
+import com.debatearena.dto.QuestionDTO;
+import com.debatearena.dto.ReplyDTO;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.DebateTopic;
+import com.debatearena.model.EvidenceUrl;
+import com.debatearena.model.Question;
+import com.debatearena.model.Reply;
+import com.debatearena.repository.AttachmentRepository;
+import com.debatearena.repository.DebateTopicRepository;
+import com.debatearena.repository.EvidenceUrlRepository;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import com.debatearena.service.DebateTreeService;
+import com.debatearena.service.ReplyPathService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Counts the SQL statements DebateTreeService.loadTopicTree really prepares
+ * (Hibernate statistics) for a topic with 10 replies and one with 1,000
+ * replies at mixed depths, with attachments and evidence URLs: the count
+ * must be the same for both, so no query runs per question or per reply.
+ * Runs against a real PostgreSQL (Testcontainers) because the loader's
+ * queries are native PostgreSQL.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DebateTreeService.class, ReplyPathService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DebateTreeQueryCountIT {
+
+    static PostgreSQLContainer<?> postgres;
+
+    private static final int QUESTIONS = 4;
+    private static final int MAX_SEEDED_DEPTH = 8;
+
+    @Autowired
+    private DebateTreeService debateTreeService;
+
+    @Autowired
+    private ReplyPathService replyPathService;
+
+    @Autowired
+    private DebateTopicRepository debateTopicRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private ReplyRepository replyRepository;
+
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+
+    @Autowired
+    private EvidenceUrlRepository evidenceUrlRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    public static void setup() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+        postgres.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (postgres != null) postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> postgres.getUsername());
+        registry.add("spring.datasource.password", () -> postgres.getPassword());
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+        registry.add("replies.path.backfill-on-startup", () -> "false");
+    }
+
+    @Test
+    public void statementCountIsTheSameForTenAndThousandReplies() {
+        UUID small = seedTopic(10);
+        UUID large = seedTopic(1000);
+
+        long smallStatements = countStatements(small, 10);
+        long largeStatements = countStatements(large, 1000);
+
+        Assertions.assertEquals(smallStatements, largeStatements,
+                "statements for 10 replies: " + smallStatements + ", for 1000 replies: " + largeStatements);
+        Assertions.assertTrue(largeStatements <= 4, "expected at most 4 statements, got " + largeStatements);
+    }
+
+    private long countStatements(UUID topicId, int expectedReplies) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<QuestionDTO> tree = debateTreeService.loadTopicTree(topicId);
+
+        long statements = statistics.getPrepareStatementCount();
+        Assertions.assertEquals(QUESTIONS, tree.size());
+        Assertions.assertEquals(expectedReplies, countReplies(tree));
+        Assertions.assertEquals(QUESTIONS, tree.stream().mapToInt(q -> q.getAttachments().size()).sum());
+        return statements;
+    }
+
+    private static int countReplies(List<QuestionDTO> tree) {
+        int count = 0;
+        List<ReplyDTO> pending = new ArrayList<>();
+        tree.forEach(q -> pending.addAll(q.getReplies()));
+        while (!pending.isEmpty()) {
+            ReplyDTO reply = pending.remove(pending.size() - 1);
+            count++;
+            pending.addAll(reply.getReplies());
+        }
+        return count;
+    }
+
+    /**
+     * Spreads {@code replyCount} replies over the questions of a new topic; each reply
+     * answers its question or an earlier reply of the same thread, picked at random.
+     * Every question and every tenth reply gets an attachment and an evidence URL.
+     */
+    private UUID seedTopic(int replyCount) {
+        DebateTopic topic = new DebateTopic();
+        topic.setTopic("Tree " + UUID.randomUUID());
+        topic.setLeftLabel("Left");
+        topic.setRightLabel("Right");
+        topic = debateTopicRepository.save(topic);
+
+        Random random = new Random(replyCount);
+        List<Question> questions = new ArrayList<>();
+        List<List<Reply>> threads = new ArrayList<>();
+        for (int q = 0; q < QUESTIONS; q++) {
+            Question question = new Question();
+            question.setDebateTopic(topic);
+            question.setText("Question " + q);
+            question.setSide(q % 2 == 0 ? "left" : "right");
+            question.setUniqueId("q-" + UUID.randomUUID());
+            question = questionRepository.save(question);
+            questions.add(question);
+            threads.add(new ArrayList<>());
+            saveEvidence(question, null);
+        }
+
+        for (int r = 0; r < replyCount; r++) {
+            int q = r % QUESTIONS;
+            List<Reply> thread = threads.get(q);
+            Reply parent = thread.isEmpty() || random.nextInt(4) == 0
+                    ? null : thread.get(random.nextInt(thread.size()));
+            if (parent != null && parent.getDepth() >= MAX_SEEDED_DEPTH) {
+                parent = null;
+            }
+
+            Reply reply = new Reply();
+            if (parent == null) {
+                reply.setQuestion(questions.get(q));
+            } else {
+                reply.setParentReply(parent);
+            }
+            reply.setText("Reply " + r);
+            reply.setSide(parent == null ? "right" : ("left".equals(parent.getSide()) ? "right" : "left"));
+            reply.setUniqueId("r-" + UUID.randomUUID());
+            reply.setCreatedAt(LocalDateTime.now());
+            replyPathService.assignPath(reply);
+            reply = replyRepository.save(reply);
+            thread.add(reply);
+            if (r % 10 == 0) {
+                saveEvidence(null, reply);
+            }
+        }
+        return topic.getId();
+    }
+
+    private void saveEvidence(Question question, Reply reply) {
+        Attachment attachment = new Attachment();
+        attachment.setQuestion(question);
+        attachment.setReply(reply);
+        attachment.setFileName("chart.png");
+        attachment.setFileSize(1024L);
+        attachment.setFileType("image/png");
+        attachment.setStorageUrl("attachments/" + UUID.randomUUID() + ".png");
+        attachmentRepository.save(attachment);
+
+        EvidenceUrl evidenceUrl = new EvidenceUrl();
+        evidenceUrl.setQuestion(question);
+        evidenceUrl.setReply(reply);
+        evidenceUrl.setUrl("https://example.org/" + UUID.randomUUID());
+        evidenceUrl.setTitle("Source");
+        evidenceUrlRepository.save(evidenceUrl);
+    }
+}
@@ -0,0 +1,188 @@
+package com.debatearena.integration;
+
+import com.debatearena.DebateApplication;
+import com.debatearena.model.Attachment;
+import com.debatearena.model.DebateTopic;
+import com.debatearena.model.EvidenceUrl;
+import com.debatearena.model.Question;
+import com.debatearena.model.Reply;
+import com.debatearena.repository.AttachmentRepository;
+import com.debatearena.repository.DebateTopicRepository;
+import com.debatearena.repository.EvidenceUrlRepository;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.service.DebateCounterService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+/**
+ * GET /questions/topic/{topicId}/stream must return the same tree as the
+ * buffered GET /questions/topic/{topicId}: same questions in the same
+ * order, same nesting and counters, same attachments (with image variants)
+ * and evidence URLs, also for a thread with replies whose materialized path
+ * is not backfilled yet. Runs the real application against PostgreSQL
+ * (Testcontainers) because the streamer's SQL is PostgreSQL's.
+ */
+public class DebateTreeStreamIT {
+
+    static PostgreSQLContainer<?> postgres;
+    static ConfigurableApplicationContext context;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    public static void setup() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+        postgres.start();
+        context = new SpringApplicationBuilder(DebateApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.com.debatearena=WARN");
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (context != null) context.close();
+        if (postgres != null) postgres.stop();
+    }
+
+    @Test
+    public void streamMatchesBufferedTree() throws Exception {
+        DebateTopic topic = saveTopic();
+        for (int q = 0; q < 3; q++) {
+            Question question = saveQuestion(topic, "Question " + q);
+            saveAttachment(question, null, 0);
+            saveEvidence(question, null);
+            Reply top = createReply(question, null, "Top " + q);
+            Reply nested = createReply(question, top, "Nested " + q);
+            createReply(question, nested, "Deep " + q);
+            saveAttachment(null, nested, 1);
+            saveEvidence(null, top);
+            createReply(question, null, "Second top " + q);
+        }
+
+        assertSameTree(topic.getId());
+    }
+
+    @Test
+    public void streamMatchesBufferedTreeWithRepliesNotBackfilled() throws Exception {
+        DebateTopic topic = saveTopic();
+        Question first = saveQuestion(topic, "Backfilled");
+        createReply(first, createReply(first, null, "Top"), "Nested");
+
+        Question question = saveQuestion(topic, "Partly backfilled");
+        Reply top = createReply(question, null, "Top");
+        Reply nested = createReply(question, top, "Nested");
+        Reply deep = createReply(question, nested, "Deep");
+        Reply other = createReply(question, null, "Other top");
+        saveAttachment(null, deep, 0);
+        saveEvidence(null, nested);
+        saveAttachment(null, other, 0);
+        // As created before materialized paths (the on-demand backfill has not reached them yet)
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("UPDATE replies SET path = NULL WHERE id IN (?, ?)", nested.getId(), deep.getId());
+
+        Question last = saveQuestion(topic, "After");
+        createReply(last, null, "Top");
+
+        JsonNode buffered = assertSameTree(topic.getId());
+        JsonNode partly = buffered.get(1);
+        Assertions.assertEquals(2, partly.get("replies").size());
+        JsonNode nestedNode = partly.get("replies").get(0).get("replies").get(0);
+        Assertions.assertEquals(nested.getId().toString(), nestedNode.get("id").asText());
+        Assertions.assertEquals(1, nestedNode.get("evidenceUrls").size());
+        Assertions.assertEquals(1, nestedNode.get("replies").get(0).get("attachments").size());
+    }
+
+    private JsonNode assertSameTree(UUID topicId) throws Exception {
+        JsonNode buffered = get("/questions/topic/" + topicId);
+        JsonNode streamed = get("/questions/topic/" + topicId + "/stream");
+        Assertions.assertTrue(buffered.size() > 0);
+        // Object fields compare regardless of order; arrays (questions, replies, attachments) in order
+        Assertions.assertEquals(buffered, streamed);
+        return buffered;
+    }
+
+    private JsonNode get(String path) throws Exception {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        HttpResponse<byte[]> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1" + path)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals(200, response.statusCode(), path);
+        return objectMapper.readTree(response.body());
+    }
+
+    private static DebateTopic saveTopic() {
+        DebateTopic topic = new DebateTopic();
+        topic.setTopic("Stream " + UUID.randomUUID());
+        topic.setLeftLabel("Left");
+        topic.setRightLabel("Right");
+        return context.getBean(DebateTopicRepository.class).save(topic);
+    }
+
+    private static Question saveQuestion(DebateTopic topic, String text) {
+        Question question = new Question();
+        question.setDebateTopic(topic);
+        question.setText(text);
+        question.setSide("left");
+        question.setUniqueId("q-" + UUID.randomUUID());
+        return context.getBean(QuestionRepository.class).saveAndFlush(question);
+    }
+
+    private static Reply createReply(Question question, Reply parent, String text) {
+        Reply reply = new Reply();
+        if (parent == null) {
+            reply.setQuestion(question);
+        } else {
+            reply.setParentReply(parent);
+        }
+        reply.setText(text);
+        reply.setSide("right");
+        reply.setUniqueId("r-" + UUID.randomUUID());
+        return context.getBean(DebateCounterService.class).createReply(reply);
+    }
+
+    private static void saveAttachment(Question question, Reply reply, int displayOrder) {
+        Attachment attachment = new Attachment();
+        attachment.setQuestion(question);
+        attachment.setReply(reply);
+        attachment.setFileName("chart.png");
+        attachment.setFileSize(1024L);
+        attachment.setFileType("image/png");
+        attachment.setStorageUrl("attachments/" + UUID.randomUUID() + ".png");
+        attachment.setImageWidth(1280);
+        attachment.setImageHeight(720);
+        attachment.setVariantWidths("160,320,640");
+        attachment.setDisplayOrder(displayOrder);
+        context.getBean(AttachmentRepository.class).saveAndFlush(attachment);
+    }
+
+    private static void saveEvidence(Question question, Reply reply) {
+        EvidenceUrl evidenceUrl = new EvidenceUrl();
+        evidenceUrl.setQuestion(question);
+        evidenceUrl.setReply(reply);
+        evidenceUrl.setUrl("https://example.org/" + UUID.randomUUID());
+        evidenceUrl.setTitle("Source");
+        context.getBean(EvidenceUrlRepository.class).saveAndFlush(evidenceUrl);
+    }
+}
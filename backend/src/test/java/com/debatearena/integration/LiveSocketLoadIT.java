@@ -0,0 +1,218 @@
+package com.debatearena.integration;
+
+import com.debatearena.dto.VoteResultDTO;
+import com.debatearena.event.LiveDebateEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.ClientEndpointConfig;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import jakarta.websocket.WebSocketContainer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load harness for the live WebSocket feed: opens thousands of local
+ * clients on one topic, fires a burst of votes on a few replies from
+ * several threads, and checks that every client ends with the final counts
+ * of every reply while receiving only a handful of batched vote frames
+ * (frames scale with flushes, not with votes x clients).
+ *
+ * Sizes can be raised from the command line, e.g.
+ * -Dlive.load.clients=5000 -Dlive.load.votes=100000
+ * (each client needs two file descriptors in this JVM).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class LiveSocketLoadIT {
+
+    static PostgreSQLContainer<?> postgres;
+
+    private static final int CLIENTS = Integer.getInteger("live.load.clients", 2000);
+    private static final int VOTES = Integer.getInteger("live.load.votes", 20000);
+    private static final int REPLIES = 50;
+    private static final int VOTER_THREADS = 8;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeAll
+    public static void setup() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+        postgres.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (postgres != null) postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> postgres.getUsername());
+        registry.add("spring.datasource.password", () -> postgres.getPassword());
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("live.ws.max-sessions", () -> Integer.toString(CLIENTS + 100));
+        registry.add("live.ws.buffer-size", () -> "1024");
+    }
+
+    @Test
+    public void thousandsOfClientsReceiveBatchedVotes() throws Exception {
+        UUID topicId = UUID.randomUUID();
+        List<UUID> replies = new ArrayList<>();
+        for (int i = 0; i < REPLIES; i++) {
+            replies.add(UUID.randomUUID());
+        }
+
+        // Connect all clients
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        URI uri = URI.create("ws://localhost:" + port + "/api/v1/ws/topics/" + topicId);
+        List<Client> clients = new ArrayList<>();
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < CLIENTS; i++) {
+            Client client = new Client(objectMapper);
+            container.connectToServer(client, ClientEndpointConfig.Builder.create().build(), uri);
+            clients.add(client);
+        }
+        for (Client client : clients) {
+            Assertions.assertTrue(client.subscribed.await(30, TimeUnit.SECONDS), "client not subscribed");
+        }
+        long connectMs = (System.nanoTime() - connectStart) / 1_000_000;
+
+        // Burst of votes: each vote carries the new counts of its reply, as the vote endpoint does
+        Map<UUID, AtomicInteger> upVotes = new ConcurrentHashMap<>();
+        replies.forEach(id -> upVotes.put(id, new AtomicInteger()));
+        ExecutorService voters = Executors.newFixedThreadPool(VOTER_THREADS);
+        AtomicLong published = new AtomicLong();
+        long voteStart = System.nanoTime();
+        for (int t = 0; t < VOTER_THREADS; t++) {
+            int thread = t;
+            voters.submit(() -> {
+                for (int v = thread; v < VOTES; v += VOTER_THREADS) {
+                    UUID replyId = replies.get(v % REPLIES);
+                    int up;
+                    synchronized (upVotes.get(replyId)) {
+                        up = upVotes.get(replyId).incrementAndGet();
+                        eventPublisher.publishEvent(new LiveDebateEvent(topicId, null, replyId, LiveDebateEvent.VOTE,
+                                new VoteResultDTO(replyId, "reply", up, 0, null)));
+                    }
+                    published.incrementAndGet();
+                }
+            });
+        }
+        voters.shutdown();
+        Assertions.assertTrue(voters.awaitTermination(60, TimeUnit.SECONDS));
+        long voteMs = (System.nanoTime() - voteStart) / 1_000_000;
+
+        // Every client converges on the final counts
+        long deadline = System.currentTimeMillis() + 30_000;
+        for (Client client : clients) {
+            while (!client.hasCounts(upVotes) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Assertions.assertTrue(client.hasCounts(upVotes), "client did not receive the final vote counts");
+        }
+        long convergeMs = (System.nanoTime() - voteStart) / 1_000_000;
+
+        long frames = clients.stream().mapToLong(c -> c.voteFrames.get()).sum();
+        double framesPerClient = (double) frames / CLIENTS;
+        System.out.printf("%d clients connected in %d ms%n", CLIENTS, connectMs);
+        System.out.printf("%d votes published in %d ms; all clients converged after %d ms%n",
+                published.get(), voteMs, convergeMs);
+        System.out.printf("vote frames: %d total, %.1f per client (unbatched would be %d per client)%n",
+                frames, framesPerClient, VOTES);
+
+        // At most one frame per flush (250 ms) while voting, plus the trailing flush
+        long flushes = voteMs / 250 + 3;
+        Assertions.assertTrue(framesPerClient <= flushes,
+                "expected at most " + flushes + " vote frames per client, got " + framesPerClient);
+
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    static class Client extends Endpoint {
+        final ObjectMapper objectMapper;
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        final AtomicLong voteFrames = new AtomicLong();
+        final Map<UUID, Integer> counts = new ConcurrentHashMap<>();
+        volatile Session session;
+
+        Client(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            this.session = session;
+            session.addMessageHandler(String.class, (MessageHandler.Whole<String>) this::onFrame);
+        }
+
+        void onFrame(String text) {
+            try {
+                JsonNode frame = objectMapper.readTree(text);
+                String type = frame.get("type").asText();
+                if ("subscribed".equals(type)) {
+                    subscribed.countDown();
+                } else if ("votes".equals(type)) {
+                    voteFrames.incrementAndGet();
+                    for (JsonNode vote : frame.get("data")) {
+                        counts.merge(UUID.fromString(vote.get("id").asText()), vote.get("votesUp").asInt(), Math::max);
+                    }
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        boolean hasCounts(Map<UUID, AtomicInteger> expected) {
+            for (Map.Entry<UUID, AtomicInteger> entry : expected.entrySet()) {
+                Integer seen = counts.get(entry.getKey());
+                if (seen == null || seen != entry.getValue().get()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void close() throws Exception {
+            if (session != null && session.isOpen()) {
+                session.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "done"));
+            }
+        }
+    }
+}
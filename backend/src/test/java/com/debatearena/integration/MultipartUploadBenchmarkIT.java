@@ -0,0 +1,241 @@
+package com.debatearena.integration;
+
+import com.debatearena.service.FileStorageService;
+import com.debatearena.service.S3FileStorageService;
+import com.debatearena.service.StorageCallLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.utility.DockerImageName;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads in parts against LocalStack S3, through S3FileStorageService:
+ * - throughput of one streamed PUT vs. multipart uploads sending 1, 4 and 8
+ *   parts at once (printed; LocalStack numbers only compare the modes)
+ * - resume: a part that failed is sent again on its own and the upload
+ *   completes with the right content
+ * - abort: the multipart upload and its parts are gone
+ *
+ * The file size can be raised from the command line, e.g.
+ * -Dmultipart.bench.size-mb=512
+ */
+public class MultipartUploadBenchmarkIT {
+
+    static LocalStackContainer localstack;
+    static S3Client s3Client;
+    static S3FileStorageService storage;
+    static Path file;
+
+    private static final String BUCKET = "bench-bucket";
+    private static final long SIZE = Long.getLong("multipart.bench.size-mb", 128L) * 1024 * 1024;
+    private static final long PART_SIZE = 8L * 1024 * 1024;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        localstack = new LocalStackContainer(DockerImageName.parse("localstack/localstack:0.14.3"))
+                .withServices(LocalStackContainer.Service.S3);
+        localstack.start();
+
+        URI endpoint = localstack.getEndpointOverride(LocalStackContainer.Service.S3);
+        s3Client = S3Client.builder()
+                .endpointOverride(endpoint)
+                .region(Region.of(localstack.getRegion()))
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(localstack.getAccessKey(), localstack.getSecretKey())))
+                .build();
+        s3Client.createBucket(CreateBucketRequest.builder().bucket(BUCKET).build());
+
+        storage = new S3FileStorageService(localstack.getAccessKey(), localstack.getSecretKey(), localstack.getRegion(),
+                new StorageCallLimiter(new SimpleMeterRegistry(), 16, 60_000));
+        set(storage, "bucketName", BUCKET);
+        set(storage, "baseUrl", endpoint.toString());
+        set(storage, "s3Client", s3Client);
+
+        // Random content (incompressible), written in 1 MB blocks
+        file = Files.createTempFile("multipart-bench", ".bin");
+        Random random = new Random(42);
+        byte[] block = new byte[1024 * 1024];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < SIZE; written += block.length) {
+                random.nextBytes(block);
+                out.write(block, 0, (int) Math.min(block.length, SIZE - written));
+            }
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() throws IOException {
+        if (file != null) Files.deleteIfExists(file);
+        if (s3Client != null) s3Client.close();
+        if (localstack != null) localstack.stop();
+    }
+
+    @Test
+    public void multipartThroughputComparedToSinglePut() throws Exception {
+        byte[] expected = sha256(Files.newInputStream(file));
+
+        long begin = System.nanoTime();
+        String url = storage.uploadStream(new FileSystemResource(file), SIZE, "bench.bin", "application/octet-stream", "attachments");
+        print("single PUT", System.nanoTime() - begin);
+        assertStored(url, expected);
+
+        for (int parallelism : new int[]{1, 4, 8}) {
+            begin = System.nanoTime();
+            url = uploadInParts(parallelism, List.of());
+            print("parts x" + parallelism, System.nanoTime() - begin);
+            assertStored(url, expected);
+        }
+    }
+
+    @Test
+    public void failedPartIsResentAndUploadCompletes() throws Exception {
+        byte[] expected = sha256(Files.newInputStream(file));
+
+        // Part 2 "fails" (never arrives); the client resends just that part
+        String url = uploadInParts(4, List.of(2));
+        assertStored(url, expected);
+    }
+
+    @Test
+    public void abortedUploadLeavesNothingBehind() throws Exception {
+        FileStorageService.MultipartUpload upload =
+                storage.startMultipartUpload("aborted.bin", "application/octet-stream", "attachments");
+        storage.uploadPart(upload, 1, part(1), partLength(1));
+
+        storage.abortMultipartUpload(upload);
+        // Aborting twice is fine (cleanup may race with the client)
+        storage.abortMultipartUpload(upload);
+
+        ListMultipartUploadsResponse uploads = s3Client.listMultipartUploads(
+                ListMultipartUploadsRequest.builder().bucket(BUCKET).prefix(upload.key()).build());
+        Assertions.assertTrue(uploads.uploads().isEmpty(), "multipart upload should be gone after abort");
+        Assertions.assertThrows(NoSuchKeyException.class,
+                () -> s3Client.headObject(HeadObjectRequest.builder().bucket(BUCKET).key(upload.key()).build()));
+    }
+
+    // Sends every part (parallelism at once), then the parts listed in failFirst again, then completes
+    private String uploadInParts(int parallelism, List<Integer> failFirst) throws Exception {
+        int partCount = (int) ((SIZE + PART_SIZE - 1) / PART_SIZE);
+        FileStorageService.MultipartUpload upload =
+                storage.startMultipartUpload("bench.bin", "application/octet-stream", "attachments");
+        String[] etags = new String[partCount];
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int n = 1; n <= partCount; n++) {
+                int partNumber = n;
+                if (failFirst.contains(partNumber)) {
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    etags[partNumber - 1] = storage.uploadPart(upload, partNumber, part(partNumber), partLength(partNumber));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int partNumber : failFirst) {
+            etags[partNumber - 1] = storage.uploadPart(upload, partNumber, part(partNumber), partLength(partNumber));
+        }
+        return storage.completeMultipartUpload(upload, Arrays.asList(etags));
+    }
+
+    private void assertStored(String url, byte[] expectedSha256) throws Exception {
+        String key = url.substring(url.indexOf(BUCKET + "/") + BUCKET.length() + 1);
+        try (ResponseInputStream<GetObjectResponse> in =
+                     s3Client.getObject(GetObjectRequest.builder().bucket(BUCKET).key(key).build())) {
+            Assertions.assertEquals(SIZE, in.response().contentLength());
+            Assertions.assertArrayEquals(expectedSha256, sha256(in), "stored content differs from the file");
+        }
+        s3Client.deleteObject(DeleteObjectRequest.builder().bucket(BUCKET).key(key).build());
+    }
+
+    // Part n of the file, read from its offset (reopenable, like a request body the SDK may retry)
+    private static InputStreamSource part(int partNumber) {
+        long offset = (partNumber - 1) * PART_SIZE;
+        long length = partLength(partNumber);
+        return () -> {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ).position(offset);
+            return new FilterInputStream(Channels.newInputStream(channel)) {
+                private long remaining = length;
+
+                @Override
+                public int read() throws IOException {
+                    if (remaining <= 0) return -1;
+                    int b = super.read();
+                    if (b >= 0) remaining--;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (remaining <= 0) return -1;
+                    int n = super.read(b, off, (int) Math.min(len, remaining));
+                    if (n > 0) remaining -= n;
+                    return n;
+                }
+            };
+        };
+    }
+
+    private static long partLength(int partNumber) {
+        return Math.min(PART_SIZE, SIZE - (partNumber - 1) * PART_SIZE);
+    }
+
+    private static byte[] sha256(InputStream in) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream digesting = new DigestInputStream(in, digest)) {
+            digesting.transferTo(OutputStream.nullOutputStream());
+        }
+        return digest.digest();
+    }
+
+    private static void print(String mode, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-11s %d MB in %.2f s: %.1f MB/s%n",
+                mode, SIZE / (1024 * 1024), seconds, SIZE / (1024.0 * 1024.0) / seconds);
+    }
+
+    private static void set(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+}
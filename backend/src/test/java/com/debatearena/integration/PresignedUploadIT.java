@@ -0,0 +1,129 @@
+package com.debatearena.integration;
+
+import com.debatearena.service.FileStorageService;
+import com.debatearena.service.S3FileStorageService;
+import com.debatearena.service.StorageCallLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.utility.DockerImageName;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Presigned uploads and downloads against LocalStack S3, through
+ * S3FileStorageService: the file goes from the client straight to the
+ * bucket and back, with no bytes passing through the service.
+ */
+public class PresignedUploadIT {
+
+    static LocalStackContainer localstack;
+    static S3Client s3Client;
+    static S3Presigner s3Presigner;
+    static S3FileStorageService storage;
+    static HttpClient http = HttpClient.newHttpClient();
+
+    private static final String BUCKET = "presign-bucket";
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        localstack = new LocalStackContainer(DockerImageName.parse("localstack/localstack:0.14.3"))
+                .withServices(LocalStackContainer.Service.S3);
+        localstack.start();
+
+        URI endpoint = localstack.getEndpointOverride(LocalStackContainer.Service.S3);
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(localstack.getAccessKey(), localstack.getSecretKey()));
+        S3Configuration pathStyle = S3Configuration.builder().pathStyleAccessEnabled(true).build();
+        s3Client = S3Client.builder()
+                .endpointOverride(endpoint)
+                .region(Region.of(localstack.getRegion()))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(pathStyle)
+                .build();
+        s3Presigner = S3Presigner.builder()
+                .endpointOverride(endpoint)
+                .region(Region.of(localstack.getRegion()))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(pathStyle)
+                .build();
+        s3Client.createBucket(CreateBucketRequest.builder().bucket(BUCKET).build());
+
+        storage = new S3FileStorageService(localstack.getAccessKey(), localstack.getSecretKey(), localstack.getRegion(),
+                new StorageCallLimiter(new SimpleMeterRegistry(), 16, 60_000));
+        set(storage, "bucketName", BUCKET);
+        set(storage, "baseUrl", endpoint + "/" + BUCKET);
+        set(storage, "s3Client", s3Client);
+        set(storage, "s3Presigner", s3Presigner);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (s3Presigner != null) s3Presigner.close();
+        if (s3Client != null) s3Client.close();
+        if (localstack != null) localstack.stop();
+    }
+
+    @Test
+    public void fileGoesStraightToTheBucketAndBack() throws Exception {
+        byte[] content = new byte[256 * 1024];
+        new Random(7).nextBytes(content);
+
+        FileStorageService.PresignedUpload upload = storage.presignUpload(
+                "evidence.pdf", "application/pdf", content.length, "attachments", Duration.ofMinutes(5));
+        Assertions.assertTrue(upload.key().startsWith("attachments/"));
+        Assertions.assertEquals(Optional.empty(), storage.storedSize(upload.key()), "nothing stored before the PUT");
+
+        HttpResponse<String> put = http.send(put(upload, content), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, put.statusCode(), "presigned PUT failed: " + put.body());
+
+        // What the completion callback checks before it creates the attachment
+        Assertions.assertEquals(Optional.of((long) content.length), storage.storedSize(upload.key()));
+
+        FileStorageService.PresignedUrl download =
+                storage.presignDownload(upload.fileUrl(), "evidence.pdf", Duration.ofMinutes(5));
+        HttpResponse<byte[]> get = http.send(HttpRequest.newBuilder(URI.create(download.url())).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals(200, get.statusCode());
+        Assertions.assertArrayEquals(content, get.body(), "downloaded content differs from the upload");
+        Assertions.assertTrue(get.headers().firstValue("Content-Disposition").orElse("").contains("evidence.pdf"));
+
+        storage.deleteFile(upload.fileUrl());
+        Assertions.assertEquals(Optional.empty(), storage.storedSize(upload.key()));
+    }
+
+    private static HttpRequest put(FileStorageService.PresignedUpload upload, byte[] body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(upload.url()))
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(body));
+        // Content-Length is set by the client from the body
+        upload.headers().forEach((name, value) -> {
+            if (!"content-length".equalsIgnoreCase(name)) {
+                request.header(name, value);
+            }
+        });
+        return request.build();
+    }
+
+    private static void set(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+}
@@ -0,0 +1,210 @@
+package com.debatearena.integration;
+
+import com.debatearena.model.DebateTopic;
+import com.debatearena.model.Question;
+import com.debatearena.repository.DebateTopicRepository;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import com.debatearena.service.ReplyPathService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares the recursive CTE over parent_reply_id with the materialized-path
+ * range scan for "all descendants of X" and descendant counts, and checks
+ * that the SQL backfill produces paths that give the same answers.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReplyPathBenchmarkIT {
+
+    static PostgreSQLContainer<?> postgres;
+
+    // 8 direct replies, each with a 4-way tree 6 levels deep: ~43,700 replies
+    private static final int ROOTS = 8;
+    private static final int FAN_OUT = 4;
+    private static final int LEVELS = 6;
+    private static final int RUNS = 20;
+
+    private static final String RECURSIVE_COUNT_SQL = """
+            WITH RECURSIVE thread AS (
+                SELECT id FROM replies WHERE parent_reply_id = ?
+                UNION ALL
+                SELECT c.id FROM replies c JOIN thread t ON c.parent_reply_id = t.id
+            )
+            SELECT COUNT(*) FROM thread
+            """;
+
+    @Autowired
+    private DebateTopicRepository debateTopicRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private ReplyRepository replyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public static void setup() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+        postgres.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (postgres != null) postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> postgres.getUsername());
+        registry.add("spring.datasource.password", () -> postgres.getPassword());
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    @Test
+    public void pathRangeScanMatchesRecursiveCteAndIsFaster() {
+        Question question = saveQuestion();
+        List<Object[]> rows = new ArrayList<>();
+        List<UUID> roots = new ArrayList<>();
+        List<String> rootPaths = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.now().minusDays(1);
+        long[] clock = {0};
+
+        for (int r = 0; r < ROOTS; r++) {
+            UUID id = UUID.randomUUID();
+            String path = ReplyPathService.rootSegment(question.getId()) + "/" + segment(base, clock, id);
+            rows.add(row(id, question.getId(), null, question.getId(), path, 0, base.plusNanos(clock[0] * 1_000_000)));
+            roots.add(id);
+            rootPaths.add(path);
+            addChildren(rows, question.getId(), id, path, 1, base, clock);
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO replies (id, question_id, parent_reply_id, root_question_id, path, depth,
+                                     text, side, author, votes_up, votes_down, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, 'Benchmark reply', 'left', 'Anonymous', 0, 0, ?, ?)
+                """, rows);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_replies_path ON replies(path)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_replies_parent ON replies(parent_reply_id)");
+        jdbcTemplate.execute("ANALYZE replies");
+
+        long expectedPerRoot = 0;
+        for (int level = 1; level <= LEVELS; level++) {
+            expectedPerRoot += (long) Math.pow(FAN_OUT, level);
+        }
+
+        for (int i = 0; i < ROOTS; i++) {
+            UUID root = roots.get(i);
+            String path = rootPaths.get(i);
+            long recursive = jdbcTemplate.queryForObject(RECURSIVE_COUNT_SQL, Long.class, root);
+            long byPath = replyRepository.countDescendantsByPathRange(
+                    ReplyPathService.descendantsLowerBound(path), ReplyPathService.descendantsUpperBound(path));
+            Assertions.assertEquals(expectedPerRoot, recursive);
+            Assertions.assertEquals(expectedPerRoot, byPath);
+        }
+
+        String firstPath = rootPaths.get(0);
+        UUID firstRoot = roots.get(0);
+        long recursiveNanos = time(() -> jdbcTemplate.queryForObject(RECURSIVE_COUNT_SQL, Long.class, firstRoot));
+        long pathNanos = time(() -> replyRepository.countDescendantsByPathRange(
+                ReplyPathService.descendantsLowerBound(firstPath), ReplyPathService.descendantsUpperBound(firstPath)));
+        long pathListNanos = time(() -> replyRepository.findDescendantsByPathRange(
+                ReplyPathService.descendantsLowerBound(firstPath), ReplyPathService.descendantsUpperBound(firstPath)).size());
+
+        System.out.printf("%d replies, %d descendants per subtree%n", rows.size(), expectedPerRoot);
+        System.out.printf("descendant count: recursive CTE %.2f ms, path range %.2f ms (avg of %d)%n",
+                recursiveNanos / 1e6, pathNanos / 1e6, RUNS);
+        System.out.printf("descendant list (ordered, mapped to entities): path range %.2f ms%n", pathListNanos / 1e6);
+
+        // Backfill: wipe the paths and let the SQL backfill rebuild them from parent_reply_id
+        jdbcTemplate.update("UPDATE replies SET path = NULL, root_question_id = NULL, depth = 0");
+        int backfilled = replyRepository.backfillPaths();
+        Assertions.assertEquals(rows.size(), backfilled);
+        Assertions.assertEquals(0, replyRepository.countByPathIsNull());
+
+        for (UUID root : roots) {
+            String path = jdbcTemplate.queryForObject("SELECT path FROM replies WHERE id = ?", String.class, root);
+            Assertions.assertEquals(expectedPerRoot, replyRepository.countDescendantsByPathRange(
+                    ReplyPathService.descendantsLowerBound(path), ReplyPathService.descendantsUpperBound(path)));
+        }
+        Integer maxDepth = jdbcTemplate.queryForObject("SELECT MAX(depth) FROM replies", Integer.class);
+        Assertions.assertEquals(LEVELS, maxDepth);
+    }
+
+    private void addChildren(List<Object[]> rows, UUID questionId, UUID parentId, String parentPath,
+                             int level, LocalDateTime base, long[] clock) {
+        if (level > LEVELS) {
+            return;
+        }
+        for (int i = 0; i < FAN_OUT; i++) {
+            UUID id = UUID.randomUUID();
+            String path = parentPath + "/" + segment(base, clock, id);
+            rows.add(row(id, null, parentId, questionId, path, level, base.plusNanos(clock[0] * 1_000_000)));
+            addChildren(rows, questionId, id, path, level + 1, base, clock);
+        }
+    }
+
+    // One millisecond per reply so creation order and path order agree
+    private static String segment(LocalDateTime base, long[] clock, UUID id) {
+        clock[0]++;
+        long millis = Timestamp.valueOf(base).getTime() + clock[0];
+        return ReplyPathService.segment(millis, id.toString().substring(0, 8));
+    }
+
+    private static Object[] row(UUID id, UUID questionId, UUID parentId, UUID rootQuestionId,
+                                String path, int depth, LocalDateTime createdAt) {
+        Timestamp ts = Timestamp.valueOf(createdAt);
+        return new Object[]{id, questionId, parentId, rootQuestionId, path, depth, ts, ts};
+    }
+
+    private static long time(LongSupplier query) {
+        for (int i = 0; i < 3; i++) {
+            query.getAsLong(); // warm-up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            query.getAsLong();
+        }
+        return (System.nanoTime() - start) / RUNS;
+    }
+
+    private Question saveQuestion() {
+        DebateTopic topic = new DebateTopic();
+        topic.setTopic("Benchmark " + UUID.randomUUID());
+        topic.setLeftLabel("Left");
+        topic.setRightLabel("Right");
+        topic = debateTopicRepository.save(topic);
+
+        Question question = new Question();
+        question.setDebateTopic(topic);
+        question.setText("Deep thread");
+        question.setSide("left");
+        question.setUniqueId("q-" + UUID.randomUUID());
+        return questionRepository.save(question);
+    }
+}
@@ -0,0 +1,270 @@
+package com.debatearena.integration;
+
+import com.debatearena.DebateApplication;
+import com.debatearena.service.StorageCallLimiter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares platform request threads (Tomcat pool of 200) with the
+ * virtual-threads profile under thousands of concurrent slow clients.
+ *
+ * Each request does what most of our requests do: a short database query
+ * (pg_sleep, bounded by the Hikari pool) and a slow storage call (a sleep
+ * standing in for an S3/R2/Supabase round-trip, bounded by
+ * StorageCallLimiter). Both modes start the real application with the
+ * same pool size and the storage limit of the virtual-threads profile;
+ * only the request threads differ. Prints throughput and latency
+ * percentiles per mode and checks that no request failed and that the
+ * storage limit was reached but never exceeded. A second run with a short
+ * acquire timeout checks that calls beyond the limit get 503.
+ *
+ * The virtual mode needs Java 21 (mvn -Pjava21 verify); on Java 17 only the
+ * platform mode runs. Sizes can be raised from the command line, e.g.
+ * -Dthreading.bench.clients=5000 -Dthreading.bench.requests=10
+ */
+public class RequestThreadingBenchmarkIT {
+
+    static PostgreSQLContainer<?> postgres;
+
+    private static final int CLIENTS = Integer.getInteger("threading.bench.clients", 2000);
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("threading.bench.requests", 5);
+    private static final int STORAGE_MS = Integer.getInteger("threading.bench.storage-ms", 200);
+    private static final int DB_MS = Integer.getInteger("threading.bench.db-ms", 5);
+    private static final int DB_POOL = 20;
+    private static final int STORAGE_SLOTS = profileStorageSlots();
+
+    private static final String PATH = "/files/benchmark/slow";
+
+    // Requests inside the storage section right now / at most, and requests seen on virtual threads
+    private static final AtomicInteger inStorage = new AtomicInteger();
+    private static final AtomicInteger maxInStorage = new AtomicInteger();
+    private static final AtomicInteger virtualHandled = new AtomicInteger();
+
+    @BeforeAll
+    public static void setup() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+        postgres.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (postgres != null) postgres.stop();
+    }
+
+    @Test
+    public void virtualThreadsServeSlowClientsWithinTheSameLimits() throws Exception {
+        Result platform = run(false, 60_000, CLIENTS, REQUESTS_PER_CLIENT);
+        print("platform", platform);
+        Assertions.assertEquals(0, platform.errors, "platform mode had failed requests");
+        Assertions.assertEquals(0, platform.busy, "platform mode had rejected storage calls");
+        Assertions.assertEquals(0, virtualHandled.get(), "platform mode ran on virtual threads");
+
+        if (Runtime.version().feature() < 21) {
+            System.out.println("Java " + Runtime.version().feature() + ": virtual-thread mode skipped (needs Java 21)");
+            return;
+        }
+
+        Result virtual = run(true, 60_000, CLIENTS, REQUESTS_PER_CLIENT);
+        print("virtual", virtual);
+        Assertions.assertEquals(0, virtual.errors, "virtual mode had failed requests");
+        Assertions.assertEquals(0, virtual.busy, "virtual mode had rejected storage calls");
+        Assertions.assertEquals(virtual.latenciesMs.length, virtualHandled.get(),
+                "virtual mode did not run requests on virtual threads");
+        System.out.printf("virtual/platform throughput: %.1fx%n", virtual.throughput() / platform.throughput());
+    }
+
+    @Test
+    public void storageCallsBeyondTheLimitGet503() throws Exception {
+        // Far more concurrent storage calls than slots, and no time to wait for one
+        boolean virtualThreads = Runtime.version().feature() >= 21;
+        Result result = run(virtualThreads, 50, Math.min(CLIENTS, 500), 1);
+        print("busy", result);
+        Assertions.assertEquals(0, result.errors, "requests failed other than with 503");
+        Assertions.assertTrue(result.busy > 0, "no storage call was rejected");
+        Assertions.assertEquals(result.busy, result.rejected, "503s do not match storage.calls.rejected");
+    }
+
+    private Result run(boolean virtualThreads, long acquireTimeoutMs, int clientCount, int requestsPerClient)
+            throws Exception {
+        maxInStorage.set(0);
+        virtualHandled.set(0);
+        try (ConfigurableApplicationContext context = start(virtualThreads, acquireTimeoutMs)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/api/v1" + PATH);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+
+            // Warm up (JIT, connection pools)
+            for (int i = 0; i < 50; i++) {
+                client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+            }
+            virtualHandled.set(0);
+            maxInStorage.set(0);
+            double rejectedBefore = rejected(context);
+
+            long[] latencies = new long[clientCount * requestsPerClient];
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger errors = new AtomicInteger();
+            AtomicInteger busy = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService clients = Executors.newFixedThreadPool(clientCount);
+            for (int c = 0; c < clientCount; c++) {
+                clients.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        long begin = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(
+                                    HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                                busy.incrementAndGet();
+                            } else if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[next.getAndIncrement()] = (System.nanoTime() - begin) / 1_000_000;
+                    }
+                    return null;
+                });
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            clients.shutdown();
+            Assertions.assertTrue(clients.awaitTermination(10, TimeUnit.MINUTES), "benchmark did not finish");
+            long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+            // Enough clients to fill every slot, and never more in flight than the limit
+            Assertions.assertEquals(STORAGE_SLOTS, maxInStorage.get(),
+                    "storage limit of " + STORAGE_SLOTS + " not reached exactly");
+            return new Result(latencies, elapsedMs, errors.get(), busy.get(),
+                    (int) (rejected(context) - rejectedBefore));
+        }
+    }
+
+    private static double rejected(ConfigurableApplicationContext context) {
+        return context.getBean(io.micrometer.core.instrument.MeterRegistry.class)
+                .get("storage.calls.rejected").counter().count();
+    }
+
+    // storage.max-concurrent-calls as the virtual-threads profile sets it (placeholder default
+    // or the environment variable it names)
+    private static int profileStorageSlots() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application-virtual-threads.yml"));
+        String value = yaml.getObject().getProperty("storage.max-concurrent-calls");
+        return Integer.parseInt(new StandardEnvironment().resolveRequiredPlaceholders(value));
+    }
+
+    private ConfigurableApplicationContext start(boolean virtualThreads, long acquireTimeoutMs) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(DebateApplication.class)
+                .initializers(context -> ((GenericApplicationContext) context)
+                        .registerBean("benchmarkRoute", RouterFunction.class, () -> slowRoute(context)));
+        if (virtualThreads) {
+            builder.profiles("virtual-threads");
+        }
+        // Command-line arguments, so they win over application.yml and the profile
+        return builder.run(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.com.debatearena=WARN",
+                // Same limits in both modes: only the request threads differ
+                "--spring.datasource.hikari.maximum-pool-size=" + DB_POOL,
+                "--spring.datasource.hikari.connection-timeout=60000",
+                "--storage.max-concurrent-calls=" + STORAGE_SLOTS,
+                "--storage.acquire-timeout-ms=" + acquireTimeoutMs,
+                "--server.tomcat.max-connections=10000",
+                "--server.tomcat.accept-count=1000");
+    }
+
+    // GET /files/benchmark/slow: short query, then a slow storage call within the limiter
+    private static RouterFunction<ServerResponse> slowRoute(ConfigurableApplicationContext context) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        StorageCallLimiter storageCallLimiter = context.getBean(StorageCallLimiter.class);
+        String dbSleep = "SELECT pg_sleep(" + DB_MS / 1000.0 + ")";
+        return RouterFunctions.route()
+                .GET(PATH, request -> {
+                    if (Thread.currentThread().toString().startsWith("VirtualThread")) {
+                        virtualHandled.incrementAndGet();
+                    }
+                    jdbcTemplate.execute(dbSleep);
+
+                    try {
+                        storageCallLimiter.acquire();
+                    } catch (StorageCallLimiter.BusyException e) {
+                        // As FileUploadController answers a BusyException
+                        return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+                    }
+                    try {
+                        maxInStorage.accumulateAndGet(inStorage.incrementAndGet(), Math::max);
+                        Thread.sleep(STORAGE_MS);
+                    } finally {
+                        inStorage.decrementAndGet();
+                        storageCallLimiter.release();
+                    }
+                    return ServerResponse.ok().body("ok");
+                })
+                .build();
+    }
+
+    private static void print(String mode, Result result) {
+        long[] sorted = result.latenciesMs.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-8s %d requests in %d ms: %.0f req/s, latency p50 %d ms, p95 %d ms,"
+                        + " p99 %d ms, max %d ms, %d errors, %d busy (503)%n",
+                mode, sorted.length, result.elapsedMs, result.throughput(),
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                sorted[sorted.length - 1], result.errors, result.busy);
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private record Result(long[] latenciesMs, long elapsedMs, int errors, int busy, int rejected) {
+        double throughput() {
+            return latenciesMs.length * 1000.0 / elapsedMs;
+        }
+    }
+}
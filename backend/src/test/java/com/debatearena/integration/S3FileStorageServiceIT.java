@@ -1,6 +1,8 @@
 package com.debatearena.integration;
 
 import com.debatearena.service.S3FileStorageService;
+import com.debatearena.service.StorageCallLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -51,8 +53,9 @@ public class S3FileStorageServiceIT {
         String bucket = "test-bucket";
         s3Client.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
 
-        // Instantiate service using LocalStack credentials (constructor expects accessKey, secret, region)
-        S3FileStorageService svc = new S3FileStorageService(localstack.getAccessKey(), localstack.getSecretKey(), localstack.getRegion());
+        // Instantiate service using LocalStack credentials (constructor expects accessKey, secret, region, limiter)
+        StorageCallLimiter limiter = new StorageCallLimiter(new SimpleMeterRegistry(), 8, 10000);
+        S3FileStorageService svc = new S3FileStorageService(localstack.getAccessKey(), localstack.getSecretKey(), localstack.getRegion(), limiter);
 
         // Reflectively set the private bucketName and baseUrl fields that are normally @Value-injected
         Field bucketField = S3FileStorageService.class.getDeclaredField("bucketName");
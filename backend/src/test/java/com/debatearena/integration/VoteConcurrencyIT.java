@@ -0,0 +1,207 @@
+package com.debatearena.integration;
+
+import com.debatearena.model.DebateTopic;
+import com.debatearena.model.Question;
+import com.debatearena.model.Reply;
+import com.debatearena.repository.DebateTopicRepository;
+import com.debatearena.repository.QuestionRepository;
+import com.debatearena.repository.ReplyRepository;
+import com.debatearena.service.TopicChangeLog;
+import com.debatearena.service.VoteLedgerIndex;
+import com.debatearena.service.VoteService;
+import com.debatearena.service.VoteWriteBehindBuffer;
+import com.debatearena.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Proves that the atomic vote counters lose no votes when 1,000 voters hit
+ * the same question or reply in parallel, and that the vote ledger keeps it
+ * to one vote per user. Counters go through the write-behind buffer, which
+ * is flushed before each check. Runs against a real PostgreSQL
+ * (Testcontainers) because the guarantees come from the database statements.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({VoteService.class, VoteLedgerIndex.class, VoteWriteBehindBuffer.class, TopicChangeLog.class, JwtUtil.class,
+        SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class VoteConcurrencyIT {
+
+    static PostgreSQLContainer<?> postgres;
+
+    private static final int VOTERS = 1000;
+
+    @Autowired
+    private DebateTopicRepository debateTopicRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private ReplyRepository replyRepository;
+
+    @Autowired
+    private VoteService voteService;
+
+    @Autowired
+    private VoteWriteBehindBuffer voteWriteBehindBuffer;
+
+    @BeforeAll
+    public static void setup() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15-alpine"));
+        postgres.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (postgres != null) postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> postgres.getUsername());
+        registry.add("spring.datasource.password", () -> postgres.getPassword());
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "20");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    @Test
+    public void noLostVotesOnQuestionUnderParallelVoters() throws Exception {
+        Question question = questionRepository.save(newQuestion(saveTopic()));
+
+        runInParallel(i -> voteService.voteOnQuestion(question.getId(), voter(i), i % 4 == 0 ? "down" : "up"));
+
+        voteWriteBehindBuffer.flush();
+        Question reloaded = questionRepository.findById(question.getId()).orElseThrow();
+        Assertions.assertEquals(VOTERS * 3 / 4, reloaded.getVotesUp());
+        Assertions.assertEquals(VOTERS / 4, reloaded.getVotesDown());
+    }
+
+    @Test
+    public void noLostVotesOnReplyUnderParallelVoters() throws Exception {
+        Question question = questionRepository.save(newQuestion(saveTopic()));
+        Reply reply = new Reply();
+        reply.setQuestion(question);
+        reply.setText("Viral reply");
+        reply.setSide("right");
+        reply.setUniqueId("r-" + UUID.randomUUID());
+        Reply saved = replyRepository.save(reply);
+
+        // Mix of adds and changes: every voter adds an up vote, every
+        // second one then changes it to down, so the final split is exact
+        runInParallel(i -> {
+            voteService.voteOnReply(saved.getId(), voter(i), "up");
+            if (i % 2 == 0) {
+                voteService.voteOnReply(saved.getId(), voter(i), "down");
+            }
+        });
+
+        voteWriteBehindBuffer.flush();
+        Reply reloaded = replyRepository.findById(saved.getId()).orElseThrow();
+        Assertions.assertEquals(VOTERS / 2, reloaded.getVotesUp());
+        Assertions.assertEquals(VOTERS / 2, reloaded.getVotesDown());
+    }
+
+    @Test
+    public void repeatedVotesFromOneUserCountOnce() throws Exception {
+        Question question = questionRepository.save(newQuestion(saveTopic()));
+        UUID userId = UUID.randomUUID();
+
+        // Same user hammering "up" from many threads: every accepted request
+        // toggles, so the counter must match the parity of accepted requests
+        AtomicInteger accepted = new AtomicInteger();
+        runInParallel(i -> {
+            try {
+                voteService.voteOnQuestion(question.getId(), userId, "up");
+                accepted.incrementAndGet();
+            } catch (IllegalStateException conflict) {
+                // gave up after repeated conflicts: nothing was applied
+            }
+        });
+
+        voteWriteBehindBuffer.flush();
+        Question reloaded = questionRepository.findById(question.getId()).orElseThrow();
+        Assertions.assertEquals(accepted.get() % 2, reloaded.getVotesUp());
+        Assertions.assertEquals(0, reloaded.getVotesDown());
+
+        // Bring the user back to "no vote" before checking a change
+        if (reloaded.getVotesUp() == 1) {
+            voteService.voteOnQuestion(question.getId(), userId, "up");
+        }
+
+        voteService.voteOnQuestion(question.getId(), userId, "up");
+        voteService.voteOnQuestion(question.getId(), userId, "down");
+        voteWriteBehindBuffer.flush();
+        reloaded = questionRepository.findById(question.getId()).orElseThrow();
+        Assertions.assertEquals(0, reloaded.getVotesUp());
+        Assertions.assertEquals(1, reloaded.getVotesDown());
+    }
+
+    private static UUID voter(int index) {
+        return new UUID(0xC0FFEEL, index);
+    }
+
+    private void runInParallel(Consumer<Integer> voter) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < VOTERS; i++) {
+            final int voterIndex = i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                voter.accept(voterIndex);
+                return null;
+            }));
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        System.out.printf("%d parallel voters finished in %d ms%n", VOTERS, (System.nanoTime() - began) / 1_000_000);
+    }
+
+    private DebateTopic saveTopic() {
+        DebateTopic topic = new DebateTopic();
+        topic.setTopic("Concurrency " + UUID.randomUUID());
+        topic.setLeftLabel("Left");
+        topic.setRightLabel("Right");
+        return debateTopicRepository.save(topic);
+    }
+
+    private static Question newQuestion(DebateTopic topic) {
+        Question question = new Question();
+        question.setDebateTopic(topic);
+        question.setText("Is this vote counted?");
+        question.setSide("left");
+        question.setUniqueId("q-" + UUID.randomUUID());
+        return question;
+    }
+}
@@ -0,0 +1,96 @@
+package com.debatearena.service;
+
+import com.debatearena.dto.QuestionDTO;
+import com.debatearena.dto.ReplyDTO;
+import com.debatearena.event.DebateChangedEvent;
+import com.debatearena.repository.DebateTopicRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * DebateTreeCache writes a topic as its cached question fragments: the
+ * JSON and the gzip encoding must both decode to the loaded tree, and a
+ * vote in one question's thread must reload and re-serialize only that
+ * question, with the gzip encoding still matching the JSON afterwards.
+ */
+public class DebateTreeCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    public void changeInOneThreadRebuildsOnlyThatQuestion() throws IOException {
+        UUID topicId = UUID.randomUUID();
+        List<QuestionDTO> questions = new ArrayList<>();
+        for (int q = 0; q < 20; q++) {
+            questions.add(question("Question " + q, 10));
+        }
+        DebateTreeService debateTreeService = Mockito.mock(DebateTreeService.class);
+        Mockito.when(debateTreeService.loadTopicTree(topicId)).thenReturn(questions);
+        DebateTopicRepository debateTopicRepository = Mockito.mock(DebateTopicRepository.class);
+        Mockito.when(debateTopicRepository.findChangeVersion(topicId)).thenReturn(Optional.of(7L));
+        DebateTreeCache cache = new DebateTreeCache(debateTreeService, debateTopicRepository, objectMapper,
+                new SimpleMeterRegistry(), true, false, true, 0, 64 * 1024 * 1024, 600_000, 1);
+
+        try {
+            assertEncodingsMatch(cache.get(topicId), questions);
+
+            // A vote on a cached reply of question 5; its reloaded thread has one more reply
+            UUID votedReply = questions.get(5).getReplies().get(0).getId();
+            QuestionDTO changed = question("Question 5", 11);
+            changed.setId(questions.get(5).getId());
+            questions.set(5, changed);
+            Mockito.when(debateTreeService.loadQuestionTree(changed.getId())).thenReturn(Optional.of(changed));
+            cache.onDebateChanged(new DebateChangedEvent(topicId, DebateChangedEvent.Type.VOTE, votedReply, null));
+
+            DebateTreeCache.Tree rebuilt = cache.get(topicId);
+            assertEncodingsMatch(rebuilt, questions);
+            Assertions.assertEquals(7L, rebuilt.changeVersion());
+            Mockito.verify(debateTreeService, Mockito.times(1)).loadTopicTree(topicId);
+            Mockito.verify(debateTreeService, Mockito.times(1)).loadQuestionTree(Mockito.any());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    private void assertEncodingsMatch(DebateTreeCache.Tree tree, List<QuestionDTO> expected) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        tree.writeJson(json);
+        Assertions.assertEquals(tree.jsonLength(), json.size());
+        Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(expected), json.toByteArray());
+
+        Assertions.assertTrue(tree.hasGzip());
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        tree.writeGzip(gzip);
+        Assertions.assertEquals(tree.gzipLength(), gzip.size());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.toByteArray()))) {
+            Assertions.assertArrayEquals(json.toByteArray(), in.readAllBytes());
+        }
+    }
+
+    private static QuestionDTO question(String text, int replyCount) {
+        QuestionDTO question = new QuestionDTO();
+        question.setId(UUID.randomUUID());
+        question.setText(text);
+        question.setSide("left");
+        for (int r = 0; r < replyCount; r++) {
+            ReplyDTO reply = new ReplyDTO();
+            reply.setId(UUID.randomUUID());
+            reply.setText(text + " reply " + r);
+            reply.setSide("right");
+            question.getReplies().add(reply);
+        }
+        return question;
+    }
+}
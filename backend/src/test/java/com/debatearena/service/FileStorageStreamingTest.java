@@ -0,0 +1,167 @@
+package com.debatearena.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that uploads are streamed: several large uploads to a local stand-in
+ * for Supabase Storage are held mid-transfer, and the heap they occupy at that
+ * moment must be a small fraction of a single file (buffering uploads would
+ * hold at least one full copy of each file).
+ */
+public class FileStorageStreamingTest {
+
+    private static final int UPLOADS = 8;
+    private static final int FILE_SIZE = 16 * 1024 * 1024;
+    private static final int HOLD_AFTER_BYTES = 1024 * 1024;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private CountDownLatch midTransfer;
+    private CountDownLatch release;
+    private final AtomicLong received = new AtomicLong();
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        midTransfer = new CountDownLatch(UPLOADS);
+        release = new CountDownLatch(1);
+
+        // Reads part of each upload, waits until all uploads are in flight, then reads the rest
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverThreads = Executors.newFixedThreadPool(UPLOADS);
+        server.setExecutor(serverThreads);
+        server.createContext("/storage/v1/object/", exchange -> {
+            byte[] buffer = new byte[8192];
+            long count = 0;
+            boolean held = false;
+            try (InputStream in = exchange.getRequestBody()) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    count += n;
+                    if (!held && count >= HOLD_AFTER_BYTES) {
+                        held = true;
+                        midTransfer.countDown();
+                        release.await(60, TimeUnit.SECONDS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.addAndGet(count);
+            byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        release.countDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void concurrentUploadsDoNotBufferFilesOnTheHeap() throws Exception {
+        SupabaseFileStorageService storage = new SupabaseFileStorageService();
+        set(storage, "supabaseUrl", "http://localhost:" + server.getAddress().getPort());
+        set(storage, "anonKey", "test-key");
+        set(storage, "bucket", "attachments");
+        set(storage, "storageCallLimiter", new StorageCallLimiter(new SimpleMeterRegistry(), UPLOADS, 10_000));
+
+        long before = usedHeapAfterGc();
+
+        ExecutorService uploaders = Executors.newFixedThreadPool(UPLOADS);
+        List<Future<String>> uploads = new ArrayList<>();
+        for (int i = 0; i < UPLOADS; i++) {
+            uploads.add(uploaders.submit(() -> storage.uploadStream(
+                    new GeneratedContent(FILE_SIZE), FILE_SIZE, "big.bin", "application/octet-stream", "attachments")));
+        }
+
+        Assertions.assertTrue(midTransfer.await(60, TimeUnit.SECONDS), "uploads did not start");
+        long during = usedHeapAfterGc() - before;
+        release.countDown();
+
+        for (Future<String> upload : uploads) {
+            Assertions.assertTrue(upload.get(60, TimeUnit.SECONDS).contains("/storage/v1/object/public/attachments/"));
+        }
+        uploaders.shutdown();
+
+        System.out.printf("%d concurrent uploads of %d MB: %.1f MB heap in use mid-transfer%n",
+                UPLOADS, FILE_SIZE / (1024 * 1024), during / (1024.0 * 1024.0));
+        Assertions.assertTrue(received.get() >= (long) UPLOADS * FILE_SIZE, "server did not receive every file");
+        Assertions.assertTrue(during < FILE_SIZE,
+                "uploads held " + during + " bytes of heap mid-transfer; expected well under one file per upload");
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void set(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+
+    // FILE_SIZE bytes produced on the fly (no backing array), reopenable like a MultipartFile
+    private static final class GeneratedContent implements InputStreamSource {
+        private final long size;
+
+        GeneratedContent(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                private long position;
+
+                @Override
+                public int read() {
+                    return position < size ? (int) (position++ & 0x7F) : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (position >= size) {
+                        return -1;
+                    }
+                    int n = (int) Math.min(len, size - position);
+                    for (int i = 0; i < n; i++) {
+                        b[off + i] = (byte) ((position + i) & 0x7F);
+                    }
+                    position += n;
+                    return n;
+                }
+            };
+        }
+    }
+}
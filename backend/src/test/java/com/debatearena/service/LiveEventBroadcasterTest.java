@@ -0,0 +1,196 @@
+package com.debatearena.service;
+
+import com.debatearena.event.LiveDebateEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+
+/**
+ * LiveEventBroadcaster behind a real servlet container with a client that
+ * connects and never reads: once its send blocks, neither the heartbeat
+ * (the scheduler thread) nor a publishing thread may wait for it, and the
+ * connector's write timeout frees the stuck sender.
+ */
+public class LiveEventBroadcasterTest {
+
+    private static final int WRITE_TIMEOUT_MS = 5000;
+    private static final String PAYLOAD = "x".repeat(64 * 1024);
+
+    // Used by the test controller
+    private static volatile LiveEventBroadcaster broadcaster;
+
+    private Tomcat tomcat;
+    private SimpleMeterRegistry meterRegistry;
+    private Socket stuckClient;
+
+    @AfterEach
+    public void stop() throws Exception {
+        if (stuckClient != null) {
+            stuckClient.close();
+        }
+        if (broadcaster != null) {
+            broadcaster.shutdown();
+        }
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Test
+    public void stuckClientDoesNotBlockTheHeartbeat() throws Exception {
+        start("drop-oldest", 200);
+        UUID topicId = UUID.randomUUID();
+        connectWithoutReading(topicId);
+        fillUntilStuck(topicId);
+
+        Thread.sleep(300); // past send-timeout-ms
+        long start = System.currentTimeMillis();
+        broadcaster.heartbeat();
+        long elapsed = System.currentTimeMillis() - start;
+
+        Assertions.assertTrue(elapsed < 1000, "heartbeat waited " + elapsed + " ms for a stuck send");
+        Assertions.assertEquals(0, subscribers(), "stuck subscriber should be closed");
+
+        // The write timeout ends the stuck send, so the only sender thread serves others again
+        UUID otherTopic = UUID.randomUUID();
+        try (Socket reader = new Socket("localhost", port())) {
+            request(reader, otherTopic);
+            BufferedReader lines = new BufferedReader(new InputStreamReader(reader.getInputStream(), StandardCharsets.UTF_8));
+            reader.setSoTimeout(WRITE_TIMEOUT_MS * 3);
+            String line;
+            do {
+                line = lines.readLine();
+            } while (line != null && !line.startsWith("event:subscribed"));
+            Assertions.assertNotNull(line, "new subscriber should get its first event");
+        }
+    }
+
+    @Test
+    public void stuckClientDoesNotBlockPublishersOnDisconnect() throws Exception {
+        start("disconnect", 60_000);
+        UUID topicId = UUID.randomUUID();
+        connectWithoutReading(topicId);
+
+        // Slow enough for the sender to keep up until the socket is full, so the
+        // queue overflows only once its send is blocked
+        long slowest = 0;
+        for (int i = 0; i < 2000 && subscribers() > 0; i++) {
+            long start = System.currentTimeMillis();
+            publish(topicId);
+            slowest = Math.max(slowest, System.currentTimeMillis() - start);
+            Thread.sleep(5);
+        }
+
+        Assertions.assertEquals(0, subscribers(), "overflowing subscriber should be disconnected");
+        Assertions.assertTrue(slowest < 1000, "a publish waited " + slowest + " ms for a stuck send");
+    }
+
+    private void start(String overflowPolicy, long sendTimeoutMs) throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        LiveTopicResolver resolver = Mockito.mock(LiveTopicResolver.class);
+        Mockito.when(resolver.resolve(Mockito.any())).thenAnswer(invocation ->
+                ((LiveDebateEvent) invocation.getArgument(0)).topicId());
+        broadcaster = new LiveEventBroadcaster(new ObjectMapper(), resolver, meterRegistry,
+                4, overflowPolicy, 100, 60_000, sendTimeoutMs, 1);
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("live-events").toString());
+        tomcat.setPort(0);
+        // Also the blocking write timeout of the NIO connector
+        tomcat.getConnector().setProperty("connectionTimeout", String.valueOf(WRITE_TIMEOUT_MS));
+        Context context = tomcat.addContext("", null);
+        AnnotationConfigWebApplicationContext web = new AnnotationConfigWebApplicationContext();
+        web.register(WebConfig.class);
+        Wrapper servlet = Tomcat.addServlet(context, "mvc", new DispatcherServlet(web));
+        servlet.setAsyncSupported(true);
+        servlet.setLoadOnStartup(1);
+        context.addServletMappingDecoded("/", "mvc");
+        tomcat.start();
+    }
+
+    // Tiny receive buffer, never read: the server's writes back up quickly
+    private void connectWithoutReading(UUID topicId) throws Exception {
+        stuckClient = new Socket();
+        stuckClient.setReceiveBufferSize(1024);
+        stuckClient.connect(new InetSocketAddress("localhost", port()));
+        request(stuckClient, topicId);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (subscribers() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(1, subscribers());
+    }
+
+    // Publish until the subscriber's queue overflows, i.e. its sender is blocked
+    private void fillUntilStuck(UUID topicId) throws Exception {
+        for (int i = 0; i < 2000 && dropped() == 0; i++) {
+            publish(topicId);
+            Thread.sleep(1);
+        }
+        Assertions.assertTrue(dropped() > 0, "send never blocked");
+    }
+
+    private static void publish(UUID topicId) {
+        broadcaster.onLiveEvent(new LiveDebateEvent(topicId, null, null, "vote", PAYLOAD));
+    }
+
+    private static void request(Socket socket, UUID topicId) throws Exception {
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET /events/" + topicId + " HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private int port() {
+        return tomcat.getConnector().getLocalPort();
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("live.subscribers").gauge().value();
+    }
+
+    private double dropped() {
+        return meterRegistry.get("live.events.dropped").counter().count();
+    }
+
+    @Configuration
+    @EnableWebMvc
+    static class WebConfig {
+        @Bean
+        EventsController eventsController() {
+            return new EventsController();
+        }
+    }
+
+    @RestController
+    static class EventsController {
+        @GetMapping(value = "/events/{topicId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        SseEmitter events(@PathVariable("topicId") UUID topicId) {
+            return broadcaster.subscribe(topicId).orElseThrow();
+        }
+    }
+}
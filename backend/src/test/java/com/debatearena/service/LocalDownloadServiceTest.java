@@ -0,0 +1,138 @@
+package com.debatearena.service;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Serves a local file through LocalDownloadService on an embedded Tomcat
+ * (so the sendfile path is the one used in production) and checks ETags,
+ * 304s, byte ranges, If-Range and caching headers.
+ */
+public class LocalDownloadServiceTest {
+
+    private static final String KEY = "attachments/0f8fad5b-d9cb-469f-a165-70867728950e.mp4";
+
+    private Tomcat tomcat;
+    private Path dir;
+    private Path file;
+    private byte[] content;
+    private URI uri;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    public void start() throws Exception {
+        dir = Files.createTempDirectory("local-download");
+        file = dir.resolve("video.mp4");
+        content = new byte[300_000];
+        new Random(7).nextBytes(content);
+        Files.write(file, content);
+
+        LocalDownloadService service = new LocalDownloadService();
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(dir.toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        Context context = tomcat.addContext("", dir.toString());
+        Tomcat.addServlet(context, "download", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                service.serve(request, response, file, KEY, "video/mp4", "clip.mp4", null);
+            }
+        });
+        context.addServletMappingDecoded("/file", "download");
+        tomcat.start();
+        uri = URI.create("http://localhost:" + tomcat.getConnector().getLocalPort() + "/file");
+    }
+
+    @AfterEach
+    public void stop() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Test
+    public void fullDownloadHasValidatorsAndLongCaching() throws Exception {
+        HttpResponse<byte[]> response = get();
+
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertArrayEquals(content, response.body());
+        Assertions.assertEquals("video/mp4", response.headers().firstValue("Content-Type").orElse(null));
+        Assertions.assertEquals("bytes", response.headers().firstValue("Accept-Ranges").orElse(null));
+        Assertions.assertTrue(response.headers().firstValue("Cache-Control").orElse("").contains("immutable"));
+        Assertions.assertTrue(response.headers().firstValue("ETag").orElse("").startsWith("\""), "strong ETag expected");
+    }
+
+    @Test
+    public void matchingETagGives304() throws Exception {
+        String etag = get().headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<byte[]> response = get("If-None-Match", etag);
+        Assertions.assertEquals(304, response.statusCode());
+        Assertions.assertEquals(0, response.body().length);
+
+        Assertions.assertEquals(200, get("If-None-Match", "\"other\"").statusCode());
+    }
+
+    @Test
+    public void rangesAreServedPartially() throws Exception {
+        HttpResponse<byte[]> middle = get("Range", "bytes=1000-1999");
+        Assertions.assertEquals(206, middle.statusCode());
+        Assertions.assertEquals("bytes 1000-1999/300000", middle.headers().firstValue("Content-Range").orElse(null));
+        Assertions.assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000), middle.body());
+
+        HttpResponse<byte[]> tail = get("Range", "bytes=-500");
+        Assertions.assertEquals(206, tail.statusCode());
+        Assertions.assertArrayEquals(Arrays.copyOfRange(content, content.length - 500, content.length), tail.body());
+
+        HttpResponse<byte[]> past = get("Range", "bytes=400000-");
+        Assertions.assertEquals(416, past.statusCode());
+        Assertions.assertEquals("bytes */300000", past.headers().firstValue("Content-Range").orElse(null));
+    }
+
+    @Test
+    public void staleIfRangeSendsTheWholeFile() throws Exception {
+        String etag = get().headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<byte[]> current = get("Range", "bytes=0-9", "If-Range", etag);
+        Assertions.assertEquals(206, current.statusCode());
+        Assertions.assertEquals(10, current.body().length);
+
+        HttpResponse<byte[]> stale = get("Range", "bytes=0-9", "If-Range", "\"changed\"");
+        Assertions.assertEquals(200, stale.statusCode());
+        Assertions.assertArrayEquals(content, stale.body());
+    }
+
+    @Test
+    public void onlyUuidAndHashKeysAreImmutable() {
+        Assertions.assertTrue(LocalDownloadService.isImmutable(KEY));
+        Assertions.assertTrue(LocalDownloadService.isImmutable(
+                "attachments/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08_w320.jpg"));
+        Assertions.assertFalse(LocalDownloadService.isImmutable("attachments/report.pdf"));
+        Assertions.assertFalse(LocalDownloadService.isImmutable(null));
+    }
+
+    private HttpResponse<byte[]> get(String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).GET();
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
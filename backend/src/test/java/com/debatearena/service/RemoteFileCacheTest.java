@@ -0,0 +1,169 @@
+package com.debatearena.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * RemoteFileCache against a stand-in for remote storage that counts its
+ * downloads: simultaneous misses share one fetch, hits fetch nothing, the
+ * least recently used files go first when over max-size, and the cache is
+ * found again after a restart.
+ */
+public class RemoteFileCacheTest {
+
+    private static final int FILE_SIZE = 64 * 1024;
+
+    private Path dir;
+    private FakeRemoteStorage storage;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("remote-cache");
+        storage = new FakeRemoteStorage();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    public void simultaneousMissesFetchOnce() throws Exception {
+        RemoteFileCache cache = cache(10L * FILE_SIZE);
+        storage.delayMs = 200;
+
+        int requests = 100;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        List<Future<Optional<Path>>> results = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            results.add(clients.submit(() -> {
+                start.await();
+                return cache.fetch("https://bucket.example.com/attachments/hot.mp4");
+            }));
+        }
+        start.countDown();
+        for (Future<Optional<Path>> result : results) {
+            Path file = result.get(30, TimeUnit.SECONDS).orElseThrow();
+            Assertions.assertEquals(FILE_SIZE, Files.size(file));
+        }
+        clients.shutdown();
+
+        Assertions.assertEquals(1, storage.downloads.get(), "100 simultaneous misses should cause one fetch");
+        cache.fetch("https://bucket.example.com/attachments/hot.mp4");
+        Assertions.assertEquals(1, storage.downloads.get(), "a hit should not fetch");
+    }
+
+    @Test
+    public void leastRecentlyUsedFilesAreEvicted() throws Exception {
+        RemoteFileCache cache = cache(3L * FILE_SIZE);
+
+        Path a = cache.fetch("https://bucket.example.com/attachments/a.png").orElseThrow();
+        Path b = cache.fetch("https://bucket.example.com/attachments/b.png").orElseThrow();
+        cache.fetch("https://bucket.example.com/attachments/c.png");
+        cache.fetch("https://bucket.example.com/attachments/a.png"); // a is now more recent than b
+        cache.fetch("https://bucket.example.com/attachments/d.png");
+
+        Assertions.assertTrue(Files.exists(a), "recently used file should stay");
+        Assertions.assertFalse(Files.exists(b), "least recently used file should be evicted");
+        Assertions.assertEquals(4, storage.downloads.get());
+    }
+
+    @Test
+    public void cacheIsRebuiltAfterRestart() throws Exception {
+        cache(10L * FILE_SIZE).fetch("https://bucket.example.com/attachments/a.png");
+
+        RemoteFileCache restarted = cache(10L * FILE_SIZE);
+        restarted.fetch("https://bucket.example.com/attachments/a.png");
+        Assertions.assertEquals(1, storage.downloads.get(), "file cached before the restart should be reused");
+    }
+
+    @Test
+    public void missingObjectsAreNotCached() throws Exception {
+        RemoteFileCache cache = cache(10L * FILE_SIZE);
+
+        Assertions.assertTrue(cache.fetch("https://bucket.example.com/attachments/missing.png").isEmpty());
+        try (Stream<Path> files = Files.list(dir)) {
+            Assertions.assertEquals(0, files.count(), "nothing should be left in the cache directory");
+        }
+    }
+
+    private RemoteFileCache cache(long maxSize) {
+        RemoteFileCache cache = new RemoteFileCache(storage, new SimpleMeterRegistry(), true, dir.toString(),
+                maxSize, FILE_SIZE, 0);
+        cache.init();
+        return cache;
+    }
+
+    // Remote storage stand-in: every download writes FILE_SIZE bytes after delayMs
+    private static final class FakeRemoteStorage implements FileStorageService {
+        final AtomicInteger downloads = new AtomicInteger();
+        volatile long delayMs;
+
+        @Override
+        public boolean supportsDownload() {
+            return true;
+        }
+
+        @Override
+        public Optional<Long> downloadTo(String fileUrl, Path target) throws IOException {
+            downloads.incrementAndGet();
+            if (fileUrl.contains("missing")) {
+                return Optional.empty();
+            }
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            Files.write(target, new byte[FILE_SIZE]);
+            return Optional.of((long) FILE_SIZE);
+        }
+
+        @Override
+        public String uploadStream(InputStreamSource content, long contentLength, String originalFilename,
+                                   String contentType, String folder) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String uploadStreamAs(InputStreamSource content, long contentLength, String name,
+                                     String contentType, String folder) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteFile(String fileUrl) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getProviderName() {
+            return "s3";
+        }
+    }
+}
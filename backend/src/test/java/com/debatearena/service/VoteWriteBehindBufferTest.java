@@ -0,0 +1,146 @@
+package com.debatearena.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * VoteWriteBehindBuffer against a stand-in database that only applies
+ * updates when their transaction commits: when the reply batch of a flush
+ * fails, the question batch of the same flush must not stay applied, and
+ * the retried flush must apply each delta exactly once. The topic change
+ * log gets all targets of a flush in one call, inside its transaction.
+ */
+public class VoteWriteBehindBufferTest {
+
+    @Test
+    public void failedReplyBatchDoesNotApplyQuestionVotesTwice() {
+        FakeDatabase database = new FakeDatabase();
+        VoteWriteBehindBuffer buffer = new VoteWriteBehindBuffer(database.jdbcTemplate, database,
+                Mockito.mock(ApplicationEventPublisher.class), Mockito.mock(TopicChangeLog.class),
+                new SimpleMeterRegistry(), true, 1000, 500);
+
+        UUID question = UUID.randomUUID();
+        UUID reply = UUID.randomUUID();
+        buffer.add(VoteService.TARGET_QUESTION, question, 3, 1);
+        buffer.add(VoteService.TARGET_REPLY, reply, 2, 0);
+
+        database.failReplies = true;
+        Assertions.assertEquals(0, buffer.flush(), "failed flush should write nothing");
+        Assertions.assertEquals(0, database.votesUp(question), "question batch should be rolled back");
+        Assertions.assertEquals(3, buffer.pendingDelta(VoteService.TARGET_QUESTION, question).up());
+
+        database.failReplies = false;
+        Assertions.assertEquals(2, buffer.flush());
+        Assertions.assertEquals(3, database.votesUp(question), "question votes should be applied exactly once");
+        Assertions.assertEquals(1, database.votesDown(question));
+        Assertions.assertEquals(2, database.votesUp(reply));
+
+        Assertions.assertEquals(0, buffer.flush(), "nothing should be left to flush");
+        Assertions.assertEquals(3, database.votesUp(question));
+    }
+
+    @Test
+    public void flushLogsAllChangesOnceInsideItsTransaction() {
+        FakeDatabase database = new FakeDatabase();
+        TopicChangeLog topicChangeLog = Mockito.mock(TopicChangeLog.class);
+        List<Object> logged = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            Assertions.assertNotNull(database.uncommitted, "changes must be logged inside the flush transaction");
+            logged.addAll(invocation.getArgument(0));
+            return null;
+        }).when(topicChangeLog).votesChanged(Mockito.any());
+        VoteWriteBehindBuffer buffer = new VoteWriteBehindBuffer(database.jdbcTemplate, database,
+                Mockito.mock(ApplicationEventPublisher.class), topicChangeLog,
+                new SimpleMeterRegistry(), true, 1000, 500);
+
+        UUID question = UUID.randomUUID();
+        UUID reply = UUID.randomUUID();
+        UUID directlyVoted = UUID.randomUUID();
+        buffer.add(VoteService.TARGET_QUESTION, question, 1, 0);
+        buffer.add(VoteService.TARGET_REPLY, reply, 0, 1);
+        buffer.add(VoteService.TARGET_REPLY, reply, 1, 0);
+        buffer.changed(VoteService.TARGET_QUESTION, directlyVoted);
+
+        buffer.flush();
+        Mockito.verify(topicChangeLog, Mockito.times(1)).votesChanged(Mockito.any());
+        Assertions.assertEquals(Set.of(question, reply, directlyVoted), new HashSet<>(logged));
+
+        Assertions.assertEquals(0, buffer.flush());
+        Mockito.verify(topicChangeLog, Mockito.times(1)).votesChanged(Mockito.any());
+    }
+
+    // Vote counters by id; updates made inside a transaction are kept aside until it commits
+    private static final class FakeDatabase implements PlatformTransactionManager {
+        final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        final Map<UUID, int[]> counts = new HashMap<>();
+        List<Object[]> uncommitted;
+        boolean failReplies;
+
+        FakeDatabase() {
+            Mockito.when(jdbcTemplate.batchUpdate(Mockito.anyString(), Mockito.<List<Object[]>>any()))
+                    .thenAnswer(invocation -> {
+                        String sql = invocation.getArgument(0);
+                        List<Object[]> args = invocation.getArgument(1);
+                        if (failReplies && sql.contains("UPDATE replies")) {
+                            throw new DataAccessResourceFailureException("connection lost");
+                        }
+                        if (uncommitted != null) {
+                            uncommitted.addAll(args);
+                        } else {
+                            apply(args); // auto-commit
+                        }
+                        return new int[args.size()];
+                    });
+        }
+
+        int votesUp(UUID id) {
+            return counts.getOrDefault(id, new int[2])[0];
+        }
+
+        int votesDown(UUID id) {
+            return counts.getOrDefault(id, new int[2])[1];
+        }
+
+        private void apply(List<Object[]> args) {
+            for (Object[] row : args) {
+                int[] count = counts.computeIfAbsent((UUID) row[2], id -> new int[2]);
+                count[0] += (Integer) row[0];
+                count[1] += (Integer) row[1];
+            }
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            uncommitted = new ArrayList<>();
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            apply(uncommitted);
+            uncommitted = null;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            uncommitted = null;
+        }
+    }
+}
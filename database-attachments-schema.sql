@@ -9,6 +9,7 @@
 -- Drop existing tables if recreating
 DROP TABLE IF EXISTS evidence_urls CASCADE;
 DROP TABLE IF EXISTS attachments CASCADE;
+DROP TABLE IF EXISTS attachment_blobs CASCADE;
 
 -- ================================================
 -- TABLE: attachments
@@ -30,8 +31,15 @@ CREATE TABLE attachments (
     file_type VARCHAR(100) NOT NULL,  -- MIME type (e.g., 'application/pdf', 'image/jpeg')
 
     -- External storage reference
-    storage_url TEXT NOT NULL,  -- Full URL to access the file (S3, Cloudinary, or local)
+    storage_url TEXT,  -- Full URL to access the file (S3, Cloudinary, or local); NULL while pending
     storage_provider VARCHAR(50) DEFAULT 'local',  -- 'local', 's3', 'cloudinary'
+    storage_key VARCHAR(512),  -- Key of the object within storage (attachments/uuid.png), from storage_url
+    status VARCHAR(20) NOT NULL DEFAULT 'ready',  -- 'ready', 'pending' (async upload in progress), 'failed'
+    spool_path TEXT,  -- Local copy of a pending file
+    content_hash VARCHAR(64),  -- SHA-256 of a content-addressed file shared via attachment_blobs (NULL: own object)
+    image_width INTEGER,  -- Images: size of the original
+    image_height INTEGER,
+    variant_widths VARCHAR(100),  -- Images: widths of the stored thumbnail/variants, smallest first ('160,320,640')
 
     -- Additional metadata
     uploaded_by VARCHAR(100) DEFAULT 'Anonymous',
@@ -47,6 +55,21 @@ CREATE TABLE attachments (
     )
 );
 
+-- ================================================
+-- TABLE: attachment_blobs
+-- ================================================
+-- One stored file per distinct content (SHA-256), shared by every attachment
+-- with that content; the object is deleted when ref_count drops to zero
+
+CREATE TABLE attachment_blobs (
+    sha256 VARCHAR(64) PRIMARY KEY,
+    storage_url TEXT,  -- NULL until the object is uploaded (the row is reserved first)
+    storage_provider VARCHAR(50) NOT NULL,
+    file_size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 1,  -- Attachments using this blob
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- ================================================
 -- TABLE: evidence_urls
 -- ================================================
@@ -86,6 +109,10 @@ CREATE INDEX idx_attachments_question ON attachments(question_id);
 CREATE INDEX idx_attachments_reply ON attachments(reply_id);
 CREATE INDEX idx_attachments_created ON attachments(created_at DESC);
 CREATE INDEX idx_attachments_display_order ON attachments(display_order);
+CREATE INDEX idx_attachments_pending ON attachments(created_at) WHERE status = 'pending';
+CREATE INDEX idx_attachments_storage_key ON attachments(storage_key);
+CREATE UNIQUE INDEX idx_attachments_storage_key_own ON attachments(storage_key) WHERE content_hash IS NULL;
+CREATE INDEX idx_attachments_file_name ON attachments(file_name);
 
 -- Evidence URLs indexes
 CREATE INDEX idx_evidence_urls_question ON evidence_urls(question_id);
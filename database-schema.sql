@@ -5,6 +5,7 @@
 -- ================================================
 
 -- Drop existing tables (for clean start)
+DROP TABLE IF EXISTS topic_changes CASCADE;
 DROP TABLE IF EXISTS replies CASCADE;
 DROP TABLE IF EXISTS questions CASCADE;
 DROP TABLE IF EXISTS debate_topics CASCADE;
@@ -21,6 +22,10 @@ CREATE TABLE debate_topics (
     right_label VARCHAR(100) NOT NULL,
     description TEXT,
     is_active BOOLEAN DEFAULT true,
+    question_count INTEGER NOT NULL DEFAULT 0,
+    reply_count INTEGER NOT NULL DEFAULT 0,
+    last_activity_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    change_version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
@@ -38,6 +43,11 @@ CREATE TABLE questions (
     votes_up INTEGER DEFAULT 0,
     votes_down INTEGER DEFAULT 0,
     unique_id VARCHAR(100) UNIQUE,
+    reply_count INTEGER NOT NULL DEFAULT 0,
+    descendant_count INTEGER NOT NULL DEFAULT 0,
+    attachment_count INTEGER NOT NULL DEFAULT 0,
+    evidence_count INTEGER NOT NULL DEFAULT 0,
+    last_activity_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
@@ -56,6 +66,13 @@ CREATE TABLE replies (
     votes_down INTEGER DEFAULT 0,
     unique_id VARCHAR(100) UNIQUE,
     depth INTEGER DEFAULT 0,
+    root_question_id UUID REFERENCES questions(id) ON DELETE CASCADE,
+    path VARCHAR(2000) COLLATE "C",
+    reply_count INTEGER NOT NULL DEFAULT 0,
+    descendant_count INTEGER NOT NULL DEFAULT 0,
+    attachment_count INTEGER NOT NULL DEFAULT 0,
+    evidence_count INTEGER NOT NULL DEFAULT 0,
+    last_activity_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT reply_parent_check CHECK (
@@ -97,8 +114,11 @@ CREATE TABLE contact_messages (
 CREATE INDEX idx_questions_debate_topic ON questions(debate_topic_id);
 CREATE INDEX idx_questions_created_at ON questions(created_at DESC);
 CREATE INDEX idx_questions_unique_id ON questions(unique_id);
+CREATE INDEX idx_questions_topic_descendants_id ON questions(debate_topic_id, descendant_count DESC, id DESC);
 CREATE INDEX idx_replies_question ON replies(question_id);
-CREATE INDEX idx_replies_parent ON replies(parent_reply_id);
+CREATE INDEX idx_replies_parent_created ON replies(parent_reply_id, created_at, id);
+CREATE INDEX idx_replies_path ON replies(path);
+CREATE INDEX idx_replies_root_question_path ON replies(root_question_id, path);
 CREATE INDEX idx_replies_created_at ON replies(created_at DESC);
 CREATE INDEX idx_replies_unique_id ON replies(unique_id);
 CREATE INDEX idx_debate_topics_active ON debate_topics(is_active);
@@ -119,6 +139,52 @@ CREATE TABLE guidelines (
 CREATE INDEX idx_guidelines_display_order ON guidelines(display_order);
 CREATE INDEX idx_guidelines_active ON guidelines(is_active);
 
+-- ================================================
+-- TABLE: topic_changes (change log for GET /questions/topic/{id}/changes)
+-- ================================================
+CREATE TABLE topic_changes (
+    topic_id UUID NOT NULL REFERENCES debate_topics(id) ON DELETE CASCADE,
+    version BIGINT NOT NULL,
+    node_type VARCHAR(10) NOT NULL CHECK (node_type IN ('question', 'reply')),
+    node_id UUID NOT NULL,
+    deleted BOOLEAN NOT NULL DEFAULT false,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (topic_id, version)
+);
+
+CREATE INDEX idx_topic_changes_changed_at ON topic_changes(changed_at);
+
+-- ================================================
+-- TABLE: upload_sessions (resumable uploads, POST /files/uploads)
+-- ================================================
+CREATE TABLE upload_sessions (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    storage_provider VARCHAR(50) NOT NULL,
+    storage_key VARCHAR(500) NOT NULL,
+    provider_upload_id TEXT NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    file_size BIGINT NOT NULL,
+    file_type VARCHAR(100) NOT NULL,
+    part_size BIGINT NOT NULL,
+    part_count INTEGER NOT NULL,
+    question_id UUID,
+    reply_id UUID,
+    uploaded_by VARCHAR(100) DEFAULT 'Anonymous',
+    status VARCHAR(20) NOT NULL DEFAULT 'uploading' CHECK (status IN ('uploading', 'completing')),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_upload_sessions_created_at ON upload_sessions(created_at);
+
+CREATE TABLE upload_session_parts (
+    session_id UUID NOT NULL REFERENCES upload_sessions(id) ON DELETE CASCADE,
+    part_number INTEGER NOT NULL,
+    size BIGINT NOT NULL,
+    etag VARCHAR(255) NOT NULL,
+    uploaded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (session_id, part_number)
+);
+
 -- ================================================
 -- COMMENTS
 -- ================================================
@@ -128,6 +194,8 @@ COMMENT ON TABLE replies IS 'Nested replies to questions or other replies';
 COMMENT ON TABLE admin_users IS 'Admin users for managing content';
 COMMENT ON TABLE contact_messages IS 'Messages from contact form';
 COMMENT ON TABLE guidelines IS 'Community guidelines for debates';
+COMMENT ON TABLE topic_changes IS 'Numbered changes per debate topic (delta sync), pruned after a few days';
+COMMENT ON TABLE upload_sessions IS 'Resumable uploads in progress (S3/R2 multipart uploads, local part files)';
 
 -- ================================================
 -- VERIFICATION
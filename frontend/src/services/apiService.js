@@ -393,6 +393,21 @@ const questionsAPI = {
     return result;
   },
 
+  /**
+   * Get one page of questions for a topic (reply counts + first replies only)
+   * @param {string} topicId - UUID of the topic
+   * @param {Object} options - { sort: 'newest'|'top'|'most-replied', limit, cursor, previewReplies }
+   * @returns {Promise<Object>} { items, sort, limit, hasMore, nextCursor }
+   */
+  getPageByTopic: async (topicId, { sort = 'newest', limit = 20, cursor = null, previewReplies = 3 } = {}) => {
+    const params = new URLSearchParams({ sort, limit: String(limit), previewReplies: String(previewReplies) });
+    if (cursor) params.set('cursor', cursor);
+    console.log('❓ questionsAPI.getPageByTopic() - Fetching page for topic:', topicId, params.toString());
+    const result = await apiFetch(`/questions/topic/${topicId}/page?${params.toString()}`);
+    console.log('❓ questionsAPI.getPageByTopic() - Result:', result?.items?.length || 0, 'questions, hasMore:', result?.hasMore);
+    return result;
+  },
+
   /**
    * Create a new question
    * @param {Object} questionData - { debateTopicId, text, tag, side, author }
@@ -495,6 +510,23 @@ const repliesAPI = {
     return result;
   },
 
+  /**
+   * Get replies beneath a question or reply, down to a given depth
+   * @param {Object} source - exactly one of { questionId, replyId, cursor }
+   * @param {Object} options - { depth, limit }
+   * @returns {Promise<Object>} { parentType, parentId, items, nextCursor }
+   */
+  getSubtree: async ({ questionId, replyId, cursor } = {}, { depth = 2, limit = 10 } = {}) => {
+    const params = new URLSearchParams({ depth: String(depth), limit: String(limit) });
+    if (questionId) params.set('questionId', questionId);
+    if (replyId) params.set('replyId', replyId);
+    if (cursor) params.set('cursor', cursor);
+    console.log('💬 repliesAPI.getSubtree() - Fetching subtree:', params.toString());
+    const result = await apiFetch(`/replies/subtree?${params.toString()}`);
+    console.log('💬 repliesAPI.getSubtree() - Result:', result?.items?.length || 0, 'replies, nextCursor:', result?.nextCursor);
+    return result;
+  },
+
   /**
    * Create a new reply to a question or another reply
    * @param {Object} replyData - { questionId?, parentReplyId?, text, side, author, depth }